@@ -0,0 +1,125 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.assembly.DockerAssemblyManager;
+import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.util.AnsiLogger;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.maven.docker.util.MojoParameters;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.archiver.manager.ArchiverManager;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Creating the build archive for a Dockerfile based build with {@link DockerAssemblyManager}, for a build context
+ * with many small files and for the supported compressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BuildArchiveBenchmark {
+
+    @Param({ "none", "gzip", "pgzip" })
+    private String compression;
+
+    @Param({ "2000" })
+    private int files;
+
+    private File baseDir;
+    private DockerAssemblyManager assemblyManager;
+    private MojoParameters params;
+    private BuildImageConfiguration buildConfig;
+    private Logger log;
+
+    @Setup
+    public void setUp() throws Exception {
+        baseDir = Files.createTempDirectory("dmp-benchmark").toFile();
+        File contextDir = new File(baseDir, "src/main/docker");
+        Random random = new Random(42);
+        for (int i = 0; i < files; i++) {
+            File file = new File(contextDir, String.format("dir%02d/file%05d.txt", i % 50, i));
+            FileUtils.forceMkdirParent(file);
+            StringBuilder content = new StringBuilder();
+            while (content.length() < 4096) {
+                content.append("line ").append(random.nextInt(100000)).append('\n');
+            }
+            Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        File dockerFile = new File(contextDir, "Dockerfile");
+        Files.write(dockerFile.toPath(), "FROM scratch\nCOPY . /opt/context\n".getBytes(StandardCharsets.UTF_8));
+
+        log = new AnsiLogger(new DefaultLog(new ConsoleLogger(ConsoleLogger.LEVEL_DISABLED, "benchmark")), false, null);
+        assemblyManager = createAssemblyManager();
+        params = createMojoParameters(baseDir);
+        buildConfig = new BuildImageConfiguration.Builder()
+            .dockerFile(dockerFile.getAbsolutePath())
+            .compression(compression)
+            .build();
+        buildConfig.initAndValidate(log);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Benchmark
+    public long createDockerTarArchive() throws Exception {
+        File archive = assemblyManager.createDockerTarArchive("benchmark:latest", params, buildConfig, log);
+        return archive.length();
+    }
+
+    // The plexus container is not available, so inject an archiver manager which only knows about tar
+    private static DockerAssemblyManager createAssemblyManager() throws ReflectiveOperationException {
+        ArchiverManager archiverManager = (ArchiverManager) Proxy.newProxyInstance(
+            BuildArchiveBenchmark.class.getClassLoader(), new Class<?>[] { ArchiverManager.class },
+            (proxy, method, args) -> {
+                if (method.getName().equals("getArchiver") && "tar".equals(args[0])) {
+                    return new TarArchiver();
+                }
+                throw new UnsupportedOperationException(method.toString());
+            });
+        DockerAssemblyManager manager = new DockerAssemblyManager();
+        Field field = DockerAssemblyManager.class.getDeclaredField("archiverManager");
+        field.setAccessible(true);
+        field.set(manager, archiverManager);
+        return manager;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static MojoParameters createMojoParameters(File baseDir) {
+        MavenProject project = new MavenProject();
+        project.setArtifactId("benchmark");
+        project.setFile(new File(baseDir, "pom.xml"));
+        Settings settings = new Settings();
+        // No settings in the session, there is no local repository to interpolate
+        MavenSession session = new MavenSession(null, null, null, null, null, Collections.<String>emptyList(),
+                                                baseDir.getAbsolutePath(), null, null, new Date());
+        return new MojoParameters(session, project, null, null, null, settings,
+                                  "src/main/docker", "target/docker", Collections.singletonList(project));
+    }
+}
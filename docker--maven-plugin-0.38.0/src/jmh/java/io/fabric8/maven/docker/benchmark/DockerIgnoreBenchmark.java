@@ -0,0 +1,88 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.assembly.ContextDirResourceCollection;
+import io.fabric8.maven.docker.assembly.DockerIgnoreMatcher;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Selecting the files of a build context where nearly all files are below ignored directories, once with
+ * a plexus file set and once with a {@link DockerIgnoreMatcher} which skips the ignored directories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DockerIgnoreBenchmark {
+
+    // The same selection as Ant patterns and as .dockerignore patterns
+    private static final String[] EXCLUDES = { "node_modules/**", ".git/**", "target/**", "**/*.log" };
+    private static final String[] DOCKER_IGNORE = { "node_modules", ".git", "target", "**/*.log" };
+
+    @Param({ "500000" })
+    private int files;
+
+    private File contextDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        contextDir = Files.createTempDirectory("dmp-benchmark").toFile();
+        String[] ignored = { "node_modules", ".git/objects", "target/classes" };
+        for (int i = 0; i < files; i++) {
+            String path = i % 100 == 0 ?
+                String.format("src/dir%02d/file%06d.txt", i % 50, i) :
+                String.format("%s/dir%03d/file%06d", ignored[i % ignored.length], i % 500, i);
+            File file = new File(contextDir, path);
+            FileUtils.forceMkdirParent(file);
+            Files.createFile(file.toPath());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(contextDir);
+    }
+
+    @Benchmark
+    public int fileSet() throws Exception {
+        DefaultFileSet fileSet = DefaultFileSet.fileSet(contextDir);
+        fileSet.setExcludes(EXCLUDES);
+        TarArchiver archiver = new TarArchiver();
+        archiver.addFileSet(fileSet);
+        return count(archiver);
+    }
+
+    @Benchmark
+    public int dockerIgnoreMatcher() throws Exception {
+        DockerIgnoreMatcher matcher = new DockerIgnoreMatcher().addDockerIgnore(Arrays.asList(DOCKER_IGNORE));
+        TarArchiver archiver = new TarArchiver();
+        archiver.addResources(new ContextDirResourceCollection(contextDir, matcher));
+        return count(archiver);
+    }
+
+    private static int count(TarArchiver archiver) {
+        int count = 0;
+        ResourceIterator resources = archiver.getResources();
+        while (resources.hasNext()) {
+            resources.next();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,49 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.util.EnvUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Extracting a map from large property sets with {@link EnvUtil#extractFromPropertiesAsMap}, as done for
+ * every image configured via properties. Only a small share of the properties matches the prefix, like in
+ * a project with many Maven and system properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnvUtilBenchmark {
+
+    @Param({ "100", "10000" })
+    private int properties;
+
+    private Properties props;
+
+    @Setup
+    public void setUp() {
+        props = new Properties();
+        for (int i = 0; i < properties; i++) {
+            if (i % 10 == 0) {
+                props.setProperty("docker.env.VARIABLE_" + i, "value" + i);
+            } else {
+                props.setProperty("project.property." + i, "value" + i);
+            }
+        }
+        props.setProperty("docker.env._combine", "override");
+    }
+
+    @Benchmark
+    public Map<String, String> extractFromPropertiesAsMap() {
+        return EnvUtil.extractFromPropertiesAsMap("docker.env", props);
+    }
+}
@@ -0,0 +1,78 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import io.fabric8.maven.docker.model.ImageArchiveManifest;
+import io.fabric8.maven.docker.util.ImageArchiveUtil;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reading the manifest of a saved image archive with {@link ImageArchiveUtil#readManifest(java.io.InputStream)}.
+ * Like with <code>docker save</code> the manifest comes after the layers, so the whole archive is read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImageArchiveManifestBenchmark {
+
+    private static final int LAYER_SIZE = 1024 * 1024;
+
+    @Param({ "none", "gzip" })
+    private ArchiveCompression compression;
+
+    @Param({ "16" })
+    private int layers;
+
+    private byte[] archive;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        byte[] layer = new byte[LAYER_SIZE];
+        StringBuilder layerNames = new StringBuilder();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream compressed = compression.wrapOutputStream(bytes);
+             TarArchiveOutputStream tar = new TarArchiveOutputStream(compressed)) {
+            for (int i = 0; i < layers; i++) {
+                random.nextBytes(layer);
+                String name = String.format("%064x/layer.tar", i);
+                addEntry(tar, name, layer);
+                layerNames.append(i > 0 ? "," : "").append('"').append(name).append('"');
+            }
+            String manifest = "[{\"Config\":\"config.json\",\"RepoTags\":[\"fabric8/benchmark:latest\"],\"Layers\":[" +
+                              layerNames + "]}]";
+            addEntry(tar, "config.json", "{}".getBytes(StandardCharsets.UTF_8));
+            addEntry(tar, ImageArchiveUtil.MANIFEST_JSON, manifest.getBytes(StandardCharsets.UTF_8));
+        }
+        archive = bytes.toByteArray();
+    }
+
+    @Benchmark
+    public ImageArchiveManifest readManifest() throws IOException {
+        return ImageArchiveUtil.readManifest(new ByteArrayInputStream(archive));
+    }
+
+    private static void addEntry(TarArchiveOutputStream tar, String name, byte[] content) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        tar.putArchiveEntry(entry);
+        tar.write(content);
+        tar.closeArchiveEntry();
+    }
+}
@@ -0,0 +1,44 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.util.ImageName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing and validating image names of different shapes with {@link ImageName}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ImageNameBenchmark {
+
+    private final String[] names = {
+        "busybox",
+        "fabric8/docker-maven-plugin:0.38.0",
+        "docker.io/library/openjdk:11-jre-slim",
+        "registry.example.com:5000/team/project/service:1.2.3-SNAPSHOT",
+        "localhost:5000/app@sha256:0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef"
+    };
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(new ImageName(name));
+        }
+    }
+
+    @Benchmark
+    public void parseAndFormat(Blackhole blackhole) {
+        for (String name : names) {
+            ImageName imageName = new ImageName(name);
+            blackhole.consume(imageName.getFullName("registry.example.com"));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.access.chunked.EntityStreamReaderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing the stream of JSON objects the daemon sends as progress for builds and pulls
+ * with {@link EntityStreamReaderUtil#processJsonStream}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonStreamBenchmark {
+
+    @Param({ "build", "pull" })
+    private String kind;
+
+    @Param({ "20000" })
+    private int messages;
+
+    private byte[] stream;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < messages; i++) {
+            if (kind.equals("build")) {
+                json.append("{\"stream\":\"Step ").append(i).append("/").append(messages)
+                    .append(" : RUN echo \\\"building layer ").append(i).append("\\\"\\n\"}\r\n");
+            } else {
+                int current = i * 1024 % (10 * 1024 * 1024);
+                json.append("{\"status\":\"Downloading\",\"progressDetail\":{\"current\":").append(current)
+                    .append(",\"total\":10485760},\"progress\":\"[=====>          ] ").append(current / 1024)
+                    .append("kB/10.49MB\",\"id\":\"").append(String.format("%012x", i % 16)).append("\"}\r\n");
+            }
+        }
+        stream = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int processJsonStream() throws IOException {
+        CountingHandler handler = new CountingHandler();
+        EntityStreamReaderUtil.processJsonStream(handler, new ByteArrayInputStream(stream));
+        return handler.count;
+    }
+
+    private static class CountingHandler implements EntityStreamReaderUtil.JsonEntityResponseHandler {
+
+        private int count;
+
+        @Override
+        public void process(JsonObject json) {
+            count += json.size();
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.access.UrlBuilder;
+import io.fabric8.maven.docker.access.log.LogCallback;
+import io.fabric8.maven.docker.access.log.LogRequestor;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reading a multiplexed log stream with {@link LogRequestor}: frame decoding, matching each line against
+ * the log line pattern and parsing its timestamp. The HTTP client returns a prepared response so that only
+ * the parsing is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LogStreamBenchmark {
+
+    @Param({ "10000" })
+    private int lines;
+
+    private CloseableHttpClient client;
+    private UrlBuilder urlBuilder;
+
+    @Setup
+    public void setUp() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Instant timestamp = Instant.parse("2021-10-17T10:15:30.123456789Z");
+        for (int i = 0; i < lines; i++) {
+            String line = timestamp.plusMillis(i) + " INFO  [main] o.e.Application - Processed request " + i +
+                          " in " + (i % 97) + " ms\n";
+            byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.put((byte) (i % 10 == 0 ? 2 : 1)).putInt(4, payload.length);
+            stream.write(header.array());
+            stream.write(payload);
+        }
+        client = new PreparedResponseClient(stream.toByteArray());
+        urlBuilder = new UrlBuilder("http://localhost:2375", "v1.40");
+    }
+
+    @Benchmark
+    public long fetchLogs() {
+        SummingCallback callback = new SummingCallback();
+        new LogRequestor(client, urlBuilder, "0123456789ab", callback).fetchLogs();
+        return callback.sum;
+    }
+
+    private static class SummingCallback implements LogCallback {
+
+        private long sum;
+
+        @Override
+        public void log(int type, ZonedDateTime timestamp, String txt) {
+            sum += type + timestamp.getNano() + txt.length();
+        }
+
+        @Override
+        public void error(String error) {
+            throw new IllegalStateException(error);
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Answers every request with the same log stream
+    @SuppressWarnings("deprecation")
+    private static class PreparedResponseClient extends CloseableHttpClient {
+
+        private final byte[] content;
+
+        PreparedResponseClient(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) {
+            PreparedResponse response = new PreparedResponse();
+            response.setEntity(new ByteArrayEntity(content));
+            return response;
+        }
+
+        @Override
+        public HttpParams getParams() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ClientConnectionManager getConnectionManager() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class PreparedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        PreparedResponse() {
+            super(HttpVersion.HTTP_1_1, 200, "OK");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
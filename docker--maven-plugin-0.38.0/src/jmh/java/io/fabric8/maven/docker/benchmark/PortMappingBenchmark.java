@@ -0,0 +1,60 @@
+package io.fabric8.maven.docker.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.access.PortMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Creating a {@link PortMapping} from the configured port specifications, mixing fixed ports,
+ * host IPs and ports given as Maven properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PortMappingBenchmark {
+
+    @Param({ "50" })
+    private int ports;
+
+    private List<String> specs;
+    private Properties properties;
+
+    @Setup
+    public void setUp() {
+        specs = new ArrayList<>();
+        properties = new Properties();
+        for (int i = 0; i < ports; i++) {
+            int containerPort = 8000 + i;
+            switch (i % 4) {
+                case 0:
+                    specs.add((18000 + i) + ":" + containerPort);
+                    break;
+                case 1:
+                    specs.add("127.0.0.1:" + (18000 + i) + ":" + containerPort + "/udp");
+                    break;
+                case 2:
+                    specs.add("port" + i + ".port:" + containerPort);
+                    break;
+                default:
+                    properties.setProperty("host.ip" + i, "10.0.0." + (i % 250));
+                    specs.add("+host.ip" + i + ":port" + i + ".port:" + containerPort);
+            }
+        }
+    }
+
+    @Benchmark
+    public PortMapping create() {
+        return new PortMapping(specs, properties);
+    }
+}
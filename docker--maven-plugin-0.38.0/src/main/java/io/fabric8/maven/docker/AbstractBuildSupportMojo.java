@@ -48,6 +48,7 @@ abstract public class AbstractBuildSupportMojo extends AbstractDockerMojo {
                 .buildArgs(buildArgs)
                 .mojoParameters(createMojoParameters())
                 .registryConfig(getRegistryConfig(pullRegistry))
+                .compressionThreads(compressionThreads)
                 .build();
     }
 
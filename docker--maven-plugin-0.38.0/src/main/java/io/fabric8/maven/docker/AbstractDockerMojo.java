@@ -3,17 +3,26 @@ package io.fabric8.maven.docker;
 import java.io.File;
 import java.io.IOException;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableList;
+import io.fabric8.maven.docker.access.ContainerFilter;
 import io.fabric8.maven.docker.access.DockerAccess;
 import io.fabric8.maven.docker.access.DockerAccessException;
 import io.fabric8.maven.docker.access.ExecException;
+import io.fabric8.maven.docker.access.cache.CachingDockerAccess;
+import io.fabric8.maven.docker.access.hc.DockerAccessWithHcClient;
+import io.fabric8.maven.docker.access.metrics.AccessMetrics;
+import io.fabric8.maven.docker.access.metrics.InstrumentedDockerAccess;
+import io.fabric8.maven.docker.access.retry.RetryingDockerAccess;
+import io.fabric8.maven.docker.access.retry.RetrySettings;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
 import io.fabric8.maven.docker.config.ConfigHelper;
 import io.fabric8.maven.docker.config.DockerMachineConfiguration;
@@ -34,12 +43,14 @@ import io.fabric8.maven.docker.service.ServiceHub;
 import io.fabric8.maven.docker.service.ServiceHubFactory;
 import io.fabric8.maven.docker.util.AnsiLogger;
 import io.fabric8.maven.docker.util.AuthConfigFactory;
+import io.fabric8.maven.docker.util.CredentialHelperCache;
 import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.GavLabel;
 import io.fabric8.maven.docker.util.ImageNameFormatter;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.NamePatternUtil;
 
+import org.apache.http.pool.PoolStats;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecution;
@@ -141,6 +152,67 @@ public abstract class AbstractDockerMojo extends AbstractMojo implements Context
     @Parameter(property = "docker.verbose")
     protected String verbose;
 
+    /**
+     * Whether to record count, latency and transferred bytes of the calls to the Docker daemon and to
+     * write them as JSON report to the output directory at the end of each execution
+     */
+    @Parameter(property = "docker.accessMetrics", defaultValue = "false")
+    protected boolean accessMetrics;
+
+    /**
+     * Default number of retries for calls to the Docker daemon which failed with a transient error
+     * (e.g. a connection reset or a 503 response). 0 disables retries.
+     */
+    @Parameter(property = "docker.retry.maxRetries", defaultValue = "0")
+    protected int retryMaxRetries;
+
+    /**
+     * Number of retries per operation (e.g. <code>pullImage</code>), overriding <code>retryMaxRetries</code>
+     */
+    @Parameter
+    protected Map<String, String> retryBudgets;
+
+    // Delay in milliseconds before the first retry, doubled for each further retry
+    @Parameter(property = "docker.retry.initialDelay", defaultValue = "200")
+    protected long retryInitialDelay;
+
+    // Maximum delay in milliseconds between two retries
+    @Parameter(property = "docker.retry.maxDelay", defaultValue = "5000")
+    protected long retryMaxDelay;
+
+    // Maximum time in milliseconds for a single call including its retries
+    @Parameter(property = "docker.retry.maxDuration", defaultValue = "120000")
+    protected long retryMaxDuration;
+
+    /**
+     * Number of consecutive connection failures after which calls to the Docker daemon fail immediately
+     * for <code>circuitBreakerDelay</code> milliseconds. 0 disables this.
+     */
+    @Parameter(property = "docker.retry.circuitBreakerThreshold", defaultValue = "0")
+    protected int circuitBreakerThreshold;
+
+    @Parameter(property = "docker.retry.circuitBreakerDelay", defaultValue = "30000")
+    protected long circuitBreakerDelay;
+
+    /**
+     * Time in milliseconds for which image and container inspect results are cached within an execution.
+     * 0 disables the cache.
+     */
+    @Parameter(property = "docker.inspectCacheTtl", defaultValue = "2000")
+    protected long inspectCacheTtl;
+
+    /**
+     * Number of threads used for <code>pgzip</code> compression. 0 uses all available processors.
+     */
+    @Parameter(property = "docker.compression.threads", defaultValue = "0")
+    protected int compressionThreads;
+
+    /**
+     * Time in seconds for which the answers of credential helpers are reused. 0 disables caching.
+     */
+    @Parameter(property = "docker.credentialHelper.cacheTtl", defaultValue = "300")
+    protected long credentialHelperCacheTtl;
+
     // The date format to use when putting out logs
     @Parameter(property = "docker.logDate")
     private String logDate;
@@ -253,6 +325,7 @@ public abstract class AbstractDockerMojo extends AbstractMojo implements Context
 
             try {
                 authConfigFactory.setLog(log);
+                authConfigFactory.setCredentialHelperCache(CredentialHelperCache.fromSession(session), credentialHelperCacheTtl);
                 imageConfigResolver.setLog(log);
 
                 LogOutputSpecFactory logSpecFactory = new LogOutputSpecFactory(useColor, logStdout, logDate);
@@ -260,14 +333,30 @@ public abstract class AbstractDockerMojo extends AbstractMojo implements Context
                 ConfigHelper.validateExternalPropertyActivation(project, getAllImages());
 
                 DockerAccess access = null;
+                DockerAccess executionAccess = null;
+                RetryingDockerAccess retryingAccess = null;
+                InstrumentedDockerAccess instrumentedAccess = null;
+                CachingDockerAccess cachingAccess = null;
                 try {
                     // The 'real' images configuration to use (configured images + externally resolved images)
                     this.minimalApiVersion = initImageConfiguration(getBuildTimestamp());
                     if (isDockerAccessRequired()) {
                         DockerAccessFactory.DockerAccessContext dockerAccessContext = getDockerAccessContext();
-                        access = dockerAccessFactory.createDockerAccess(dockerAccessContext);
+                        access = dockerAccessFactory.acquireDockerAccess(dockerAccessContext, session);
+                        // Wrapped per execution, since the access object itself can be shared within the session
+                        retryingAccess = new RetryingDockerAccess(access, getRetrySettings(), log);
+                        executionAccess = retryingAccess;
+                        if (accessMetrics) {
+                            instrumentedAccess = new InstrumentedDockerAccess(retryingAccess, new AccessMetrics(getPoolStatsSupplier(access)));
+                            executionAccess = instrumentedAccess;
+                        }
+                        if (inspectCacheTtl > 0) {
+                            // Outermost, so that metrics only count the calls reaching the daemon
+                            cachingAccess = new CachingDockerAccess(executionAccess, inspectCacheTtl);
+                            executionAccess = cachingAccess;
+                        }
                     }
-                    ServiceHub serviceHub = serviceHubFactory.createServiceHub(project, session, access, log, logSpecFactory);
+                    ServiceHub serviceHub = serviceHubFactory.createServiceHub(project, session, executionAccess, log, logSpecFactory);
                     executeInternal(serviceHub);
                 } catch (IOException | ExecException exp) {
                     logException(exp);
@@ -276,8 +365,18 @@ public abstract class AbstractDockerMojo extends AbstractMojo implements Context
                     logException(exp);
                     throw exp;
                 } finally {
+                    if (retryingAccess != null) {
+                        logRetries(retryingAccess.getRetryCounts());
+                    }
+                    if (cachingAccess != null) {
+                        log.debug("Inspect cache: %d lookups served from cache, %d passed to the Docker daemon",
+                                  cachingAccess.getHits(), cachingAccess.getMisses());
+                    }
+                    if (instrumentedAccess != null) {
+                        writeAccessMetrics(instrumentedAccess.getMetrics());
+                    }
                     if (access != null) {
-                        access.shutdown();
+                        dockerAccessFactory.releaseDockerAccess(access, session);
                     }
                 }
             } finally {
@@ -291,6 +390,57 @@ public abstract class AbstractDockerMojo extends AbstractMojo implements Context
         }
     }
 
+    private RetrySettings getRetrySettings() throws MojoExecutionException {
+        try {
+            return new RetrySettings()
+                .maxRetries(retryMaxRetries)
+                .budgets(retryBudgets)
+                .initialDelay(retryInitialDelay)
+                .maxDelay(retryMaxDelay)
+                .maxDuration(retryMaxDuration)
+                .circuitBreakerThreshold(circuitBreakerThreshold)
+                .circuitBreakerDelay(circuitBreakerDelay);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    private void logRetries(Map<String, Long> retryCounts) {
+        if (!retryCounts.isEmpty()) {
+            log.info("Retried Docker calls: %s", retryCounts.entrySet().stream()
+                                                             .map(e -> e.getKey() + "=" + e.getValue())
+                                                             .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private Supplier<PoolStats> getPoolStatsSupplier(DockerAccess access) {
+        if (access instanceof DockerAccessWithHcClient) {
+            return ((DockerAccessWithHcClient) access)::getConnectionPoolStats;
+        }
+        return () -> null;
+    }
+
+    private void writeAccessMetrics(AccessMetrics metrics) {
+        String goal = execution != null ? execution.getGoal() : "unknown";
+        String executionId = execution != null ? execution.getExecutionId() : "default";
+        File outputDir = new File(outputDirectory);
+        if (!outputDir.isAbsolute()) {
+            outputDir = new File(project.getBasedir(), outputDirectory);
+        }
+        File report = new File(outputDir, String.format("access-metrics-%s-%s.json", goal, executionId));
+
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("project", project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion());
+        info.put("goal", goal);
+        info.put("execution", executionId);
+        try {
+            metrics.writeReport(report, info);
+            log.info("Docker access metrics written to %s", report);
+        } catch (IOException exp) {
+            log.warn("Cannot write Docker access metrics to %s: %s", report, exp.getMessage());
+        }
+    }
+
     private void logException(Exception exp) {
         if (exp.getCause() != null) {
             log.error("%s [%s]", exp.getMessage(), exp.getCause().getMessage());
@@ -561,7 +711,15 @@ public abstract class AbstractDockerMojo extends AbstractMojo implements Context
 
     protected List<Container> getContainersForPattern(QueryService queryService, boolean all, Matcher imageNameMatcher,
             Matcher containerNameMatcher, String patternConfigName) throws IOException {
-        return queryService.listContainers(all).stream()
+        return getContainersForPattern(queryService, all, null, imageNameMatcher, containerNameMatcher, patternConfigName);
+    }
+
+    protected List<Container> getContainersForPattern(QueryService queryService, boolean all, ContainerFilter filter,
+            Matcher imageNameMatcher, Matcher containerNameMatcher, String patternConfigName) throws IOException {
+        // Only the filter can be evaluated by the daemon, the patterns are checked here
+        List<Container> containers = filter != null ?
+            queryService.listContainers(all, filter) : queryService.listContainers(all);
+        return containers.stream()
                 .filter(c -> containerMatchesPattern(c, imageNameMatcher, containerNameMatcher, patternConfigName))
                 .collect(Collectors.toList());
     }
@@ -7,16 +7,29 @@ import java.io.LineNumberReader;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
-
-import io.fabric8.maven.docker.access.DockerAccessException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.fabric8.maven.docker.access.ArchiveWriter;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.service.BuildService;
 import io.fabric8.maven.docker.service.ImagePullManager;
 import io.fabric8.maven.docker.service.JibBuildService;
 import io.fabric8.maven.docker.service.ServiceHub;
+import io.fabric8.maven.docker.util.AnsiLogger;
+import io.fabric8.maven.docker.util.BuildOrderResolver;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.EnvUtil;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -60,6 +73,38 @@ public class BuildMojo extends AbstractBuildSupportMojo {
     @Parameter(property = "docker.skip.tag", defaultValue = "false")
     protected boolean skipTag;
 
+    /**
+     * Stream the build context directly to the docker daemon instead of creating a tarball first
+     */
+    @Parameter(property = "docker.build.streamContext", defaultValue = "false")
+    protected boolean streamBuildContext;
+
+    /**
+     * Reuse an existing image instead of building it again when all build inputs are unchanged
+     */
+    @Parameter(property = "docker.build.cache", defaultValue = "false")
+    protected boolean buildCache;
+
+    /**
+     * Record duration, cache usage and resulting layer of each build step and report them per image
+     */
+    @Parameter(property = "docker.build.report", defaultValue = "false")
+    protected boolean buildReport;
+
+    /**
+     * Number of images to build concurrently. Images based on other images of the build
+     * are built after their base images.
+     */
+    @Parameter(property = "docker.build.threads", defaultValue = "1")
+    protected int buildThreads;
+
+    /**
+     * Number of threads for pulling the base and cacheFrom images of all images before they are built.
+     * A value of 0 (the default) pulls them one after the other right before each build.
+     */
+    @Parameter(property = "docker.build.prefetchThreads", defaultValue = "0")
+    protected int prefetchThreads;
+
     @Override
     protected void executeInternal(ServiceHub hub) throws IOException, MojoExecutionException {
         if (skipBuild) {
@@ -69,9 +114,107 @@ public class BuildMojo extends AbstractBuildSupportMojo {
         // Check for build plugins
         executeBuildPlugins();
 
-        // Iterate over all the ImageConfigurations and process one by one
+        List<ImageConfiguration> imagesToBuild = new ArrayList<>();
         for (ImageConfiguration imageConfig : getResolvedImages()) {
-            processImageConfig(hub, imageConfig);
+            if (shallBuild(imageConfig)) {
+                imagesToBuild.add(imageConfig);
+            }
+        }
+
+        BuildService buildService = hub.getBuildService();
+        try {
+            if (shallPrefetchImages()) {
+                buildService.prefetchImages(imagesToBuild,
+                                            imageConfig -> getImagePullManager(determinePullPolicy(imageConfig.getBuildConfiguration()), autoPull),
+                                            getBuildContext(), prefetchThreads);
+            }
+
+            if (buildThreads > 1) {
+                buildConcurrently(hub, imagesToBuild);
+                return;
+            }
+
+            // Iterate over all the ImageConfigurations and process one by one
+            for (ImageConfiguration imageConfig : imagesToBuild) {
+                buildAndTag(hub, imageConfig);
+            }
+        } finally {
+            buildService.cancelPrefetch();
+        }
+    }
+
+    // Pulls are only required when the images are built by the Docker daemon
+    private boolean shallPrefetchImages() {
+        return prefetchThreads > 0 && !Boolean.TRUE.equals(jib) && !shallBuildArchiveOnly();
+    }
+
+    // Build images in parallel, but each image only after the images it is based on
+    private void buildConcurrently(ServiceHub hub, List<ImageConfiguration> imagesToBuild) throws IOException, MojoExecutionException {
+        BuildService buildService = hub.getBuildService();
+        BuildService.BuildContext buildContext = getBuildContext();
+        Map<ImageConfiguration, Set<ImageConfiguration>> dependencies = BuildOrderResolver.resolve(
+            imagesToBuild, image -> buildService.extractBaseImages(image.getBuildConfiguration(), buildContext));
+
+        log.info("Building %d images with up to %d threads", imagesToBuild.size(), buildThreads);
+        ExecutorService executorService = Executors.newFixedThreadPool(buildThreads);
+        ExecutorCompletionService<ImageConfiguration> builds = new ExecutorCompletionService<>(executorService);
+        try {
+            Set<ImageConfiguration> waiting = new LinkedHashSet<>(dependencies.keySet());
+            Set<ImageConfiguration> built = new HashSet<>();
+            int running = 0;
+            ExecutionException failure = null;
+            while (running > 0 || (failure == null && !waiting.isEmpty())) {
+                if (failure == null) {
+                    for (Iterator<ImageConfiguration> it = waiting.iterator(); it.hasNext(); ) {
+                        ImageConfiguration imageConfig = it.next();
+                        if (built.containsAll(dependencies.get(imageConfig))) {
+                            builds.submit(() -> buildWithThreadPrefix(hub, imageConfig));
+                            it.remove();
+                            running++;
+                        }
+                    }
+                }
+                // Running builds are always completed, even when another build has failed
+                try {
+                    built.add(builds.take().get());
+                } catch (ExecutionException exp) {
+                    if (failure == null) {
+                        failure = exp;
+                    }
+                }
+                running--;
+            }
+            if (failure != null) {
+                rethrowCause(failure);
+            }
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while building images", exp);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private ImageConfiguration buildWithThreadPrefix(ServiceHub hub, ImageConfiguration imageConfig) throws IOException, MojoExecutionException {
+        AnsiLogger.setThreadPrefix("[" + (imageConfig.getAlias() != null ? imageConfig.getAlias() : imageConfig.getName()) + "] ");
+        try {
+            buildAndTag(hub, imageConfig);
+            return imageConfig;
+        } finally {
+            AnsiLogger.setThreadPrefix(null);
+        }
+    }
+
+    private void rethrowCause(ExecutionException exp) throws IOException, MojoExecutionException {
+        Throwable cause = exp.getCause();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof MojoExecutionException) {
+            throw (MojoExecutionException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else {
+            throw new MojoExecutionException("Build failed with unexpected exception: " + cause.getMessage(), cause);
         }
     }
 
@@ -99,15 +242,32 @@ public class BuildMojo extends AbstractBuildSupportMojo {
     }
 
     private void proceedWithDockerBuild(BuildService buildService, BuildService.BuildContext buildContext, ImageConfiguration imageConfig, ImagePullManager pullManager) throws MojoExecutionException, IOException {
-        File buildArchiveFile = buildService.buildArchive(imageConfig, buildContext, resolveBuildArchiveParameter());
-        if (Boolean.FALSE.equals(shallBuildArchiveOnly())) {
-            buildService.buildImage(imageConfig, pullManager, buildContext, buildArchiveFile);
+        // An image built from the same inputs requires neither an archive nor a build
+        boolean reusedImage = buildCache && !shallBuildArchiveOnly() &&
+                              buildService.buildImageFromCache(imageConfig, pullManager, buildContext);
+        if (!reusedImage) {
+            if (shallStreamBuildContext(imageConfig)) {
+                ArchiveWriter archiveWriter = buildService.buildArchiveWriter(imageConfig, buildContext, resolveBuildArchiveParameter());
+                buildService.buildImage(imageConfig, pullManager, buildContext, archiveWriter);
+            } else {
+                File buildArchiveFile = buildService.buildArchive(imageConfig, buildContext, resolveBuildArchiveParameter());
+                if (Boolean.FALSE.equals(shallBuildArchiveOnly())) {
+                    buildService.buildImage(imageConfig, pullManager, buildContext, buildArchiveFile);
+                }
+            }
         }
         if (!skipTag) {
             buildService.tagImage(imageConfig);
         }
     }
 
+    @Override
+    protected BuildService.BuildContext getBuildContext() throws MojoExecutionException {
+        return new BuildService.BuildContext.Builder(super.getBuildContext())
+                .buildReport(buildReport)
+                .build();
+    }
+
     // We ignore an already existing date file and always return the current date
 
     @Override
@@ -125,6 +285,13 @@ public class BuildMojo extends AbstractBuildSupportMojo {
         return null;
     }
 
+    // A prebuilt docker archive is loaded as a whole and an archive-only build needs the tarball on disk
+    private boolean shallStreamBuildContext(ImageConfiguration imageConfig) {
+        return streamBuildContext &&
+               !shallBuildArchiveOnly() &&
+               imageConfig.getBuildConfiguration().getDockerArchive() == null;
+    }
+
     private boolean shallBuildArchiveOnly() {
         if (buildArchiveOnly != null && !buildArchiveOnly.isEmpty()) {
             if (buildArchiveOnly.equalsIgnoreCase("false") ||
@@ -139,24 +306,17 @@ public class BuildMojo extends AbstractBuildSupportMojo {
         return buildConfig != null && buildConfig.getImagePullPolicy() != null ? buildConfig.getImagePullPolicy() : imagePullPolicy;
     }
 
-    /**
-     * Helper method to process an ImageConfiguration.
-     *
-     * @param hub ServiceHub
-     * @param aImageConfig ImageConfiguration that would be forwarded to build and tag
-     * @throws DockerAccessException
-     * @throws MojoExecutionException
-     */
-    private void processImageConfig(ServiceHub hub, ImageConfiguration aImageConfig) throws IOException, MojoExecutionException {
-        BuildImageConfiguration buildConfig = aImageConfig.getBuildConfiguration();
+    private boolean shallBuild(ImageConfiguration imageConfig) {
+        BuildImageConfiguration buildConfig = imageConfig.getBuildConfiguration();
 
         if (buildConfig != null) {
             if(buildConfig.skip() || (skipPom && packaging.equalsIgnoreCase("pom"))) {
-                log.info("%s : Skipped building", aImageConfig.getDescription());
+                log.info("%s : Skipped building", imageConfig.getDescription());
             } else {
-                buildAndTag(hub, aImageConfig);
+                return true;
             }
         }
+        return false;
     }
 
     // check for a run-java.sh dependency an extract the script to target/ if found
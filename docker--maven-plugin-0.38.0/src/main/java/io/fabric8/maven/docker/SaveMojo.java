@@ -2,6 +2,7 @@ package io.fabric8.maven.docker;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
@@ -42,6 +43,10 @@ public class SaveMojo extends AbstractDockerMojo {
 	@Parameter(property = "docker.save.classifier")
 	private String saveClassifier;
 
+	// Compression to use instead of the one derived from the file name
+	@Parameter(property = "docker.save.compression")
+	private String saveCompression;
+
 	@Override
 	protected void executeInternal(ServiceHub serviceHub) throws DockerAccessException, MojoExecutionException {
 
@@ -52,7 +57,8 @@ public class SaveMojo extends AbstractDockerMojo {
 
 		ImageConfiguration image = getImageToSave(images);
 		String imageName = image.getName();
-		String fileName = getFileName(imageName);
+		ArchiveCompression configuredCompression = getConfiguredCompression();
+		String fileName = getFileName(imageName, configuredCompression);
 		ensureSaveDir(fileName);
 		log.info("Saving image %s to %s", imageName, fileName);
 		if (!serviceHub.getQueryService().hasImage(imageName)) {
@@ -60,8 +66,9 @@ public class SaveMojo extends AbstractDockerMojo {
 		}
 
 		long time = System.currentTimeMillis();
-		ArchiveCompression compression = ArchiveCompression.fromFileName(fileName);
-		serviceHub.getDockerAccess().saveImage(imageName, fileName, compression);
+		ArchiveCompression compression = configuredCompression != null ?
+			configuredCompression : ArchiveCompression.fromFileName(fileName);
+		serviceHub.getDockerAccess().saveImage(imageName, fileName, compression, compressionThreads);
 		log.info("%s: Saved image to %s in %s", imageName, fileName, EnvUtil.formatDurationTill(time));
 
 		String classifier = getClassifier(image);
@@ -86,7 +93,25 @@ public class SaveMojo extends AbstractDockerMojo {
 		return false;
 	}
 
-	private String getFileName(String iName) {
+	private ArchiveCompression getConfiguredCompression() throws MojoExecutionException {
+		if (saveCompression == null) {
+			return null;
+		}
+		try {
+			ArchiveCompression compression = ArchiveCompression.valueOf(saveCompression);
+			if (compression == ArchiveCompression.auto) {
+				// The file name has to match the compression, so it must be known upfront
+				throw new MojoExecutionException("Compression 'auto' is only supported for build archives, not for docker:save");
+			}
+			return compression;
+		} catch (IllegalArgumentException exp) {
+			throw new MojoExecutionException("Invalid compression '" + saveCompression + "' for docker:save, " +
+											 "must be one of " + Arrays.toString(ArchiveCompression.values()));
+		}
+	}
+
+	private String getFileName(String iName, ArchiveCompression configuredCompression) {
+	    String suffix = (configuredCompression != null ? configuredCompression : STANDARD_ARCHIVE_COMPRESSION).getFileSuffix();
 	    String configuredFileName = getConfiguredFileName();
 	    if (configuredFileName != null) {
             if (new File(configuredFileName).isAbsolute()) {
@@ -97,12 +122,12 @@ public class SaveMojo extends AbstractDockerMojo {
 		if (saveAlias != null) {
 			return completeCalculatedFileName(saveAlias +
                                               "-" + project.getVersion() +
-                                              "." + STANDARD_ARCHIVE_COMPRESSION.getFileSuffix());
+                                              "." + suffix);
 		}
         ImageName imageName = new ImageName(iName);
         return completeCalculatedFileName(imageName.getSimpleName() +
                                           "-" + imageName.getTag()) +
-                                          "." + STANDARD_ARCHIVE_COMPRESSION.getFileSuffix();
+                                          "." + suffix;
     }
 
     private String getConfiguredFileName() {
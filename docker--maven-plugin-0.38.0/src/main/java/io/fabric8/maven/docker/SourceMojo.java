@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.config.ArchiveCompression;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.config.BuildImageSelectMode;
@@ -81,7 +82,7 @@ public class SourceMojo extends AbstractBuildSupportMojo {
         if (sourceMode == BuildImageSelectMode.first && imageConfigs.size() > 0) {
             ImageConfiguration imageConfig = imageConfigs.get(0);
             File dockerTar = hub.getArchiveService().createDockerBuildArchive(imageConfig, params);
-            projectHelper.attachArtifact(project, getArchiveType(imageConfig),
+            projectHelper.attachArtifact(project, getArchiveType(dockerTar),
                                          getClassifier(null), dockerTar);
         } else {
             for (ImageConfiguration imageConfig : imageConfigs) {
@@ -92,7 +93,7 @@ public class SourceMojo extends AbstractBuildSupportMojo {
                         "Image " + imageConfig.getDescription() + " must have an 'alias' configured to be " +
                         "used as a classifier for attaching a docker build tar as source to the maven build");
                 }
-                projectHelper.attachArtifact(project, getArchiveType(imageConfig), getClassifier(alias), dockerTar);
+                projectHelper.attachArtifact(project, getArchiveType(dockerTar), getClassifier(alias), dockerTar);
             }
         }
     }
@@ -106,8 +107,9 @@ public class SourceMojo extends AbstractBuildSupportMojo {
         }
     }
 
-    private String getArchiveType(ImageConfiguration imageConfig) {
-        return imageConfig.getBuildConfiguration().getCompression().getFileSuffix();
+    // Taken from the created archive, since the 'auto' compression is only selected while creating it
+    private String getArchiveType(File dockerTar) {
+        return ArchiveCompression.fromFileName(dockerTar.getName()).getFileSuffix();
     }
 
     @Override
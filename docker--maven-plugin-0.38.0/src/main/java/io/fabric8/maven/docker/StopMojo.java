@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +17,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import io.fabric8.maven.docker.access.ContainerFilter;
 import io.fabric8.maven.docker.access.DockerAccessException;
 import io.fabric8.maven.docker.access.ExecException;
 import io.fabric8.maven.docker.config.ImageConfiguration;
@@ -131,11 +133,14 @@ public class StopMojo extends AbstractDockerMojo {
             throws MojoExecutionException, IOException, ExecException {
 
         Collection<Network> networksToRemove = getNetworksToRemove(queryService, gavLabel);
+        // Unless all containers are to be stopped, let the daemon select only the containers of this module
+        ContainerFilter moduleFilter = isStopAllContainers() ? null : new ContainerFilter().label(gavLabel);
+        Map<String, List<Container>> moduleContainersByImage = getModuleContainersByImage(queryService, moduleFilter);
 		List<DockerAccessException> thrownExceptions = new ArrayList<>();
         for (ImageConfiguration image : getResolvedImages()) {
 
             Collection<Container> existingContainers
-                    = getContainersForImage(queryService, image);
+                    = getContainersForImage(queryService, image, moduleFilter, moduleContainersByImage);
 
             for (Container container : existingContainers) {
                 if (shouldStopContainer(container, gavLabel)) {
@@ -148,7 +153,7 @@ public class StopMojo extends AbstractDockerMojo {
             }
         }
         // If the mojo has a stopNamePattern, check to see if there are matching containers
-        for (Container container : getContainersForMojo(queryService)) {
+        for (Container container : getContainersForMojo(queryService, moduleFilter)) {
             if (shouldStopContainer(container, gavLabel)) {
             	try {
 	                runService.stopContainer(container.getId(),
@@ -175,7 +180,7 @@ public class StopMojo extends AbstractDockerMojo {
 		}
     }
 
-    private Collection<Container> getContainersForMojo(QueryService queryService)
+    private Collection<Container> getContainersForMojo(QueryService queryService, ContainerFilter moduleFilter)
             throws MojoExecutionException, IOException {
         if(stopNamePattern != null) {
             Matcher imageNameMatcher = getImageNameMatcher(stopNamePattern, STOP_NAME_PATTERN_CONFIG);
@@ -185,14 +190,39 @@ public class StopMojo extends AbstractDockerMojo {
             if(imageNameMatcher == null && containerNameMatcher == null) {
                 log.warn("There are no image name or container name patterns in non-empty stopNamePattern: no containers will be stopped");
             } else {
-                return getContainersForPattern(queryService, !keepContainer, imageNameMatcher, containerNameMatcher, STOP_NAME_PATTERN_CONFIG);
+                return getContainersForPattern(queryService, !keepContainer, moduleFilter, imageNameMatcher, containerNameMatcher, STOP_NAME_PATTERN_CONFIG);
             }
         }
 
         return Collections.emptyList();
     }
 
-    private Collection<Container> getContainersForImage(QueryService queryService, ImageConfiguration image)
+    // A single labelled query for all images of this module which are not selected by a stopNamePattern.
+    // Returns null if all containers are to be stopped, so that they are looked up per image
+    private Map<String, List<Container>> getModuleContainersByImage(QueryService queryService, ContainerFilter moduleFilter)
+            throws DockerAccessException {
+        if (moduleFilter == null) {
+            return null;
+        }
+        Map<String, List<Container>> containersByImage = new HashMap<>();
+        for (ImageConfiguration image : getResolvedImages()) {
+            if (image.getStopNamePattern() == null) {
+                containersByImage.put(image.getName(), new ArrayList<>());
+            }
+        }
+        if (!containersByImage.isEmpty()) {
+            for (Container container : queryService.listContainers(!keepContainer, moduleFilter)) {
+                List<Container> containers = containersByImage.get(container.getImage());
+                if (containers != null) {
+                    containers.add(container);
+                }
+            }
+        }
+        return containersByImage;
+    }
+
+    private Collection<Container> getContainersForImage(QueryService queryService, ImageConfiguration image,
+                                                        ContainerFilter moduleFilter, Map<String, List<Container>> moduleContainersByImage)
             throws MojoExecutionException, IOException {
 
         String imageStopNamePattern = image.getStopNamePattern();
@@ -206,13 +236,15 @@ public class StopMojo extends AbstractDockerMojo {
                 return Collections.emptyList();
             }
 
-            return getContainersForPattern(queryService, !keepContainer, imageNameMatcher, containerNameMatcher, STOP_NAME_PATTERN_CONFIG);
+            return getContainersForPattern(queryService, !keepContainer, moduleFilter, imageNameMatcher, containerNameMatcher, STOP_NAME_PATTERN_CONFIG);
         }
 
         return ContainerNamingUtil.getContainersToStop(image,
                 containerNamePattern,
                 getBuildTimestamp(),
-                queryService.getContainersForImage(image.getName(), !keepContainer));
+                moduleContainersByImage != null ?
+                    moduleContainersByImage.get(image.getName()) :
+                    queryService.getContainersForImage(image.getName(), !keepContainer));
     }
 
     private boolean shouldStopContainer(Container container, GavLabel gavLabel) {
@@ -0,0 +1,20 @@
+package io.fabric8.maven.docker.access;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Producer of an archive which is written directly to a stream instead of being
+ * materialized as a file first. Used for streaming a build context to the Docker daemon.
+ */
+public interface ArchiveWriter {
+
+    /**
+     * Write the complete archive to the given stream. The stream must not be closed
+     * by the implementation.
+     *
+     * @param out stream to write the archive to
+     * @throws IOException if creating or writing the archive fails
+     */
+    void write(OutputStream out) throws IOException;
+}
@@ -19,6 +19,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.access.chunked.BuildSteps;
 import io.fabric8.maven.docker.util.JsonFactory;
 
 /**
@@ -29,6 +31,9 @@ public class BuildOptions {
 
     private Map<String, String> options;
 
+    // Not sent to the daemon, but used for recording the progress of the build
+    private BuildSteps buildSteps;
+
     public BuildOptions() {
         this(new HashMap<String, String>());
     }
@@ -66,6 +71,17 @@ public class BuildOptions {
         return this;
     }
 
+    public BuildOptions buildKit(boolean buildKit) {
+        if (buildKit) {
+            options.put("version", "2");
+        }
+        return this;
+    }
+
+    public boolean isBuildKit() {
+        return "2".equals(options.get("version"));
+    }
+
     public BuildOptions cacheFrom(List<String> cacheFrom) {
         if (cacheFrom == null || cacheFrom.isEmpty()) {
             options.remove("cachefrom");
@@ -82,6 +98,16 @@ public class BuildOptions {
         return this;
     }
 
+    public BuildOptions labels(Map<String, String> labels) {
+        if (labels != null && labels.size() > 0) {
+            JsonObject merged = options.containsKey("labels") ?
+                    JsonFactory.newJsonObject(options.get("labels")) : new JsonObject();
+            labels.forEach(merged::addProperty);
+            options.put("labels", merged.toString());
+        }
+        return this;
+    }
+
     public BuildOptions network(String network) {
         if (network != null && !network.isEmpty()) {
             options.put("networkmode", network);
@@ -89,6 +115,22 @@ public class BuildOptions {
         return this;
     }
 
+    public BuildOptions buildSteps(BuildSteps buildSteps) {
+        this.buildSteps = buildSteps;
+        return this;
+    }
+
+    public BuildSteps getBuildSteps() {
+        return buildSteps;
+    }
+
+    /**
+     * @return a copy of these options, which can be changed independently
+     */
+    public BuildOptions copy() {
+        return new BuildOptions(options).buildSteps(buildSteps);
+    }
+
     public Map<String, String> getOptions() {
         return options;
     }
@@ -0,0 +1,132 @@
+package io.fabric8.maven.docker.access;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.fabric8.maven.docker.util.GavLabel;
+
+/**
+ * Filter for listing containers which is evaluated by the Docker daemon. Values given for the same
+ * filter type are combined with "or" (except for labels which all must match), different filter types
+ * are combined with "and".
+ */
+public class ContainerFilter {
+
+    static final String ANCESTOR = "ancestor";
+    static final String LABEL = "label";
+    static final String NAME = "name";
+    static final String STATUS = "status";
+
+    private final Map<String, List<String>> filters = new LinkedHashMap<>();
+
+    /**
+     * Only containers which have the given label with the given value
+     *
+     * @param key label key
+     * @param value label value, if <code>null</code> only the existence of the label is checked
+     * @return this filter
+     */
+    public ContainerFilter label(String key, String value) {
+        return add(LABEL, value != null ? key + "=" + value : key);
+    }
+
+    /**
+     * Only containers which are labelled as belonging to the given build
+     *
+     * @param gavLabel label of the build
+     * @return this filter
+     */
+    public ContainerFilter label(GavLabel gavLabel) {
+        return label(gavLabel.getKey(), gavLabel.getValue());
+    }
+
+    /**
+     * Only containers created from the given image or an image derived from it.
+     * Supported since API version 1.23.
+     *
+     * @param image image name or id
+     * @return this filter
+     */
+    public ContainerFilter ancestor(String image) {
+        return add(ANCESTOR, image);
+    }
+
+    /**
+     * Only containers whose name matches. The daemon interprets the name as a regular expression
+     * which can match any part of the container name.
+     *
+     * @param name name (pattern) of the container
+     * @return this filter
+     */
+    public ContainerFilter name(String name) {
+        return add(NAME, name);
+    }
+
+    /**
+     * Only containers in the given state
+     *
+     * @param status one of "created", "restarting", "running", "removing", "paused", "exited" or "dead"
+     * @return this filter
+     */
+    public ContainerFilter status(String status) {
+        return add(STATUS, status);
+    }
+
+    public boolean isEmpty() {
+        return filters.isEmpty();
+    }
+
+    /**
+     * @return images given as ancestor filter, an empty list if none is set
+     */
+    public List<String> getAncestors() {
+        List<String> ancestors = filters.get(ANCESTOR);
+        return ancestors != null ? Collections.unmodifiableList(ancestors) : Collections.emptyList();
+    }
+
+    /**
+     * Create a copy of this filter without the ancestor filter, e.g. for daemons not supporting it
+     *
+     * @return new filter
+     */
+    public ContainerFilter withoutAncestors() {
+        ContainerFilter copy = new ContainerFilter();
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            if (!ANCESTOR.equals(entry.getKey())) {
+                copy.filters.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return the filter in the JSON format as expected by the <code>filters</code> query parameter
+     */
+    public String toJson() {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            JsonArray values = new JsonArray();
+            for (String value : entry.getValue()) {
+                values.add(value);
+            }
+            json.add(entry.getKey(), values);
+        }
+        return json.toString();
+    }
+
+    private ContainerFilter add(String type, String value) {
+        filters.computeIfAbsent(type, k -> new ArrayList<>()).add(value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
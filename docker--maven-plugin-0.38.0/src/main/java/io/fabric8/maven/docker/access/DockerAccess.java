@@ -3,6 +3,8 @@ package io.fabric8.maven.docker.access;
 import java.io.File;
 import java.util.List;
 
+import io.fabric8.maven.docker.access.event.EventCallback;
+import io.fabric8.maven.docker.access.event.EventSubscription;
 import io.fabric8.maven.docker.access.log.LogCallback;
 import io.fabric8.maven.docker.access.log.LogGetHandle;
 import io.fabric8.maven.docker.config.ArchiveCompression;
@@ -31,6 +33,23 @@ public interface DockerAccess {
      */
     String getServerApiVersion() throws DockerAccessException;
 
+    /**
+     * Get the features supported by the Docker daemon. The capabilities are determined once
+     * when connecting, so calling this method doesn't cause any request to the daemon.
+     *
+     * @return capabilities of the daemon
+     * @throws DockerAccessException if the capabilities could not be obtained
+     */
+    DockerCapabilities getCapabilities() throws DockerAccessException;
+
+    /**
+     * Get the properties of the connection to the Docker daemon, like whether it is local
+     * and the throughput measured for uploads so far.
+     *
+     * @return transport used for talking to the daemon
+     */
+    DockerTransport getTransport();
+
     /**
      * Get a container
      *
@@ -74,6 +93,16 @@ public interface DockerAccess {
      */
     List<Container> listContainers(boolean all) throws DockerAccessException;
 
+    /**
+     * List the containers matching a filter. The filter is evaluated by the Docker server.
+     *
+     * @param all whether to fetch also stopped containers. If false only running containers are returned
+     * @param filter filter to apply
+     * @return list of <code>Container</code> objects or an empty list if none is found
+     * @throws DockerAccessException if the request fails
+     */
+    List<Container> listContainers(boolean all, ContainerFilter filter) throws DockerAccessException;
+
     /**
      * Get all containers which are build from an image. By default only the last containers are considered but this
      * can be tuned with a global parameters.
@@ -181,6 +210,18 @@ public interface DockerAccess {
      */
     LogGetHandle getLogAsync(String containerId, LogCallback callback);
 
+    /**
+     * Subscribe to events of the Docker daemon. This call will start a thread in the background which
+     * keeps a streaming request open and calls the callback for each event received. Use an
+     * {@link io.fabric8.maven.docker.access.event.EventDispatcher} for sharing a subscription between
+     * multiple listeners.
+     *
+     * @param filter filter evaluated by the daemon, can be <code>null</code> for receiving all events
+     * @param callback to call for each event
+     * @return handle for finishing the subscription
+     */
+    EventSubscription subscribeEvents(EventFilter filter, EventCallback callback);
+
     /**
      * Remove a container with the given id
      *
@@ -242,6 +283,18 @@ public interface DockerAccess {
      */
     void buildImage(String image, File dockerArchive, BuildOptions options) throws DockerAccessException;
 
+    /**
+     * Create an docker image from an archive which is streamed to the daemon while it is created.
+     * The archive is never written to disk, and the daemon can start processing the context
+     * before it has been completely assembled.
+     *
+     * @param image name of the image to build or <code>null</code> if none should be used
+     * @param archiveWriter producer writing the build context archive
+     * @param options additional query arguments to add when building the image. Can be null.
+     * @throws DockerAccessException if docker host reports an error during building of an image
+     */
+    void buildImage(String image, ArchiveWriter archiveWriter, BuildOptions options) throws DockerAccessException;
+
     /**
      * Alias an image in the repository with a complete new name. (Note that this maps to a Docker Remote API 'tag'
      * operation, which IMO is badly named since it also can generate a complete alias to a given image)
@@ -271,7 +324,20 @@ public interface DockerAccess {
      * @param compression compression to use for the archive
      * @throws DockerAccessException if an image cannot be removed
      */
-    void saveImage(String image, String filename, ArchiveCompression compression) throws DockerAccessException;
+    default void saveImage(String image, String filename, ArchiveCompression compression) throws DockerAccessException {
+        saveImage(image, filename, compression, 0);
+    }
+
+    /**
+     * Save an image to a tar file
+     *
+     * @param image image to save
+     * @param filename target filename
+     * @param compression compression to use for the archive
+     * @param compressionThreads number of threads for compressing, all available processors if not positive
+     * @throws DockerAccessException if an image cannot be removed
+     */
+    void saveImage(String image, String filename, ArchiveCompression compression, int compressionThreads) throws DockerAccessException;
 
     /**
      * List all networks
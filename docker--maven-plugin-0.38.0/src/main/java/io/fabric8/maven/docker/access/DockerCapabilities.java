@@ -0,0 +1,141 @@
+package io.fabric8.maven.docker.access;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.fabric8.maven.docker.util.EnvUtil;
+
+/**
+ * Features supported by a Docker daemon. The capabilities are determined once per connection
+ * from the daemon's <code>/version</code> response, so that call sites can branch on them without
+ * additional requests.
+ */
+public class DockerCapabilities {
+
+    // API versions introducing the features checked below
+    private static final String API_ANCESTOR_FILTER = "1.23";
+    private static final String API_HEALTH_CHECK = "1.24";
+    private static final String API_SQUASH = "1.25";
+    private static final String API_BUILDKIT = "1.39";
+
+    private final String apiVersion;
+    private final String serverVersion;
+    private final String os;
+    private final String arch;
+    private final boolean experimental;
+
+    public DockerCapabilities(String apiVersion, String serverVersion, String os, String arch, boolean experimental) {
+        this.apiVersion = apiVersion;
+        this.serverVersion = serverVersion;
+        this.os = os;
+        this.arch = arch;
+        this.experimental = experimental;
+    }
+
+    /**
+     * Create capabilities from the response of a <code>/version</code> request
+     *
+     * @param version JSON returned by the daemon, can be null if not available
+     * @param defaultApiVersion API version to use if not contained in the response
+     * @return the capabilities
+     */
+    public static DockerCapabilities fromVersion(JsonObject version, String defaultApiVersion) {
+        if (version == null) {
+            return new DockerCapabilities(defaultApiVersion, null, null, null, false);
+        }
+        String apiVersion = getString(version, "ApiVersion");
+        return new DockerCapabilities(apiVersion != null ? apiVersion : defaultApiVersion,
+                                      getString(version, "Version"),
+                                      getString(version, "Os"),
+                                      getString(version, "Arch"),
+                                      isTrue(version.get("Experimental")));
+    }
+
+    private static boolean isTrue(JsonElement element) {
+        return element != null && !element.isJsonNull() && element.getAsBoolean();
+    }
+
+    private static String getString(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsString() : null;
+    }
+
+    /**
+     * @return maximal API version supported by the server in the form "1.24"
+     */
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    /**
+     * @return version of the daemon or <code>null</code> if not known
+     */
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    /**
+     * @return operating system of the daemon (e.g. "linux") or <code>null</code> if not known
+     */
+    public String getOs() {
+        return os;
+    }
+
+    /**
+     * @return architecture of the daemon or <code>null</code> if not known
+     */
+    public String getArch() {
+        return arch;
+    }
+
+    /**
+     * @return whether experimental features are enabled on the daemon
+     */
+    public boolean isExperimental() {
+        return experimental;
+    }
+
+    /**
+     * Check whether the server supports the given API version
+     *
+     * @param version API version to check
+     * @return true if the server's API version is greater or equals the given version
+     */
+    public boolean supportsApiVersion(String version) {
+        return apiVersion != null && EnvUtil.greaterOrEqualsVersion(apiVersion, version);
+    }
+
+    /**
+     * @return whether containers can be filtered by their image on the server side
+     */
+    public boolean supportsAncestorFilter() {
+        return supportsApiVersion(API_ANCESTOR_FILTER);
+    }
+
+    /**
+     * @return whether health checks are supported
+     */
+    public boolean supportsHealthCheck() {
+        return supportsApiVersion(API_HEALTH_CHECK);
+    }
+
+    /**
+     * @return whether squashing of image layers during a build is supported
+     */
+    public boolean supportsSquash() {
+        return experimental && supportsApiVersion(API_SQUASH);
+    }
+
+    /**
+     * @return whether the daemon can build images with BuildKit
+     */
+    public boolean supportsBuildKit() {
+        return supportsApiVersion(API_BUILDKIT) && !"windows".equalsIgnoreCase(os);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Docker %s (API %s, %s/%s%s)", serverVersion, apiVersion, os, arch,
+                             experimental ? ", experimental" : "");
+    }
+}
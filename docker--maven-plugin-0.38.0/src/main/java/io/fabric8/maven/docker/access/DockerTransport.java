@@ -0,0 +1,61 @@
+package io.fabric8.maven.docker.access;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Properties of the connection to the Docker daemon: whether the daemon runs on the local machine
+ * and how fast archives have been uploaded to it so far. The upload throughput is collected over
+ * the lifetime of the connection, i.e. across all goals using the same access object.
+ */
+public class DockerTransport {
+
+    // Uploads below this size are dominated by latency and don't tell much about the bandwidth
+    private static final long MIN_MEASURED_BYTES = 1024 * 1024;
+
+    private final boolean local;
+
+    // Guarded by this
+    private long uploadedBytes;
+    private long uploadNanos;
+
+    public DockerTransport(boolean local) {
+        this.local = local;
+    }
+
+    /**
+     * @return true if the daemon is reached via a unix socket, a named pipe or the loopback interface
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
+    /**
+     * Record an upload to the daemon
+     *
+     * @param bytes number of bytes sent
+     * @param nanos time spent for sending the bytes
+     */
+    public synchronized void recordUpload(long bytes, long nanos) {
+        if (bytes > 0 && nanos > 0) {
+            uploadedBytes += bytes;
+            uploadNanos += nanos;
+        }
+    }
+
+    /**
+     * @return average upload throughput in bytes per second or -1 if not enough data has been uploaded yet
+     */
+    public synchronized long getUploadThroughput() {
+        if (uploadedBytes < MIN_MEASURED_BYTES) {
+            return -1;
+        }
+        return (long) ((double) uploadedBytes * TimeUnit.SECONDS.toNanos(1) / uploadNanos);
+    }
+
+    @Override
+    public String toString() {
+        long throughput = getUploadThroughput();
+        return (local ? "local" : "remote") +
+               (throughput > 0 ? String.format(", %.1f MB/s upload", throughput / (1024.0 * 1024.0)) : "");
+    }
+}
@@ -0,0 +1,136 @@
+package io.fabric8.maven.docker.access;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.fabric8.maven.docker.util.GavLabel;
+
+/**
+ * Filter for subscribing to events of the Docker daemon which is evaluated by the daemon. Values given
+ * for the same filter type are combined with "or" (except for labels which all must match), different
+ * filter types are combined with "and".
+ */
+public class EventFilter {
+
+    static final String CONTAINER = "container";
+    static final String EVENT = "event";
+    static final String IMAGE = "image";
+    static final String LABEL = "label";
+    static final String TYPE = "type";
+
+    private final Map<String, List<String>> filters = new LinkedHashMap<>();
+    private Long since;
+
+    /**
+     * Only events of the given object type
+     *
+     * @param type e.g. "container", "image", "network" or "volume"
+     * @return this filter
+     */
+    public EventFilter type(String type) {
+        return add(TYPE, type);
+    }
+
+    /**
+     * Only events with the given action
+     *
+     * @param event action like "start", "die" or "health_status"
+     * @return this filter
+     */
+    public EventFilter event(String event) {
+        return add(EVENT, event);
+    }
+
+    /**
+     * Only events of the given container
+     *
+     * @param container container name or id
+     * @return this filter
+     */
+    public EventFilter container(String container) {
+        return add(CONTAINER, container);
+    }
+
+    /**
+     * Only events of the given image or of containers created from it
+     *
+     * @param image image name or id
+     * @return this filter
+     */
+    public EventFilter image(String image) {
+        return add(IMAGE, image);
+    }
+
+    /**
+     * Only events of objects which have the given label with the given value
+     *
+     * @param key label key
+     * @param value label value, if <code>null</code> only the existence of the label is checked
+     * @return this filter
+     */
+    public EventFilter label(String key, String value) {
+        return add(LABEL, value != null ? key + "=" + value : key);
+    }
+
+    /**
+     * Only events of objects which are labelled as belonging to the given build
+     *
+     * @param gavLabel label of the build
+     * @return this filter
+     */
+    public EventFilter label(GavLabel gavLabel) {
+        return label(gavLabel.getKey(), gavLabel.getValue());
+    }
+
+    /**
+     * Replay events which happened since the given time before streaming new events
+     *
+     * @param epochSeconds time in seconds since the epoch
+     * @return this filter
+     */
+    public EventFilter since(long epochSeconds) {
+        this.since = epochSeconds;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return filters.isEmpty();
+    }
+
+    /**
+     * @return time given with {@link #since(long)} or <code>null</code>
+     */
+    public Long getSince() {
+        return since;
+    }
+
+    /**
+     * @return the filter in the JSON format as expected by the <code>filters</code> query parameter
+     */
+    public String toJson() {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            JsonArray values = new JsonArray();
+            for (String value : entry.getValue()) {
+                values.add(value);
+            }
+            json.add(entry.getKey(), values);
+        }
+        return json.toString();
+    }
+
+    private EventFilter add(String type, String value) {
+        filters.computeIfAbsent(type, k -> new ArrayList<>()).add(value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -59,6 +59,19 @@ public final class UrlBuilder {
                 .build();
     }
 
+    public String events(EventFilter filter) {
+        Builder builder = u("events");
+        if (filter != null) {
+            if (!filter.isEmpty()) {
+                builder.p("filters", filter.toJson());
+            }
+            if (filter.getSince() != null) {
+                builder.p("since", Long.toString(filter.getSince()));
+            }
+        }
+        return builder.build();
+    }
+
     public String createContainer(String name) {
         return u("containers/create")
                 .p("name", name)
@@ -96,6 +109,14 @@ public final class UrlBuilder {
         return builder.build();
     }
 
+    public String listContainers(boolean all, ContainerFilter filter) {
+        Builder builder = u("containers/json").p("all", all);
+        if (filter != null && !filter.isEmpty()) {
+            builder.p("filters", filter.toJson());
+        }
+        return builder.build();
+    }
+
     public String loadImage() {
         return u("images/load")
             .build();
@@ -0,0 +1,303 @@
+package io.fabric8.maven.docker.access.cache;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import io.fabric8.maven.docker.access.ArchiveWriter;
+import io.fabric8.maven.docker.access.AuthConfig;
+import io.fabric8.maven.docker.access.BuildOptions;
+import io.fabric8.maven.docker.access.ContainerCreateConfig;
+import io.fabric8.maven.docker.access.ContainerFilter;
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.DockerCapabilities;
+import io.fabric8.maven.docker.access.DockerTransport;
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.access.NetworkCreateConfig;
+import io.fabric8.maven.docker.access.VolumeCreateConfig;
+import io.fabric8.maven.docker.access.event.EventCallback;
+import io.fabric8.maven.docker.access.event.EventSubscription;
+import io.fabric8.maven.docker.access.log.LogCallback;
+import io.fabric8.maven.docker.access.log.LogGetHandle;
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import io.fabric8.maven.docker.config.Arguments;
+import io.fabric8.maven.docker.log.LogOutputSpec;
+import io.fabric8.maven.docker.model.Container;
+import io.fabric8.maven.docker.model.ContainerDetails;
+import io.fabric8.maven.docker.model.ExecDetails;
+import io.fabric8.maven.docker.model.Image;
+import io.fabric8.maven.docker.model.Network;
+
+/**
+ * Decorator for a {@link DockerAccess} which caches image and container inspect results for a short time,
+ * so that repeated lookups of the same image or container within a goal are served from memory.
+ *
+ * Every call which changes images (like build, pull, tag or remove) drops all cached image lookups,
+ * every call which changes containers (like create, start, stop or remove) drops all cached container
+ * lookups. Only containers which are not running are cached, since a running container changes its
+ * state on its own (e.g. exits or becomes healthy) and is polled while waiting for it.
+ */
+public class CachingDockerAccess implements DockerAccess {
+
+    private final DockerAccess delegate;
+    private final InspectCache<String> imageIds;
+    private final InspectCache<ContainerDetails> containers;
+
+    /**
+     * Create a caching access
+     *
+     * @param delegate access to decorate
+     * @param ttl time in milliseconds for which an inspect result is cached
+     */
+    public CachingDockerAccess(DockerAccess delegate, long ttl) {
+        this(delegate, ttl, System::nanoTime);
+    }
+
+    CachingDockerAccess(DockerAccess delegate, long ttl, LongSupplier clock) {
+        this.delegate = delegate;
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.imageIds = new InspectCache<>(ttlNanos, clock);
+        this.containers = new InspectCache<>(ttlNanos, clock);
+    }
+
+    public DockerAccess getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return number of lookups served from the cache
+     */
+    public long getHits() {
+        return imageIds.getHits() + containers.getHits();
+    }
+
+    /**
+     * @return number of lookups passed to the Docker daemon
+     */
+    public long getMisses() {
+        return imageIds.getMisses() + containers.getMisses();
+    }
+
+    @Override
+    public String getServerApiVersion() throws DockerAccessException {
+        return delegate.getServerApiVersion();
+    }
+
+    @Override
+    public DockerCapabilities getCapabilities() throws DockerAccessException {
+        return delegate.getCapabilities();
+    }
+
+    @Override
+    public DockerTransport getTransport() {
+        return delegate.getTransport();
+    }
+
+    @Override
+    public ContainerDetails getContainer(String containerIdOrName) throws DockerAccessException {
+        return containers.get(containerIdOrName,
+                              () -> delegate.getContainer(containerIdOrName),
+                              container -> container == null || !container.isRunning());
+    }
+
+    @Override
+    public ExecDetails getExecContainer(String containerIdOrName) throws DockerAccessException {
+        return delegate.getExecContainer(containerIdOrName);
+    }
+
+    @Override
+    public boolean hasImage(String name) throws DockerAccessException {
+        // Both lookups use the same inspect request
+        return getImageId(name) != null;
+    }
+
+    @Override
+    public String getImageId(String name) throws DockerAccessException {
+        return imageIds.get(name, () -> delegate.getImageId(name), id -> true);
+    }
+
+    @Override
+    public List<Container> listContainers(boolean all) throws DockerAccessException {
+        return delegate.listContainers(all);
+    }
+
+    @Override
+    public List<Container> listContainers(boolean all, ContainerFilter filter) throws DockerAccessException {
+        return delegate.listContainers(all, filter);
+    }
+
+    @Override
+    public List<Container> getContainersForImage(String image, boolean all) throws DockerAccessException {
+        return delegate.getContainersForImage(image, all);
+    }
+
+    @Override
+    public void startExecContainer(String containerId, LogOutputSpec outputSpec) throws DockerAccessException {
+        delegate.startExecContainer(containerId, outputSpec);
+    }
+
+    @Override
+    public String createExecContainer(String containerId, Arguments arguments) throws DockerAccessException {
+        return delegate.createExecContainer(containerId, arguments);
+    }
+
+    @Override
+    public String createContainer(ContainerCreateConfig configuration, String containerName) throws DockerAccessException {
+        return mutate(containers, () -> delegate.createContainer(configuration, containerName));
+    }
+
+    @Override
+    public void startContainer(String containerId) throws DockerAccessException {
+        mutate(containers, () -> delegate.startContainer(containerId));
+    }
+
+    @Override
+    public void stopContainer(String containerId, int killWait) throws DockerAccessException {
+        mutate(containers, () -> delegate.stopContainer(containerId, killWait));
+    }
+
+    @Override
+    public void killContainer(String containerId) throws DockerAccessException {
+        mutate(containers, () -> delegate.killContainer(containerId));
+    }
+
+    @Override
+    public void copyArchiveToContainer(String containerId, File archive, String targetPath) throws DockerAccessException {
+        delegate.copyArchiveToContainer(containerId, archive, targetPath);
+    }
+
+    @Override
+    public void copyArchiveFromContainer(String containerId, String containerPath, File archive) throws DockerAccessException {
+        delegate.copyArchiveFromContainer(containerId, containerPath, archive);
+    }
+
+    @Override
+    public void getLogSync(String containerId, LogCallback callback) {
+        delegate.getLogSync(containerId, callback);
+    }
+
+    @Override
+    public LogGetHandle getLogAsync(String containerId, LogCallback callback) {
+        return delegate.getLogAsync(containerId, callback);
+    }
+
+    @Override
+    public EventSubscription subscribeEvents(EventFilter filter, EventCallback callback) {
+        return delegate.subscribeEvents(filter, callback);
+    }
+
+    @Override
+    public void removeContainer(String containerId, boolean removeVolumes) throws DockerAccessException {
+        mutate(containers, () -> delegate.removeContainer(containerId, removeVolumes));
+    }
+
+    @Override
+    public List<Image> listImages(boolean all) throws DockerAccessException {
+        return delegate.listImages(all);
+    }
+
+    @Override
+    public void loadImage(String image, File tarArchive) throws DockerAccessException {
+        mutate(imageIds, () -> delegate.loadImage(image, tarArchive));
+    }
+
+    @Override
+    public void pullImage(String image, AuthConfig authConfig, String registry) throws DockerAccessException {
+        mutate(imageIds, () -> delegate.pullImage(image, authConfig, registry));
+    }
+
+    @Override
+    public void pushImage(String image, AuthConfig authConfig, String registry, int retries) throws DockerAccessException {
+        // Pushing tags a temporary image when pushing to a registry not contained in the image name
+        mutate(imageIds, () -> delegate.pushImage(image, authConfig, registry, retries));
+    }
+
+    @Override
+    public void buildImage(String image, File dockerArchive, BuildOptions options) throws DockerAccessException {
+        mutate(imageIds, () -> delegate.buildImage(image, dockerArchive, options));
+    }
+
+    @Override
+    public void buildImage(String image, ArchiveWriter archiveWriter, BuildOptions options) throws DockerAccessException {
+        mutate(imageIds, () -> delegate.buildImage(image, archiveWriter, options));
+    }
+
+    @Override
+    public void tag(String sourceImage, String targetImage, boolean force) throws DockerAccessException {
+        mutate(imageIds, () -> delegate.tag(sourceImage, targetImage, force));
+    }
+
+    @Override
+    public boolean removeImage(String image, boolean... force) throws DockerAccessException {
+        return mutate(imageIds, () -> delegate.removeImage(image, force));
+    }
+
+    @Override
+    public void saveImage(String image, String filename, ArchiveCompression compression, int compressionThreads) throws DockerAccessException {
+        delegate.saveImage(image, filename, compression, compressionThreads);
+    }
+
+    @Override
+    public List<Network> listNetworks() throws DockerAccessException {
+        return delegate.listNetworks();
+    }
+
+    @Override
+    public String createNetwork(NetworkCreateConfig configuration) throws DockerAccessException {
+        return delegate.createNetwork(configuration);
+    }
+
+    @Override
+    public boolean removeNetwork(String networkId) throws DockerAccessException {
+        return delegate.removeNetwork(networkId);
+    }
+
+    @Override
+    public String createVolume(VolumeCreateConfig configuration) throws DockerAccessException {
+        return delegate.createVolume(configuration);
+    }
+
+    @Override
+    public void removeVolume(String name) throws DockerAccessException {
+        delegate.removeVolume(name);
+    }
+
+    // The decorator is created per execution around an access object which might be shared within the
+    // session, so the lifecycle of the delegate is left to DockerAccessFactory, which created it
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    // =======================================================================================
+
+    // Invalidate before and after, a failed call might have changed something, too
+    private <T> T mutate(InspectCache<?> cache, Call<T> call) throws DockerAccessException {
+        cache.invalidate();
+        try {
+            return call.execute();
+        } finally {
+            cache.invalidate();
+        }
+    }
+
+    private void mutate(InspectCache<?> cache, VoidCall call) throws DockerAccessException {
+        mutate(cache, () -> {
+            call.execute();
+            return null;
+        });
+    }
+
+    private interface Call<T> {
+        T execute() throws DockerAccessException;
+    }
+
+    private interface VoidCall {
+        void execute() throws DockerAccessException;
+    }
+}
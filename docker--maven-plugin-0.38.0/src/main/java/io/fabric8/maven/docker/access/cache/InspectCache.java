@@ -0,0 +1,91 @@
+package io.fabric8.maven.docker.access.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import io.fabric8.maven.docker.access.DockerAccessException;
+
+/**
+ * Cache for inspect results with a fixed time to live. {@link #invalidate()} drops all entries, including
+ * those of lookups which are still in flight while invalidating, so that a result fetched before a
+ * mutation is never served after it.
+ *
+ * @param <V> type of the cached values, <code>null</code> is a valid value (e.g. for "not found")
+ */
+class InspectCache<V> {
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    InspectCache(long ttlNanos, LongSupplier clock) {
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * Get a value from the cache or load it
+     *
+     * @param key key to lookup
+     * @param loader for loading the value if not cached
+     * @param cacheable whether a loaded value should be cached
+     * @return the cached or loaded value
+     */
+    V get(String key, Loader<V> loader, Predicate<V> cacheable) throws DockerAccessException {
+        long now = clock.getAsLong();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now - entry.created < ttlNanos) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+
+        long loadGeneration = generation.get();
+        V value = loader.load();
+        if (cacheable.test(value)) {
+            Entry<V> loaded = new Entry<>(value, now);
+            entries.put(key, loaded);
+            if (generation.get() != loadGeneration) {
+                // Invalidated while loading, the value might be outdated already
+                entries.remove(key, loaded);
+            }
+        }
+        return value;
+    }
+
+    void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    interface Loader<V> {
+        V load() throws DockerAccessException;
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long created;
+
+        private Entry(V value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.fabric8.maven.docker.access.chunked;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import io.fabric8.maven.docker.access.DockerAccessException;
@@ -7,10 +8,22 @@ import io.fabric8.maven.docker.util.Logger;
 
 public class BuildJsonResponseHandler implements EntityStreamReaderUtil.JsonEntityResponseHandler {
 
+    // Ids of the auxiliary messages sent by BuildKit
+    private static final String BUILDKIT_TRACE = "moby.buildkit.trace";
+    private static final String BUILDKIT_IMAGE_ID = "moby.image.id";
+
     private final Logger log;
 
+    // Recorder for the build steps, can be null
+    private final BuildSteps buildSteps;
+
     public BuildJsonResponseHandler(Logger log) {
+        this(log, null);
+    }
+
+    public BuildJsonResponseHandler(Logger log, BuildSteps buildSteps) {
         this.log = log;
+        this.buildSteps = buildSteps;
     }
     
     @Override
@@ -24,8 +37,13 @@ public class BuildJsonResponseHandler implements EntityStreamReaderUtil.JsonEnti
             }
             throw new DockerAccessException("%s %s", json.get("error"),
                     (msg.equals(detailMsg) || "".equals(detailMsg) ? "" : "(" + detailMsg + ")"));
+        } else if (json.has("aux") && json.has("id")) {
+            processAux(json.get("id").getAsString(), json.get("aux"));
         } else if (json.has("stream")) {
             String message = json.get("stream").getAsString();
+            if (buildSteps != null) {
+                buildSteps.processStream(message);
+            }
             log.verbose(Logger.LogVerboseCategory.BUILD,"%s", message.trim());
         } else if (json.has("status")) {
             String status = json.get("status").getAsString().trim();
@@ -36,6 +54,33 @@ public class BuildJsonResponseHandler implements EntityStreamReaderUtil.JsonEnti
         }
     }
 
+    private void processAux(String id, JsonElement aux) {
+        if (BUILDKIT_TRACE.equals(id) && aux.isJsonPrimitive()) {
+            BuildKitTrace trace;
+            try {
+                trace = BuildKitTrace.decode(aux.getAsString());
+            } catch (IllegalArgumentException e) {
+                log.debug("Cannot decode BuildKit trace: %s", e.getMessage());
+                return;
+            }
+            for (BuildKitTrace.Vertex vertex : trace.getVertices()) {
+                if (buildSteps != null) {
+                    buildSteps.processVertex(vertex);
+                }
+                if (vertex.getError() != null && !vertex.getError().isEmpty()) {
+                    log.verbose(Logger.LogVerboseCategory.BUILD, "%s ERROR: %s", vertex.getName(), vertex.getError());
+                } else if (vertex.isCompleted()) {
+                    log.verbose(Logger.LogVerboseCategory.BUILD, "%s%s", vertex.getName(), vertex.isCached() ? " CACHED" : "");
+                }
+            }
+            for (String line : trace.getLogs()) {
+                log.verbose(Logger.LogVerboseCategory.BUILD, "%s", line.trim());
+            }
+        } else if (BUILDKIT_IMAGE_ID.equals(id) && aux.isJsonObject() && aux.getAsJsonObject().has("ID")) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Built image %s", aux.getAsJsonObject().get("ID").getAsString());
+        }
+    }
+
     // Lifecycle methods not needed ...
     @Override
     public void start() {}
@@ -0,0 +1,246 @@
+package io.fabric8.maven.docker.access.chunked;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Progress of a BuildKit build as sent by the daemon in the <code>aux</code> field of
+ * <code>moby.buildkit.trace</code> messages. The field holds a base64 encoded <code>StatusResponse</code>
+ * protobuf message of the BuildKit control API, from which only vertices and their logs are decoded.
+ */
+class BuildKitTrace {
+
+    // Field numbers of the StatusResponse, Vertex and VertexLog messages
+    private static final int STATUS_VERTEX = 1;
+    private static final int STATUS_LOG = 3;
+    private static final int VERTEX_DIGEST = 1;
+    private static final int VERTEX_NAME = 3;
+    private static final int VERTEX_CACHED = 4;
+    private static final int VERTEX_STARTED = 5;
+    private static final int VERTEX_COMPLETED = 6;
+    private static final int VERTEX_ERROR = 7;
+    private static final int LOG_MSG = 4;
+    private static final int TIMESTAMP_SECONDS = 1;
+    private static final int TIMESTAMP_NANOS = 2;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final List<Vertex> vertices = new ArrayList<>();
+    private final List<String> logs = new ArrayList<>();
+
+    private BuildKitTrace() {}
+
+    /**
+     * Decode a trace
+     *
+     * @param aux base64 encoded <code>StatusResponse</code>
+     * @return the decoded trace
+     * @throws IllegalArgumentException if the trace cannot be decoded
+     */
+    static BuildKitTrace decode(String aux) {
+        BuildKitTrace trace = new BuildKitTrace();
+        Reader status = new Reader(Base64.getDecoder().decode(aux));
+        while (status.hasMore()) {
+            int tag = status.readTag();
+            if (tag >>> 3 == STATUS_VERTEX && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                trace.vertices.add(decodeVertex(status.readBytes()));
+            } else if (tag >>> 3 == STATUS_LOG && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                trace.logs.add(decodeLog(status.readBytes()));
+            } else {
+                status.skip(tag);
+            }
+        }
+        return trace;
+    }
+
+    List<Vertex> getVertices() {
+        return vertices;
+    }
+
+    List<String> getLogs() {
+        return logs;
+    }
+
+    private static Vertex decodeVertex(byte[] data) {
+        Vertex vertex = new Vertex();
+        Reader reader = new Reader(data);
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            switch (tag >>> 3) {
+                case VERTEX_DIGEST:
+                    vertex.digest = reader.readString();
+                    break;
+                case VERTEX_NAME:
+                    vertex.name = reader.readString();
+                    break;
+                case VERTEX_CACHED:
+                    vertex.cached = reader.readVarint() != 0;
+                    break;
+                case VERTEX_STARTED:
+                    vertex.started = decodeTimestamp(reader.readBytes());
+                    break;
+                case VERTEX_COMPLETED:
+                    vertex.completed = decodeTimestamp(reader.readBytes());
+                    break;
+                case VERTEX_ERROR:
+                    vertex.error = reader.readString();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        return vertex;
+    }
+
+    // google.protobuf.Timestamp as milliseconds since the epoch
+    private static long decodeTimestamp(byte[] data) {
+        long seconds = 0;
+        long nanos = 0;
+        Reader reader = new Reader(data);
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            if (tag >>> 3 == TIMESTAMP_SECONDS && (tag & 7) == WIRE_VARINT) {
+                seconds = reader.readVarint();
+            } else if (tag >>> 3 == TIMESTAMP_NANOS && (tag & 7) == WIRE_VARINT) {
+                nanos = reader.readVarint();
+            } else {
+                reader.skip(tag);
+            }
+        }
+        return seconds * 1000 + nanos / 1_000_000;
+    }
+
+    private static String decodeLog(byte[] data) {
+        String msg = "";
+        Reader reader = new Reader(data);
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            if (tag >>> 3 == LOG_MSG) {
+                msg = reader.readString();
+            } else {
+                reader.skip(tag);
+            }
+        }
+        return msg;
+    }
+
+    /**
+     * A step of the build
+     */
+    static class Vertex {
+        private String digest;
+        private String name;
+        private boolean cached;
+        private Long started;
+        private Long completed;
+        private String error;
+
+        String getDigest() {
+            return digest;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isCached() {
+            return cached;
+        }
+
+        boolean isCompleted() {
+            return completed != null;
+        }
+
+        // Duration in milliseconds, or null if the vertex hasn't run
+        Long getDuration() {
+            return started != null && completed != null ? Math.max(0, completed - started) : null;
+        }
+
+        String getError() {
+            return error;
+        }
+    }
+
+    // Minimal reader for the protobuf wire format
+    private static class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        boolean hasMore() {
+            return pos < data.length;
+        }
+
+        int readTag() {
+            return (int) readVarint();
+        }
+
+        long readVarint() {
+            long ret = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                ret |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return ret;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in BuildKit trace");
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarint();
+            if (length < 0 || pos + length > data.length) {
+                throw new IllegalArgumentException("Truncated BuildKit trace");
+            }
+            byte[] ret = new byte[length];
+            System.arraycopy(data, pos, ret, 0, length);
+            pos += length;
+            return ret;
+        }
+
+        String readString() {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        void skip(int tag) {
+            switch (tag & 7) {
+                case WIRE_VARINT:
+                    readVarint();
+                    break;
+                case WIRE_FIXED64:
+                    advance(8);
+                    break;
+                case WIRE_LENGTH_DELIMITED:
+                    readBytes();
+                    break;
+                case WIRE_FIXED32:
+                    advance(4);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported wire type " + (tag & 7) + " in BuildKit trace");
+            }
+        }
+
+        private byte next() {
+            if (pos >= data.length) {
+                throw new IllegalArgumentException("Truncated BuildKit trace");
+            }
+            return data[pos++];
+        }
+
+        private void advance(int bytes) {
+            if (pos + bytes > data.length) {
+                throw new IllegalArgumentException("Truncated BuildKit trace");
+            }
+            pos += bytes;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package io.fabric8.maven.docker.access.chunked;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Steps of an image build, recorded from the progress sent by the Docker daemon. For the classic builder
+ * the step boundaries are taken from the <code>Step N/M</code> lines, a step is a cache hit when the daemon
+ * reports <code>---&gt; Using cache</code> and a cache miss when it runs a container for it. For BuildKit
+ * the completed vertices are recorded.
+ */
+public class BuildSteps {
+
+    private static final Pattern STEP = Pattern.compile("^Step (\\d+)/(\\d+) : (.*)$");
+    private static final Pattern LAYER = Pattern.compile("^ ---> ([0-9a-f]{12,64})$");
+    private static final String USING_CACHE = " ---> Using cache";
+    private static final String RUNNING_IN = " ---> Running in ";
+    private static final String SUCCESSFULLY_BUILT = "Successfully built ";
+
+    private final LongSupplier clock;
+    private final List<Step> steps = new ArrayList<>();
+
+    // Digests of the BuildKit vertices recorded so far, as completed vertices can be sent more than once
+    private final Set<String> vertexDigests = new HashSet<>();
+
+    // Text of the last stream message which hasn't been terminated by a newline
+    private final StringBuilder pendingLine = new StringBuilder();
+
+    private Step current;
+    private long currentStart;
+
+    public BuildSteps() {
+        this(System::currentTimeMillis);
+    }
+
+    BuildSteps(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Process a <code>stream</code> message of the classic builder
+     *
+     * @param message message, which can hold multiple or partial lines
+     */
+    public synchronized void processStream(String message) {
+        pendingLine.append(message);
+        int start = 0;
+        for (int idx = pendingLine.indexOf("\n"); idx >= 0; idx = pendingLine.indexOf("\n", start)) {
+            processLine(pendingLine.substring(start, idx));
+            start = idx + 1;
+        }
+        pendingLine.delete(0, start);
+    }
+
+    synchronized void processVertex(BuildKitTrace.Vertex vertex) {
+        if (!vertex.isCompleted() || (vertex.getDigest() != null && !vertexDigests.add(vertex.getDigest()))) {
+            return;
+        }
+        Step step = new Step(steps.size() + 1, null, vertex.getName());
+        step.cached = vertex.isCached();
+        Long duration = vertex.getDuration();
+        step.durationMillis = duration != null ? duration : 0;
+        steps.add(step);
+    }
+
+    /**
+     * Finish recording. The duration of a step still running, e.g. because the build failed,
+     * is taken up to now.
+     */
+    public synchronized void finish() {
+        if (pendingLine.length() > 0) {
+            processLine(pendingLine.toString());
+            pendingLine.setLength(0);
+        }
+        finishCurrent();
+    }
+
+    /**
+     * @return steps recorded so far
+     */
+    public synchronized List<Step> getSteps() {
+        return new ArrayList<>(steps);
+    }
+
+    /**
+     * @return the first step which has not been taken from the build cache, or <code>null</code> if
+     *         all steps were cache hits
+     */
+    public synchronized Step getFirstCacheMiss() {
+        for (Step step : steps) {
+            if (Boolean.FALSE.equals(step.cached)) {
+                return step;
+            }
+        }
+        return null;
+    }
+
+    private void processLine(String line) {
+        String trimmed = line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+        Matcher stepMatcher = STEP.matcher(trimmed);
+        if (stepMatcher.matches()) {
+            finishCurrent();
+            current = new Step(Integer.parseInt(stepMatcher.group(1)), Integer.parseInt(stepMatcher.group(2)),
+                               stepMatcher.group(3).trim());
+            currentStart = clock.getAsLong();
+            steps.add(current);
+        } else if (trimmed.startsWith(SUCCESSFULLY_BUILT)) {
+            finishCurrent();
+        } else if (current != null) {
+            if (trimmed.startsWith(USING_CACHE)) {
+                current.cached = true;
+            } else if (trimmed.startsWith(RUNNING_IN)) {
+                current.cached = false;
+            } else {
+                Matcher layerMatcher = LAYER.matcher(trimmed);
+                if (layerMatcher.matches()) {
+                    current.layerId = layerMatcher.group(1);
+                }
+            }
+        }
+    }
+
+    private void finishCurrent() {
+        if (current != null) {
+            current.durationMillis = Math.max(0, clock.getAsLong() - currentStart);
+            current = null;
+        }
+    }
+
+    /**
+     * @return the recorded steps as JSON
+     */
+    public synchronized JsonObject toJson() {
+        JsonObject ret = new JsonObject();
+        long total = 0;
+        int hits = 0;
+        int misses = 0;
+        JsonArray stepsJson = new JsonArray();
+        for (Step step : steps) {
+            JsonObject stepJson = new JsonObject();
+            stepJson.addProperty("step", step.number);
+            stepJson.addProperty("instruction", step.instruction);
+            stepJson.addProperty("durationMillis", step.durationMillis);
+            if (step.cached != null) {
+                stepJson.addProperty("cached", step.cached);
+                if (step.cached) {
+                    hits++;
+                } else {
+                    misses++;
+                }
+            }
+            if (step.layerId != null) {
+                stepJson.addProperty("layerId", step.layerId);
+            }
+            stepsJson.add(stepJson);
+            total += step.durationMillis;
+        }
+        ret.addProperty("durationMillis", total);
+        ret.addProperty("cacheHits", hits);
+        ret.addProperty("cacheMisses", misses);
+        Step firstMiss = getFirstCacheMiss();
+        if (firstMiss != null) {
+            ret.addProperty("firstCacheMiss", firstMiss.number);
+        }
+        ret.add("steps", stepsJson);
+        return ret;
+    }
+
+    /**
+     * Write the steps as JSON to a file
+     *
+     * @param file file to write to, parent directories are created if required
+     * @param info additional properties to add to the top level of the report
+     * @throws IOException if writing fails
+     */
+    public void writeReport(File file, Map<String, String> info) throws IOException {
+        JsonObject report = new JsonObject();
+        for (Map.Entry<String, String> entry : info.entrySet()) {
+            report.addProperty(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, com.google.gson.JsonElement> entry : toJson().entrySet()) {
+            report.add(entry.getKey(), entry.getValue());
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+        }
+    }
+
+    /**
+     * Format the steps as table, one line per step plus a header
+     *
+     * @return lines of the table, empty if no steps have been recorded
+     */
+    public synchronized List<String> formatTable() {
+        List<String> ret = new ArrayList<>();
+        if (steps.isEmpty()) {
+            return ret;
+        }
+        String format = "%5s %9s  %-5s  %-12s  %s";
+        ret.add(String.format(format, "Step", "Duration", "Cache", "Layer", "Instruction"));
+        for (Step step : steps) {
+            ret.add(String.format(Locale.ROOT, format,
+                                  step.total != null ? step.number + "/" + step.total : String.valueOf(step.number),
+                                  String.format(Locale.ROOT, "%.1fs", step.durationMillis / 1000.0),
+                                  step.cached == null ? "-" : step.cached ? "hit" : "miss",
+                                  step.layerId != null ? step.layerId.substring(0, 12) : "",
+                                  step.instruction));
+        }
+        return ret;
+    }
+
+    /**
+     * A single step of the build
+     */
+    public static class Step {
+        private final int number;
+        private final Integer total;
+        private final String instruction;
+        private long durationMillis;
+        private Boolean cached;
+        private String layerId;
+
+        Step(int number, Integer total, String instruction) {
+            this.number = number;
+            this.total = total;
+            this.instruction = instruction;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getInstruction() {
+            return instruction;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return whether the step has been taken from the build cache, or <code>null</code> if the
+         *         daemon didn't tell (e.g. for <code>FROM</code>)
+         */
+        public Boolean getCached() {
+            return cached;
+        }
+
+        /**
+         * @return id of the layer created by the step, or <code>null</code> if not known
+         */
+        public String getLayerId() {
+            return layerId;
+        }
+    }
+}
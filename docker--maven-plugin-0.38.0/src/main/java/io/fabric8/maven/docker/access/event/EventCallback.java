@@ -0,0 +1,30 @@
+package io.fabric8.maven.docker.access.event;
+
+import io.fabric8.maven.docker.model.DockerEvent;
+
+/**
+ * Interface called for each event received from the Docker daemon when subscribed to events
+ */
+public interface EventCallback {
+
+    /**
+     * Receive an event. Called from the thread reading the event stream, so this should return quickly.
+     *
+     * @param event the event
+     */
+    void event(DockerEvent event);
+
+    /**
+     * Method called in case of an error when reading the events. The subscription is finished afterwards.
+     *
+     * @param error error description
+     */
+    void error(String error);
+
+    /**
+     * Called when the subscription has finished, either because it has been finished explicitly,
+     * the daemon closed the stream or an error occurred
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,158 @@
+package io.fabric8.maven.docker.access.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.model.DockerEvent;
+import io.fabric8.maven.docker.util.Logger;
+
+/**
+ * Dispatcher which shares a single event subscription between multiple in-process listeners.
+ * The subscription is started when the first listener is added and finished when the last one
+ * is removed. If the daemon closes the stream, it is started again with the next listener added.
+ */
+public class EventDispatcher {
+
+    private final DockerAccess docker;
+    private final EventFilter filter;
+    private final Logger log;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private EventSubscription subscription;
+    private volatile Fanout fanout;
+
+    /**
+     * Create a dispatcher
+     *
+     * @param docker access object used for subscribing
+     * @param filter filter to apply on the daemon side for all listeners, can be <code>null</code>
+     * @param log logger for reporting failing listeners
+     */
+    public EventDispatcher(DockerAccess docker, EventFilter filter, Logger log) {
+        this.docker = docker;
+        this.filter = filter;
+        this.log = log;
+    }
+
+    /**
+     * Add a listener for all events of this dispatcher
+     *
+     * @param callback listener to add
+     * @return registration for removing the listener again
+     */
+    public Registration addListener(EventCallback callback) {
+        return addListener(event -> true, callback);
+    }
+
+    /**
+     * Add a listener for selected events
+     *
+     * @param selector which events to pass to the listener
+     * @param callback listener to add
+     * @return registration for removing the listener again
+     */
+    public synchronized Registration addListener(Predicate<DockerEvent> selector, EventCallback callback) {
+        Listener listener = new Listener(selector, callback);
+        listeners.add(listener);
+        if (subscription == null) {
+            fanout = new Fanout();
+            subscription = docker.subscribeEvents(filter, fanout);
+        }
+        return new Registration(listener);
+    }
+
+    /**
+     * Remove all listeners and finish the subscription
+     */
+    public synchronized void shutdown() {
+        listeners.clear();
+        finishSubscription();
+    }
+
+    private synchronized void removeListener(Listener listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            finishSubscription();
+        }
+    }
+
+    private void finishSubscription() {
+        if (subscription != null) {
+            subscription.finish();
+            subscription = null;
+            fanout = null;
+        }
+    }
+
+    private synchronized void subscriptionClosed(Fanout closed) {
+        if (closed == fanout) {
+            subscription = null;
+            fanout = null;
+        }
+    }
+
+    /**
+     * Handle for removing a listener
+     */
+    public class Registration implements AutoCloseable {
+
+        private final Listener listener;
+
+        private Registration(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            removeListener(listener);
+        }
+    }
+
+    private static class Listener {
+        private final Predicate<DockerEvent> selector;
+        private final EventCallback callback;
+
+        private Listener(Predicate<DockerEvent> selector, EventCallback callback) {
+            this.selector = selector;
+            this.callback = callback;
+        }
+    }
+
+    // Callback of a single subscription passing events to all listeners
+    private class Fanout implements EventCallback {
+
+        @Override
+        public void event(DockerEvent event) {
+            if (this != fanout) {
+                // Already finished subscription
+                return;
+            }
+            for (Listener listener : listeners) {
+                try {
+                    if (listener.selector.test(event)) {
+                        listener.callback.event(event);
+                    }
+                } catch (RuntimeException exp) {
+                    // A failing listener must not stop the others from receiving events
+                    log.warn("Event listener failed for event %s: %s", event.getAction(), exp);
+                }
+            }
+        }
+
+        @Override
+        public void error(String error) {
+            for (Listener listener : listeners) {
+                listener.callback.error(error);
+            }
+        }
+
+        @Override
+        public void close() {
+            subscriptionClosed(this);
+        }
+    }
+}
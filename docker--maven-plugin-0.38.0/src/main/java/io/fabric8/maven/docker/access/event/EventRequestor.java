@@ -0,0 +1,123 @@
+package io.fabric8.maven.docker.access.event;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.access.UrlBuilder;
+import io.fabric8.maven.docker.access.util.RequestUtil;
+import io.fabric8.maven.docker.model.DockerEvent;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * Long running request to the <code>/events</code> endpoint which parses the streamed events and feeds
+ * them into a callback. The request runs in its own thread ({@link #start()}) until it is finished via
+ * {@link #finish()} or the daemon closes the stream.
+ */
+public class EventRequestor extends Thread implements EventSubscription {
+
+    private final CloseableHttpClient client;
+    private final UrlBuilder urlBuilder;
+    private final EventFilter filter;
+    private final EventCallback callback;
+
+    private volatile DockerAccessException exception;
+
+    // Remember for asynchronous handling so that the request can be aborted from the outside
+    private volatile HttpUriRequest request;
+    private volatile boolean finished;
+
+    /**
+     * Create a requestor for streaming events
+     *
+     * @param client HTTP client to use for requesting the docker host. It is closed when the subscription ends.
+     * @param urlBuilder builder that creates docker urls
+     * @param filter filter to apply on the events, can be <code>null</code>
+     * @param callback callback to call for each event received
+     */
+    public EventRequestor(CloseableHttpClient client, UrlBuilder urlBuilder, EventFilter filter, EventCallback callback) {
+        super("docker-events");
+        setDaemon(true);
+        this.client = client;
+        this.urlBuilder = urlBuilder;
+        this.filter = filter;
+        this.callback = callback;
+    }
+
+    @Override
+    public void run() {
+        try {
+            this.request = RequestUtil.newGet(urlBuilder.events(filter));
+            if (finished) {
+                return;
+            }
+            HttpResponse response = client.execute(request);
+            parseResponse(response);
+        } catch (IOException | JsonParseException exp) {
+            if (!finished) {
+                exception = new DockerAccessException(exp, "Error while reading events");
+                callback.error(exception.getMessage());
+            }
+        } finally {
+            callback.close();
+            try {
+                client.close();
+            } catch (IOException exp) {
+                // Nothing we can do here
+            }
+        }
+    }
+
+    private void parseResponse(HttpResponse response) throws IOException {
+        StatusLine status = response.getStatusLine();
+        if (status.getStatusCode() != 200) {
+            exception = new DockerAccessException("Error while subscribing to events (" + status + ")");
+            callback.error(exception.getMessage());
+            return;
+        }
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+            // Events are streamed as a sequence of JSON objects
+            reader.setLenient(true);
+            while (!finished && reader.peek() != JsonToken.END_DOCUMENT) {
+                JsonElement element = new JsonParser().parse(reader);
+                if (element.isJsonObject()) {
+                    callback.event(new DockerEvent(element.getAsJsonObject()));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void finish() {
+        finished = true;
+        HttpUriRequest current = request;
+        if (current != null) {
+            try {
+                current.abort();
+            } catch (IllegalStateException exp) {
+                // The reading thread has released the connection concurrently, so there is nothing left to abort
+            }
+        }
+    }
+
+    @Override
+    public boolean isError() {
+        return exception != null;
+    }
+
+    @Override
+    public DockerAccessException getException() {
+        return exception;
+    }
+}
@@ -0,0 +1,18 @@
+package io.fabric8.maven.docker.access.event;
+
+import io.fabric8.maven.docker.access.DockerAccessException;
+
+/**
+ * Handle of a running subscription to Docker events
+ */
+public interface EventSubscription {
+
+    /**
+     * Stop receiving events and close the connection to the daemon
+     */
+    void finish();
+
+    boolean isError();
+
+    DockerAccessException getException();
+}
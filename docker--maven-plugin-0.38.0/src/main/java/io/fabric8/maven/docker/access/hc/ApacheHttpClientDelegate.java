@@ -2,13 +2,25 @@ package io.fabric8.maven.docker.access.hc;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.net.URLConnection;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import com.google.gson.JsonObject;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpDelete;
@@ -17,21 +29,32 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
+import io.fabric8.maven.docker.access.ArchiveWriter;
+import io.fabric8.maven.docker.access.DockerTransport;
 import io.fabric8.maven.docker.access.hc.http.HttpRequestException;
 import io.fabric8.maven.docker.access.hc.util.ClientBuilder;
+import io.fabric8.maven.docker.access.metrics.AccessMetrics;
+import io.fabric8.maven.docker.access.metrics.EndpointMetrics;
 
 public class ApacheHttpClientDelegate {
 
     private final ClientBuilder clientBuilder;
     private final CloseableHttpClient httpClient;
+    private final boolean pooled;
+
+    // Receives the throughput of uploaded archives
+    private volatile DockerTransport transport;
 
     public ApacheHttpClientDelegate(ClientBuilder clientBuilder, boolean pooled) throws IOException {
         this.clientBuilder = clientBuilder;
+        this.pooled = pooled;
         this.httpClient = pooled ? clientBuilder.buildPooledClient() : clientBuilder.buildBasicClient();
     }
 
@@ -43,10 +66,26 @@ public class ApacheHttpClientDelegate {
         }
     }
 
+    /**
+     * Set the transport to which the throughput of file and archive uploads is reported
+     *
+     * @param transport transport to update
+     */
+    public void setTransport(DockerTransport transport) {
+        this.transport = transport;
+    }
+
     public CloseableHttpClient getHttpClient() {
         return httpClient;
     }
 
+    /**
+     * @return statistics of the connection pool or <code>null</code> if the client is not pooled
+     */
+    public PoolStats getPoolStats() {
+        return pooled ? clientBuilder.getPoolStats() : null;
+    }
+
     public void close() throws IOException {
         httpClient.close();
     }
@@ -127,6 +166,9 @@ public class ApacheHttpClientDelegate {
         if (body instanceof File) {
             req.addHeader(HttpHeaders.CONTENT_TYPE, URLConnection.guessContentTypeFromName(((File)body).getName()));
         }
+        if (body instanceof ArchiveWriter) {
+            req.addHeader(HttpHeaders.CONTENT_TYPE, "application/x-tar");
+        }
         if (body != null && !req.containsHeader(HttpHeaders.CONTENT_TYPE)) {
             req.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
         }
@@ -157,26 +199,61 @@ public class ApacheHttpClientDelegate {
 
     private void setEntityIfGiven(HttpEntityEnclosingRequestBase request, Object entity) {
         if (entity != null) {
+            EndpointMetrics metrics = AccessMetrics.current();
             if (entity instanceof File) {
-                request.setEntity(new FileEntity((File) entity));
+                request.setEntity(new FileBackedEntity((File) entity, transport));
+            } else if (entity instanceof ArchiveWriter) {
+                ArchiveWriter writer = (ArchiveWriter) entity;
+                request.setEntity(new ArchiveWriterEntity(metrics != null ? countingWriter(writer, metrics) : writer, transport));
+                return;
             } else {
                 request.setEntity(new StringEntity((String) entity, Charset.defaultCharset()));
             }
+            if (metrics != null) {
+                metrics.addBytesSent(request.getEntity().getContentLength());
+            }
         }
     }
 
+    // The archive is written by a separate thread, so the metrics are captured here
+    private ArchiveWriter countingWriter(ArchiveWriter writer, EndpointMetrics metrics) {
+        return out -> {
+            CountingOutputStream counter = new CountingOutputStream(out);
+            try {
+                writer.write(counter);
+            } finally {
+                metrics.addBytesSent(counter.getByteCount());
+            }
+        };
+    }
+
     private static class StatusCodeCheckerResponseHandler<T> implements ResponseHandler<T> {
 
         private int[] statusCodes;
         private ResponseHandler<T> delegate;
+        private EndpointMetrics metrics;
 
         StatusCodeCheckerResponseHandler(ResponseHandler<T> delegate, int... statusCodes) {
             this.statusCodes = statusCodes;
             this.delegate = delegate;
+            this.metrics = AccessMetrics.current();
         }
 
         @Override
         public T handleResponse(HttpResponse response) throws IOException {
+            if (metrics == null || response.getEntity() == null) {
+                return checkAndHandle(response);
+            }
+            CountingEntity entity = new CountingEntity(response.getEntity());
+            response.setEntity(entity);
+            try {
+                return checkAndHandle(response);
+            } finally {
+                metrics.addBytesReceived(entity.getByteCount());
+            }
+        }
+
+        private T checkAndHandle(HttpResponse response) throws IOException {
             StatusLine statusLine = response.getStatusLine();
             int statusCode = statusLine.getStatusCode();
             for (int code : statusCodes) {
@@ -187,11 +264,48 @@ public class ApacheHttpClientDelegate {
 
             String reason = statusLine.getReasonPhrase().trim();
             throw new HttpRequestException(String.format("%s (%s: %d)", getResponseMessage(response),
-                                                         reason, statusCode));
+                                                         reason, statusCode), statusCode);
         }
 
     }
 
+    // Counts the bytes read from a response entity
+    private static class CountingEntity extends HttpEntityWrapper {
+
+        private CountingInputStream content;
+        private long count;
+
+        CountingEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            // A streamed entity returns always the same stream, so wrap it only once
+            if (content == null || !isStreaming()) {
+                if (content != null) {
+                    count += content.getByteCount();
+                }
+                content = new CountingInputStream(super.getContent());
+            }
+            return content;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            CountingOutputStream counter = new CountingOutputStream(out);
+            try {
+                super.writeTo(counter);
+            } finally {
+                count += counter.getByteCount();
+            }
+        }
+
+        long getByteCount() {
+            return (content != null ? content.getByteCount() : 0) + count;
+        }
+    }
+
     public static class BodyAndStatusResponseHandler implements ResponseHandler<HttpBodyAndStatus> {
 
         @Override
@@ -202,6 +316,30 @@ public class ApacheHttpClientDelegate {
         }
     }
 
+    /**
+     * Parses the response body as JSON object directly from the entity stream. A "404 Not Found"
+     * response yields <code>null</code>.
+     */
+    public static class JsonObjectResponseHandler implements ResponseHandler<JsonObject> {
+
+        @Override
+        public JsonObject handleResponse(HttpResponse response) throws IOException {
+            HttpEntity entity = response.getEntity();
+            if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND || entity == null) {
+                EntityUtils.consume(entity);
+                return null;
+            }
+            ContentType contentType = ContentType.get(entity);
+            Charset charset = contentType != null && contentType.getCharset() != null ?
+                contentType.getCharset() : StandardCharsets.UTF_8;
+            try (Reader reader = new InputStreamReader(entity.getContent(), charset)) {
+                return new JsonParser().parse(reader).getAsJsonObject();
+            } catch (IllegalStateException | JsonParseException e) {
+                throw new IOException("Invalid JSON object in response: " + e.getMessage(), e);
+            }
+        }
+    }
+
     public static class HttpBodyAndStatus {
 
         private final int statusCode;
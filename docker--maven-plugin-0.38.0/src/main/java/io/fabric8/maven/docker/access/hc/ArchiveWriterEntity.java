@@ -0,0 +1,163 @@
+package io.fabric8.maven.docker.access.hc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import io.fabric8.maven.docker.access.ArchiveWriter;
+import io.fabric8.maven.docker.access.DockerTransport;
+
+/**
+ * HTTP entity which streams an archive produced by an {@link ArchiveWriter} with chunked
+ * transfer encoding. The archive is written by a separate producer thread into a bounded
+ * pipe, so that at most {@link #PIPE_BUFFER_SIZE} bytes are held in memory while the
+ * request body is sent. The entity is not repeatable: it can be consumed only once, either
+ * with {@link #writeTo} or by reading {@link #getContent()}. If a transport is given, the
+ * upload throughput is reported to it.
+ */
+public class ArchiveWriterEntity extends AbstractHttpEntity {
+
+    static final int PIPE_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveWriter archiveWriter;
+    private final DockerTransport transport;
+    private boolean consumed;
+
+    public ArchiveWriterEntity(ArchiveWriter archiveWriter) {
+        this(archiveWriter, null);
+    }
+
+    public ArchiveWriterEntity(ArchiveWriter archiveWriter, DockerTransport transport) {
+        this.archiveWriter = archiveWriter;
+        this.transport = transport;
+        setChunked(true);
+        setContentType("application/x-tar");
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Start the producer and return the stream of the archive. Closing the stream stops the producer.
+     *
+     * @return stream of the archive, which fails at its end if the archive could not be created
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        markConsumed();
+        return new ArchiveInputStream();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !consumed;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        markConsumed();
+        try (ArchiveInputStream in = new ArchiveInputStream()) {
+            copy(in, out);
+        }
+    }
+
+    private void markConsumed() {
+        if (consumed) {
+            throw new IllegalStateException("Archive has already been streamed");
+        }
+        consumed = true;
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        // Waiting for the producer is not counted, only the time needed for sending
+        UploadTimingOutputStream timed = new UploadTimingOutputStream(out);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            timed.write(buffer, 0, read);
+        }
+        timed.flush();
+        timed.report(transport);
+    }
+
+    private IOException wrap(Throwable error) {
+        return error instanceof IOException ?
+            (IOException) error :
+            new IOException("Cannot create archive: " + error.getMessage(), error);
+    }
+
+    // Reading end of the pipe, which the archive is written to by a producer thread
+    private class ArchiveInputStream extends FilterInputStream {
+
+        private final AtomicReference<Throwable> producerError = new AtomicReference<>();
+        private final Thread producer;
+
+        ArchiveInputStream() throws IOException {
+            super(new PipedInputStream(PIPE_BUFFER_SIZE));
+            final PipedOutputStream pipe = new PipedOutputStream((PipedInputStream) in);
+            producer = new Thread(() -> {
+                try (PipedOutputStream pipeOut = pipe) {
+                    archiveWriter.write(pipeOut);
+                } catch (Throwable exp) {
+                    producerError.set(exp);
+                }
+            }, "docker-archive-writer");
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return checkEnd(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return checkEnd(super.read(b, off, len));
+        }
+
+        // The producer closes the pipe also when failing, so its error is reported at the end of the stream
+        private int checkEnd(int read) throws IOException {
+            if (read == -1) {
+                joinProducer();
+                if (producerError.get() != null) {
+                    throw wrap(producerError.get());
+                }
+            }
+            return read;
+        }
+
+        // Closing the pipe first unblocks a producer waiting on a full pipe
+        @Override
+        public void close() throws IOException {
+            super.close();
+            joinProducer();
+        }
+
+        private void joinProducer() throws InterruptedIOException {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                producer.interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for archive producer");
+            }
+        }
+    }
+}
@@ -13,33 +13,46 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import javax.annotation.Nullable;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import io.fabric8.maven.docker.access.ArchiveWriter;
 import io.fabric8.maven.docker.access.AuthConfig;
 import io.fabric8.maven.docker.access.BuildOptions;
 import io.fabric8.maven.docker.access.ContainerCreateConfig;
+import io.fabric8.maven.docker.access.ContainerFilter;
 import io.fabric8.maven.docker.access.DockerAccess;
 import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.DockerCapabilities;
+import io.fabric8.maven.docker.access.DockerTransport;
+import io.fabric8.maven.docker.access.EventFilter;
 import io.fabric8.maven.docker.access.NetworkCreateConfig;
 import io.fabric8.maven.docker.access.UrlBuilder;
 import io.fabric8.maven.docker.access.VolumeCreateConfig;
 import io.fabric8.maven.docker.access.chunked.BuildJsonResponseHandler;
 import io.fabric8.maven.docker.access.chunked.PullOrPushResponseJsonHandler;
+import io.fabric8.maven.docker.access.event.EventCallback;
+import io.fabric8.maven.docker.access.event.EventRequestor;
+import io.fabric8.maven.docker.access.event.EventSubscription;
 import io.fabric8.maven.docker.access.hc.ApacheHttpClientDelegate.BodyAndStatusResponseHandler;
+import io.fabric8.maven.docker.access.hc.ApacheHttpClientDelegate.JsonObjectResponseHandler;
 import io.fabric8.maven.docker.access.hc.ApacheHttpClientDelegate.HttpBodyAndStatus;
 import io.fabric8.maven.docker.access.hc.http.HttpClientBuilder;
 import io.fabric8.maven.docker.access.hc.unix.UnixSocketClientBuilder;
@@ -48,6 +61,7 @@ import io.fabric8.maven.docker.access.hc.win.NamedPipeClientBuilder;
 import io.fabric8.maven.docker.access.log.LogCallback;
 import io.fabric8.maven.docker.access.log.LogGetHandle;
 import io.fabric8.maven.docker.access.log.LogRequestor;
+import io.fabric8.maven.docker.access.retry.TransientFailures;
 import io.fabric8.maven.docker.config.ArchiveCompression;
 import io.fabric8.maven.docker.config.Arguments;
 import io.fabric8.maven.docker.log.DefaultLogCallback;
@@ -60,7 +74,6 @@ import io.fabric8.maven.docker.model.Image;
 import io.fabric8.maven.docker.model.ImageDetails;
 import io.fabric8.maven.docker.model.Network;
 import io.fabric8.maven.docker.model.NetworksListElement;
-import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.ImageName;
 import io.fabric8.maven.docker.util.JsonFactory;
 import io.fabric8.maven.docker.util.Logger;
@@ -100,6 +113,7 @@ public class DockerAccessWithHcClient implements DockerAccess {
     private static final String API_LOG_FORMAT_DELETE = "DELETE %s";
     private static final String API_LOG_FORMAT_POST_WITH_REQUEST = "POST to %s with %s";
     private static final String API_LOG_FORMAT_POST_FILE = "POST to %s with contents of file %s";
+    private static final String API_LOG_FORMAT_POST_STREAM = "POST to %s with streamed archive";
     private static final String API_LOG_FORMAT_PUT_FILE = "PUT to %s with contents of file %s";
 
     // Logging
@@ -107,6 +121,8 @@ public class DockerAccessWithHcClient implements DockerAccess {
 
     private final ApacheHttpClientDelegate delegate;
     private final UrlBuilder urlBuilder;
+    private final DockerCapabilities capabilities;
+    private final DockerTransport transport;
 
     /**
      * Create a new access for the given URL
@@ -135,27 +151,32 @@ public class DockerAccessWithHcClient implements DockerAccess {
         } else {
             this.delegate = createHttpClient(new HttpClientBuilder(isSSL(baseUrl) ? certPath : null, maxConnections));
         }
+        this.transport = new DockerTransport(isLocal(uri));
+        this.delegate.setTransport(transport);
 
         // Strip trailing slashes if any
         while(baseUrl.endsWith("/")) {
             baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
         }
-        this.urlBuilder = new UrlBuilder(baseUrl, "v" + fetchApiVersionFromServer(baseUrl, this.delegate));
+        this.capabilities = fetchCapabilitiesFromServer(baseUrl, this.delegate);
+        this.urlBuilder = new UrlBuilder(baseUrl, "v" + capabilities.getApiVersion());
         this.log = log;
     }
 
     /** {@inheritDoc} */
     @Override
-    public String getServerApiVersion() throws DockerAccessException {
-        try {
-            String url = urlBuilder.version();
-            log.verbose(Logger.LogVerboseCategory.API, API_LOG_FORMAT_GET, url);
-            String response = delegate.get(url, 200);
-            JsonObject info = JsonFactory.newJsonObject(response);
-            return info.get("ApiVersion").getAsString();
-        } catch (Exception e) {
-            throw new DockerAccessException(e, "Cannot extract API version from server %s", urlBuilder.getBaseUrl());
-        }
+    public String getServerApiVersion() {
+        return capabilities.getApiVersion();
+    }
+
+    @Override
+    public DockerCapabilities getCapabilities() {
+        return capabilities;
+    }
+
+    @Override
+    public DockerTransport getTransport() {
+        return transport;
     }
 
     @Override
@@ -282,14 +303,43 @@ public class DockerAccessWithHcClient implements DockerAccess {
     @Override
     public void buildImage(String image, File dockerArchive, BuildOptions options) throws DockerAccessException {
         try {
-            String url = urlBuilder.buildImage(image, options);
+            String url = urlBuilder.buildImage(image, adaptToCapabilities(options));
             log.verbose(Logger.LogVerboseCategory.API, API_LOG_FORMAT_POST_FILE, url, dockerArchive);
-            delegate.post(url, dockerArchive, createBuildResponseHandler(), HTTP_OK);
+            delegate.post(url, dockerArchive, createBuildResponseHandler(options), HTTP_OK);
         } catch (IOException e) {
             throw new DockerAccessException(e, "Unable to build image [%s]", image);
         }
     }
 
+    @Override
+    public void buildImage(String image, ArchiveWriter archiveWriter, BuildOptions options) throws DockerAccessException {
+        try {
+            String url = urlBuilder.buildImage(image, adaptToCapabilities(options));
+            log.verbose(Logger.LogVerboseCategory.API, API_LOG_FORMAT_POST_STREAM, url);
+            delegate.post(url, archiveWriter, createBuildResponseHandler(options), HTTP_OK);
+        } catch (IOException e) {
+            throw new DockerAccessException(e, "Unable to build image [%s]", image);
+        }
+    }
+
+    // Drop build options the daemon can't handle instead of failing the build. The caller's options are
+    // left untouched, since they can be reused for other builds.
+    private BuildOptions adaptToCapabilities(BuildOptions options) {
+        if (options == null) {
+            return null;
+        }
+        BuildOptions adapted = options;
+        if ("1".equals(options.getOptions().get("squash")) && !capabilities.supportsSquash()) {
+            log.warn("Squashing image layers is not supported by %s, building without --squash", capabilities);
+            adapted = options.copy().squash(false);
+        }
+        if (options.isBuildKit() && !capabilities.supportsBuildKit()) {
+            log.warn("BuildKit is not supported by %s, building with the classic builder", capabilities);
+            adapted = (adapted == options ? options.copy() : adapted).addOption("version", "1");
+        }
+        return adapted;
+    }
+
     @Override
     public void copyArchiveToContainer(String containerId, File archive, String targetPath)
             throws DockerAccessException {
@@ -343,87 +393,77 @@ public class DockerAccessWithHcClient implements DockerAccess {
     }
 
     @Override
-    public List<Container> getContainersForImage(String image, boolean all) throws DockerAccessException {
-        String url;
-        String serverApiVersion = getServerApiVersion();
-        if (EnvUtil.greaterOrEqualsVersion(serverApiVersion, "1.23")) {
-            // For Docker >= 1.11 we can use a new filter when listing containers
-            url = urlBuilder.listContainers(all, "ancestor",image);
-        } else {
-            // For older versions (< Docker 1.11) we need to iterate over the containers.
-            url = urlBuilder.listContainers(all);
-        }
-
-        try {
-            log.verbose(Logger.LogVerboseCategory.API, API_LOG_FORMAT_GET, url);
-            String response = delegate.get(url, HTTP_OK);
-            JsonArray array = JsonFactory.newJsonArray(response);
-            List<Container> containers = new ArrayList<>();
+    public EventSubscription subscribeEvents(EventFilter filter, EventCallback callback) {
+        EventRequestor requestor = new EventRequestor(delegate.createBasicClient(), urlBuilder, filter, callback);
+        requestor.start();
+        return requestor;
+    }
 
-            for (int i = 0; i < array.size(); i++) {
-                JsonObject element = array.get(i).getAsJsonObject();
-                if (image.equals(element.get("Image").getAsString())) {
-                    containers.add(new ContainersListElement(element));
-                }
-            }
-            return containers;
-        } catch (IOException e) {
-            throw new DockerAccessException(e.getMessage());
-        }
+    @Override
+    public List<Container> getContainersForImage(String image, boolean all) throws DockerAccessException {
+        // The ancestor filter also matches containers of derived images, so check for the exact image, too
+        return listContainers(all, new ContainerFilter().ancestor(image), imageIn(Collections.singleton(image)));
     }
 
     @Override
     public List<Container> listContainers(boolean all) throws DockerAccessException {
-        String url = urlBuilder.listContainers(all);
+        return listContainers(all, null, json -> true);
+    }
 
-        try {
-            String response = delegate.get(url, HTTP_OK);
-            JsonArray array = JsonFactory.newJsonArray(response);
-            List<Container> containers = new ArrayList<>();
+    @Override
+    public List<Container> listContainers(boolean all, ContainerFilter filter) throws DockerAccessException {
+        return listContainers(all, filter, json -> true);
+    }
 
-            for (JsonElement element : array) {
-                containers.add(new ContainersListElement(element.getAsJsonObject()));
-            }
+    private List<Container> listContainers(boolean all, ContainerFilter filter, Predicate<JsonObject> predicate)
+        throws DockerAccessException {
+        if (filter != null && !filter.getAncestors().isEmpty() && !capabilities.supportsAncestorFilter()) {
+            // For older versions (< Docker 1.11) we need to check the image on our side
+            predicate = predicate.and(imageIn(new HashSet<>(filter.getAncestors())));
+            filter = filter.withoutAncestors();
+        }
+        String url = urlBuilder.listContainers(all, filter);
 
-            return containers;
+        try {
+            log.verbose(Logger.LogVerboseCategory.API, API_LOG_FORMAT_GET, url);
+            // Filter while decoding so that only the matching containers are kept
+            return delegate.get(url, new JsonListResponseHandler<Container>(
+                ContainersListElement.FIELDS, ContainersListElement::new, predicate), HTTP_OK);
         } catch (IOException e) {
             throw new DockerAccessException(e.getMessage());
         }
     }
 
+    private Predicate<JsonObject> imageIn(Set<String> images) {
+        return json -> json.has(ContainersListElement.IMAGE) &&
+                       images.contains(json.get(ContainersListElement.IMAGE).getAsString());
+    }
+
     @Override
     public ContainerDetails getContainer(String containerIdOrName) throws DockerAccessException {
-        HttpBodyAndStatus response = inspectContainer(containerIdOrName);
-        if (response.getStatusCode() == HTTP_NOT_FOUND) {
-            return null;
-        } else {
-            return new ContainerDetails(JsonFactory.newJsonObject(response.getBody()));
-        }
+        JsonObject json = inspectContainer(containerIdOrName);
+        return json != null ? new ContainerDetails(json) : null;
     }
 
     @Override
     public ExecDetails getExecContainer(String containerIdOrName) throws DockerAccessException {
-        HttpBodyAndStatus response = inspectExecContainer(containerIdOrName);
-        if (response.getStatusCode() == HTTP_NOT_FOUND) {
-            return null;
-        } else {
-            return new ExecDetails(JsonFactory.newJsonObject(response.getBody()));
-        }
+        JsonObject json = inspectExecContainer(containerIdOrName);
+        return json != null ? new ExecDetails(json) : null;
     }
 
-    private HttpBodyAndStatus inspectContainer(String containerIdOrName) throws DockerAccessException {
+    private JsonObject inspectContainer(String containerIdOrName) throws DockerAccessException {
         try {
             String url = urlBuilder.inspectContainer(containerIdOrName);
-            return delegate.get(url, new BodyAndStatusResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
+            return delegate.get(url, new JsonObjectResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
         } catch (IOException e) {
             throw new DockerAccessException(e, "Unable to retrieve container name for [%s]", containerIdOrName);
         }
     }
 
-    private HttpBodyAndStatus inspectExecContainer(String containerIdOrName) throws DockerAccessException {
+    private JsonObject inspectExecContainer(String containerIdOrName) throws DockerAccessException {
         try {
             String url = urlBuilder.inspectExecContainer(containerIdOrName);
-            return delegate.get(url, new BodyAndStatusResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
+            return delegate.get(url, new JsonObjectResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
         } catch (IOException e) {
             throw new DockerAccessException(e, "Unable to retrieve container name for [%s]", containerIdOrName);
         }
@@ -434,15 +474,7 @@ public class DockerAccessWithHcClient implements DockerAccess {
         String url = urlBuilder.listImages(all);
 
         try {
-            String response = delegate.get(url, HTTP_OK);
-            JsonArray array = JsonFactory.newJsonArray(response);
-            List<Image> images = new ArrayList<>(array.size());
-
-            for (int i = 0; i < array.size(); i++) {
-                images.add(new ImageDetails(array.get(i).getAsJsonObject()));
-            }
-
-            return images;
+            return delegate.get(url, new JsonListResponseHandler<Image>(ImageDetails.FIELDS, ImageDetails::new), HTTP_OK);
         } catch(IOException e) {
             throw new DockerAccessException(e.getMessage());
         }
@@ -460,18 +492,14 @@ public class DockerAccessWithHcClient implements DockerAccess {
 
     @Override
     public String getImageId(String name) throws DockerAccessException {
-        HttpBodyAndStatus response = inspectImage(name);
-        if (response.getStatusCode() == HTTP_NOT_FOUND) {
-            return null;
-        }
-        JsonObject imageDetails = JsonFactory.newJsonObject(response.getBody());
-        return imageDetails.get("Id").getAsString().substring(0, 12);
+        JsonObject imageDetails = inspectImage(name);
+        return imageDetails != null ? imageDetails.get("Id").getAsString().substring(0, 12) : null;
     }
 
-    private HttpBodyAndStatus inspectImage(String name) throws DockerAccessException {
+    private JsonObject inspectImage(String name) throws DockerAccessException {
         String url = urlBuilder.inspectImage(name);
         try {
-            return delegate.get(url, new BodyAndStatusResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
+            return delegate.get(url, new JsonObjectResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
         } catch (IOException e) {
             throw new DockerAccessException(e, "Unable to inspect image [%s]", name);
         }
@@ -533,23 +561,24 @@ public class DockerAccessWithHcClient implements DockerAccess {
     }
 
     @Override
-    public void saveImage(String image, String filename, ArchiveCompression compression) throws DockerAccessException {
+    public void saveImage(String image, String filename, ArchiveCompression compression, int compressionThreads) throws DockerAccessException {
         ImageName name = new ImageName(image);
         String url = urlBuilder.getImage(name);
         try {
-            delegate.get(url, getImageResponseHandler(filename, compression), HTTP_OK);
+            delegate.get(url, getImageResponseHandler(filename, compression, compressionThreads), HTTP_OK);
         } catch (IOException e) {
             throw new DockerAccessException(e, "Unable to save '%s' to '%s'", image, filename);
         }
 
     }
 
-    private ResponseHandler<Object> getImageResponseHandler(final String filename, final ArchiveCompression compression) throws FileNotFoundException {
+    private ResponseHandler<Object> getImageResponseHandler(final String filename, final ArchiveCompression compression,
+                                                           final int compressionThreads) throws FileNotFoundException {
         return new ResponseHandler<Object>() {
             @Override
             public Object handleResponse(HttpResponse response) throws IOException {
                 try (InputStream stream = response.getEntity().getContent();
-                     OutputStream out = compression.wrapOutputStream(new FileOutputStream(filename))) {
+                     OutputStream out = compression.wrapOutputStream(new FileOutputStream(filename), compressionThreads)) {
                     IOUtils.copy(stream, out, COPY_BUFFER_SIZE);
                 }
                 return null;
@@ -689,6 +718,13 @@ public class DockerAccessWithHcClient implements DockerAccess {
     public void start() {
     }
 
+    /**
+     * @return statistics of the HTTP connection pool or <code>null</code> if not available
+     */
+    public PoolStats getConnectionPoolStats() {
+        return delegate.getPoolStats();
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -698,6 +734,17 @@ public class DockerAccessWithHcClient implements DockerAccess {
         }
     }
 
+    // Sockets, pipes and the loopback interface don't profit from compressing uploads
+    private static boolean isLocal(URI uri) {
+        String scheme = uri.getScheme();
+        if (scheme.equalsIgnoreCase("unix") || scheme.equalsIgnoreCase("npipe")) {
+            return true;
+        }
+        String host = uri.getHost();
+        return host != null &&
+               (host.equalsIgnoreCase("localhost") || host.startsWith("127.") || host.equals("[::1]"));
+    }
+
     ApacheHttpClientDelegate createHttpClient(ClientBuilder builder) throws IOException {
     	return createHttpClient(builder, true);
     }
@@ -707,8 +754,8 @@ public class DockerAccessWithHcClient implements DockerAccess {
     }
 
     // visible for testing?
-    private HcChunkedResponseHandlerWrapper createBuildResponseHandler() {
-        return new HcChunkedResponseHandlerWrapper(new BuildJsonResponseHandler(log));
+    private HcChunkedResponseHandlerWrapper createBuildResponseHandler(BuildOptions options) {
+        return new HcChunkedResponseHandlerWrapper(new BuildJsonResponseHandler(log, options != null ? options.getBuildSteps() : null));
     }
 
     // visible for testing?
@@ -735,8 +782,8 @@ public class DockerAccessWithHcClient implements DockerAccess {
             try {
                 delegate.post(url, null, header, handler, HTTP_OK);
                 return;
-            } catch (HttpResponseException e) {
-                if (isRetryableErrorCode(e.getStatusCode()) && i != retries) {
+            } catch (IOException e) {
+                if (isRetryableErrorCode(TransientFailures.getStatusCode(e)) && i != retries) {
                     log.warn("failed to push image to [{}], retrying...", url);
                 } else {
                     throw e;
@@ -796,12 +843,30 @@ public class DockerAccessWithHcClient implements DockerAccess {
     }
 
     public String fetchApiVersionFromServer(String baseUrl, ApacheHttpClientDelegate delegate) throws IOException {
+        return fetchCapabilitiesFromServer(baseUrl, delegate).getApiVersion();
+    }
+
+    // Single /version request used for the API version (header) and the daemon's capabilities (body)
+    DockerCapabilities fetchCapabilitiesFromServer(String baseUrl, ApacheHttpClientDelegate delegate) throws IOException {
         HttpGet get = new HttpGet(baseUrl + (baseUrl.endsWith("/") ? "" : "/") + "version");
         get.addHeader(HttpHeaders.ACCEPT, "*/*");
         get.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
         try (CloseableHttpResponse response = delegate.getHttpClient().execute(get)) {
+            String apiVersion = response.getFirstHeader("Api-Version") != null ? response.getFirstHeader("Api-Version").getValue() : API_VERSION;
+            return DockerCapabilities.fromVersion(readVersionResponse(response), apiVersion);
+        }
+    }
 
-            return response.getFirstHeader("Api-Version") != null ? response.getFirstHeader("Api-Version").getValue() : API_VERSION;
+    private JsonObject readVersionResponse(HttpResponse response) {
+        if (response.getStatusLine() == null || response.getStatusLine().getStatusCode() != HTTP_OK ||
+            response.getEntity() == null) {
+            return null;
+        }
+        try {
+            return JsonFactory.newJsonObject(EntityUtils.toString(response.getEntity()));
+        } catch (IOException | RuntimeException e) {
+            // Capabilities fall back to the API version only
+            return null;
         }
     }
 
@@ -0,0 +1,32 @@
+package io.fabric8.maven.docker.access.hc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.fabric8.maven.docker.access.DockerTransport;
+import org.apache.http.entity.FileEntity;
+
+/**
+ * File entity which reports the throughput of the upload to the transport, if one is given.
+ */
+public class FileBackedEntity extends FileEntity {
+
+    private final DockerTransport transport;
+
+    public FileBackedEntity(File file) {
+        this(file, null);
+    }
+
+    public FileBackedEntity(File file, DockerTransport transport) {
+        super(file);
+        this.transport = transport;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        UploadTimingOutputStream timed = new UploadTimingOutputStream(out);
+        super.writeTo(timed);
+        timed.report(transport);
+    }
+}
@@ -0,0 +1,107 @@
+package io.fabric8.maven.docker.access.hc;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.ContentType;
+
+/**
+ * Response handler decoding a JSON array (like the result of listing containers or images) directly
+ * from the response stream. Only the given fields of each element are kept and elements not matching
+ * the filter are dropped right away, so that neither the full response body nor a tree of the whole
+ * array is held in memory.
+ *
+ * @param <T> type of the list elements
+ */
+public class JsonListResponseHandler<T> implements ResponseHandler<List<T>> {
+
+    private static final JsonParser PARSER = new JsonParser();
+
+    private final Set<String> fields;
+    private final Function<JsonObject, T> factory;
+    private final Predicate<JsonObject> filter;
+
+    /**
+     * Create a handler which keeps all elements
+     *
+     * @param fields names of the element fields to decode, all other fields are skipped
+     * @param factory used to create a list element from the decoded fields
+     */
+    public JsonListResponseHandler(Set<String> fields, Function<JsonObject, T> factory) {
+        this(fields, factory, json -> true);
+    }
+
+    /**
+     * Create a handler which keeps only elements matching a filter
+     *
+     * @param fields names of the element fields to decode, all other fields are skipped
+     * @param factory used to create a list element from the decoded fields
+     * @param filter applied to the decoded fields of each element
+     */
+    public JsonListResponseHandler(Set<String> fields, Function<JsonObject, T> factory, Predicate<JsonObject> filter) {
+        this.fields = fields;
+        this.factory = factory;
+        this.filter = filter;
+    }
+
+    @Override
+    public List<T> handleResponse(HttpResponse response) throws IOException {
+        List<T> result = new ArrayList<>();
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return result;
+        }
+        try (JsonReader reader = new JsonReader(new InputStreamReader(entity.getContent(), getCharset(entity)))) {
+            if (reader.peek() == JsonToken.NULL) {
+                return result;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                JsonObject element = readElement(reader);
+                if (filter.test(element)) {
+                    result.add(factory.apply(element));
+                }
+            }
+            reader.endArray();
+        } catch (IllegalStateException | JsonParseException e) {
+            throw new IOException("Invalid JSON list in response: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private JsonObject readElement(JsonReader reader) throws IOException {
+        JsonObject element = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (fields.contains(name)) {
+                element.add(name, PARSER.parse(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return element;
+    }
+
+    private Charset getCharset(HttpEntity entity) {
+        ContentType contentType = ContentType.get(entity);
+        Charset charset = contentType != null ? contentType.getCharset() : null;
+        return charset != null ? charset : StandardCharsets.UTF_8;
+    }
+}
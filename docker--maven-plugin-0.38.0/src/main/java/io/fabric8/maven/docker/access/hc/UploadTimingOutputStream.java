@@ -0,0 +1,50 @@
+package io.fabric8.maven.docker.access.hc;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.fabric8.maven.docker.access.DockerTransport;
+
+/**
+ * Stream which measures the time spent in writing to the connection, so that the upload throughput
+ * is not distorted by the time needed for producing the data.
+ */
+class UploadTimingOutputStream extends FilterOutputStream {
+
+    private long bytes;
+    private long nanos;
+
+    UploadTimingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long start = System.nanoTime();
+        out.write(b);
+        nanos += System.nanoTime() - start;
+        bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        out.write(b, off, len);
+        nanos += System.nanoTime() - start;
+        bytes += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        out.flush();
+        nanos += System.nanoTime() - start;
+    }
+
+    void report(DockerTransport transport) {
+        if (transport != null) {
+            transport.recordUpload(bytes, nanos);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.impl.client.*;
 import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
@@ -42,6 +43,7 @@ public class HttpClientBuilder implements ClientBuilder {
 
     private final String certPath;
     private final int maxConnections;
+    private volatile PoolingHttpClientConnectionManager pooledManager;
 
     public HttpClientBuilder(String certPath, int maxConnections) {
         this.certPath = certPath;
@@ -50,7 +52,8 @@ public class HttpClientBuilder implements ClientBuilder {
 
     public CloseableHttpClient buildPooledClient() throws IOException {
         org.apache.http.impl.client.HttpClientBuilder builder = HttpClients.custom();
-        HttpClientConnectionManager manager = getPooledConnectionFactory(certPath, maxConnections);
+        PoolingHttpClientConnectionManager manager = getPooledConnectionFactory(certPath, maxConnections);
+        pooledManager = manager;
         builder.setConnectionManager(manager);
         // TODO: For push-redirects working for 301, the redirect strategy should be relaxed (see #351)
         // However not sure whether we should do it right now and whether this is correct, since normally
@@ -68,7 +71,13 @@ public class HttpClientBuilder implements ClientBuilder {
         return HttpClients.custom().setConnectionManager(getBasicConnectionFactory(certPath)).build();
     }
 
-    private static HttpClientConnectionManager getPooledConnectionFactory(String certPath, int maxConnections) throws IOException {
+    @Override
+    public PoolStats getPoolStats() {
+        PoolingHttpClientConnectionManager manager = pooledManager;
+        return manager != null ? manager.getTotalStats() : null;
+    }
+
+    private static PoolingHttpClientConnectionManager getPooledConnectionFactory(String certPath, int maxConnections) throws IOException {
         PoolingHttpClientConnectionManager ret =  certPath != null ?
                 new PoolingHttpClientConnectionManager(getSslFactoryRegistry(certPath)) :
                 new PoolingHttpClientConnectionManager();
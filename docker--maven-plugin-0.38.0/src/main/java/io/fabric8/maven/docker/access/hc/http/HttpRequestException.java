@@ -4,7 +4,21 @@ import java.io.IOException;
 
 public class HttpRequestException extends IOException {
 
+    private final int statusCode;
+
     public HttpRequestException(String message) {
+        this(message, -1);
+    }
+
+    public HttpRequestException(String message, int statusCode) {
         super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return HTTP status code of the response which caused this exception or -1 if not known
+     */
+    public int getStatusCode() {
+        return statusCode;
     }
 }
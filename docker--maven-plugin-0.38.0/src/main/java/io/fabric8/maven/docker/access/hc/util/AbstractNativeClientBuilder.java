@@ -30,6 +30,7 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 
 /**
  * Base class for all clients which access Docker natively
@@ -45,6 +46,7 @@ abstract public class AbstractNativeClientBuilder implements ClientBuilder {
 
     private final DnsResolver dnsResolver;
     private final int maxConnections;
+    private volatile PoolingHttpClientConnectionManager pooledManager;
 
     public AbstractNativeClientBuilder(String path, int maxConnections, Logger logger) {
         this.maxConnections = maxConnections;
@@ -62,6 +64,7 @@ abstract public class AbstractNativeClientBuilder implements ClientBuilder {
         final HttpClientBuilder httpBuilder = HttpClients.custom();
         final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(registry, dnsResolver);
         manager.setDefaultMaxPerRoute(maxConnections);
+        pooledManager = manager;
         httpBuilder.setConnectionManager(manager);
         return httpBuilder.build();
     }
@@ -72,6 +75,12 @@ abstract public class AbstractNativeClientBuilder implements ClientBuilder {
         return HttpClients.custom().setConnectionManager(manager).build();
     }
 
+    @Override
+    public PoolStats getPoolStats() {
+        PoolingHttpClientConnectionManager manager = pooledManager;
+        return manager != null ? manager.getTotalStats() : null;
+    }
+
     // =========================================================================================================
 
     private Registry<ConnectionSocketFactory> buildRegistry(String path) {
@@ -19,6 +19,7 @@ package io.fabric8.maven.docker.access.hc.util;
 import java.io.IOException;
 
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.pool.PoolStats;
 
 /**
  * A client builder know how to build HTTP clients
@@ -45,4 +46,11 @@ public interface ClientBuilder {
      */
     CloseableHttpClient buildBasicClient() throws IOException;
 
+    /**
+     * Get the statistics of the connection pool used by the client created last with {@link #buildPooledClient()}
+     *
+     * @return pool statistics or <code>null</code> if no pooled client has been created
+     */
+    PoolStats getPoolStats();
+
 }
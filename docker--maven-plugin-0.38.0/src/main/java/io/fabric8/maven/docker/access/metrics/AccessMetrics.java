@@ -0,0 +1,159 @@
+package io.fabric8.maven.docker.access.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Supplier;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Metrics of the calls done via an {@link InstrumentedDockerAccess}, collected per method. The metrics
+ * of the method currently executed by a thread are available via {@link #current()} so that the HTTP
+ * layer can add the number of transferred bytes.
+ */
+public class AccessMetrics {
+
+    private static final ThreadLocal<EndpointMetrics> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final Supplier<PoolStats> poolStatsSupplier;
+
+    // Peak values of the connection pool, sampled whenever a call starts or finishes
+    private final LongAccumulator maxLeased = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxPending = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Create metrics
+     *
+     * @param poolStatsSupplier supplier for the statistics of the HTTP connection pool, can return <code>null</code>
+     *                          if there is no pool
+     */
+    public AccessMetrics(Supplier<PoolStats> poolStatsSupplier) {
+        this.poolStatsSupplier = poolStatsSupplier;
+    }
+
+    /**
+     * Get the metrics of the method which the current thread is executing
+     *
+     * @return metrics or <code>null</code> if the thread is not executing an instrumented call
+     */
+    public static EndpointMetrics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Get the metrics for a method, creating them if not already present
+     *
+     * @param method name of the method
+     * @return metrics of this method
+     */
+    public EndpointMetrics forMethod(String method) {
+        EndpointMetrics metrics = endpoints.get(method);
+        return metrics != null ? metrics : endpoints.computeIfAbsent(method, k -> new EndpointMetrics());
+    }
+
+    EndpointMetrics enter(EndpointMetrics metrics) {
+        EndpointMetrics previous = CURRENT.get();
+        CURRENT.set(metrics);
+        samplePool();
+        return previous;
+    }
+
+    void exit(EndpointMetrics metrics, EndpointMetrics previous, long nanos, boolean failed) {
+        metrics.record(nanos, failed);
+        samplePool();
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    private void samplePool() {
+        PoolStats stats = poolStatsSupplier.get();
+        if (stats != null) {
+            maxLeased.accumulate(stats.getLeased());
+            maxPending.accumulate(stats.getPending());
+        }
+    }
+
+    /**
+     * @return the collected metrics as JSON
+     */
+    public JsonObject toJson() {
+        JsonObject ret = new JsonObject();
+        JsonObject endpointsJson = new JsonObject();
+        for (Map.Entry<String, EndpointMetrics> entry : new TreeMap<>(endpoints).entrySet()) {
+            endpointsJson.add(entry.getKey(), toJson(entry.getValue()));
+        }
+        ret.add("endpoints", endpointsJson);
+
+        PoolStats stats = poolStatsSupplier.get();
+        if (stats != null) {
+            JsonObject pool = new JsonObject();
+            pool.addProperty("leased", stats.getLeased());
+            pool.addProperty("available", stats.getAvailable());
+            pool.addProperty("pending", stats.getPending());
+            pool.addProperty("max", stats.getMax());
+            pool.addProperty("maxLeased", Math.max(maxLeased.get(), stats.getLeased()));
+            pool.addProperty("maxPending", Math.max(maxPending.get(), stats.getPending()));
+            ret.add("connectionPool", pool);
+        }
+        return ret;
+    }
+
+    private JsonObject toJson(EndpointMetrics metrics) {
+        JsonObject ret = new JsonObject();
+        ret.addProperty("count", metrics.getCount());
+        ret.addProperty("errors", metrics.getErrors());
+        ret.addProperty("errorRate", metrics.getErrorRate());
+        ret.addProperty("retries", metrics.getRetries());
+        ret.addProperty("bytesSent", metrics.getBytesSent());
+        ret.addProperty("bytesReceived", metrics.getBytesReceived());
+
+        LatencyHistogram latency = metrics.getLatency();
+        JsonObject latencyJson = new JsonObject();
+        latencyJson.addProperty("min", latency.getMin());
+        latencyJson.addProperty("mean", Math.round(latency.getMean()));
+        latencyJson.addProperty("p50", latency.getValueAtPercentile(50));
+        latencyJson.addProperty("p90", latency.getValueAtPercentile(90));
+        latencyJson.addProperty("p99", latency.getValueAtPercentile(99));
+        latencyJson.addProperty("max", latency.getMax());
+        ret.add("latencyMicros", latencyJson);
+        return ret;
+    }
+
+    /**
+     * Write the metrics as JSON to a file
+     *
+     * @param file file to write to, parent directories are created if required
+     * @param info additional properties to add to the top level of the report
+     * @throws IOException if writing fails
+     */
+    public void writeReport(File file, Map<String, String> info) throws IOException {
+        JsonObject report = new JsonObject();
+        for (Map.Entry<String, String> entry : info.entrySet()) {
+            report.addProperty(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, com.google.gson.JsonElement> entry : toJson().entrySet()) {
+            report.add(entry.getKey(), entry.getValue());
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+        }
+    }
+}
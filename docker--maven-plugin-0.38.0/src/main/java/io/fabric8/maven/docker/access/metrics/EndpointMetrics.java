@@ -0,0 +1,76 @@
+package io.fabric8.maven.docker.access.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics collected for a single {@link io.fabric8.maven.docker.access.DockerAccess} method
+ */
+public class EndpointMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Add bytes sent to the Docker daemon as request body
+     *
+     * @param bytes number of bytes
+     */
+    public void addBytesSent(long bytes) {
+        bytesSent.add(bytes);
+    }
+
+    /**
+     * Add bytes received from the Docker daemon as response body
+     *
+     * @param bytes number of bytes
+     */
+    public void addBytesReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    /**
+     * Count a repetition of a failed call, done within a single recorded call
+     */
+    public void addRetry() {
+        retries.increment();
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getErrorRate() {
+        long count = getCount();
+        return count > 0 ? (double) getErrors() / count : 0;
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,297 @@
+package io.fabric8.maven.docker.access.metrics;
+
+import java.io.File;
+import java.util.List;
+
+import io.fabric8.maven.docker.access.ArchiveWriter;
+import io.fabric8.maven.docker.access.AuthConfig;
+import io.fabric8.maven.docker.access.BuildOptions;
+import io.fabric8.maven.docker.access.ContainerCreateConfig;
+import io.fabric8.maven.docker.access.ContainerFilter;
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.DockerCapabilities;
+import io.fabric8.maven.docker.access.DockerTransport;
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.access.NetworkCreateConfig;
+import io.fabric8.maven.docker.access.VolumeCreateConfig;
+import io.fabric8.maven.docker.access.event.EventCallback;
+import io.fabric8.maven.docker.access.event.EventSubscription;
+import io.fabric8.maven.docker.access.log.LogCallback;
+import io.fabric8.maven.docker.access.log.LogGetHandle;
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import io.fabric8.maven.docker.config.Arguments;
+import io.fabric8.maven.docker.log.LogOutputSpec;
+import io.fabric8.maven.docker.model.Container;
+import io.fabric8.maven.docker.model.ContainerDetails;
+import io.fabric8.maven.docker.model.ExecDetails;
+import io.fabric8.maven.docker.model.Image;
+import io.fabric8.maven.docker.model.Network;
+
+/**
+ * Decorator for a {@link DockerAccess} which records count, latency and errors of each method
+ * in {@link AccessMetrics}. For {@link #getLogAsync(String, LogCallback)} and
+ * {@link #subscribeEvents(EventFilter, EventCallback)} only the time for starting the request is measured.
+ *
+ * Lifecycle methods ({@link #start()} and {@link #shutdown()}) are not recorded.
+ */
+public class InstrumentedDockerAccess implements DockerAccess {
+
+    private final DockerAccess delegate;
+    private final AccessMetrics metrics;
+
+    public InstrumentedDockerAccess(DockerAccess delegate, AccessMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public DockerAccess getDelegate() {
+        return delegate;
+    }
+
+    public AccessMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String getServerApiVersion() throws DockerAccessException {
+        return record("getServerApiVersion", delegate::getServerApiVersion);
+    }
+
+    @Override
+    public DockerCapabilities getCapabilities() throws DockerAccessException {
+        return record("getCapabilities", delegate::getCapabilities);
+    }
+
+    @Override
+    public DockerTransport getTransport() {
+        return delegate.getTransport();
+    }
+
+    @Override
+    public ContainerDetails getContainer(String containerIdOrName) throws DockerAccessException {
+        return record("getContainer", () -> delegate.getContainer(containerIdOrName));
+    }
+
+    @Override
+    public ExecDetails getExecContainer(String containerIdOrName) throws DockerAccessException {
+        return record("getExecContainer", () -> delegate.getExecContainer(containerIdOrName));
+    }
+
+    @Override
+    public boolean hasImage(String name) throws DockerAccessException {
+        return record("hasImage", () -> delegate.hasImage(name));
+    }
+
+    @Override
+    public String getImageId(String name) throws DockerAccessException {
+        return record("getImageId", () -> delegate.getImageId(name));
+    }
+
+    @Override
+    public List<Container> listContainers(boolean all) throws DockerAccessException {
+        return record("listContainers", () -> delegate.listContainers(all));
+    }
+
+    @Override
+    public List<Container> listContainers(boolean all, ContainerFilter filter) throws DockerAccessException {
+        return record("listContainers", () -> delegate.listContainers(all, filter));
+    }
+
+    @Override
+    public List<Container> getContainersForImage(String image, boolean all) throws DockerAccessException {
+        return record("getContainersForImage", () -> delegate.getContainersForImage(image, all));
+    }
+
+    @Override
+    public void startExecContainer(String containerId, LogOutputSpec outputSpec) throws DockerAccessException {
+        record("startExecContainer", () -> delegate.startExecContainer(containerId, outputSpec));
+    }
+
+    @Override
+    public String createExecContainer(String containerId, Arguments arguments) throws DockerAccessException {
+        return record("createExecContainer", () -> delegate.createExecContainer(containerId, arguments));
+    }
+
+    @Override
+    public String createContainer(ContainerCreateConfig configuration, String containerName) throws DockerAccessException {
+        return record("createContainer", () -> delegate.createContainer(configuration, containerName));
+    }
+
+    @Override
+    public void startContainer(String containerId) throws DockerAccessException {
+        record("startContainer", () -> delegate.startContainer(containerId));
+    }
+
+    @Override
+    public void stopContainer(String containerId, int killWait) throws DockerAccessException {
+        record("stopContainer", () -> delegate.stopContainer(containerId, killWait));
+    }
+
+    @Override
+    public void killContainer(String containerId) throws DockerAccessException {
+        record("killContainer", () -> delegate.killContainer(containerId));
+    }
+
+    @Override
+    public void copyArchiveToContainer(String containerId, File archive, String targetPath) throws DockerAccessException {
+        record("copyArchiveToContainer", () -> delegate.copyArchiveToContainer(containerId, archive, targetPath));
+    }
+
+    @Override
+    public void copyArchiveFromContainer(String containerId, String containerPath, File archive) throws DockerAccessException {
+        record("copyArchiveFromContainer", () -> delegate.copyArchiveFromContainer(containerId, containerPath, archive));
+    }
+
+    @Override
+    public void getLogSync(String containerId, LogCallback callback) {
+        recordUnchecked("getLogSync", () -> {
+            delegate.getLogSync(containerId, callback);
+            return null;
+        });
+    }
+
+    @Override
+    public LogGetHandle getLogAsync(String containerId, LogCallback callback) {
+        return recordUnchecked("getLogAsync", () -> delegate.getLogAsync(containerId, callback));
+    }
+
+    @Override
+    public EventSubscription subscribeEvents(EventFilter filter, EventCallback callback) {
+        return recordUnchecked("subscribeEvents", () -> delegate.subscribeEvents(filter, callback));
+    }
+
+    @Override
+    public void removeContainer(String containerId, boolean removeVolumes) throws DockerAccessException {
+        record("removeContainer", () -> delegate.removeContainer(containerId, removeVolumes));
+    }
+
+    @Override
+    public List<Image> listImages(boolean all) throws DockerAccessException {
+        return record("listImages", () -> delegate.listImages(all));
+    }
+
+    @Override
+    public void loadImage(String image, File tarArchive) throws DockerAccessException {
+        record("loadImage", () -> delegate.loadImage(image, tarArchive));
+    }
+
+    @Override
+    public void pullImage(String image, AuthConfig authConfig, String registry) throws DockerAccessException {
+        record("pullImage", () -> delegate.pullImage(image, authConfig, registry));
+    }
+
+    @Override
+    public void pushImage(String image, AuthConfig authConfig, String registry, int retries) throws DockerAccessException {
+        record("pushImage", () -> delegate.pushImage(image, authConfig, registry, retries));
+    }
+
+    @Override
+    public void buildImage(String image, File dockerArchive, BuildOptions options) throws DockerAccessException {
+        record("buildImage", () -> delegate.buildImage(image, dockerArchive, options));
+    }
+
+    @Override
+    public void buildImage(String image, ArchiveWriter archiveWriter, BuildOptions options) throws DockerAccessException {
+        record("buildImage", () -> delegate.buildImage(image, archiveWriter, options));
+    }
+
+    @Override
+    public void tag(String sourceImage, String targetImage, boolean force) throws DockerAccessException {
+        record("tag", () -> delegate.tag(sourceImage, targetImage, force));
+    }
+
+    @Override
+    public boolean removeImage(String image, boolean... force) throws DockerAccessException {
+        return record("removeImage", () -> delegate.removeImage(image, force));
+    }
+
+    @Override
+    public void saveImage(String image, String filename, ArchiveCompression compression, int compressionThreads) throws DockerAccessException {
+        record("saveImage", () -> delegate.saveImage(image, filename, compression, compressionThreads));
+    }
+
+    @Override
+    public List<Network> listNetworks() throws DockerAccessException {
+        return record("listNetworks", delegate::listNetworks);
+    }
+
+    @Override
+    public String createNetwork(NetworkCreateConfig configuration) throws DockerAccessException {
+        return record("createNetwork", () -> delegate.createNetwork(configuration));
+    }
+
+    @Override
+    public boolean removeNetwork(String networkId) throws DockerAccessException {
+        return record("removeNetwork", () -> delegate.removeNetwork(networkId));
+    }
+
+    @Override
+    public String createVolume(VolumeCreateConfig configuration) throws DockerAccessException {
+        return record("createVolume", () -> delegate.createVolume(configuration));
+    }
+
+    @Override
+    public void removeVolume(String name) throws DockerAccessException {
+        record("removeVolume", () -> delegate.removeVolume(name));
+    }
+
+    // The decorator is created per execution around an access object which might be shared within the
+    // session, so the lifecycle of the delegate is left to DockerAccessFactory, which created it
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    // =======================================================================================
+
+    private <T> T record(String method, Call<T> call) throws DockerAccessException {
+        EndpointMetrics endpoint = metrics.forMethod(method);
+        EndpointMetrics previous = metrics.enter(endpoint);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T ret = call.execute();
+            failed = false;
+            return ret;
+        } finally {
+            metrics.exit(endpoint, previous, System.nanoTime() - start, failed);
+        }
+    }
+
+    private void record(String method, VoidCall call) throws DockerAccessException {
+        record(method, () -> {
+            call.execute();
+            return null;
+        });
+    }
+
+    private <T> T recordUnchecked(String method, UncheckedCall<T> call) {
+        EndpointMetrics endpoint = metrics.forMethod(method);
+        EndpointMetrics previous = metrics.enter(endpoint);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T ret = call.execute();
+            failed = false;
+            return ret;
+        } finally {
+            metrics.exit(endpoint, previous, System.nanoTime() - start, failed);
+        }
+    }
+
+    private interface Call<T> {
+        T execute() throws DockerAccessException;
+    }
+
+    private interface VoidCall {
+        void execute() throws DockerAccessException;
+    }
+
+    private interface UncheckedCall<T> {
+        T execute();
+    }
+}
@@ -0,0 +1,108 @@
+package io.fabric8.maven.docker.access.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with a fixed number of log-linear buckets (similar to HdrHistogram).
+ * Values are recorded in microseconds with a relative error of at most ~3%. Recording a value
+ * does not allocate and is safe to be called concurrently.
+ */
+public class LatencyHistogram {
+
+    // Values below 2^LINEAR_BITS are recorded exactly, above each power of two is split into SUB_BUCKETS buckets
+    private static final int LINEAR_BITS = 6;
+    private static final int SUB_BUCKET_BITS = LINEAR_BITS - 1;
+    private static final int LINEAR_BUCKETS = 1 << LINEAR_BITS;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        total.add(micros);
+        min.accumulate(micros);
+        max.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return smallest recorded value in microseconds, 0 if nothing has been recorded
+     */
+    public long getMin() {
+        return getCount() > 0 ? min.get() : 0;
+    }
+
+    /**
+     * @return largest recorded value in microseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return mean of all recorded values in microseconds
+     */
+    public double getMean() {
+        long n = getCount();
+        return n > 0 ? (double) total.sum() / n : 0;
+    }
+
+    /**
+     * Get the value below which the given percentage of recorded values fall
+     *
+     * @param percentile percentile between 0 and 100
+     * @return value in microseconds (the upper bound of the bucket containing the percentile)
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= threshold) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (msb - LINEAR_BITS) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int offset = index - LINEAR_BUCKETS;
+        int shift = offset / SUB_BUCKETS + 1;
+        long lower = (long) (offset % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
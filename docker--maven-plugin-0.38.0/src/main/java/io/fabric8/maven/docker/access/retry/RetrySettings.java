@@ -0,0 +1,135 @@
+package io.fabric8.maven.docker.access.retry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for retrying calls to the Docker daemon which failed with a transient error and for
+ * the circuit breaker which fails fast when the daemon is not reachable anymore.
+ * All durations are in milliseconds.
+ */
+public class RetrySettings {
+
+    private int maxRetries = 3;
+    private final Map<String, Integer> budgets = new HashMap<>();
+    private long initialDelay = 200;
+    private long maxDelay = 5000;
+    private double jitter = 0.25;
+    private long maxDuration = 120000;
+    private int circuitBreakerThreshold = 5;
+    private long circuitBreakerDelay = 30000;
+
+    /**
+     * Default number of retries for each call
+     */
+    public RetrySettings maxRetries(int maxRetries) {
+        this.maxRetries = Math.max(0, maxRetries);
+        return this;
+    }
+
+    /**
+     * Number of retries for a specific operation, overriding {@link #maxRetries(int)}
+     *
+     * @param operation name of the {@link io.fabric8.maven.docker.access.DockerAccess} method like <code>pullImage</code>
+     * @param retries number of retries, 0 for disabling retries of this operation
+     */
+    public RetrySettings budget(String operation, int retries) {
+        budgets.put(operation, Math.max(0, retries));
+        return this;
+    }
+
+    /**
+     * Add budgets given as strings (e.g. from a Maven configuration map)
+     *
+     * @param budgets map from operation to number of retries, can be null
+     */
+    public RetrySettings budgets(Map<String, String> budgets) {
+        if (budgets != null) {
+            for (Map.Entry<String, String> entry : budgets.entrySet()) {
+                try {
+                    budget(entry.getKey(), Integer.parseInt(entry.getValue().trim()));
+                } catch (NumberFormatException | NullPointerException exp) {
+                    throw new IllegalArgumentException(
+                        String.format("Invalid retry budget '%s' for operation %s", entry.getValue(), entry.getKey()), exp);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Delay before the first retry, doubled for each further retry up to {@link #maxDelay(long)}
+     */
+    public RetrySettings initialDelay(long initialDelay) {
+        this.initialDelay = Math.max(0, initialDelay);
+        return this;
+    }
+
+    public RetrySettings maxDelay(long maxDelay) {
+        this.maxDelay = Math.max(0, maxDelay);
+        return this;
+    }
+
+    /**
+     * Random factor (0 .. 1) by which each delay is varied, so that parallel builds don't retry in lockstep
+     */
+    public RetrySettings jitter(double jitter) {
+        this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+        return this;
+    }
+
+    /**
+     * Maximum time spent on a single call including all retries, after which no further retry is done.
+     * 0 for no limit.
+     */
+    public RetrySettings maxDuration(long maxDuration) {
+        this.maxDuration = Math.max(0, maxDuration);
+        return this;
+    }
+
+    /**
+     * Number of consecutive connection failures after which further calls fail immediately. 0 disables
+     * the circuit breaker.
+     */
+    public RetrySettings circuitBreakerThreshold(int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = Math.max(0, circuitBreakerThreshold);
+        return this;
+    }
+
+    /**
+     * Time after which a single call is let through again once the circuit breaker has opened
+     */
+    public RetrySettings circuitBreakerDelay(long circuitBreakerDelay) {
+        this.circuitBreakerDelay = Math.max(1, circuitBreakerDelay);
+        return this;
+    }
+
+    public int getMaxRetries(String operation) {
+        Integer budget = budgets.get(operation);
+        return budget != null ? budget : maxRetries;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    public long getCircuitBreakerDelay() {
+        return circuitBreakerDelay;
+    }
+}
@@ -0,0 +1,433 @@
+package io.fabric8.maven.docker.access.retry;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import io.fabric8.maven.docker.access.ArchiveWriter;
+import io.fabric8.maven.docker.access.AuthConfig;
+import io.fabric8.maven.docker.access.BuildOptions;
+import io.fabric8.maven.docker.access.ContainerCreateConfig;
+import io.fabric8.maven.docker.access.ContainerFilter;
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.DockerCapabilities;
+import io.fabric8.maven.docker.access.DockerTransport;
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.access.NetworkCreateConfig;
+import io.fabric8.maven.docker.access.VolumeCreateConfig;
+import io.fabric8.maven.docker.access.event.EventCallback;
+import io.fabric8.maven.docker.access.event.EventSubscription;
+import io.fabric8.maven.docker.access.log.LogCallback;
+import io.fabric8.maven.docker.access.log.LogGetHandle;
+import io.fabric8.maven.docker.access.metrics.AccessMetrics;
+import io.fabric8.maven.docker.access.metrics.EndpointMetrics;
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import io.fabric8.maven.docker.config.Arguments;
+import io.fabric8.maven.docker.log.LogOutputSpec;
+import io.fabric8.maven.docker.model.Container;
+import io.fabric8.maven.docker.model.ContainerDetails;
+import io.fabric8.maven.docker.model.ExecDetails;
+import io.fabric8.maven.docker.model.Image;
+import io.fabric8.maven.docker.model.Network;
+import io.fabric8.maven.docker.util.Logger;
+import net.jodah.failsafe.CircuitBreaker;
+import net.jodah.failsafe.CircuitBreakerOpenException;
+import net.jodah.failsafe.Failsafe;
+import net.jodah.failsafe.FailsafeException;
+import net.jodah.failsafe.Policy;
+import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.event.ExecutionAttemptedEvent;
+
+/**
+ * Decorator for a {@link DockerAccess} which retries calls failing with a transient error, using
+ * exponential backoff with jitter. Calls which are not idempotent are only repeated when the daemon
+ * has certainly not processed the request. A circuit breaker shared by all calls lets calls fail
+ * immediately after a number of consecutive connection failures, so that a daemon which is down
+ * does not cause every single call to go through its full retry budget.
+ *
+ * Retries are counted per method and added to the {@link AccessMetrics} of the current call, if any.
+ */
+public class RetryingDockerAccess implements DockerAccess {
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_CONFLICT = 409;
+
+    private static final Predicate<Throwable> IDEMPOTENT = failure -> TransientFailures.isTransient(failure, true);
+    private static final Predicate<Throwable> NON_IDEMPOTENT = failure -> TransientFailures.isTransient(failure, false);
+    private static final Predicate<Throwable> NEVER_DONE = failure -> false;
+    private static final Predicate<Throwable> NEVER = failure -> false;
+
+    private final DockerAccess delegate;
+    private final RetrySettings settings;
+    private final Logger log;
+    private final CircuitBreaker<Object> circuitBreaker;
+    private final Map<String, LongAdder> retryCounts = new ConcurrentHashMap<>();
+
+    public RetryingDockerAccess(DockerAccess delegate, RetrySettings settings, Logger log) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.log = log;
+        this.circuitBreaker = createCircuitBreaker();
+    }
+
+    public DockerAccess getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return number of retries done so far, per method
+     */
+    public Map<String, Long> getRetryCounts() {
+        Map<String, Long> ret = new TreeMap<>();
+        retryCounts.forEach((method, count) -> ret.put(method, count.sum()));
+        return ret;
+    }
+
+    @Override
+    public String getServerApiVersion() throws DockerAccessException {
+        return idempotent("getServerApiVersion", delegate::getServerApiVersion);
+    }
+
+    @Override
+    public DockerCapabilities getCapabilities() throws DockerAccessException {
+        return idempotent("getCapabilities", delegate::getCapabilities);
+    }
+
+    @Override
+    public DockerTransport getTransport() {
+        return delegate.getTransport();
+    }
+
+    @Override
+    public ContainerDetails getContainer(String containerIdOrName) throws DockerAccessException {
+        return idempotent("getContainer", () -> delegate.getContainer(containerIdOrName));
+    }
+
+    @Override
+    public ExecDetails getExecContainer(String containerIdOrName) throws DockerAccessException {
+        return idempotent("getExecContainer", () -> delegate.getExecContainer(containerIdOrName));
+    }
+
+    @Override
+    public boolean hasImage(String name) throws DockerAccessException {
+        return idempotent("hasImage", () -> delegate.hasImage(name));
+    }
+
+    @Override
+    public String getImageId(String name) throws DockerAccessException {
+        return idempotent("getImageId", () -> delegate.getImageId(name));
+    }
+
+    @Override
+    public List<Container> listContainers(boolean all) throws DockerAccessException {
+        return idempotent("listContainers", () -> delegate.listContainers(all));
+    }
+
+    @Override
+    public List<Container> listContainers(boolean all, ContainerFilter filter) throws DockerAccessException {
+        return idempotent("listContainers", () -> delegate.listContainers(all, filter));
+    }
+
+    @Override
+    public List<Container> getContainersForImage(String image, boolean all) throws DockerAccessException {
+        return idempotent("getContainersForImage", () -> delegate.getContainersForImage(image, all));
+    }
+
+    @Override
+    public void startExecContainer(String containerId, LogOutputSpec outputSpec) throws DockerAccessException {
+        // Would run the command a second time
+        nonIdempotent("startExecContainer", () -> delegate.startExecContainer(containerId, outputSpec));
+    }
+
+    @Override
+    public String createExecContainer(String containerId, Arguments arguments) throws DockerAccessException {
+        return nonIdempotent("createExecContainer", () -> delegate.createExecContainer(containerId, arguments));
+    }
+
+    @Override
+    public String createContainer(ContainerCreateConfig configuration, String containerName) throws DockerAccessException {
+        return nonIdempotent("createContainer", () -> delegate.createContainer(configuration, containerName));
+    }
+
+    @Override
+    public void startContainer(String containerId) throws DockerAccessException {
+        // A retry of a start whose response got lost is answered with 'not modified'
+        execute("startContainer", IDEMPOTENT, failure -> TransientFailures.getStatusCode(failure) == HTTP_NOT_MODIFIED,
+                () -> {
+                    delegate.startContainer(containerId);
+                    return null;
+                });
+    }
+
+    @Override
+    public void stopContainer(String containerId, int killWait) throws DockerAccessException {
+        idempotent("stopContainer", () -> delegate.stopContainer(containerId, killWait));
+    }
+
+    @Override
+    public void killContainer(String containerId) throws DockerAccessException {
+        // A second kill fails with a conflict as the container is not running anymore
+        nonIdempotent("killContainer", () -> delegate.killContainer(containerId));
+    }
+
+    @Override
+    public void copyArchiveToContainer(String containerId, File archive, String targetPath) throws DockerAccessException {
+        idempotent("copyArchiveToContainer", () -> delegate.copyArchiveToContainer(containerId, archive, targetPath));
+    }
+
+    @Override
+    public void copyArchiveFromContainer(String containerId, String containerPath, File archive) throws DockerAccessException {
+        idempotent("copyArchiveFromContainer", () -> delegate.copyArchiveFromContainer(containerId, containerPath, archive));
+    }
+
+    @Override
+    public void getLogSync(String containerId, LogCallback callback) {
+        delegate.getLogSync(containerId, callback);
+    }
+
+    @Override
+    public LogGetHandle getLogAsync(String containerId, LogCallback callback) {
+        return delegate.getLogAsync(containerId, callback);
+    }
+
+    @Override
+    public EventSubscription subscribeEvents(EventFilter filter, EventCallback callback) {
+        return delegate.subscribeEvents(filter, callback);
+    }
+
+    @Override
+    public void removeContainer(String containerId, boolean removeVolumes) throws DockerAccessException {
+        // 409 is returned while a removal is still in progress, 404 when a previous attempt already succeeded
+        execute("removeContainer",
+                IDEMPOTENT.or(failure -> TransientFailures.getStatusCode(failure) == HTTP_CONFLICT),
+                failure -> TransientFailures.getStatusCode(failure) == HTTP_NOT_FOUND,
+                () -> {
+                    delegate.removeContainer(containerId, removeVolumes);
+                    return null;
+                });
+    }
+
+    @Override
+    public List<Image> listImages(boolean all) throws DockerAccessException {
+        return idempotent("listImages", () -> delegate.listImages(all));
+    }
+
+    @Override
+    public void loadImage(String image, File tarArchive) throws DockerAccessException {
+        idempotent("loadImage", () -> delegate.loadImage(image, tarArchive));
+    }
+
+    @Override
+    public void pullImage(String image, AuthConfig authConfig, String registry) throws DockerAccessException {
+        idempotent("pullImage", () -> delegate.pullImage(image, authConfig, registry));
+    }
+
+    @Override
+    public void pushImage(String image, AuthConfig authConfig, String registry, int retries) throws DockerAccessException {
+        // Retried by the delegate itself with the given number of retries, so only the circuit breaker applies
+        execute("pushImage", NEVER, NEVER_DONE, () -> {
+            delegate.pushImage(image, authConfig, registry, retries);
+            return null;
+        });
+    }
+
+    @Override
+    public void buildImage(String image, File dockerArchive, BuildOptions options) throws DockerAccessException {
+        nonIdempotent("buildImage", () -> delegate.buildImage(image, dockerArchive, options));
+    }
+
+    @Override
+    public void buildImage(String image, ArchiveWriter archiveWriter, BuildOptions options) throws DockerAccessException {
+        nonIdempotent("buildImage", () -> delegate.buildImage(image, archiveWriter, options));
+    }
+
+    @Override
+    public void tag(String sourceImage, String targetImage, boolean force) throws DockerAccessException {
+        idempotent("tag", () -> delegate.tag(sourceImage, targetImage, force));
+    }
+
+    @Override
+    public boolean removeImage(String image, boolean... force) throws DockerAccessException {
+        return idempotent("removeImage", () -> delegate.removeImage(image, force));
+    }
+
+    @Override
+    public void saveImage(String image, String filename, ArchiveCompression compression, int compressionThreads) throws DockerAccessException {
+        idempotent("saveImage", () -> delegate.saveImage(image, filename, compression, compressionThreads));
+    }
+
+    @Override
+    public List<Network> listNetworks() throws DockerAccessException {
+        return idempotent("listNetworks", delegate::listNetworks);
+    }
+
+    @Override
+    public String createNetwork(NetworkCreateConfig configuration) throws DockerAccessException {
+        return nonIdempotent("createNetwork", () -> delegate.createNetwork(configuration));
+    }
+
+    @Override
+    public boolean removeNetwork(String networkId) throws DockerAccessException {
+        return idempotent("removeNetwork", () -> delegate.removeNetwork(networkId));
+    }
+
+    @Override
+    public String createVolume(VolumeCreateConfig configuration) throws DockerAccessException {
+        // Creating a volume with an existing name returns the existing volume
+        return idempotent("createVolume", () -> delegate.createVolume(configuration));
+    }
+
+    @Override
+    public void removeVolume(String name) throws DockerAccessException {
+        idempotent("removeVolume", () -> delegate.removeVolume(name));
+    }
+
+    // The decorator is created per execution around an access object which might be shared within the
+    // session, so the lifecycle of the delegate is left to DockerAccessFactory, which created it
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    // =======================================================================================
+
+    private <T> T idempotent(String method, Call<T> call) throws DockerAccessException {
+        return execute(method, IDEMPOTENT, NEVER_DONE, call);
+    }
+
+    private void idempotent(String method, VoidCall call) throws DockerAccessException {
+        execute(method, IDEMPOTENT, NEVER_DONE, call.asCall());
+    }
+
+    private <T> T nonIdempotent(String method, Call<T> call) throws DockerAccessException {
+        return execute(method, NON_IDEMPOTENT, NEVER_DONE, call);
+    }
+
+    private void nonIdempotent(String method, VoidCall call) throws DockerAccessException {
+        execute(method, NON_IDEMPOTENT, NEVER_DONE, call.asCall());
+    }
+
+    /**
+     * Execute a call with retries
+     *
+     * @param method name of the method, used for looking up the retry budget
+     * @param retryOn failures for which the call is repeated
+     * @param doneOnRetry failures which indicate, when seen on a retry, that a previous attempt already succeeded
+     * @param call the call to execute
+     */
+    private <T> T execute(String method, Predicate<Throwable> retryOn, Predicate<Throwable> doneOnRetry, Call<T> call)
+        throws DockerAccessException {
+        int maxRetries = settings.getMaxRetries(method);
+        List<Policy<Object>> policies = new ArrayList<>();
+        if (maxRetries > 0) {
+            policies.add(createRetryPolicy(method, maxRetries, retryOn));
+        }
+        if (circuitBreaker != null) {
+            policies.add(circuitBreaker);
+        }
+        if (policies.isEmpty()) {
+            return call.execute();
+        }
+
+        try {
+            return Failsafe.with(policies).get(context -> {
+                try {
+                    return call.execute();
+                } catch (DockerAccessException exp) {
+                    if (context.isRetry() && doneOnRetry.test(exp)) {
+                        log.debug("%s: %s, previous attempt has already succeeded", method, exp.getMessage());
+                        return null;
+                    }
+                    throw exp;
+                }
+            });
+        } catch (CircuitBreakerOpenException exp) {
+            throw new DockerAccessException(
+                "Docker daemon not reachable after %d consecutive connection failures, skipping %s (next attempt in %d ms)",
+                settings.getCircuitBreakerThreshold(), method, circuitBreaker.getRemainingDelay().toMillis());
+        } catch (FailsafeException exp) {
+            Throwable cause = exp.getCause();
+            if (cause instanceof DockerAccessException) {
+                throw (DockerAccessException) cause;
+            }
+            throw new DockerAccessException(cause != null ? cause : exp, "Call of %s failed", method);
+        }
+    }
+
+    private RetryPolicy<Object> createRetryPolicy(String method, int maxRetries, Predicate<Throwable> retryOn) {
+        RetryPolicy<Object> policy = new RetryPolicy<>()
+            .handleIf(retryOn::test)
+            .withMaxRetries(maxRetries)
+            .onRetry(event -> recordRetry(method, maxRetries, event));
+
+        long initialDelay = settings.getInitialDelay();
+        long maxDelay = settings.getMaxDelay();
+        if (initialDelay > 0) {
+            if (maxDelay > initialDelay) {
+                policy.withBackoff(initialDelay, maxDelay, ChronoUnit.MILLIS);
+            } else {
+                policy.withDelay(Duration.ofMillis(initialDelay));
+            }
+            if (settings.getJitter() > 0) {
+                policy.withJitter(settings.getJitter());
+            }
+        }
+        if (settings.getMaxDuration() > Math.max(initialDelay, maxDelay)) {
+            policy.withMaxDuration(Duration.ofMillis(settings.getMaxDuration()));
+        }
+        return policy;
+    }
+
+    private CircuitBreaker<Object> createCircuitBreaker() {
+        int threshold = settings.getCircuitBreakerThreshold();
+        if (threshold <= 0) {
+            return null;
+        }
+        // Only connection failures count, any response (also an error response) proves that the daemon is alive
+        return new CircuitBreaker<>()
+            .handleIf(TransientFailures::isConnectionFailure)
+            .withFailureThreshold(threshold)
+            .withDelay(Duration.ofMillis(settings.getCircuitBreakerDelay()))
+            .onOpen(() -> log.warn("Docker daemon not reachable after %d consecutive connection failures, " +
+                                   "failing fast for %d ms", threshold, settings.getCircuitBreakerDelay()))
+            .onClose(() -> log.info("Docker daemon reachable again"));
+    }
+
+    private void recordRetry(String method, int maxRetries, ExecutionAttemptedEvent<Object> event) {
+        retryCounts.computeIfAbsent(method, k -> new LongAdder()).increment();
+        EndpointMetrics metrics = AccessMetrics.current();
+        if (metrics != null) {
+            metrics.addRetry();
+        }
+        Throwable failure = event.getLastFailure();
+        log.warn("%s failed (%s), retry %d of %d",
+                 method, failure != null ? failure.getMessage() : "unknown error", event.getAttemptCount(), maxRetries);
+    }
+
+    private interface Call<T> {
+        T execute() throws DockerAccessException;
+    }
+
+    private interface VoidCall {
+        void execute() throws DockerAccessException;
+
+        default Call<Void> asCall() {
+            return () -> {
+                execute();
+                return null;
+            };
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.fabric8.maven.docker.access.retry;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import io.fabric8.maven.docker.access.hc.http.HttpRequestException;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+
+/**
+ * Classification of failures of calls to the Docker daemon into transient failures, which might
+ * succeed when the call is repeated, and permanent ones. The cause chain of an exception is examined
+ * since {@link io.fabric8.maven.docker.access.DockerAccessException} wraps the original exception.
+ */
+public final class TransientFailures {
+
+    private TransientFailures() {
+    }
+
+    /**
+     * Get the HTTP status code of the response which caused a failure
+     *
+     * @param failure failure to examine
+     * @return status code or -1 if the failure was not caused by an error response
+     */
+    public static int getStatusCode(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof HttpRequestException && ((HttpRequestException) t).getStatusCode() > 0) {
+                return ((HttpRequestException) t).getStatusCode();
+            }
+            if (t instanceof HttpResponseException) {
+                return ((HttpResponseException) t).getStatusCode();
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether the connection to the daemon could not be established at all, so that the request
+     * has never been sent. Such calls can be repeated even if they are not idempotent.
+     *
+     * @param failure failure to examine
+     * @return true if the request has not been sent
+     */
+    public static boolean isNotSent(Throwable failure) {
+        return hasCause(failure,
+                        ConnectException.class,
+                        ConnectTimeoutException.class,
+                        ConnectionPoolTimeoutException.class,
+                        NoRouteToHostException.class,
+                        UnknownHostException.class);
+    }
+
+    /**
+     * Check whether a call failed on the transport level, e.g. because the connection has been reset
+     * or the daemon did not answer at all. This includes the failures of {@link #isNotSent(Throwable)}.
+     *
+     * @param failure failure to examine
+     * @return true if the failure is caused by the connection and not by an error response of the daemon
+     */
+    public static boolean isConnectionFailure(Throwable failure) {
+        return isNotSent(failure) ||
+               hasCause(failure,
+                        SocketException.class,
+                        SocketTimeoutException.class,
+                        NoHttpResponseException.class,
+                        ConnectionClosedException.class);
+    }
+
+    /**
+     * Check whether a call can be repeated after the given failure
+     *
+     * @param failure failure to examine
+     * @param idempotent whether the call can be repeated without side effects in case the daemon already
+     *                   processed the request
+     * @return true if the call should be retried
+     */
+    public static boolean isTransient(Throwable failure, boolean idempotent) {
+        int status = getStatusCode(failure);
+        if (status > 0) {
+            return isTransientStatus(status);
+        }
+        return idempotent ? isConnectionFailure(failure) : isNotSent(failure);
+    }
+
+    // Only status codes which indicate that the daemon has not processed the request. A 500 is not
+    // included, since the daemon also returns it for errors which occur again when the call is repeated.
+    private static boolean isTransientStatus(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    @SafeVarargs
+    private static boolean hasCause(Throwable failure, Class<? extends Throwable>... types) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            for (Class<? extends Throwable> type : types) {
+                if (type.isInstance(t)) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
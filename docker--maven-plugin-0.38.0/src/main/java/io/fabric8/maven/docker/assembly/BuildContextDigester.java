@@ -0,0 +1,68 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.components.io.functions.SymlinkDestinationSupplier;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+/**
+ * Calculates a digest over the resources collected by a (customized) {@link TarArchiver} without
+ * creating the archive. The digest covers the name, type, mode and content of each entry and does
+ * not depend on the order in which the entries are added or on file timestamps.
+ */
+class BuildContextDigester {
+
+    /**
+     * Calculate the digest of the build context.
+     *
+     * @param archiver archiver holding the resources which would be added to the build archive
+     * @return hex encoded SHA-256 digest
+     * @throws IOException if a resource can not be read
+     */
+    String digest(TarArchiver archiver) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        ResourceIterator resources = archiver.getResources();
+        while (resources.hasNext()) {
+            ArchiveEntry entry = resources.next();
+            entries.put(entry.getName(), digestEntry(entry));
+        }
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            update(digest, entry.getKey());
+            update(digest, entry.getValue());
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private String digestEntry(ArchiveEntry entry) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        update(digest, Integer.toString(entry.getType()));
+        update(digest, Integer.toString(entry.getMode()));
+        PlexusIoResource resource = entry.getResource();
+        if (resource instanceof SymlinkDestinationSupplier) {
+            update(digest, ((SymlinkDestinationSupplier) resource).getSymlinkDestination());
+        } else if (entry.getType() == ArchiveEntry.FILE) {
+            try (InputStream in = entry.getInputStream()) {
+                DigestUtils.updateDigest(digest, in);
+            }
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // Separator, so that adjacent values can not be shifted into each other
+        digest.update((byte) 0);
+    }
+}
@@ -57,11 +57,16 @@ public class BuildDirs {
         return getDir("tmp");
     }
 
+    public File getBuildReportFile() {
+        return getDir("build-report.json");
+    }
+
     void createDirs() {
         for (String workDir : new String[] { "build", "work", "tmp" }) {
             File dir = getDir(workDir);
             if (!dir.exists()) {
-                if(!dir.mkdirs()) {
+                // Parent directories might have been created concurrently by another build
+                if(!dir.mkdirs() && !dir.isDirectory()) {
                     throw new IllegalArgumentException("Cannot create directory " + dir.getAbsolutePath());
                 }
             }
@@ -0,0 +1,90 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.components.io.attributes.FileAttributes;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.ResourceFactory;
+import org.codehaus.plexus.components.io.resources.Stream;
+
+/**
+ * Files of a build context directory, selected with a {@link DockerIgnoreMatcher}. In contrast to a plain
+ * file set, directories whose contents are completely excluded are not walked at all.
+ */
+public class ContextDirResourceCollection extends PlexusIoFileResourceCollection {
+
+    private final DockerIgnoreMatcher matcher;
+
+    public ContextDirResourceCollection(File contextDir, DockerIgnoreMatcher matcher) {
+        this.matcher = matcher;
+        setBaseDir(contextDir);
+    }
+
+    DockerIgnoreMatcher getMatcher() {
+        return matcher;
+    }
+
+    @Override
+    public Iterator<PlexusIoResource> getResources() throws IOException {
+        List<PlexusIoResource> resources = new ArrayList<>();
+        stream().forEach(resources::add);
+        return resources.iterator();
+    }
+
+    @Override
+    public Stream stream() {
+        return consumer -> {
+            Map<Integer, String> uidCache = new HashMap<>();
+            Map<Integer, String> gidCache = new HashMap<>();
+            Path root = getBaseDir().toPath();
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    String name = relativeName(root, dir);
+                    if (matcher.isIncluded(name)) {
+                        accept(createResource(dir.toFile(), name, true, uidCache, gidCache));
+                    }
+                    return !name.isEmpty() && matcher.canSkipContents(name) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String name = relativeName(root, file);
+                    if (matcher.isIncluded(name)) {
+                        accept(createResource(file.toFile(), name, false, uidCache, gidCache));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private void accept(PlexusIoResource resource) throws IOException {
+                    if (isSelected(resource)) {
+                        consumer.accept(resource);
+                    }
+                }
+            });
+        };
+    }
+
+    private PlexusIoResource createResource(File file, String name, boolean dir,
+                                            Map<Integer, String> uidCache, Map<Integer, String> gidCache) throws IOException {
+        PlexusIoResourceAttributes attrs = mergeAttributes(new FileAttributes(file, uidCache, gidCache), dir);
+        return ResourceFactory.createResource(file, getName(name), null, getStreamTransformer(), attrs);
+    }
+
+    private static String relativeName(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+}
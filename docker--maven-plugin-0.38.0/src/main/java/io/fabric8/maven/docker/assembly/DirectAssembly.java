@@ -0,0 +1,92 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.shared.utils.io.FileUtils;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.UnixStat;
+import org.codehaus.plexus.components.io.functions.SymlinkDestinationSupplier;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+/**
+ * Entries of an assembly in mode <code>direct</code> as collected by the {@link DirectAssemblyArchiver}.
+ * The entries still refer to their original sources, which are only read when the build archive is written.
+ */
+public class DirectAssembly {
+
+    private final List<ArchiveEntry> entries;
+
+    // Entries which are plain files, with their source file
+    private final Map<String, File> sourceFiles;
+
+    DirectAssembly(List<ArchiveEntry> entries, Map<String, File> sourceFiles) {
+        this.entries = entries;
+        this.sourceFiles = sourceFiles;
+    }
+
+    public List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Add all entries to the given archiver, keeping their permissions.
+     *
+     * @param archiver archiver to add the entries to
+     * @param prefix prefix for the entry names, e.g. the assembly name followed by a slash
+     */
+    public void addTo(Archiver archiver, String prefix) {
+        for (ArchiveEntry entry : entries) {
+            archiver.addResource(entry.getResource(), prefix + entry.getName(), entry.getMode() & UnixStat.PERM_MASK);
+        }
+    }
+
+    /**
+     * Populate a directory with the entries, for builders which need the assembly as a directory. Plain files are
+     * hard linked to their source when possible, and copied otherwise. Any previous content of the directory is removed.
+     *
+     * @param directory directory to populate
+     * @throws IOException if the directory cannot be populated
+     */
+    public void stage(File directory) throws IOException {
+        if (directory.exists()) {
+            FileUtils.deleteDirectory(directory);
+        }
+        directory.mkdirs();
+        for (ArchiveEntry entry : entries) {
+            File target = new File(directory, entry.getName());
+            PlexusIoResource resource = entry.getResource();
+            if (entry.getType() == ArchiveEntry.DIRECTORY) {
+                target.mkdirs();
+                continue;
+            }
+            target.getParentFile().mkdirs();
+            if (resource instanceof SymlinkDestinationSupplier) {
+                Files.createSymbolicLink(target.toPath(), Paths.get(((SymlinkDestinationSupplier) resource).getSymlinkDestination()));
+            } else if (sourceFiles.containsKey(entry.getName())) {
+                link(sourceFiles.get(entry.getName()), target);
+            } else {
+                // Filtered or extracted content has no source file which could be linked
+                try (InputStream in = entry.getInputStream()) {
+                    Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private void link(File source, File target) throws IOException {
+        try {
+            Files.createLink(target.toPath(), source.toPath());
+        } catch (IOException | UnsupportedOperationException exp) {
+            // E.g. source and target are on different file systems
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+}
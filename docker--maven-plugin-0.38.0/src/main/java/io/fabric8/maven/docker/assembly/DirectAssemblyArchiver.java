@@ -0,0 +1,68 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.plexus.archiver.AbstractArchiver;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * An archiver which doesn't write anything but only collects the entries of an assembly, so that they
+ * can be added to the build archive directly from their sources (assembly mode <code>direct</code>).
+ * The collected entries are available via {@link #getAssembly(File)} for the destination file of the
+ * assembly after the archive has been "created".
+ */
+@Component(role = Archiver.class, hint = "direct", instantiationStrategy = "per-lookup")
+public class DirectAssemblyArchiver extends AbstractArchiver {
+
+    // Assemblies collected by the per-lookup instances, keyed by their destination file
+    private static final Map<File, DirectAssembly> ASSEMBLIES = new ConcurrentHashMap<>();
+
+    // Plain files added to the assembly, which can be linked instead of copied
+    private final Map<String, File> sourceFiles = new HashMap<>();
+
+    /**
+     * Get and remove the entries collected for an assembly.
+     *
+     * @param destFile destination file as returned when creating the assembly
+     * @return the collected assembly or <code>null</code> if no assembly has been created for this file
+     */
+    public static DirectAssembly getAssembly(File destFile) {
+        return ASSEMBLIES.remove(destFile);
+    }
+
+    @Override
+    public void addFile(File inputFile, String destFileName, int permissions) throws ArchiverException {
+        super.addFile(inputFile, destFileName, permissions);
+        sourceFiles.put(destFileName.replace('\\', '/'), inputFile);
+    }
+
+    @Override
+    protected void execute() throws ArchiverException, IOException {
+        List<ArchiveEntry> entries = new ArrayList<>();
+        ResourceIterator resources = getResources();
+        while (resources.hasNext()) {
+            entries.add(resources.next());
+        }
+        ASSEMBLIES.put(getDestFile(), new DirectAssembly(entries, sourceFiles));
+    }
+
+    @Override
+    protected void close() {
+        // Nothing has been opened
+    }
+
+    @Override
+    protected String getArchiveType() {
+        return "direct";
+    }
+}
@@ -1,19 +1,31 @@
 package io.fabric8.maven.docker.assembly;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+import io.fabric8.maven.docker.access.ArchiveWriter;
 import io.fabric8.maven.docker.config.ArchiveCompression;
 import io.fabric8.maven.docker.config.Arguments;
 import io.fabric8.maven.docker.config.AssemblyConfiguration;
 import io.fabric8.maven.docker.config.AssemblyMode;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.util.CompressionSelector;
+import io.fabric8.maven.docker.util.DockerFileModel;
 import io.fabric8.maven.docker.util.DockerFileUtil;
 import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.Logger;
@@ -46,6 +58,7 @@ import org.codehaus.plexus.archiver.util.DefaultFileSet;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.util.AbstractScanner;
 
 /**
  * Tool for creating a docker image tar ball including a Dockerfile for building
@@ -71,6 +84,10 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
     @Requirement
     private TrackArchiverCollection trackArchivers;
 
+    // Build archives prepared for calculating a digest, by image name. They are reused when the archive
+    // of the image is created afterwards, so that the assemblies are not created twice.
+    private final Map<String, PreparedBuildArchive> preparedBuildArchives = new ConcurrentHashMap<>();
+
     /**
      * Extract a docker tar archive into the given directory.
      *
@@ -125,15 +142,180 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
     @Override
 	public File createDockerTarArchive(String imageName, final MojoParameters params, final BuildImageConfiguration buildConfig, Logger log, ArchiverCustomizer finalCustomizer)
             throws MojoExecutionException {
+        return createDockerTarArchive(imageName, params, buildConfig, log, finalCustomizer, null);
+    }
+
+    /**
+     * Create an docker tar archive from the given configuration which can be send to the Docker host for
+     * creating the image.
+     *
+     * @param imageName Name of the image to create (used for creating build directories)
+     * @param params Mojos parameters (used for finding the directories)
+     * @param buildConfig configuration for how to build the image
+     * @param log Logger used to display warning if permissions are to be normalized
+     * @param finalCustomizer finalCustomizer to be applied to the tar archive
+     * @param selector selector for the <code>auto</code> compression mode and the number of compression threads, can be <code>null</code>
+     * @return file holding the path to the created assembly tar file
+     * @throws MojoExecutionException
+     */
+    @Override
+    public File createDockerTarArchive(String imageName, final MojoParameters params, final BuildImageConfiguration buildConfig, Logger log,
+                                       ArchiverCustomizer finalCustomizer, CompressionSelector selector)
+            throws MojoExecutionException {
+        return createDockerTarArchive(imageName, params, buildConfig, log, finalCustomizer, selector, false);
+    }
+
+    /**
+     * Create an docker tar archive from the given configuration and make sure that the build directory
+     * holds the files of all assemblies. Assemblies in mode <code>direct</code> are linked into the build
+     * directory for this.
+     *
+     * @param imageName Name of the image to create (used for creating build directories)
+     * @param params Mojos parameters (used for finding the directories)
+     * @param buildConfig configuration for how to build the image
+     * @param log Logger used to display warning if permissions are to be normalized
+     * @return file holding the path to the created assembly tar file
+     * @throws MojoExecutionException
+     */
+    @Override
+    public File createDockerTarArchiveWithBuildDirectory(String imageName, MojoParameters params, BuildImageConfiguration buildConfig, Logger log)
+            throws MojoExecutionException {
+        return createDockerTarArchive(imageName, params, buildConfig, log, null, null, true);
+    }
+
+    private File createDockerTarArchive(String imageName, MojoParameters params, BuildImageConfiguration buildConfig, Logger log,
+                                        ArchiverCustomizer finalCustomizer, CompressionSelector selector, boolean stageDirectAssemblies)
+            throws MojoExecutionException {
+        final BuildDirs buildDirs = createBuildDirs(imageName, params);
+        List<ArchiverCustomizer> archiveCustomizers =
+            getArchiveCustomizers(imageName, buildDirs, params, buildConfig, log, finalCustomizer, stageDirectAssemblies);
+        return createBuildTarBall(buildDirs, archiveCustomizers, buildConfig.getAssemblyConfigurations(), buildConfig.getCompression(),
+                                  selector != null ? selector : new CompressionSelector(null, log), buildConfig.deduplicateFiles(), log);
+    }
 
+    /**
+     * Create a writer which streams the docker tar archive for the given configuration. The assemblies
+     * and the Dockerfile are prepared immediately, but the tar archive itself is only created when
+     * the writer is called, without being stored in the build directory.
+     *
+     * @param imageName Name of the image to create (used for creating build directories)
+     * @param params Mojos parameters (used for finding the directories)
+     * @param buildConfig configuration for how to build the image
+     * @param log Logger used to display warning if permissions are to be normalized
+     * @param finalCustomizer finalCustomizer to be applied to the tar archive
+     * @param selector selector for the <code>auto</code> compression mode and the number of compression threads, can be <code>null</code>
+     * @return writer for streaming the build archive
+     * @throws MojoExecutionException
+     */
+    @Override
+    public ArchiveWriter createDockerTarArchiveWriter(String imageName, MojoParameters params, BuildImageConfiguration buildConfig,
+                                                      Logger log, ArchiverCustomizer finalCustomizer, CompressionSelector selector)
+            throws MojoExecutionException {
+        final BuildDirs buildDirs = createBuildDirs(imageName, params);
+        List<ArchiverCustomizer> archiveCustomizers = getArchiveCustomizers(imageName, buildDirs, params, buildConfig, log, finalCustomizer, false);
+        final ArchiveCompression compression = buildConfig.getCompression();
+        final boolean deduplicate = buildConfig.deduplicateFiles();
+        try {
+            final TarArchiver archiver = createCustomizedBuildArchiver(buildDirs, archiveCustomizers,
+                                                                       buildConfig.getAssemblyConfigurations(), null);
+            final CompressionSelector settings = selector != null ? selector : new CompressionSelector(null, log);
+            if (compression == ArchiveCompression.auto) {
+                return out -> {
+                    StreamingTarArchiver tarArchiver = new StreamingTarArchiver(deduplicate);
+                    tarArchiver.stream(archiver, settings, out);
+                    logDeduplication(tarArchiver, deduplicate, log);
+                };
+            }
+            return out -> {
+                StreamingTarArchiver tarArchiver = new StreamingTarArchiver(deduplicate);
+                tarArchiver.stream(archiver, compression, settings.getThreads(), out);
+                logDeduplication(tarArchiver, deduplicate, log);
+            };
+        } catch (NoSuchArchiverException e) {
+            throw new MojoExecutionException("No archiver for type 'tar' found", e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot prepare build archive for " + imageName, e);
+        }
+    }
+
+    /**
+     * Calculate a digest over the content of the docker tar archive for the given configuration. The assemblies
+     * and the Dockerfile are prepared as for creating the archive, but the archive itself is not created. The
+     * prepared assemblies are reused when the archive for the same image and configuration is created next.
+     *
+     * @param imageName Name of the image to create (used for creating build directories)
+     * @param params Mojos parameters (used for finding the directories)
+     * @param buildConfig configuration for how to build the image
+     * @param log Logger used to display warning if permissions are to be normalized
+     * @return hex encoded SHA-256 digest of the build context
+     * @throws MojoExecutionException
+     */
+    @Override
+    public String createDockerTarArchiveDigest(String imageName, MojoParameters params, BuildImageConfiguration buildConfig, Logger log)
+            throws MojoExecutionException {
         final BuildDirs buildDirs = createBuildDirs(imageName, params);
+        PreparedBuildArchive prepared = prepareBuildArchive(buildDirs, params, buildConfig, log);
+        preparedBuildArchives.put(imageName, prepared);
+        List<ArchiverCustomizer> archiveCustomizers = new ArrayList<>(prepared.customizers);
+        try {
+            TarArchiver archiver = createCustomizedBuildArchiver(buildDirs, archiveCustomizers,
+                                                                 buildConfig.getAssemblyConfigurations(), null);
+            return new BuildContextDigester().digest(archiver);
+        } catch (NoSuchArchiverException e) {
+            throw new MojoExecutionException("No archiver for type 'tar' found", e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot calculate digest of build context for " + imageName, e);
+        }
+    }
+
+    @Override
+    public void discardPreparedArchive(String imageName) {
+        preparedBuildArchives.remove(imageName);
+    }
+
+    // Get the customizers which add the assemblies and the Dockerfile to the build archive, reusing the ones
+    // prepared for the digest of the same image and configuration
+    private List<ArchiverCustomizer> getArchiveCustomizers(String imageName, BuildDirs buildDirs, MojoParameters params,
+                                                           BuildImageConfiguration buildConfig, Logger log,
+                                                           ArchiverCustomizer finalCustomizer, boolean stageDirectAssemblies)
+            throws MojoExecutionException {
+        PreparedBuildArchive prepared = preparedBuildArchives.remove(imageName);
+        if (prepared == null || prepared.buildConfig != buildConfig || prepared.params != params) {
+            prepared = prepareBuildArchive(buildDirs, params, buildConfig, log);
+        }
+        if (stageDirectAssemblies) {
+            for (Map.Entry<String, DirectAssembly> entry : prepared.directAssemblies.entrySet()) {
+                stageDirectAssembly(entry.getValue(), new File(buildDirs.getOutputDirectory(), entry.getKey()));
+            }
+        }
+        List<ArchiverCustomizer> archiveCustomizers = new ArrayList<>(prepared.customizers);
+        if (finalCustomizer != null) {
+            archiveCustomizers.add(finalCustomizer);
+        }
+        return archiveCustomizers;
+    }
+
+    // Create assemblies and Dockerfile along with the customizers which add them to the build archive
+    private PreparedBuildArchive prepareBuildArchive(final BuildDirs buildDirs, final MojoParameters params, final BuildImageConfiguration buildConfig,
+                                                     Logger log)
+            throws MojoExecutionException {
         final List<AssemblyConfiguration> assemblyConfigurations = buildConfig.getAssemblyConfigurations();
 
         final List<ArchiverCustomizer> archiveCustomizers = new ArrayList<>();
+        Map<String, DirectAssembly> directAssemblies = Collections.emptyMap();
 
         // Build up assembly. In dockerfile mode this must be added explicitly in the Dockerfile with an ADD
         if (hasAssemblyConfiguration(assemblyConfigurations)) {
-            createAssemblyArchives(assemblyConfigurations, params, buildDirs);
+            directAssemblies = createAssemblyArchives(assemblyConfigurations, params, buildDirs);
+            for (Map.Entry<String, DirectAssembly> entry : directAssemblies.entrySet()) {
+                final String name = entry.getKey();
+                final DirectAssembly directAssembly = entry.getValue();
+                // Files are taken directly from their sources
+                archiveCustomizers.add(archiver -> {
+                    directAssembly.addTo(archiver, name + "/");
+                    return archiver;
+                });
+            }
         }
         try {
             if (buildConfig.isDockerFileMode()) {
@@ -151,12 +333,12 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
                 archiveCustomizers.add(new ArchiverCustomizer() {
                     @Override
                     public TarArchiver customize(TarArchiver archiver) throws IOException {
-                        DefaultFileSet fileSet = DefaultFileSet.fileSet(buildConfig.getAbsoluteContextDirPath(params));
-                        addDockerIncludesExcludesIfPresent(fileSet, params);
+                        File contextDir = buildConfig.getAbsoluteContextDirPath(params);
+                        DockerIgnoreMatcher matcher = createContextMatcher(contextDir, params, buildConfig.useDockerIgnore(), log);
                         // Exclude non-interpolated dockerfile from source tree
                         // Interpolated Dockerfile is already added as it was created into the output directory when
                         // using dir dir mode
-                        excludeDockerfile(fileSet, dockerFile);
+                        matcher.addExcludes(Collections.singletonList(dockerFile.getName()));
 
                         // If the content is added as archive, then we need to add the Dockerfile from the builddir
                         // directly to docker.tar (as the output builddir is not picked up in archive mode)
@@ -165,7 +347,7 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
                             archiver.addFile(new File(buildDirs.getOutputDirectory(), name), name);
                         }
 
-                        archiver.addFileSet(fileSet);
+                        archiver.addResources(new ContextDirResourceCollection(contextDir, matcher));
                         return archiver;
                     }
                 });
@@ -191,11 +373,7 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
                 archiveCustomizers.add(new AllFilesExecCustomizer(log));
             }
 
-            if (finalCustomizer != null) {
-                archiveCustomizers.add(finalCustomizer);
-            }
-
-            return createBuildTarBall(buildDirs, archiveCustomizers, assemblyConfigurations, buildConfig.getCompression());
+            return new PreparedBuildArchive(buildConfig, params, directAssemblies, archiveCustomizers);
 
         } catch (IOException e) {
             throw new MojoExecutionException(String.format("Cannot create %s in %s", DOCKERFILE_NAME, buildDirs.getOutputDirectory()), e);
@@ -203,13 +381,12 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
     }
 
 
-    private void excludeDockerfile(DefaultFileSet fileSet, File dockerFile) {
-        ArrayList<String> excludes =
-            fileSet.getExcludes() != null ?
-                new ArrayList<>(Arrays.asList(fileSet.getExcludes())) :
-                new ArrayList<String>();
-        excludes.add(dockerFile.getName());
-        fileSet.setExcludes(excludes.toArray(new String[0]));
+    private void stageDirectAssembly(DirectAssembly directAssembly, File directory) throws MojoExecutionException {
+        try {
+            directAssembly.stage(directory);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot link assembly files into " + directory, e);
+        }
     }
 
     private void interpolateDockerfile(File dockerFile, BuildDirs params, FixedStringSearchInterpolator interpolator) throws IOException {
@@ -232,29 +409,16 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
         }
     }
 
-    private String firstNonOptionArgument(String[] line) {
-        return Arrays.stream(line)
-                .skip(1)
-                .filter(component -> !component.startsWith("--"))
-                .findFirst()
-                .orElse(null);
-    }
-
     private void verifyAssemblyReferenced(File dockerFile, FixedStringSearchInterpolator interpolator, Logger log, AssemblyConfiguration assemblyConfig) throws IOException {
         String name = assemblyConfig.getName();
+        DockerFileModel model = DockerFileModel.of(dockerFile, interpolator);
         for (String keyword : new String[] { "ADD", "COPY" }) {
-            List<String[]> lines = DockerFileUtil.extractLines(dockerFile, keyword, interpolator);
-            for (String[] line : lines) {
-                if (line[0].startsWith("#")) {
-                    // Skip comment lines
-                    continue;
-                }
-
+            for (String[] line : model.getInstructions(keyword)) {
                 // Skip command flags like --chown
-                String firstArg = firstNonOptionArgument(line);
+                List<String> args = DockerFileModel.getArguments(line);
 
                 // contains an ADD/COPY ... targetDir .... All good.
-                if (firstArg != null && firstArg.contains(name)) {
+                if (!args.isEmpty() && args.get(0).contains(name)) {
                     return;
                 }
             }
@@ -345,17 +509,30 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
 
     // Create final tar-ball to be used for building the archive to send to the Docker daemon
     private File createBuildTarBall(BuildDirs buildDirs, List<ArchiverCustomizer> archiverCustomizers,
-                                    List<AssemblyConfiguration> assemblyConfig, ArchiveCompression compression) throws MojoExecutionException {
+                                    List<AssemblyConfiguration> assemblyConfig, ArchiveCompression compression,
+                                    CompressionSelector selector, boolean deduplicate, Logger log) throws MojoExecutionException {
         File archive = new File(buildDirs.getTemporaryRootDirectory(), "docker-build." + compression.getFileSuffix());
         try {
-            TarArchiver archiver = createBuildArchiver(buildDirs.getOutputDirectory(), archive, assemblyConfig);
-            for (ArchiverCustomizer customizer : archiverCustomizers) {
-                if (customizer != null) {
-                    archiver = customizer.customize(archiver);
+            TarArchiver archiver = createCustomizedBuildArchiver(buildDirs, archiverCustomizers, assemblyConfig, archive);
+            if (compression == ArchiveCompression.auto) {
+                ArchiveCompression selected;
+                StreamingTarArchiver tarArchiver = new StreamingTarArchiver(deduplicate);
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(archive))) {
+                    selected = tarArchiver.stream(archiver, selector, out);
+                }
+                logDeduplication(tarArchiver, deduplicate, log);
+                return renameToSuffix(archive, buildDirs, selected);
+            } else if (compression == ArchiveCompression.pgzip || deduplicate) {
+                // The plexus archiver only knows about single threaded gzip and can't write hard links
+                StreamingTarArchiver tarArchiver = new StreamingTarArchiver(deduplicate);
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(archive))) {
+                    tarArchiver.stream(archiver, compression, selector.getThreads(), out);
                 }
+                logDeduplication(tarArchiver, deduplicate, log);
+            } else {
+                archiver.setCompression(compression.getTarCompressionMethod());
+                archiver.createArchive();
             }
-            archiver.setCompression(compression.getTarCompressionMethod());
-            archiver.createArchive();
             return archive;
         } catch (NoSuchArchiverException e) {
             throw new MojoExecutionException("No archiver for type 'tar' found", e);
@@ -364,33 +541,65 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
         }
     }
 
-    private void addDockerIncludesExcludesIfPresent(DefaultFileSet fileSet, MojoParameters params) throws IOException {
-        addDockerExcludes(fileSet, params);
-        addDockerIncludes(fileSet);
+    private void logDeduplication(StreamingTarArchiver tarArchiver, boolean deduplicate, Logger log) {
+        if (deduplicate) {
+            log.info("Build context: %d duplicate files added as hard link, %d bytes saved",
+                     tarArchiver.getLinkedFiles(), tarArchiver.getSavedBytes());
+        }
+    }
+
+    // Name the archive after the compression actually selected
+    private File renameToSuffix(File archive, BuildDirs buildDirs, ArchiveCompression selected) throws IOException {
+        File target = new File(buildDirs.getTemporaryRootDirectory(), "docker-build." + selected.getFileSuffix());
+        if (!target.equals(archive)) {
+            Files.move(archive.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    private TarArchiver createCustomizedBuildArchiver(BuildDirs buildDirs, List<ArchiverCustomizer> archiverCustomizers,
+                                                      List<AssemblyConfiguration> assemblyConfig, File archive)
+            throws NoSuchArchiverException, IOException {
+        TarArchiver archiver = createBuildArchiver(buildDirs.getOutputDirectory(), archive, assemblyConfig);
+        for (ArchiverCustomizer customizer : archiverCustomizers) {
+            if (customizer != null) {
+                archiver = customizer.customize(archiver);
+            }
+        }
+        return archiver;
     }
 
-    private void addDockerExcludes(DefaultFileSet fileSet, MojoParameters params) throws IOException {
-        File directory = fileSet.getDirectory();
+    // Matcher for the files of the context directory. Lines in .maven-dockerignore, .maven-dockerexclude and
+    // .maven-dockerinclude are Ant patterns, lines in .dockerignore follow the Docker CLI's rules.
+    private DockerIgnoreMatcher createContextMatcher(File contextDir, MojoParameters params, boolean useDockerIgnore, Logger log)
+            throws IOException {
+        DockerIgnoreMatcher matcher = new DockerIgnoreMatcher();
+        File dockerIgnore = new File(contextDir, DOCKER_CLI_IGNORE);
+        if (dockerIgnore.exists()) {
+            if (useDockerIgnore) {
+                log.info("Excluding files from the build context as specified in %s", dockerIgnore);
+                matcher.addDockerIgnore(Arrays.asList(FileUtils.fileReadArray(dockerIgnore)));
+            } else {
+                log.debug("Not using %s for the build context, as 'useDockerIgnore' is not enabled", dockerIgnore);
+            }
+        }
         List<String> excludes = new ArrayList<>();
         // Output directory will be always excluded
         excludes.add(params.getOutputDirectory() + "/**");
+        excludes.addAll(Arrays.asList(AbstractScanner.DEFAULTEXCLUDES));
         for (String file : new String[] { DOCKER_EXCLUDE, DOCKER_IGNORE } ) {
-            File dockerIgnore = new File(directory, file);
-            if (dockerIgnore.exists()) {
-                excludes.addAll(Arrays.asList(FileUtils.fileReadArray(dockerIgnore)));
+            File mavenDockerIgnore = new File(contextDir, file);
+            if (mavenDockerIgnore.exists()) {
+                excludes.addAll(Arrays.asList(FileUtils.fileReadArray(mavenDockerIgnore)));
                 excludes.add(DOCKER_IGNORE);
             }
         }
-        fileSet.setExcludes(excludes.toArray(new String[0]));
-    }
-
-    private void addDockerIncludes(DefaultFileSet fileSet) throws IOException {
-        File directory = fileSet.getDirectory();
-        File dockerInclude = new File(directory, DOCKER_INCLUDE);
+        matcher.addExcludes(excludes);
+        File dockerInclude = new File(contextDir, DOCKER_INCLUDE);
         if (dockerInclude.exists()) {
-            ArrayList<String> includes = new ArrayList<>(Arrays.asList(FileUtils.fileReadArray(dockerInclude)));
-            fileSet.setIncludes(includes.toArray(new String[0]));
+            matcher.addIncludes(Arrays.asList(FileUtils.fileReadArray(dockerInclude)));
         }
+        return matcher;
     }
 
     private File createChangedFilesTarBall(File archive, File archiveDir) throws MojoExecutionException {
@@ -429,10 +638,15 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
         archiver.setLongfile(TarLongFileMode.posix);
 
         boolean needsDefaultFileSet = assemblyConfigs.isEmpty();
+        List<String> excludes = new ArrayList<>();
 
         for (AssemblyConfiguration assemblyConfig : assemblyConfigs) {
             AssemblyMode mode = assemblyConfig != null ? assemblyConfig.getMode() : null;
-            if (mode != null && mode.isArchive()) {
+            if (mode == AssemblyMode.direct) {
+                // Added from the sources, so a build directory possibly populated for other builders must be skipped
+                excludes.add(assemblyConfig.getName() + "/**");
+                needsDefaultFileSet = true;
+            } else if (mode != null && mode.isArchive()) {
                 DefaultArchivedFileSet archiveSet =
                         DefaultArchivedFileSet.archivedFileSet(new File(outputDir, assemblyConfig.getName() + "." + mode.getExtension()));
                 archiveSet.setPrefix(assemblyConfig.getName() + "/");
@@ -447,6 +661,9 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
         if (needsDefaultFileSet) {
             DefaultFileSet fileSet = DefaultFileSet.fileSet(outputDir);
             fileSet.setUsingDefaultExcludes(false);
+            if (!excludes.isEmpty()) {
+                fileSet.setExcludes(excludes.toArray(new String[0]));
+            }
             archiver.addFileSet(fileSet);
         }
 
@@ -509,39 +726,57 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
         return builder;
     }
 
-    private void createAssemblyArchives(List<AssemblyConfiguration> assemblyConfigurations, MojoParameters params, BuildDirs buildDirs)
+    // Returns the collected entries of all assemblies in mode 'direct', by assembly name
+    private Map<String, DirectAssembly> createAssemblyArchives(List<AssemblyConfiguration> assemblyConfigurations, MojoParameters params, BuildDirs buildDirs)
             throws MojoExecutionException {
+        Map<String, DirectAssembly> directAssemblies = new LinkedHashMap<>();
         for (AssemblyConfiguration assemblyConfig : assemblyConfigurations) {
-            createAssemblyArchive(assemblyConfig, params, buildDirs);
+            DirectAssembly directAssembly = createAssemblyArchive(assemblyConfig, params, buildDirs);
+            if (directAssembly != null) {
+                directAssemblies.put(assemblyConfig.getName(), directAssembly);
+            }
         }
+        return directAssemblies;
     }
 
-    private void createAssemblyArchive(AssemblyConfiguration assemblyConfig, MojoParameters params, BuildDirs buildDirs)
+    private DirectAssembly createAssemblyArchive(AssemblyConfiguration assemblyConfig, MojoParameters params, BuildDirs buildDirs)
             throws MojoExecutionException {
         DockerAssemblyConfigurationSource source = new DockerAssemblyConfigurationSource(params, buildDirs, assemblyConfig);
         Assembly assembly = getAssemblyConfig(assemblyConfig, source);
 
         AssemblyMode buildMode = assemblyConfig.getMode();
         File originalArtifactFile = null;
-        try {
-            originalArtifactFile = ensureThatArtifactFileIsSet(params.getProject());
-            assembly.setId("docker");
-            assemblyArchiver.createArchive(assembly, assemblyConfig.getName(), buildMode.getExtension(), source, false, null);
-        } catch (ArchiveCreationException | AssemblyFormattingException e) {
-            String error = "Failed to create assembly for docker image " +
-                           " (with mode '" + buildMode + "'): " + e.getMessage() + ".";
-            if (params.getProject().getArtifact().getFile() == null) {
-                error += " If you include the build artifact please ensure that you have " +
-                         "built the artifact before with 'mvn package' (should be available in the target/ dir). " +
-                         "Please see the documentation (section \"Assembly\") for more information.";
+        // The project's artifact file is modified temporarily, so assemblies for images which are built
+        // concurrently must not be created at the same time
+        synchronized (params.getProject()) {
+            try {
+                originalArtifactFile = ensureThatArtifactFileIsSet(params.getProject());
+                assembly.setId("docker");
+                File destFile = assemblyArchiver.createArchive(assembly, assemblyConfig.getName(), buildMode.getExtension(), source, false, null);
+                if (buildMode == AssemblyMode.direct) {
+                    DirectAssembly directAssembly = DirectAssemblyArchiver.getAssembly(destFile);
+                    if (directAssembly == null) {
+                        throw new MojoExecutionException("No files collected for assembly '" + assemblyConfig.getName() + "' with mode 'direct'");
+                    }
+                    return directAssembly;
+                }
+                return null;
+            } catch (ArchiveCreationException | AssemblyFormattingException e) {
+                String error = "Failed to create assembly for docker image " +
+                               " (with mode '" + buildMode + "'): " + e.getMessage() + ".";
+                if (params.getProject().getArtifact().getFile() == null) {
+                    error += " If you include the build artifact please ensure that you have " +
+                             "built the artifact before with 'mvn package' (should be available in the target/ dir). " +
+                             "Please see the documentation (section \"Assembly\") for more information.";
+                }
+                throw new MojoExecutionException(error, e);
+            } catch (InvalidAssemblerConfigurationException e) {
+                throw new MojoExecutionException(assembly, "Assembly is incorrectly configured: " + assembly.getId(),
+                                                "Assembly: " + assembly.getId() + " is not configured correctly: "
+                                                + e.getMessage());
+            } finally {
+                setArtifactFile(params.getProject(), originalArtifactFile);
             }
-            throw new MojoExecutionException(error, e);
-        } catch (InvalidAssemblerConfigurationException e) {
-            throw new MojoExecutionException(assembly, "Assembly is incorrectly configured: " + assembly.getId(),
-                                            "Assembly: " + assembly.getId() + " is not configured correctly: "
-                                            + e.getMessage());
-        } finally {
-            setArtifactFile(params.getProject(), originalArtifactFile);
         }
     }
 
@@ -612,4 +847,21 @@ public class DockerAssemblyManager implements DockerAssemblyManagerInterface {
         }
     }
 
+
+    // Assemblies and Dockerfile prepared for a build archive
+    private static class PreparedBuildArchive {
+
+        private final BuildImageConfiguration buildConfig;
+        private final MojoParameters params;
+        private final Map<String, DirectAssembly> directAssemblies;
+        private final List<ArchiverCustomizer> customizers;
+
+        PreparedBuildArchive(BuildImageConfiguration buildConfig, MojoParameters params,
+                             Map<String, DirectAssembly> directAssemblies, List<ArchiverCustomizer> customizers) {
+            this.buildConfig = buildConfig;
+            this.params = params;
+            this.directAssemblies = directAssemblies;
+            this.customizers = customizers;
+        }
+    }
 }
@@ -8,9 +8,11 @@ import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
 
+import io.fabric8.maven.docker.access.ArchiveWriter;
 import io.fabric8.maven.docker.assembly.AssemblyFiles.Entry;
 import io.fabric8.maven.docker.config.AssemblyConfiguration;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.util.CompressionSelector;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.MojoParameters;
 
@@ -22,6 +24,7 @@ public interface DockerAssemblyManagerInterface {
 	String DOCKER_IGNORE = ".maven-dockerignore";
 	String DOCKER_EXCLUDE = ".maven-dockerexclude";
 	String DOCKER_INCLUDE = ".maven-dockerinclude";
+	String DOCKER_CLI_IGNORE = ".dockerignore";
 	String DOCKERFILE_NAME = "Dockerfile";
 
 	/**
@@ -62,6 +65,75 @@ public interface DockerAssemblyManagerInterface {
 	File createDockerTarArchive(String imageName, MojoParameters params, BuildImageConfiguration buildConfig,
 			Logger log, ArchiverCustomizer finalCustomizer) throws MojoExecutionException;
 
+	/**
+	 * Create an docker tar archive from the given configuration which can be send to the Docker host for
+	 * creating the image.
+	 *
+	 * @param imageName Name of the image to create (used for creating build directories)
+	 * @param params Mojos parameters (used for finding the directories)
+	 * @param buildConfig configuration for how to build the image
+	 * @param log Logger used to display warning if permissions are to be normalized
+	 * @param finalCustomizer finalCustomizer to be applied to the tar archive
+	 * @param selector selector for the <code>auto</code> compression mode and the number of compression threads, can be <code>null</code>
+	 * @return file holding the path to the created assembly tar file
+	 * @throws MojoExecutionException
+	 */
+	File createDockerTarArchive(String imageName, MojoParameters params, BuildImageConfiguration buildConfig,
+			Logger log, ArchiverCustomizer finalCustomizer, CompressionSelector selector) throws MojoExecutionException;
+
+	/**
+	 * Create an docker tar archive from the given configuration and make sure that the build directory holds
+	 * the files of all assemblies, for builders which work on the build directory. Assemblies in mode
+	 * <code>direct</code> are linked into the build directory for this.
+	 *
+	 * @param imageName Name of the image to create (used for creating build directories)
+	 * @param params Mojos parameters (used for finding the directories)
+	 * @param buildConfig configuration for how to build the image
+	 * @param log Logger used to display warning if permissions are to be normalized
+	 * @return file holding the path to the created assembly tar file
+	 * @throws MojoExecutionException
+	 */
+	File createDockerTarArchiveWithBuildDirectory(String imageName, MojoParameters params, BuildImageConfiguration buildConfig,
+			Logger log) throws MojoExecutionException;
+
+	/**
+	 * Create a writer which streams the docker tar archive for the given configuration, e.g. directly
+	 * to the Docker host, without storing it in the build directory first.
+	 *
+	 * @param imageName Name of the image to create (used for creating build directories)
+	 * @param params Mojos parameters (used for finding the directories)
+	 * @param buildConfig configuration for how to build the image
+	 * @param log Logger used to display warning if permissions are to be normalized
+	 * @param finalCustomizer finalCustomizer to be applied to the tar archive
+	 * @param selector selector for the <code>auto</code> compression mode and the number of compression threads, can be <code>null</code>
+	 * @return writer for streaming the build archive
+	 * @throws MojoExecutionException
+	 */
+	ArchiveWriter createDockerTarArchiveWriter(String imageName, MojoParameters params, BuildImageConfiguration buildConfig,
+			Logger log, ArchiverCustomizer finalCustomizer, CompressionSelector selector) throws MojoExecutionException;
+
+	/**
+	 * Calculate a digest over the content of the docker tar archive for the given configuration without
+	 * creating the archive. The digest changes whenever the build context sent to the Docker host changes.
+	 *
+	 * @param imageName Name of the image to create (used for creating build directories)
+	 * @param params Mojos parameters (used for finding the directories)
+	 * @param buildConfig configuration for how to build the image
+	 * @param log Logger used to display warning if permissions are to be normalized
+	 * @return hex encoded SHA-256 digest of the build context
+	 * @throws MojoExecutionException
+	 */
+	String createDockerTarArchiveDigest(String imageName, MojoParameters params, BuildImageConfiguration buildConfig,
+			Logger log) throws MojoExecutionException;
+
+	/**
+	 * Forget the assemblies prepared by {@link #createDockerTarArchiveDigest} when no archive is created
+	 * for the image afterwards, e.g. because an existing image could be reused.
+	 *
+	 * @param imageName Name of the image the digest was calculated for
+	 */
+	void discardPreparedArchive(String imageName);
+
 	/**
 	 * Extract all files with a tracking archiver. These can be used to track changes in the filesystem and triggering
 	 * a rebuild of the image if needed ('docker:watch')
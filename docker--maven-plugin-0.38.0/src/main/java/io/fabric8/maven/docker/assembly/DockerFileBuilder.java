@@ -463,7 +463,7 @@ public class DockerFileBuilder {
     }
 
     // All entries required, destination is relative to exportDir
-    private static final class CopyEntry {
+    static final class CopyEntry {
         private String source;
         private String destination;
         private String target;
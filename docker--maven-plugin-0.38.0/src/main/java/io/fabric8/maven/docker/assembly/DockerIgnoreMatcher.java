@@ -0,0 +1,344 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled include and exclude patterns for the files of a build context. Patterns are compiled to regular
+ * expressions once, and whole directories can be skipped when everything below them is excluded.
+ * <p>
+ * Two flavours of patterns are supported:
+ * <ul>
+ *     <li><code>.dockerignore</code> patterns as interpreted by the Docker CLI: a pattern also excludes everything
+ *     below a matching directory, <code>**</code> matches any number of directories, lines starting with
+ *     <code>!</code> re-include files and the last matching pattern wins.</li>
+ *     <li>Ant style patterns as used in <code>.maven-dockerignore</code> and <code>.maven-dockerinclude</code>:
+ *     a pattern only matches the paths it describes and a trailing <code>/</code> is short for <code>/**</code>.
+ *     Ant excludes always win over <code>.dockerignore</code> re-inclusions.</li>
+ * </ul>
+ * Paths are relative to the context directory and use <code>/</code> as separator.
+ */
+public class DockerIgnoreMatcher {
+
+    private static final String REGEX_PREFIX = "%regex[";
+    private static final String ANT_PREFIX = "%ant[";
+
+    // Exclusions, in the order they are applied
+    private final List<Rule> excludes = new ArrayList<>();
+
+    private final List<Rule> includes = new ArrayList<>();
+
+    /**
+     * Add the lines of a <code>.dockerignore</code> file. Empty lines and comments are skipped.
+     *
+     * @param lines lines of the file
+     * @return this matcher
+     */
+    public DockerIgnoreMatcher addDockerIgnore(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            String pattern = line.trim();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                continue;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1).trim();
+            }
+            pattern = cleanPath(pattern);
+            if (!pattern.isEmpty()) {
+                rules.add(Rule.dockerIgnore(pattern, negated));
+            }
+        }
+        // Ant excludes added before still take precedence
+        int firstAnt = 0;
+        while (firstAnt < excludes.size() && excludes.get(firstAnt).dockerIgnore) {
+            firstAnt++;
+        }
+        excludes.addAll(firstAnt, rules);
+        return this;
+    }
+
+    /**
+     * Add Ant style exclude patterns
+     *
+     * @param patterns patterns, empty ones are skipped
+     * @return this matcher
+     */
+    public DockerIgnoreMatcher addExcludes(List<String> patterns) {
+        for (String pattern : patterns) {
+            Rule rule = Rule.ant(pattern);
+            if (rule != null) {
+                excludes.add(rule);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add Ant style include patterns. If any include is given, only paths matching at least one include are
+     * part of the context.
+     *
+     * @param patterns patterns, empty ones are skipped
+     * @return this matcher
+     */
+    public DockerIgnoreMatcher addIncludes(List<String> patterns) {
+        for (String pattern : patterns) {
+            Rule rule = Rule.ant(pattern);
+            if (rule != null) {
+                includes.add(rule);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Check whether a path is part of the build context
+     *
+     * @param path relative path of a file or directory
+     * @return true if the path is included and not excluded
+     */
+    public boolean isIncluded(String path) {
+        if (!includes.isEmpty() && includes.stream().noneMatch(rule -> rule.matches(path))) {
+            return false;
+        }
+        return !isExcluded(path);
+    }
+
+    /**
+     * Check whether a path is excluded, not taking includes into account
+     *
+     * @param path relative path of a file or directory
+     * @return true if the last matching exclude is not a re-inclusion
+     */
+    public boolean isExcluded(String path) {
+        boolean excluded = false;
+        for (Rule rule : excludes) {
+            // A re-inclusion can only change the result for excluded paths, and vice versa
+            if (rule.negated == excluded && rule.matches(path)) {
+                excluded = !rule.negated;
+            }
+        }
+        return excluded;
+    }
+
+    /**
+     * Check whether nothing below a directory can be part of the build context, so that the directory
+     * doesn't need to be walked at all. The directory itself might still be included.
+     *
+     * @param dir relative path of the directory
+     * @return true if all paths below the directory are excluded or can't be included
+     */
+    public boolean canSkipContents(String dir) {
+        if (!includes.isEmpty() && includes.stream().noneMatch(rule -> rule.couldMatchBelow(dir))) {
+            return true;
+        }
+        for (int i = excludes.size() - 1; i >= 0; i--) {
+            Rule rule = excludes.get(i);
+            if (rule.negated) {
+                if (rule.couldMatchBelow(dir)) {
+                    return false;
+                }
+            } else if (rule.coversContents(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Clean a path like Go's filepath.Clean() and make it relative
+    private static String cleanPath(String path) {
+        List<String> parts = new ArrayList<>();
+        for (String part : path.replace('\\', '/').split("/+")) {
+            if (part.isEmpty() || part.equals(".")) {
+                continue;
+            }
+            if (part.equals("..")) {
+                if (!parts.isEmpty()) {
+                    parts.remove(parts.size() - 1);
+                }
+                continue;
+            }
+            parts.add(part);
+        }
+        return String.join("/", parts);
+    }
+
+    // A single compiled pattern
+    private static final class Rule {
+
+        private final boolean dockerIgnore;
+        private final boolean negated;
+
+        // Matches the path itself
+        private final Pattern pattern;
+
+        // Matches directories for which all contents are matched, null if the rule never matches whole trees
+        private final Pattern contents;
+
+        // Patterns for the single path segments up to the first "**", null if the pattern can match anywhere
+        private final List<Pattern> segments;
+
+        private Rule(boolean dockerIgnore, boolean negated, Pattern pattern, Pattern contents, List<Pattern> segments) {
+            this.dockerIgnore = dockerIgnore;
+            this.negated = negated;
+            this.pattern = pattern;
+            this.contents = contents;
+            this.segments = segments;
+        }
+
+        static Rule dockerIgnore(String pattern, boolean negated) {
+            String regex = toRegex(pattern, true);
+            // Everything below "dir/**" is matched, but not "dir" itself
+            String contents = pattern.endsWith("/**") ?
+                "(?:" + toRegex(pattern.substring(0, pattern.length() - 3), true) + ")|(?:" + regex + ")" : regex;
+            return new Rule(true, negated, Pattern.compile(regex), Pattern.compile(contents), segments(pattern, true));
+        }
+
+        static Rule ant(String pattern) {
+            String trimmed = pattern.trim();
+            if (trimmed.startsWith(REGEX_PREFIX) && trimmed.endsWith("]")) {
+                String regex = trimmed.substring(REGEX_PREFIX.length(), trimmed.length() - 1);
+                return new Rule(false, false, Pattern.compile(regex), null, null);
+            }
+            if (trimmed.startsWith(ANT_PREFIX) && trimmed.endsWith("]")) {
+                trimmed = trimmed.substring(ANT_PREFIX.length(), trimmed.length() - 1);
+            }
+            String normalized = trimmed.replace('\\', '/');
+            if (normalized.endsWith("/")) {
+                normalized += "**";
+            }
+            while (normalized.startsWith("/")) {
+                normalized = normalized.substring(1);
+            }
+            if (normalized.isEmpty()) {
+                return null;
+            }
+            Pattern contents = null;
+            if (normalized.equals("**")) {
+                contents = Pattern.compile(".*");
+            } else if (normalized.endsWith("/**")) {
+                contents = Pattern.compile(toRegex(normalized.substring(0, normalized.length() - 3), false));
+            }
+            return new Rule(false, false, Pattern.compile(toRegex(normalized, false)), contents, segments(normalized, false));
+        }
+
+        boolean matches(String path) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+            if (dockerIgnore) {
+                // A .dockerignore pattern also matches everything below a matching directory
+                for (int idx = path.lastIndexOf('/'); idx > 0; idx = path.lastIndexOf('/', idx - 1)) {
+                    if (contents.matcher(path.substring(0, idx)).matches()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Whether the rule matches all paths below the given directory
+        boolean coversContents(String dir) {
+            if (contents == null) {
+                return false;
+            }
+            if (contents.matcher(dir).matches()) {
+                return true;
+            }
+            for (int idx = dir.lastIndexOf('/'); idx > 0; idx = dir.lastIndexOf('/', idx - 1)) {
+                if (contents.matcher(dir.substring(0, idx)).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Whether the rule might match any path below the given directory
+        boolean couldMatchBelow(String dir) {
+            if (segments == null || coversContents(dir)) {
+                return true;
+            }
+            String[] dirSegments = dir.split("/");
+            for (int i = 0; i < dirSegments.length; i++) {
+                if (i >= segments.size()) {
+                    // Pattern is not deeper than the directory
+                    return false;
+                }
+                Pattern segment = segments.get(i);
+                if (segment == null) {
+                    // "**" can match anything from here
+                    return true;
+                }
+                if (!segment.matcher(dirSegments[i]).matches()) {
+                    return false;
+                }
+            }
+            return dirSegments.length < segments.size();
+        }
+
+        // Compile the segments of a pattern, with null for a segment containing "**"
+        private static List<Pattern> segments(String pattern, boolean dockerIgnore) {
+            List<Pattern> ret = new ArrayList<>();
+            for (String segment : pattern.split("/")) {
+                if (segment.contains("**")) {
+                    ret.add(null);
+                    break;
+                }
+                ret.add(Pattern.compile(toRegex(segment, dockerIgnore)));
+            }
+            return ret;
+        }
+
+        // Translate a pattern into a regular expression. ".dockerignore" patterns support character
+        // classes and escapes, and "**" at the end matches everything.
+        private static String toRegex(String pattern, boolean dockerIgnore) {
+            StringBuilder regex = new StringBuilder();
+            int len = pattern.length();
+            for (int i = 0; i < len; i++) {
+                char c = pattern.charAt(i);
+                if (c == '*') {
+                    if (i + 1 < len && pattern.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < len && pattern.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(.*/)?");
+                        } else if (i + 1 == len) {
+                            // Ant's "dir/**" also matches "dir" itself
+                            if (!dockerIgnore && regex.length() > 0 && regex.charAt(regex.length() - 1) == '/') {
+                                regex.setLength(regex.length() - 1);
+                                regex.append("(/.*)?");
+                            } else {
+                                regex.append(".*");
+                            }
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if (dockerIgnore && c == '\\' && i + 1 < len) {
+                    appendLiteral(regex, pattern.charAt(++i));
+                } else if (dockerIgnore && c == '[' && pattern.indexOf(']', i + 1) > i + 1) {
+                    int end = pattern.indexOf(']', i + 1);
+                    String set = pattern.substring(i + 1, end);
+                    regex.append('[').append(set.startsWith("!") ? "^" + set.substring(1) : set).append(']');
+                    i = end;
+                } else {
+                    appendLiteral(regex, c);
+                }
+            }
+            return regex.toString();
+        }
+
+        private static void appendLiteral(StringBuilder regex, char c) {
+            if ("\\.[]{}()<>*+-=!?^$|".indexOf(c) >= 0) {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+    }
+}
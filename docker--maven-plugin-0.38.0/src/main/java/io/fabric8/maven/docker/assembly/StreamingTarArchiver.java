@@ -0,0 +1,203 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import io.fabric8.maven.docker.util.AdaptiveCompressionOutputStream;
+import io.fabric8.maven.docker.util.CompressionSelector;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.tar.TarLongFileMode;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+
+/**
+ * Tar archiver which writes the resources collected by a (customized) {@link TarArchiver}
+ * directly to an output stream instead of a destination file. Entries are written with the
+ * same logic as the plexus archiver so that streamed and file based archives are identical.
+ * <p>
+ * Optionally files with the same content, mode and owner as a file written before are written as
+ * hard links to this file. Only files with the same size are compared, by their SHA-256 digest.
+ */
+class StreamingTarArchiver extends TarArchiver {
+
+    private final boolean deduplicate;
+
+    // Files written so far which might have duplicates, by size, mode and owner
+    private final Map<String, List<WrittenFile>> writtenFiles = new HashMap<>();
+
+    private int linkedFiles;
+    private long savedBytes;
+
+    StreamingTarArchiver() {
+        this(false);
+    }
+
+    /**
+     * @param deduplicate whether to write files with the same content as an earlier file as hard link
+     */
+    StreamingTarArchiver(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+        setLongfile(TarLongFileMode.posix);
+    }
+
+    /**
+     * Write all resources of the given archiver as tar to the given stream. The stream is
+     * finished but not closed.
+     *
+     * @param source archiver holding the resources to add
+     * @param compression compression to apply
+     * @param out stream to write to
+     * @throws IOException if reading a resource or writing to the stream fails
+     */
+    void stream(TarArchiver source, ArchiveCompression compression, OutputStream out) throws IOException {
+        stream(source, compression, 0, out);
+    }
+
+    /**
+     * Write all resources of the given archiver as tar to the given stream. The stream is
+     * finished but not closed.
+     *
+     * @param source archiver holding the resources to add
+     * @param compression compression to apply
+     * @param threads number of threads for compressing, all available processors if not positive
+     * @param out stream to write to
+     * @throws IOException if reading a resource or writing to the stream fails
+     */
+    void stream(TarArchiver source, ArchiveCompression compression, int threads, OutputStream out) throws IOException {
+        write(source, compression.wrapOutputStream(new CloseShieldOutputStream(out), threads));
+    }
+
+    /**
+     * Write all resources of the given archiver as tar to the given stream with a compression selected
+     * from the start of the archive. The stream is finished but not closed.
+     *
+     * @param source archiver holding the resources to add
+     * @param selector selector for the compression to apply
+     * @param out stream to write to
+     * @return the compression applied
+     * @throws IOException if reading a resource or writing to the stream fails
+     */
+    ArchiveCompression stream(TarArchiver source, CompressionSelector selector, OutputStream out) throws IOException {
+        AdaptiveCompressionOutputStream compressed =
+            new AdaptiveCompressionOutputStream(new CloseShieldOutputStream(out), selector);
+        write(source, compressed);
+        return compressed.getSelectedCompression();
+    }
+
+    private void write(TarArchiver source, OutputStream compressed) throws IOException {
+        try (TarArchiveOutputStream tOut = new TarArchiveOutputStream(compressed, "UTF8")) {
+            tOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            ResourceIterator resources = source.getResources();
+            while (resources.hasNext()) {
+                ArchiveEntry entry = resources.next();
+                String linkTarget = deduplicate ? findDuplicate(entry) : null;
+                if (linkTarget != null) {
+                    writeHardLink(entry, linkTarget, tOut);
+                } else {
+                    tarFile(entry, tOut, entry.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of files written as hard link
+     */
+    int getLinkedFiles() {
+        return linkedFiles;
+    }
+
+    /**
+     * @return size of the files written as hard link, not counting the tar headers
+     */
+    long getSavedBytes() {
+        return savedBytes;
+    }
+
+    // Name of an already written file with the same content, or null if there is none
+    private String findDuplicate(ArchiveEntry entry) throws IOException {
+        if (entry.getType() != ArchiveEntry.FILE || entry.getResource().getSize() <= 0) {
+            return null;
+        }
+        String key = entry.getResource().getSize() + ":" + entry.getMode() + ":" + getOwner(entry.getResourceAttributes());
+        List<WrittenFile> candidates = writtenFiles.computeIfAbsent(key, k -> new ArrayList<>());
+        if (candidates.isEmpty()) {
+            // Digests are only calculated when there is another file of the same size
+            candidates.add(new WrittenFile(entry));
+            return null;
+        }
+        WrittenFile file = new WrittenFile(entry);
+        for (WrittenFile candidate : candidates) {
+            if (Arrays.equals(candidate.getDigest(), file.getDigest())) {
+                linkedFiles++;
+                savedBytes += entry.getResource().getSize();
+                return candidate.name;
+            }
+        }
+        candidates.add(file);
+        return null;
+    }
+
+    private static String getOwner(PlexusIoResourceAttributes attrs) {
+        return attrs == null ? "" :
+            attrs.getUserId() + ":" + attrs.getGroupId() + ":" + attrs.getUserName() + ":" + attrs.getGroupName();
+    }
+
+    // Written like the entries of the plexus archiver, except for the type and the size
+    private void writeHardLink(ArchiveEntry entry, String linkTarget, TarArchiveOutputStream tOut) throws IOException {
+        TarArchiveEntry te = new TarArchiveEntry(getEntryName(entry.getName()), TarConstants.LF_LINK);
+        te.setLinkName(getEntryName(linkTarget));
+        long lastModified = entry.getResource().getLastModified();
+        te.setModTime(lastModified == 0 ? System.currentTimeMillis() : lastModified);
+        te.setMode(entry.getMode());
+        PlexusIoResourceAttributes attrs = entry.getResourceAttributes();
+        te.setUserName(attrs != null && attrs.getUserName() != null ? attrs.getUserName() : "");
+        te.setGroupName(attrs != null && attrs.getGroupName() != null ? attrs.getGroupName() : "");
+        te.setUserId(attrs != null && attrs.getUserId() != null ? attrs.getUserId() : 0);
+        te.setGroupId(attrs != null && attrs.getGroupId() != null ? attrs.getGroupId() : 0);
+        tOut.putArchiveEntry(te);
+        tOut.closeArchiveEntry();
+    }
+
+    private static String getEntryName(String name) {
+        String ret = name.replace('\\', '/');
+        while (ret.startsWith("/")) {
+            ret = ret.substring(1);
+        }
+        return ret;
+    }
+
+    private static class WrittenFile {
+        private final String name;
+        private final ArchiveEntry entry;
+        private byte[] digest;
+
+        WrittenFile(ArchiveEntry entry) {
+            this.name = entry.getName();
+            this.entry = entry;
+        }
+
+        byte[] getDigest() throws IOException {
+            if (digest == null) {
+                try (InputStream in = entry.getInputStream()) {
+                    digest = DigestUtils.sha256(in);
+                }
+            }
+            return digest;
+        }
+    }
+}
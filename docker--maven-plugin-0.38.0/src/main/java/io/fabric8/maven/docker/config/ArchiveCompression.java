@@ -19,6 +19,9 @@ package io.fabric8.maven.docker.config;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import io.fabric8.maven.docker.util.AdaptiveCompressionOutputStream;
+import io.fabric8.maven.docker.util.CompressionSelector;
+import io.fabric8.maven.docker.util.ParallelGzipOutputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.codehaus.plexus.archiver.tar.TarArchiver;
 
@@ -35,16 +38,34 @@ public enum ArchiveCompression {
 
     gzip(TarArchiver.TarCompressionMethod.gzip,"tar.gz") {
         @Override
-        public OutputStream wrapOutputStream(OutputStream out) throws IOException {
+        public OutputStream wrapOutputStream(OutputStream out, int threads) throws IOException {
             return new GZIPOutputStream(out);
         }
     },
 
+    // gzip compatible output, but compressed with multiple threads
+    pgzip(TarArchiver.TarCompressionMethod.gzip, "tar.gz") {
+        @Override
+        public OutputStream wrapOutputStream(OutputStream out, int threads) throws IOException {
+            return new ParallelGzipOutputStream(out, resolveThreads(threads), GZIP_COMPRESSION_LEVEL);
+        }
+    },
+
     bzip2(TarArchiver.TarCompressionMethod.bzip2,"tar.bz") {
         @Override
-        public OutputStream wrapOutputStream(OutputStream out) throws IOException {
+        public OutputStream wrapOutputStream(OutputStream out, int threads) throws IOException {
             return new BZip2CompressorOutputStream(out);
         }
+    },
+
+    // Either none or pgzip, selected from the transport to the daemon and a sample of the archive.
+    // The suffix is only a placeholder, the Docker daemon detects the compression from the content.
+    auto(TarArchiver.TarCompressionMethod.none, "tar") {
+        @Override
+        public OutputStream wrapOutputStream(OutputStream out, int threads) throws IOException {
+            // Without knowing the transport only the sample counts
+            return new AdaptiveCompressionOutputStream(out, new CompressionSelector(null, null, threads));
+        }
     };
 
     // ====================================================================
@@ -66,9 +87,32 @@ public enum ArchiveCompression {
     }
 
     public OutputStream wrapOutputStream(OutputStream outputStream) throws IOException {
+        return wrapOutputStream(outputStream, 0);
+    }
+
+    /**
+     * Wrap a stream for compression with the given number of threads. Only {@link #pgzip}
+     * compresses with more than one thread.
+     *
+     * @param outputStream stream to wrap
+     * @param threads number of threads, all available processors are used if not positive
+     * @return the compressing stream
+     * @throws IOException if the stream cannot be wrapped
+     */
+    public OutputStream wrapOutputStream(OutputStream outputStream, int threads) throws IOException {
         return outputStream;
     }
 
+    /**
+     * Get the number of threads to use for {@link #pgzip} compression
+     *
+     * @param threads configured number of threads
+     * @return the given number or all available processors if not positive
+     */
+    public static int resolveThreads(int threads) {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     public static ArchiveCompression fromFileName(String filename) {
 		if (filename.endsWith(".tar.gz") || filename.endsWith(".tgz")) {
 			return ArchiveCompression.gzip;
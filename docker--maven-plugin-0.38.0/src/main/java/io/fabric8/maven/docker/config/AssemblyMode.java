@@ -28,6 +28,11 @@ public enum AssemblyMode {
      */
     dir("dir",false),
 
+    /**
+     * Add the files directly from their sources to the tarball, without copying them to a directory first
+     */
+    direct("direct",false),
+
     /**
      * Use a ZIP container as intermediate format
      */
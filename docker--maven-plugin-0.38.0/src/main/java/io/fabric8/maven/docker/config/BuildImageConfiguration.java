@@ -202,6 +202,18 @@ public class BuildImageConfiguration implements Serializable {
         return false;
     }
 
+    public boolean buildKit() {
+        return data.buildKit != null ? data.buildKit : false;
+    }
+
+    public boolean useDockerIgnore() {
+        return data.useDockerIgnore != null ? data.useDockerIgnore : false;
+    }
+
+    public boolean deduplicateFiles() {
+        return data.deduplicateFiles != null ? data.deduplicateFiles : false;
+    }
+
     public boolean optimise() {
         return data.optimise != null ? data.optimise : false;
     }
@@ -222,6 +234,18 @@ public class BuildImageConfiguration implements Serializable {
         return data.squash != null ? data.squash : false;
     }
 
+    public Boolean getBuildKit() {
+        return data.buildKit;
+    }
+
+    public Boolean getUseDockerIgnore() {
+        return data.useDockerIgnore;
+    }
+
+    public Boolean getDeduplicateFiles() {
+        return data.deduplicateFiles;
+    }
+
     public Boolean getOptimise() {
         return data.optimise;
     }
@@ -469,6 +493,21 @@ public class BuildImageConfiguration implements Serializable {
             return this;
         }
 
+        public Builder buildKit(Boolean buildKit) {
+            config.data.buildKit = buildKit;
+            return this;
+        }
+
+        public Builder useDockerIgnore(Boolean useDockerIgnore) {
+            config.data.useDockerIgnore = useDockerIgnore;
+            return this;
+        }
+
+        public Builder deduplicateFiles(Boolean deduplicateFiles) {
+            config.data.deduplicateFiles = deduplicateFiles;
+            return this;
+        }
+
         public Builder optimise(Boolean optimise) {
             config.data.optimise = optimise;
             return this;
@@ -1,10 +1,13 @@
 package io.fabric8.maven.docker.config;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
-public class BuildImageConfigurationData {
+import org.apache.maven.plugins.annotations.Parameter;
+
+public class BuildImageConfigurationData implements Serializable {
 	/**
 	 * Directory is used as build context.
 	 * If not specified, dockerfile's parent directory is used as build context.
@@ -92,6 +95,12 @@ public class BuildImageConfigurationData {
 	@Parameter
 	public Boolean squash;
 	@Parameter
+	public Boolean buildKit;
+	@Parameter
+	public Boolean useDockerIgnore;
+	@Parameter
+	public Boolean deduplicateFiles;
+	@Parameter
 	public Boolean optimise;
 	@Parameter
 	public List<String> volumes;
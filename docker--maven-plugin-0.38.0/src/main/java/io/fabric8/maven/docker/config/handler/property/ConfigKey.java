@@ -39,6 +39,7 @@ public enum ConfigKey {
     ASSEMBLY_TARLONGFILEMODE("assembly.tarLongFileMode"),
     AUTO_REMOVE,
     BIND,
+    BUILD_KIT,
     BUILD_OPTIONS,
     CAP_ADD,
     CAP_DROP,
@@ -50,6 +51,7 @@ public enum ConfigKey {
     CACHE_FROM,
     CMD,
     CONTEXT_DIR,
+    DEDUPLICATE_FILES,
     DEPENDS_ON,
     DOMAINNAME,
     DNS,
@@ -119,6 +121,7 @@ public enum ConfigKey {
     TAGS(ValueCombinePolicy.Merge),
     TMPFS,
     ULIMITS,
+    USE_DOCKER_IGNORE,
     USER,
     VOLUMES,
     VOLUMES_FROM,
@@ -144,6 +144,9 @@ public class PropertyConfigHandler implements ExternalConfigHandler {
                 .cleanup(valueProvider.getString(CLEANUP, config == null ? null : config.getCleanup()))
                 .noCache(valueProvider.getBoolean(NO_CACHE, config == null ? null : config.getNoCache()))
                 .squash(valueProvider.getBoolean(SQUASH, config == null ? null : config.getSquash()))
+                .buildKit(valueProvider.getBoolean(BUILD_KIT, config == null ? null : config.getBuildKit()))
+                .useDockerIgnore(valueProvider.getBoolean(USE_DOCKER_IGNORE, config == null ? null : config.getUseDockerIgnore()))
+                .deduplicateFiles(valueProvider.getBoolean(DEDUPLICATE_FILES, config == null ? null : config.getDeduplicateFiles()))
                 .cacheFrom(valueProvider.getList(CACHE_FROM, config == null ? null : config.getCacheFrom()))
                 .optimise(valueProvider.getBoolean(OPTIMISE, config == null ? null : config.getOptimise()))
                 .entryPoint(extractArguments(valueProvider, ENTRYPOINT, config == null ? null : config.getEntryPoint()))
@@ -1,9 +1,12 @@
 package io.fabric8.maven.docker.model;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -25,6 +28,10 @@ public class ContainersListElement implements Container {
     private static final String SLASH = "/";
     private static final String UP = "up";
 
+    /** Fields of a container list entry used by this class */
+    public static final Set<String> FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        CREATED, ID, IMAGE, LABELS, NAMES, PORTS, STATUS)));
+
     private final JsonObject json;
 
     public ContainersListElement(JsonObject json) {
@@ -0,0 +1,114 @@
+package io.fabric8.maven.docker.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * An event as streamed by the Docker daemon's <code>/events</code> endpoint
+ */
+public class DockerEvent {
+
+    static final String TYPE = "Type";
+    static final String ACTION = "Action";
+    static final String ACTOR = "Actor";
+    static final String ACTOR_ID = "ID";
+    static final String ATTRIBUTES = "Attributes";
+    static final String TIME = "time";
+    static final String TIME_NANO = "timeNano";
+
+    // Fields of the format used before API version 1.22
+    static final String STATUS = "status";
+    static final String ID = "id";
+
+    private static final String HEALTH_STATUS_PREFIX = "health_status: ";
+
+    private final JsonObject json;
+
+    public DockerEvent(JsonObject json) {
+        this.json = json;
+    }
+
+    /**
+     * @return type of the object the event refers to, e.g. "container" or "image"
+     */
+    public String getType() {
+        String type = getString(json, TYPE);
+        return type != null ? type : "container";
+    }
+
+    /**
+     * @return action like "create", "start", "die" or "health_status: healthy"
+     */
+    public String getAction() {
+        String action = getString(json, ACTION);
+        return action != null ? action : getString(json, STATUS);
+    }
+
+    /**
+     * @return id of the object the event refers to (e.g. the container id)
+     */
+    public String getActorId() {
+        JsonObject actor = getActor();
+        String id = actor != null ? getString(actor, ACTOR_ID) : null;
+        return id != null ? id : getString(json, ID);
+    }
+
+    /**
+     * @return attributes of the object like "name", "image" or "exitCode"
+     */
+    public Map<String, String> getAttributes() {
+        JsonObject actor = getActor();
+        if (actor == null || !actor.has(ATTRIBUTES) || !actor.get(ATTRIBUTES).isJsonObject()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> ret = new HashMap<>();
+        for (Map.Entry<String, JsonElement> entry : actor.getAsJsonObject(ATTRIBUTES).entrySet()) {
+            if (entry.getValue().isJsonPrimitive()) {
+                ret.put(entry.getKey(), entry.getValue().getAsString());
+            }
+        }
+        return ret;
+    }
+
+    public String getAttribute(String key) {
+        return getAttributes().get(key);
+    }
+
+    /**
+     * @return health status ("starting", "healthy" or "unhealthy") for a health status event,
+     *         <code>null</code> for any other event
+     */
+    public String getHealthStatus() {
+        String action = getAction();
+        return action != null && action.startsWith(HEALTH_STATUS_PREFIX) ?
+            action.substring(HEALTH_STATUS_PREFIX.length()).trim() : null;
+    }
+
+    /**
+     * @return time of the event in nanoseconds since the epoch
+     */
+    public long getTimeNano() {
+        if (json.has(TIME_NANO) && !json.get(TIME_NANO).isJsonNull()) {
+            return json.get(TIME_NANO).getAsLong();
+        }
+        return json.has(TIME) && !json.get(TIME).isJsonNull() ? json.get(TIME).getAsLong() * 1_000_000_000L : 0;
+    }
+
+    private JsonObject getActor() {
+        return json.has(ACTOR) && json.get(ACTOR).isJsonObject() ? json.getAsJsonObject(ACTOR) : null;
+    }
+
+    private static String getString(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsString() : null;
+    }
+
+    @Override
+    public String toString() {
+        return json.toString();
+    }
+}
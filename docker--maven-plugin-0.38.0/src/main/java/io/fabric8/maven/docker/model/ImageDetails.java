@@ -1,11 +1,14 @@
 package io.fabric8.maven.docker.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -21,6 +24,10 @@ public class ImageDetails implements Image {
     public static final String SIZE = "Size";
     public static final String VIRTUAL_SIZE = "VirtualSize";
 
+    /** Fields of an image list entry used by this class */
+    public static final Set<String> FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        CREATED, ID, LABELS, PARENT_ID, REPO_TAGS, REPO_DIGESTS, SIZE, VIRTUAL_SIZE)));
+
     private final JsonObject json;
 
     public ImageDetails(JsonObject json) {
@@ -15,12 +15,14 @@ package io.fabric8.maven.docker.service;/*
  * limitations under the License.
  */
 
+import io.fabric8.maven.docker.access.ArchiveWriter;
 import io.fabric8.maven.docker.assembly.ArchiverCustomizer;
 import io.fabric8.maven.docker.assembly.AssemblyFiles;
 import io.fabric8.maven.docker.assembly.DockerAssemblyManagerInterface;
 import io.fabric8.maven.docker.config.AssemblyConfiguration;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
 import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.docker.util.CompressionSelector;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.MojoParameters;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -132,13 +134,29 @@ public class ArchiveService {
 
     // =============================================
 
-    File createArchive(String imageName, BuildImageConfiguration buildConfig, MojoParameters params, Logger log)
+    File createArchive(String imageName, BuildImageConfiguration buildConfig, MojoParameters params, Logger log,
+                       CompressionSelector selector)
             throws MojoExecutionException {
-        return createArchive(imageName, buildConfig, params, log, null);
+        return dockerAssemblyManager.createDockerTarArchive(imageName, params, buildConfig, log, null, selector);
     }
 
     File createArchive(String imageName, BuildImageConfiguration buildConfig, MojoParameters params, Logger log, ArchiverCustomizer customizer)
             throws MojoExecutionException {
         return dockerAssemblyManager.createDockerTarArchive(imageName, params, buildConfig, log, customizer);
     }
+
+    String createArchiveDigest(String imageName, BuildImageConfiguration buildConfig, MojoParameters params, Logger log)
+            throws MojoExecutionException {
+        return dockerAssemblyManager.createDockerTarArchiveDigest(imageName, params, buildConfig, log);
+    }
+
+    void discardPreparedArchive(String imageName) {
+        dockerAssemblyManager.discardPreparedArchive(imageName);
+    }
+
+    ArchiveWriter createArchiveWriter(String imageName, BuildImageConfiguration buildConfig, MojoParameters params, Logger log,
+                                      CompressionSelector selector)
+            throws MojoExecutionException {
+        return dockerAssemblyManager.createDockerTarArchiveWriter(imageName, params, buildConfig, log, null, selector);
+    }
 }
@@ -3,41 +3,79 @@ package io.fabric8.maven.docker.service;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import io.fabric8.maven.docker.access.ArchiveWriter;
 import io.fabric8.maven.docker.access.BuildOptions;
 import io.fabric8.maven.docker.access.DockerAccess;
 import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.DockerTransport;
+import io.fabric8.maven.docker.access.chunked.BuildSteps;
+import io.fabric8.maven.docker.assembly.BuildDirs;
 import io.fabric8.maven.docker.assembly.DockerAssemblyManagerInterface;
+import io.fabric8.maven.docker.config.ArchiveCompression;
 import io.fabric8.maven.docker.config.AssemblyConfiguration;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
 import io.fabric8.maven.docker.config.CleanupMode;
 import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.docker.model.Image;
 import io.fabric8.maven.docker.model.ImageArchiveManifest;
 import io.fabric8.maven.docker.model.ImageArchiveManifestEntry;
+import io.fabric8.maven.docker.util.AnsiLogger;
+import io.fabric8.maven.docker.util.CompressionSelector;
 import io.fabric8.maven.docker.util.DockerFileUtil;
 import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.ImageArchiveUtil;
 import io.fabric8.maven.docker.util.ImageName;
+import io.fabric8.maven.docker.util.JsonFactory;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.MojoParameters;
 import io.fabric8.maven.docker.util.NamePatternUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.maven.plugin.MojoExecutionException;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.PatternSyntaxException;
 
 public class BuildService {
 
+    /** Label holding the digest over all inputs of a build, used for reusing unchanged images */
+    public static final String BUILD_DIGEST_LABEL = "dmp.build.digest";
+
     private final String argPrefix = "docker.buildArg.";
 
+    // Digests of images to build which have been calculated in buildImageFromCache(), by image name
+    private final Map<String, String> buildDigests = new ConcurrentHashMap<>();
+
+    // Pulls started by prefetchImages(), by image name
+    private final Map<String, Future<?>> prefetchedPulls = new ConcurrentHashMap<>();
+    private ExecutorService prefetchExecutor;
+
     private final DockerAccess docker;
     private final QueryService queryService;
     private final ArchiveService archiveService;
@@ -68,7 +106,149 @@ public class BuildService {
             autoPullCacheFromImage(imageConfig, imagePullManager, buildContext);
         }
 
-        buildImage(imageConfig, buildContext.getMojoParameters(), checkForNocache(imageConfig), checkForSquash(imageConfig), addBuildArgs(buildContext), buildArchiveFile);
+        buildImage(imageConfig, buildContext.getMojoParameters(), checkForNocache(imageConfig), checkForSquash(imageConfig), addBuildArgs(buildContext),
+                   buildContext.isBuildReport(), (name, opts) -> docker.buildImage(name, buildArchiveFile, opts));
+    }
+
+    /**
+     * Pull the base image if needed and run the build with a build context which is streamed
+     * to the Docker daemon while it is created.
+     *
+     * @param imageConfig  the image configuration
+     * @param buildContext the build context
+     * @param archiveWriter writer for the build context as obtained from {@link #buildArchiveWriter}
+     * @throws DockerAccessException
+     * @throws MojoExecutionException
+     */
+    public void buildImage(ImageConfiguration imageConfig, ImagePullManager imagePullManager, BuildContext buildContext, ArchiveWriter archiveWriter)
+            throws DockerAccessException, MojoExecutionException {
+
+        if (imagePullManager != null) {
+            autoPullBaseImage(imageConfig, imagePullManager, buildContext);
+            autoPullCacheFromImage(imageConfig, imagePullManager, buildContext);
+        }
+
+        log.info("%s: Streaming build context to Docker daemon", imageConfig.getDescription());
+        buildImage(imageConfig, buildContext.getMojoParameters(), checkForNocache(imageConfig), checkForSquash(imageConfig), addBuildArgs(buildContext),
+                   buildContext.isBuildReport(), (name, opts) -> docker.buildImage(name, archiveWriter, opts));
+    }
+
+    /**
+     * Start pulling the base images and the <code>cacheFrom</code> images of all given images in the background,
+     * so that the pulls overlap with creating the build archives. A build only waits for the pulls of its own
+     * images. Images which are built in the same run are not pulled.
+     *
+     * @param imageConfigs the images to build
+     * @param pullManagers provides the pull manager for the images used by an image to build
+     * @param buildContext the build context
+     * @param threads maximum number of concurrent pulls
+     */
+    public void prefetchImages(List<ImageConfiguration> imageConfigs, Function<ImageConfiguration, ImagePullManager> pullManagers,
+                               BuildContext buildContext, int threads) {
+        Set<String> builtImages = new HashSet<>();
+        for (ImageConfiguration imageConfig : imageConfigs) {
+            builtImages.add(normalizeImageName(imageConfig.getName()));
+        }
+
+        Map<String, ImagePullManager> images = new LinkedHashMap<>();
+        for (ImageConfiguration imageConfig : imageConfigs) {
+            BuildImageConfiguration buildConfig = imageConfig.getBuildConfiguration();
+            List<String> usedImages = new ArrayList<>(extractBaseImages(buildConfig, buildContext));
+            if (buildConfig.getCacheFrom() != null) {
+                usedImages.addAll(buildConfig.getCacheFrom());
+            }
+            for (String image : usedImages) {
+                if (image != null && !DockerAssemblyManagerInterface.SCRATCH_IMAGE.equals(image) &&
+                    !builtImages.contains(normalizeImageName(image)) && !prefetchedPulls.containsKey(image) &&
+                    !images.containsKey(image)) {
+                    images.put(image, pullManagers.apply(imageConfig));
+                }
+            }
+        }
+        if (images.isEmpty()) {
+            return;
+        }
+
+        log.verbose(Logger.LogVerboseCategory.BUILD, "Pulling %d images with up to %d threads: %s",
+                    images.size(), threads, String.join(", ", images.keySet()));
+        if (prefetchExecutor == null) {
+            prefetchExecutor = createPrefetchExecutor(Math.min(threads, images.size()));
+        }
+        for (Map.Entry<String, ImagePullManager> entry : images.entrySet()) {
+            String image = entry.getKey();
+            prefetchedPulls.put(image, prefetchExecutor.submit(() -> {
+                // Prefix the output of the pull, which also turns off the progress bars which would get mixed
+                // up with the output of the build
+                AnsiLogger.setThreadPrefix("[" + image + "] ");
+                try {
+                    registryService.pullImageWithPolicy(image, entry.getValue(), buildContext.getRegistryConfig(), queryService.hasImage(image));
+                } finally {
+                    AnsiLogger.setThreadPrefix(null);
+                }
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Cancel the pulls started by {@link #prefetchImages} which are still running
+     */
+    public void cancelPrefetch() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+        prefetchedPulls.clear();
+    }
+
+    /**
+     * Reuse an image which has been built from the same inputs before instead of building it again. The inputs
+     * are the build context (including the interpolated Dockerfile and the assemblies), the build args, the
+     * build options and the ids of the base images. If such an image exists it is tagged with the image's name.
+     * Otherwise the digest over the inputs is added as label {@value #BUILD_DIGEST_LABEL} to the image when it is
+     * built afterwards.
+     *
+     * @param imageConfig  the image configuration
+     * @param imagePullManager pull manager for pulling the base images, can be <code>null</code>
+     * @param buildContext the build context
+     * @return true if an image has been reused so that no build is required
+     * @throws DockerAccessException
+     * @throws MojoExecutionException
+     */
+    public boolean buildImageFromCache(ImageConfiguration imageConfig, ImagePullManager imagePullManager, BuildContext buildContext)
+            throws DockerAccessException, MojoExecutionException {
+        BuildImageConfiguration buildConfig = imageConfig.getBuildConfiguration();
+        if (buildConfig.getDockerArchive() != null || checkForNocache(imageConfig)) {
+            return false;
+        }
+
+        String imageName = imageConfig.getName();
+        ImageName.validate(imageName);
+
+        // The base images must be available for taking their ids into account
+        if (imagePullManager != null) {
+            autoPullBaseImage(imageConfig, imagePullManager, buildContext);
+        }
+
+        long time = System.currentTimeMillis();
+        String digest = createBuildDigest(imageConfig, buildContext);
+        Image cachedImage = findImageWithBuildDigest(digest);
+        if (cachedImage == null) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "%s: No image with build digest %s found", imageConfig.getDescription(), digest);
+            buildDigests.put(imageName, digest);
+            return false;
+        }
+        // No archive will be created, so the assemblies prepared for the digest are not needed anymore
+        archiveService.discardPreparedArchive(imageName);
+
+        String oldImageId = queryService.getImageId(imageName);
+        if (oldImageId == null || !cachedImage.getId().startsWith(oldImageId)) {
+            docker.tag(cachedImage.getId(), imageName, true);
+            removeOldImage(imageConfig, buildConfig.cleanupMode(), oldImageId);
+        }
+        log.info("%s: Reused image %s with unchanged build inputs (checked in %s)", imageConfig.getDescription(),
+                 cachedImage.getId(), EnvUtil.formatDurationTill(time));
+        return true;
     }
 
     /**
@@ -93,7 +273,7 @@ public class BuildService {
         }
         long time = System.currentTimeMillis();
 
-        File dockerArchive = archiveService.createArchive(imageName, buildConfig, params, log);
+        File dockerArchive = archiveService.createArchive(imageName, buildConfig, params, log, createCompressionSelector(buildConfig, buildContext));
         log.info("%s: Created %s in %s", imageConfiguration.getDescription(), dockerArchive.getName(), EnvUtil.formatDurationTill(time));
 
         // Copy created tarball to directory if specified
@@ -106,6 +286,60 @@ public class BuildService {
         return dockerArchive;
     }
 
+    /**
+     * Prepare the docker build context for being streamed to the Docker daemon. In contrast to
+     * {@link #buildArchive(ImageConfiguration, BuildContext, String)} the tar archive is not stored
+     * in the build directory.
+     *
+     * @param imageConfiguration image configuration
+     * @param buildContext       docker build context
+     * @param archivePath        if not empty, directory to which a copy of the archive is written while streaming
+     * @return writer for the build context
+     * @throws MojoExecutionException in case any exception comes during preparing the build context
+     */
+    public ArchiveWriter buildArchiveWriter(ImageConfiguration imageConfiguration, BuildContext buildContext, String archivePath)
+            throws MojoExecutionException {
+        String imageName = imageConfiguration.getName();
+        ImageName.validate(imageName);
+        BuildImageConfiguration buildConfig = imageConfiguration.getBuildConfiguration();
+
+        CompressionSelector selector = createCompressionSelector(buildConfig, buildContext);
+        ArchiveWriter archiveWriter = archiveService.createArchiveWriter(imageName, buildConfig, buildContext.getMojoParameters(), log,
+                                                                          selector);
+        if (archivePath == null || archivePath.isEmpty()) {
+            return archiveWriter;
+        }
+
+        // Tee the streamed archive into the specified directory
+        return out -> {
+            File archiveCopy = new File(archivePath, "docker-build." + buildConfig.getCompression().getFileSuffix());
+            try (OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(archiveCopy))) {
+                archiveWriter.write(new TeeOutputStream(out, fileOut));
+            }
+            if (buildConfig.getCompression() == ArchiveCompression.auto) {
+                // The compression is only known after the archive has been written
+                archiveCopy = renameToSuffix(archiveCopy, selector.getSelected());
+            }
+            log.info("%s: Copied streamed tarball to %s", imageConfiguration.getDescription(), archiveCopy);
+        };
+    }
+
+    private File renameToSuffix(File archive, ArchiveCompression selected) throws IOException {
+        File target = new File(archive.getParentFile(), "docker-build." + selected.getFileSuffix());
+        if (!target.equals(archive)) {
+            Files.move(archive.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    // Selects the compression for the 'auto' mode from the connection the archive is sent over
+    // and carries the number of threads to compress with
+    private CompressionSelector createCompressionSelector(BuildImageConfiguration buildConfig, BuildContext buildContext) {
+        DockerTransport transport = buildConfig.getCompression() == ArchiveCompression.auto && docker != null ?
+            docker.getTransport() : null;
+        return new CompressionSelector(transport, log, buildContext.getCompressionThreads());
+    }
+
     public void copyDockerArchive(ImageConfiguration imageConfiguration, File dockerArchive, String archivePath) throws IOException {
         if (archivePath != null && !archivePath.isEmpty()) {
             Files.copy(dockerArchive.toPath(), new File(archivePath, dockerArchive.getName()).toPath());
@@ -138,6 +372,12 @@ public class BuildService {
      */
     protected void buildImage(ImageConfiguration imageConfig, MojoParameters params, boolean noCache, boolean squash, Map<String, String> buildArgs, File dockerArchive)
             throws DockerAccessException, MojoExecutionException {
+        buildImage(imageConfig, params, noCache, squash, buildArgs, false, (name, opts) -> docker.buildImage(name, dockerArchive, opts));
+    }
+
+    private void buildImage(ImageConfiguration imageConfig, MojoParameters params, boolean noCache, boolean squash, Map<String, String> buildArgs,
+                            boolean buildReport, BuildContextUpload upload)
+            throws DockerAccessException, MojoExecutionException {
 
         String imageName = imageConfig.getName();
         ImageName.validate(imageName);
@@ -169,34 +409,108 @@ public class BuildService {
 
         Map<String, String> mergedBuildMap = prepareBuildArgs(buildArgs, buildConfig);
 
-        // auto is now supported by docker, consider switching?
-        BuildOptions opts =
-                new BuildOptions(buildConfig.getBuildOptions())
-                        .dockerfile(getDockerfileName(buildConfig))
-                        .forceRemove(cleanupMode.isRemove())
-                        .noCache(noCache)
-                        .squash(squash)
-                        .cacheFrom(buildConfig.getCacheFrom())
-                        .network(buildConfig.getNetwork())
-                        .buildArgs(mergedBuildMap);
-        String newImageId = doBuildImage(imageName, dockerArchive, opts);
+        BuildOptions opts = createBuildOptions(buildConfig, noCache, squash).buildArgs(mergedBuildMap);
+        String buildDigest = buildDigests.remove(imageName);
+        if (buildDigest != null) {
+            opts.labels(Collections.singletonMap(BUILD_DIGEST_LABEL, buildDigest));
+        }
+        BuildSteps buildSteps = buildReport ? new BuildSteps() : null;
+        opts.buildSteps(buildSteps);
+        String newImageId;
+        try {
+            newImageId = doBuildImage(imageName, upload, opts);
+        } finally {
+            if (buildSteps != null) {
+                reportBuildSteps(imageConfig, params, buildSteps);
+            }
+        }
         log.info("%s: Built image %s", imageConfig.getDescription(), newImageId);
 
         if (oldImageId != null && !oldImageId.equals(newImageId)) {
-            try {
-                docker.removeImage(oldImageId, true);
-                log.info("%s: Removed old image %s", imageConfig.getDescription(), oldImageId);
-            } catch (DockerAccessException exp) {
-                if (cleanupMode == CleanupMode.TRY_TO_REMOVE) {
-                    log.warn("%s: %s (old image)%s", imageConfig.getDescription(), exp.getMessage(),
-                            (exp.getCause() != null ? " [" + exp.getCause().getMessage() + "]" : ""));
-                } else {
-                    throw exp;
-                }
+            removeOldImage(imageConfig, cleanupMode, oldImageId);
+        }
+    }
+
+    // Also done for failed builds, as these show which step has failed after how long
+    private void reportBuildSteps(ImageConfiguration imageConfig, MojoParameters params, BuildSteps buildSteps) {
+        buildSteps.finish();
+        for (String line : buildSteps.formatTable()) {
+            log.info("%s: %s", imageConfig.getDescription(), line);
+        }
+        BuildSteps.Step firstMiss = buildSteps.getFirstCacheMiss();
+        if (firstMiss != null) {
+            log.info("%s: Build cache not used from step %d on: %s", imageConfig.getDescription(),
+                     firstMiss.getNumber(), firstMiss.getInstruction());
+        }
+
+        File report = new BuildDirs(imageConfig.getName(), params).getBuildReportFile();
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("image", imageConfig.getName());
+        try {
+            buildSteps.writeReport(report, info);
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Build report written to %s", report);
+        } catch (IOException exp) {
+            log.warn("%s: Cannot write build report to %s: %s", imageConfig.getDescription(), report, exp.getMessage());
+        }
+    }
+
+    // auto is now supported by docker, consider switching?
+    private BuildOptions createBuildOptions(BuildImageConfiguration buildConfig, boolean noCache, boolean squash) {
+        return new BuildOptions(buildConfig.getBuildOptions())
+                .dockerfile(getDockerfileName(buildConfig))
+                .forceRemove(buildConfig.cleanupMode().isRemove())
+                .noCache(noCache)
+                .squash(squash)
+                .buildKit(checkForBuildKit(buildConfig))
+                .cacheFrom(buildConfig.getCacheFrom())
+                .network(buildConfig.getNetwork());
+    }
+
+    private void removeOldImage(ImageConfiguration imageConfig, CleanupMode cleanupMode, String oldImageId) throws DockerAccessException {
+        if (oldImageId == null || !cleanupMode.isRemove()) {
+            return;
+        }
+        try {
+            docker.removeImage(oldImageId, true);
+            log.info("%s: Removed old image %s", imageConfig.getDescription(), oldImageId);
+        } catch (DockerAccessException exp) {
+            if (cleanupMode == CleanupMode.TRY_TO_REMOVE) {
+                log.warn("%s: %s (old image)%s", imageConfig.getDescription(), exp.getMessage(),
+                        (exp.getCause() != null ? " [" + exp.getCause().getMessage() + "]" : ""));
+            } else {
+                throw exp;
             }
         }
     }
 
+    // Digest over everything which determines the outcome of a build
+    private String createBuildDigest(ImageConfiguration imageConfig, BuildContext buildContext)
+            throws DockerAccessException, MojoExecutionException {
+        BuildImageConfiguration buildConfig = imageConfig.getBuildConfiguration();
+        Map<String, String> inputs = new TreeMap<>();
+        inputs.put("context", archiveService.createArchiveDigest(imageConfig.getName(), buildConfig,
+                                                                 buildContext.getMojoParameters(), log));
+        createBuildOptions(buildConfig, false, checkForSquash(imageConfig)).getOptions()
+                .forEach((key, value) -> inputs.put("option." + key, value));
+        prepareBuildArgs(addBuildArgs(buildContext), buildConfig)
+                .forEach((key, value) -> inputs.put("arg." + key, value));
+        for (String fromImage : extractBaseImages(buildConfig, buildContext)) {
+            if (!DockerAssemblyManagerInterface.SCRATCH_IMAGE.equals(fromImage)) {
+                inputs.put("from." + fromImage, String.valueOf(queryService.getImageId(fromImage)));
+            }
+        }
+        return DigestUtils.sha256Hex(JsonFactory.newJsonObject(inputs).toString());
+    }
+
+    private Image findImageWithBuildDigest(String digest) throws DockerAccessException {
+        for (Image image : queryService.listImages(false)) {
+            if (digest.equals(image.getLabels().get(BUILD_DIGEST_LABEL))) {
+                return image;
+            }
+        }
+        return null;
+    }
+
     public void tagImage(String imageName, String tag, String repo) throws DockerAccessException {
         if (tag != null) {
             String fullImageName = new ImageName(imageName, tag).getNameWithOptionalRepository(repo);
@@ -297,12 +611,18 @@ public class BuildService {
         }
     }
 
-    private String doBuildImage(String imageName, File dockerArchive, BuildOptions options)
+    private String doBuildImage(String imageName, BuildContextUpload upload, BuildOptions options)
             throws DockerAccessException, MojoExecutionException {
-        docker.buildImage(imageName, dockerArchive, options);
+        upload.build(imageName, options);
         return queryService.getImageId(imageName);
     }
 
+    // Sends the build context, either as file or as stream, along with the build request
+    @FunctionalInterface
+    private interface BuildContextUpload {
+        void build(String imageName, BuildOptions options) throws DockerAccessException;
+    }
+
     private Map<String, String> addBuildArgs(BuildContext buildContext) {
         Map<String, String> buildArgsFromProject = addBuildArgsFromProperties(buildContext.getMojoParameters().getProject().getProperties());
         Map<String, String> buildArgsFromSystem = addBuildArgsFromProperties(System.getProperties());
@@ -371,18 +691,9 @@ public class BuildService {
             return;
         }
 
-        List<String> fromImages;
-        if (buildConfig.isDockerFileMode()) {
-            fromImages = extractBaseFromDockerfile(buildConfig, buildContext);
-        } else {
-            fromImages = new LinkedList<>();
-            String baseImage = extractBaseFromConfiguration(buildConfig);
-            if (baseImage != null) {
-                fromImages.add(extractBaseFromConfiguration(buildConfig));
-            }
-        }
-        for (String fromImage : fromImages) {
+        for (String fromImage : extractBaseImages(buildConfig, buildContext)) {
             if (fromImage != null && !DockerAssemblyManagerInterface.SCRATCH_IMAGE.equals(fromImage)) {
+                awaitPrefetch(fromImage);
                 registryService.pullImageWithPolicy(fromImage, imagePullManager, buildContext.getRegistryConfig(), queryService.hasImage(fromImage));
             }
         }
@@ -394,6 +705,7 @@ public class BuildService {
         }
 
         for (String cacheFromImage : imageConfig.getBuildConfiguration().getCacheFrom()) {
+            awaitPrefetch(cacheFromImage);
             try {
                 registryService.pullImageWithPolicy(cacheFromImage, imagePullManager, buildContext.getRegistryConfig(), queryService.hasImage(cacheFromImage));
             } catch (DockerAccessException e) {
@@ -402,6 +714,63 @@ public class BuildService {
         }
     }
 
+    // Wait for a pull started by prefetchImages(). The pull policy is checked again by the caller afterwards,
+    // which also repeats a failed pull so that the error is reported for the image to build.
+    private void awaitPrefetch(String image) throws MojoExecutionException {
+        Future<?> pull = prefetchedPulls.get(image);
+        if (pull == null) {
+            return;
+        }
+        try {
+            pull.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for the pull of " + image, e);
+        } catch (ExecutionException | CancellationException e) {
+            log.debug("Pull of %s in the background failed: %s", image, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
+
+    private static String normalizeImageName(String image) {
+        try {
+            return new ImageName(image).getFullName();
+        } catch (IllegalArgumentException e) {
+            return image;
+        }
+    }
+
+    private static ExecutorService createPrefetchExecutor(int threads) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "docker-pull-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the base images of an image, either from the <code>FROM</code> lines of its Dockerfile or from
+     * the build configuration.
+     *
+     * @param buildConfig the build configuration of the image
+     * @param buildContext the build context
+     * @return base images, empty if the image is loaded from an archive
+     */
+    public List<String> extractBaseImages(BuildImageConfiguration buildConfig, BuildContext buildContext) {
+        if (buildConfig.getDockerArchive() != null) {
+            return Collections.emptyList();
+        }
+        if (buildConfig.isDockerFileMode()) {
+            return extractBaseFromDockerfile(buildConfig, buildContext);
+        }
+        List<String> fromImages = new LinkedList<>();
+        String baseImage = extractBaseFromConfiguration(buildConfig);
+        if (baseImage != null) {
+            fromImages.add(baseImage);
+        }
+        return fromImages;
+    }
+
     private String extractBaseFromConfiguration(BuildImageConfiguration buildConfig) {
         String fromImage;
         fromImage = buildConfig.getFrom();
@@ -431,26 +800,30 @@ public class BuildService {
     }
 
     private boolean checkForNocache(ImageConfiguration imageConfig) {
-        String noCache = System.getProperty("docker.noCache");
-        if (noCache == null) {
-            noCache = System.getProperty("docker.nocache");
-        }
-        if (noCache != null) {
-            return noCache.length() == 0 || Boolean.valueOf(noCache);
-        } else {
-            BuildImageConfiguration buildConfig = imageConfig.getBuildConfiguration();
-            return buildConfig.noCache();
-        }
+        Boolean noCache = getBooleanSystemProperty("docker.noCache", "docker.nocache");
+        return noCache != null ? noCache : imageConfig.getBuildConfiguration().noCache();
     }
 
     private boolean checkForSquash(ImageConfiguration imageConfig) {
-        String squash = System.getProperty("docker.squash");
-        if (squash != null) {
-            return squash.length() == 0 || Boolean.valueOf(squash);
-        } else {
-            BuildImageConfiguration buildConfig = imageConfig.getBuildConfiguration();
-            return buildConfig.squash();
+        Boolean squash = getBooleanSystemProperty("docker.squash");
+        return squash != null ? squash : imageConfig.getBuildConfiguration().squash();
+    }
+
+    private boolean checkForBuildKit(BuildImageConfiguration buildConfig) {
+        Boolean buildKit = getBooleanSystemProperty("docker.buildKit");
+        return buildKit != null ? buildKit : buildConfig.buildKit();
+    }
+
+    // Value of the first of the given system properties which is set, an empty value counting as true.
+    // Returns null if none is set, so that the configuration is used.
+    private Boolean getBooleanSystemProperty(String ... names) {
+        for (String name : names) {
+            String value = System.getProperty(name);
+            if (value != null) {
+                return value.length() == 0 || Boolean.valueOf(value);
+            }
         }
+        return null;
     }
 
     private boolean isEmpty(String str) {
@@ -469,6 +842,10 @@ public class BuildService {
 
         private RegistryService.RegistryConfig registryConfig;
 
+        private boolean buildReport;
+
+        private int compressionThreads;
+
         public BuildContext() {
         }
 
@@ -484,6 +861,14 @@ public class BuildService {
             return registryConfig;
         }
 
+        public boolean isBuildReport() {
+            return buildReport;
+        }
+
+        public int getCompressionThreads() {
+            return compressionThreads;
+        }
+
         public static class Builder {
 
             private BuildContext context;
@@ -511,6 +896,16 @@ public class BuildService {
                 return this;
             }
 
+            public Builder buildReport(boolean buildReport) {
+                context.buildReport = buildReport;
+                return this;
+            }
+
+            public Builder compressionThreads(int compressionThreads) {
+                context.compressionThreads = compressionThreads;
+                return this;
+            }
+
             public BuildContext build() {
                 return context;
             }
@@ -16,6 +16,7 @@ import io.fabric8.maven.docker.config.DockerMachineConfiguration;
 import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.Logger;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.codehaus.plexus.component.annotations.Component;
@@ -27,7 +28,48 @@ import org.codehaus.plexus.component.annotations.Component;
 public class DockerAccessFactory {
 
     public DockerAccess createDockerAccess(DockerAccessContext dockerAccessContext) throws MojoExecutionException, MojoFailureException {
+        DockerAccessRegistry.SharedAccess connection = connect(dockerAccessContext, dockerAccessContext.getLog());
+        setDockerHostAddressProperty(dockerAccessContext, connection.getUrl());
+        return connection.getAccess();
+    }
 
+    /**
+     * Get a docker access object which is shared with other mojo executions of the given session
+     * connecting to the same Docker host, if a {@link DockerAccessRegistry} is installed in the session.
+     * The returned object must be handed back with {@link #releaseDockerAccess(DockerAccess, MavenSession)}
+     * instead of shutting it down.
+     *
+     * @param dockerAccessContext context for creating the access object
+     * @param session the current session holding the shared objects
+     * @return shared access object
+     */
+    public DockerAccess acquireDockerAccess(DockerAccessContext dockerAccessContext, MavenSession session) throws MojoExecutionException, MojoFailureException {
+        DockerAccessRegistry registry = DockerAccessRegistry.fromSession(session);
+        String key = dockerAccessContext.getSharingKey();
+        if (registry == null || key == null) {
+            return createDockerAccess(dockerAccessContext);
+        }
+        DockerAccessRegistry.SharedAccess connection =
+            registry.acquire(key, dockerAccessContext.getLog(), log -> connect(dockerAccessContext, log));
+        setDockerHostAddressProperty(dockerAccessContext, connection.getUrl());
+        return connection.getAccess();
+    }
+
+    /**
+     * Release an access object obtained from {@link #acquireDockerAccess(DockerAccessContext, MavenSession)}.
+     * A shared object is shut down when the session ends, any other object right away.
+     *
+     * @param access access object to release
+     * @param session the current session
+     */
+    public void releaseDockerAccess(DockerAccess access, MavenSession session) {
+        DockerAccessRegistry registry = DockerAccessRegistry.fromSession(session);
+        if (registry == null || !registry.release(access)) {
+            access.shutdown();
+        }
+    }
+
+    private DockerAccessRegistry.SharedAccess connect(DockerAccessContext dockerAccessContext, Logger log) throws MojoExecutionException {
         try {
             DockerConnectionDetector dockerConnectionDetector = createDockerConnectionDetector(dockerAccessContext, dockerAccessContext.getLog());
             DockerConnectionDetector.ConnectionParameter connectionParam =
@@ -35,14 +77,12 @@ public class DockerAccessFactory {
             DockerAccess access = new DockerAccessWithHcClient(connectionParam.getUrl(),
                     connectionParam.getCertPath(),
                     dockerAccessContext.getMaxConnections(),
-                    dockerAccessContext.getLog());
+                    log);
             access.start();
-            setDockerHostAddressProperty(dockerAccessContext, connectionParam.getUrl());
-            return access;
+            return new DockerAccessRegistry.SharedAccess(access, connectionParam.getUrl());
         } catch (IOException e) {
             throw new MojoExecutionException("Cannot create docker access object ", e);
         }
-
     }
 
     private DockerConnectionDetector createDockerConnectionDetector(DockerAccessContext dockerAccessContext, Logger log) {
@@ -164,6 +204,24 @@ public class DockerAccessFactory {
             return log;
         }
 
+        /**
+         * Key under which an access object created from this context can be shared. Contexts
+         * with custom host providers are not shared.
+         *
+         * @return key or <code>null</code> if the access object must not be shared
+         */
+        public String getSharingKey() {
+            if (dockerHostProviders != null) {
+                return null;
+            }
+            return String.join("|",
+                               String.valueOf(dockerHost),
+                               String.valueOf(certPath),
+                               String.valueOf(minimalApiVersion),
+                               String.valueOf(maxConnections),
+                               skipMachine || machine == null ? "" : String.valueOf(machine.getName()));
+        }
+
         public static class Builder {
 
             private DockerAccessContext context = new DockerAccessContext();
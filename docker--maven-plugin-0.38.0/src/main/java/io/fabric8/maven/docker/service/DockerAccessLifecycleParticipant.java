@@ -0,0 +1,28 @@
+package io.fabric8.maven.docker.service;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * Installs a {@link DockerAccessRegistry} into the session, so that the mojo executions of the session share
+ * their connections to the Docker daemon, and shuts the connections down when the session ends. Only active
+ * when the plugin is declared with <code>&lt;extensions&gt;true&lt;/extensions&gt;</code>, otherwise each mojo
+ * execution uses its own connection.
+ */
+@Component(role = AbstractMavenLifecycleParticipant.class, hint = "docker-access")
+public class DockerAccessLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+    @Override
+    public void afterProjectsRead(MavenSession session) {
+        DockerAccessRegistry.install(session);
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        DockerAccessRegistry registry = DockerAccessRegistry.fromSession(session);
+        if (registry != null) {
+            registry.shutdown();
+        }
+    }
+}
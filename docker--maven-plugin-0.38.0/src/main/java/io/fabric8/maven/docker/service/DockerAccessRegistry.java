@@ -0,0 +1,230 @@
+package io.fabric8.maven.docker.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.util.Logger;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Registry of {@link DockerAccess} objects which are shared between all mojo executions
+ * of a Maven session, so that the HTTP connection pool, the connection detection and the
+ * negotiated API version are reused across modules and goals. The registry is installed into the
+ * session by {@link DockerAccessLifecycleParticipant}, which also shuts down all access objects
+ * when the session ends.
+ */
+public class DockerAccessRegistry {
+
+    private static final String SESSION_KEY = DockerAccessRegistry.class.getName();
+
+    private final Map<String, SharedAccess> accessByKey = new HashMap<>();
+
+    private final SessionLogger log = new SessionLogger();
+
+    /**
+     * Install a new registry into the given session, if none is installed yet
+     *
+     * @param session current session
+     * @return the installed registry or <code>null</code> if the session can not hold a registry
+     */
+    public static DockerAccessRegistry install(MavenSession session) {
+        SessionData data = getSessionData(session);
+        if (data == null) {
+            return null;
+        }
+        data.set(SESSION_KEY, null, new DockerAccessRegistry());
+        return fromSession(session);
+    }
+
+    /**
+     * Get the registry installed into the given session
+     *
+     * @param session current session
+     * @return the registry or <code>null</code> if no registry has been installed
+     */
+    public static DockerAccessRegistry fromSession(MavenSession session) {
+        SessionData data = getSessionData(session);
+        Object existing = data != null ? data.get(SESSION_KEY) : null;
+        // Could be a registry from another version of this plugin living in a different class realm
+        return existing instanceof DockerAccessRegistry ? (DockerAccessRegistry) existing : null;
+    }
+
+    private static SessionData getSessionData(MavenSession session) {
+        RepositorySystemSession repoSession = session != null ? session.getRepositorySession() : null;
+        return repoSession != null ? repoSession.getData() : null;
+    }
+
+    /**
+     * Get the access object for the given key or create a new one. Each call must be paired
+     * with a call to {@link #release(DockerAccess)} from the same thread.
+     *
+     * @param key key identifying the connection (host, cert path, API version)
+     * @param executionLog logger of the calling mojo execution, used for the output of the access object
+     *                     on the current thread and the threads started by it until the object is released
+     * @param creator used for creating a new access object if none is registered yet
+     * @return the shared access object along with the URL it is connected to
+     */
+    public SharedAccess acquire(String key, Logger executionLog, Creator creator) throws MojoExecutionException, MojoFailureException {
+        log.attach(executionLog);
+        synchronized (this) {
+            SharedAccess shared = accessByKey.get(key);
+            if (shared == null) {
+                shared = creator.create(log);
+                accessByKey.put(key, shared);
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * Release an access object obtained by {@link #acquire(String, Logger, Creator)}. The access object
+     * is kept open for other executions until the session ends.
+     *
+     * @param access access object to release
+     * @return true if the access object is managed by this registry, false if the caller must shut it down itself
+     */
+    public boolean release(DockerAccess access) {
+        log.detach();
+        synchronized (this) {
+            for (SharedAccess shared : accessByKey.values()) {
+                if (shared.access == access) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Shut down all registered access objects
+     */
+    public void shutdown() {
+        List<SharedAccess> toShutdown;
+        synchronized (this) {
+            toShutdown = new ArrayList<>(accessByKey.values());
+            accessByKey.clear();
+        }
+        for (SharedAccess shared : toShutdown) {
+            shared.access.shutdown();
+        }
+    }
+
+    // ===========================================
+
+    /**
+     * Creates a new access object when none is registered for a key
+     */
+    public interface Creator {
+        /**
+         * @param log session wide logger, which writes to the logger of the mojo execution using the access object
+         */
+        SharedAccess create(Logger log) throws MojoExecutionException, MojoFailureException;
+    }
+
+    /**
+     * A shared access object along with the URL of the Docker daemon it is connected to
+     */
+    public static class SharedAccess {
+
+        private final DockerAccess access;
+        private final String url;
+
+        public SharedAccess(DockerAccess access, String url) {
+            this.access = access;
+            this.url = url;
+        }
+
+        public DockerAccess getAccess() {
+            return access;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+    }
+
+    // Logger of the shared access objects, which delegates to the logger of the mojo execution running on the
+    // current thread. Threads not started by an execution, like the ones of the HTTP client, use the logger of
+    // the execution which acquired an access object last.
+    private static class SessionLogger implements Logger {
+
+        private final InheritableThreadLocal<Logger> threadLog = new InheritableThreadLocal<>();
+        private volatile Logger lastLog;
+
+        void attach(Logger executionLog) {
+            threadLog.set(executionLog);
+            lastLog = executionLog;
+        }
+
+        void detach() {
+            threadLog.remove();
+        }
+
+        private Logger delegate() {
+            Logger ret = threadLog.get();
+            return ret != null ? ret : lastLog;
+        }
+
+        @Override
+        public void debug(String format, Object... params) {
+            delegate().debug(format, params);
+        }
+
+        @Override
+        public void info(String format, Object... params) {
+            delegate().info(format, params);
+        }
+
+        @Override
+        public void verbose(LogVerboseCategory logVerboseCategory, String format, Object... params) {
+            delegate().verbose(logVerboseCategory, format, params);
+        }
+
+        @Override
+        public void warn(String format, Object... params) {
+            delegate().warn(format, params);
+        }
+
+        @Override
+        public void error(String format, Object... params) {
+            delegate().error(format, params);
+        }
+
+        @Override
+        public String errorMessage(String message) {
+            return delegate().errorMessage(message);
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return delegate().isDebugEnabled();
+        }
+
+        @Override
+        public boolean isVerboseEnabled() {
+            return delegate().isVerboseEnabled();
+        }
+
+        @Override
+        public void progressStart() {
+            delegate().progressStart();
+        }
+
+        @Override
+        public void progressUpdate(String layerId, String status, String progressMessage) {
+            delegate().progressUpdate(layerId, status, progressMessage);
+        }
+
+        @Override
+        public void progressFinished() {
+            delegate().progressFinished();
+        }
+    }
+}
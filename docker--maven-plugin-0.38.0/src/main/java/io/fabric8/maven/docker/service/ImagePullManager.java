@@ -14,6 +14,9 @@ public class ImagePullManager {
     // Key for the previously used image cache
     private static final String CONTEXT_KEY_PREVIOUSLY_PULLED = "CONTEXT_KEY_PREVIOUSLY_PULLED";
 
+    // The pull managers of a session share the cache, and images can be pulled concurrently
+    private static final Object CACHE_LOCK = new Object();
+
     // image pull policy
     private final ImagePullPolicy imagePullPolicy;
 
@@ -48,11 +51,15 @@ public class ImagePullManager {
     }
 
     public boolean hasAlreadyPulled(String image) {
-        return load().has(image);
+        synchronized (CACHE_LOCK) {
+            return load().has(image);
+        }
     }
 
     public void pulled(String image) {
-        save(load().add(image));
+        synchronized (CACHE_LOCK) {
+            save(load().add(image));
+        }
     }
 
 
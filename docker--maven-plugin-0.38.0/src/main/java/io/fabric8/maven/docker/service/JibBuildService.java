@@ -113,7 +113,7 @@ public class JibBuildService {
         final String targetImage = imageConfig.getName();
         return serviceHub
                 .getDockerAssemblyManager()
-                .createDockerTarArchive(targetImage, configuration, imageConfig.getBuildConfiguration(), log, null);
+                .createDockerTarArchiveWithBuildDirectory(targetImage, configuration, imageConfig.getBuildConfiguration(), log);
     }
 
     static Credential getRegistryCredentials(
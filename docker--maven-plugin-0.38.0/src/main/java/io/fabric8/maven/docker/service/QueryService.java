@@ -4,6 +4,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import io.fabric8.maven.docker.access.ContainerFilter;
 import io.fabric8.maven.docker.access.DockerAccess;
 import io.fabric8.maven.docker.access.DockerAccessException;
 import io.fabric8.maven.docker.model.Container;
@@ -99,6 +100,18 @@ public class QueryService {
         return docker.listContainers(all);
     }
 
+    /**
+     * List the containers on the Docker server which match a filter. The filter is applied by the server.
+     *
+     * @param all if true, list stopped containers as well as running containers.
+     * @param filter filter to apply
+     * @return list of <code>Container</code> objects
+     * @throws DockerAccessException if the request fails
+     */
+    public List<Container> listContainers(final boolean all, final ContainerFilter filter) throws DockerAccessException {
+        return docker.listContainers(all, filter);
+    }
+
     /**
      * Get all containers which are build from an image. By default only the last containers are considered but this
      * can be tuned with a global parameters.
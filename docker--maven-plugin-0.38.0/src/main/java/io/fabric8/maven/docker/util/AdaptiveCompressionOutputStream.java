@@ -0,0 +1,80 @@
+package io.fabric8.maven.docker.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.fabric8.maven.docker.config.ArchiveCompression;
+
+/**
+ * Output stream which holds back the first bytes written, lets a {@link CompressionSelector} choose
+ * the compression based on them and then writes everything with this compression.
+ */
+public class AdaptiveCompressionOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final CompressionSelector selector;
+
+    private byte[] sample = new byte[CompressionSelector.SAMPLE_SIZE];
+    private int sampleLength;
+
+    private ArchiveCompression selected;
+    private OutputStream target;
+
+    public AdaptiveCompressionOutputStream(OutputStream out, CompressionSelector selector) {
+        this.out = out;
+        this.selector = selector;
+    }
+
+    /**
+     * @return the selected compression or <code>null</code> if not selected yet
+     */
+    public ArchiveCompression getSelectedCompression() {
+        return selected;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (target == null) {
+            int chunk = Math.min(len, sample.length - sampleLength);
+            System.arraycopy(b, off, sample, sampleLength, chunk);
+            sampleLength += chunk;
+            if (sampleLength < sample.length) {
+                return;
+            }
+            select();
+            off += chunk;
+            len -= chunk;
+        }
+        if (len > 0) {
+            target.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Before the selection there is nothing which could be passed on
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (target == null) {
+            select();
+        }
+        target.close();
+    }
+
+    private void select() throws IOException {
+        selected = selector.select(sample, sampleLength);
+        target = selected.wrapOutputStream(out, selector.getThreads());
+        target.write(sample, 0, sampleLength);
+        sample = null;
+    }
+}
@@ -51,6 +51,9 @@ public class AnsiLogger implements Logger, Closeable {
             COLOR_EMPHASIS = BLUE;
 
 
+    // Additional prefix for messages of the current thread, shared by all loggers
+    private static final ThreadLocal<String> THREAD_PREFIX = new ThreadLocal<>();
+
     // Map remembering lines
     private ThreadLocal<Map<String, Integer>> imageLines = new ThreadLocal<>();
     private ThreadLocal<AtomicInteger> updateCount = new ThreadLocal<>();
@@ -89,12 +92,27 @@ public class AnsiLogger implements Logger, Closeable {
         }
     }
 
+    /**
+     * Set an additional prefix for all messages logged by the current thread, e.g. when building
+     * several images concurrently. Progress bars are not shown for such threads since they would
+     * get mixed up with the output of other threads.
+     *
+     * @param prefix prefix to add or <code>null</code> for removing it
+     */
+    public static void setThreadPrefix(String prefix) {
+        if (prefix != null) {
+            THREAD_PREFIX.set(prefix);
+        } else {
+            THREAD_PREFIX.remove();
+        }
+    }
+
     /** {@inheritDoc} */
     public void debug(String message, Object ... params) {
         if (isDebugEnabled()) {
             logOrPrintToFile(
                     log -> true,
-                    log -> log.debug(prefix + format(message, params)),
+                    log -> log.debug(getPrefix() + format(message, params)),
                     message,
                     params);
         }
@@ -114,7 +132,7 @@ public class AnsiLogger implements Logger, Closeable {
         if (isVerbose && verboseModes != null && verboseModes.contains(logVerboseCategory)) {
             logOrPrintToFile(
                     log -> true,
-                    log -> log.info(ansi().fgBright(BLACK).a(prefix).a(format(message, params)).reset().toString()),
+                    log -> log.info(ansi().fgBright(BLACK).a(getPrefix()).a(format(message, params)).reset().toString()),
                     message,
                     params);
         }
@@ -159,7 +177,7 @@ public class AnsiLogger implements Logger, Closeable {
      */
     public void progressStart() {
         // A progress indicator is always written out to standard out if a tty is enabled.
-        if (!batchMode && log.isInfoEnabled()) {
+        if (isProgressEnabled()) {
             imageLines.remove();
             updateCount.remove();
             imageLines.set(new HashMap<String, Integer>());
@@ -171,7 +189,7 @@ public class AnsiLogger implements Logger, Closeable {
      * Update the progress
      */
     public void progressUpdate(String layerId, String status, String progressMessage) {
-        if (!batchMode && log.isInfoEnabled() && StringUtils.isNotEmpty(layerId)) {
+        if (isProgressEnabled() && StringUtils.isNotEmpty(layerId)) {
             if (useAnsi) {
                 updateAnsiProgress(layerId, status, progressMessage);
             } else {
@@ -229,7 +247,7 @@ public class AnsiLogger implements Logger, Closeable {
      * Finis progress meter. Must be always called if {@link #progressStart()} has been used.
      */
     public void progressFinished() {
-        if (!batchMode && log.isInfoEnabled()) {
+        if (isProgressEnabled()) {
             imageLines.remove();
             print(ansi().reset().toString());
             if (!useAnsi) {
@@ -238,6 +256,15 @@ public class AnsiLogger implements Logger, Closeable {
         }
     }
 
+    private boolean isProgressEnabled() {
+        return !batchMode && log.isInfoEnabled() && THREAD_PREFIX.get() == null;
+    }
+
+    private String getPrefix() {
+        String additionalPrefix = THREAD_PREFIX.get();
+        return additionalPrefix != null ? prefix + additionalPrefix : prefix;
+    }
+
     private void flush() {
         System.out.flush();
     }
@@ -269,7 +296,7 @@ public class AnsiLogger implements Logger, Closeable {
 
     private String colored(String message, Ansi.Color color, boolean addPrefix, Object ... params) {
         Ansi ansi = ansi().fg(color);
-        String msgToPrint = addPrefix ? prefix + message : message;
+        String msgToPrint = addPrefix ? getPrefix() + message : message;
         return ansi.a(format(evaluateEmphasis(msgToPrint, color), params)).reset().toString();
     }
 
@@ -391,7 +418,8 @@ public class AnsiLogger implements Logger, Closeable {
 
     private void logOrPrintToFile(Predicate<Log> logPredicate, Consumer<Log> logConsumer, String message, Object ... params) {
         if (outputFile != null && logPredicate.test(log)) {
-            pw.println(format(message, params));
+            String additionalPrefix = THREAD_PREFIX.get();
+            pw.println((additionalPrefix != null ? additionalPrefix : "") + format(message, params));
         } else {
             logConsumer.accept(log);
         }
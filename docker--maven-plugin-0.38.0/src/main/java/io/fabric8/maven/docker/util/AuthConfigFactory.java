@@ -57,6 +57,10 @@ public class AuthConfigFactory {
     private final PlexusContainer container;
 
     private Logger log;
+
+    private CredentialHelperCache credentialHelperCache;
+    private long credentialHelperCacheTtl;
+
     private static final String[] DEFAULT_REGISTRIES = new String[]{
             "docker.io", "index.docker.io", "registry.hub.docker.com"
     };
@@ -74,6 +78,17 @@ public class AuthConfigFactory {
         this.log = log;
     }
 
+    /**
+     * Set the cache for the answers of credential helpers
+     *
+     * @param credentialHelperCache cache shared within the session, can be <code>null</code>
+     * @param ttlSeconds time in seconds for which answers are reused, answers are not cached if not positive
+     */
+    public void setCredentialHelperCache(CredentialHelperCache credentialHelperCache, long ttlSeconds) {
+        this.credentialHelperCache = credentialHelperCache;
+        this.credentialHelperCacheTtl = ttlSeconds;
+    }
+
     /**
      * Create an authentication config object which can be used for communication with a Docker registry
      *
@@ -530,7 +545,7 @@ public class AuthConfigFactory {
     }
 
     private AuthConfig extractAuthConfigFromCredentialsHelper(String registryToLookup, String credConfig) throws MojoExecutionException {
-        CredentialHelperClient credentialHelper = new CredentialHelperClient(log, credConfig);
+        CredentialHelperClient credentialHelper = new CredentialHelperClient(log, credConfig, credentialHelperCache, credentialHelperCacheTtl);
         String version = credentialHelper.getVersion();
         log.debug("AuthConfig: credentials from credential helper/store %s%s",
                   credentialHelper.getName(),
@@ -0,0 +1,112 @@
+package io.fabric8.maven.docker.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.config.ImageConfiguration;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Resolve the dependencies between images to build, which are given by base images referring to
+ * other images of the same build. Images without dependencies between each other can be built
+ * concurrently.
+ */
+public class BuildOrderResolver {
+
+    private BuildOrderResolver() {
+    }
+
+    /**
+     * Resolve which of the given images have to be built before each image.
+     *
+     * @param images images to build, in the configured order
+     * @param extractor extractor for the base images of an image
+     * @return map, ordered like the given images, from each image to the images it depends on
+     * @throws MojoExecutionException if the images depend on each other in a cycle
+     */
+    public static Map<ImageConfiguration, Set<ImageConfiguration>> resolve(List<ImageConfiguration> images,
+                                                                           BaseImageExtractor extractor)
+            throws MojoExecutionException {
+        Map<String, ImageConfiguration> imagesByName = new HashMap<>();
+        for (ImageConfiguration image : images) {
+            for (String name : getNames(image)) {
+                imagesByName.put(name, image);
+            }
+        }
+
+        Map<ImageConfiguration, Set<ImageConfiguration>> dependencies = new LinkedHashMap<>();
+        for (ImageConfiguration image : images) {
+            Set<ImageConfiguration> baseImages = new LinkedHashSet<>();
+            for (String baseImage : extractor.extractBaseImages(image)) {
+                ImageConfiguration dependency = baseImage != null ? imagesByName.get(normalize(baseImage)) : null;
+                if (dependency != null && dependency != image) {
+                    baseImages.add(dependency);
+                }
+            }
+            dependencies.put(image, baseImages);
+        }
+        checkForCycles(dependencies);
+        return dependencies;
+    }
+
+    // All names under which an image is available after its build
+    private static List<String> getNames(ImageConfiguration image) {
+        List<String> names = new ArrayList<>();
+        names.add(normalize(image.getName()));
+        BuildImageConfiguration buildConfig = image.getBuildConfiguration();
+        if (buildConfig != null && buildConfig.getTags() != null) {
+            for (String tag : buildConfig.getTags()) {
+                names.add(new ImageName(image.getName(), tag).getFullName());
+            }
+        }
+        return names;
+    }
+
+    private static String normalize(String name) {
+        try {
+            return new ImageName(name).getFullName();
+        } catch (IllegalArgumentException exp) {
+            // Not a valid image name (e.g. not interpolated), so it can't refer to one of our images
+            return name;
+        }
+    }
+
+    private static void checkForCycles(Map<ImageConfiguration, Set<ImageConfiguration>> dependencies)
+            throws MojoExecutionException {
+        Set<ImageConfiguration> resolved = new HashSet<>();
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Map.Entry<ImageConfiguration, Set<ImageConfiguration>> entry : dependencies.entrySet()) {
+                if (!resolved.contains(entry.getKey()) && resolved.containsAll(entry.getValue())) {
+                    resolved.add(entry.getKey());
+                    progress = true;
+                }
+            }
+        }
+        if (resolved.size() < dependencies.size()) {
+            StringBuilder remaining = new StringBuilder();
+            for (ImageConfiguration image : dependencies.keySet()) {
+                if (!resolved.contains(image)) {
+                    remaining.append("     ").append(image.getDescription()).append("\n");
+                }
+            }
+            throw new MojoExecutionException("Cannot resolve build order because of cyclic base image references\n" + remaining);
+        }
+    }
+
+    /**
+     * Extractor for the base images of an image, e.g. from the <code>FROM</code> lines of a Dockerfile.
+     */
+    @FunctionalInterface
+    public interface BaseImageExtractor {
+        List<String> extractBaseImages(ImageConfiguration image);
+    }
+}
@@ -0,0 +1,147 @@
+package io.fabric8.maven.docker.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import io.fabric8.maven.docker.access.DockerTransport;
+import io.fabric8.maven.docker.config.ArchiveCompression;
+
+/**
+ * Selects the compression for an archive in <code>auto</code> mode. Uploads to a local daemon are never
+ * compressed. Otherwise a sample from the start of the archive is compressed to find out how well the
+ * archive compresses and how fast this is. Compression is chosen if it saves enough and, once uploads
+ * have been measured on this connection, if compressing is faster than sending the saved bytes.
+ */
+public class CompressionSelector {
+
+    // Size of the archive prefix to sample
+    static final int SAMPLE_SIZE = 1024 * 1024;
+
+    // Compression must shrink the data at least to this ratio to be worth it
+    private static final double MAX_RATIO = 0.9;
+
+    // Same level as used for gzip compression
+    private static final int SAMPLE_LEVEL = 3;
+
+    private final DockerTransport transport;
+    private final Logger log;
+    private final int threads;
+
+    private volatile ArchiveCompression selected = ArchiveCompression.none;
+
+    /**
+     * Create a selector which compresses with all available processors
+     *
+     * @param transport transport to the daemon the archive is sent to, <code>null</code> if the archive is not uploaded
+     * @param log logger for reporting the selection, can be <code>null</code>
+     */
+    public CompressionSelector(DockerTransport transport, Logger log) {
+        this(transport, log, 0);
+    }
+
+    /**
+     * Create a selector
+     *
+     * @param transport transport to the daemon the archive is sent to, <code>null</code> if the archive is not uploaded
+     * @param log logger for reporting the selection, can be <code>null</code>
+     * @param threads number of threads for {@link ArchiveCompression#pgzip}, all available processors if not positive
+     */
+    public CompressionSelector(DockerTransport transport, Logger log, int threads) {
+        this.transport = transport;
+        this.log = log;
+        this.threads = ArchiveCompression.resolveThreads(threads);
+    }
+
+    /**
+     * @return the compression selected last, {@link ArchiveCompression#none} if nothing has been selected yet
+     */
+    public ArchiveCompression getSelected() {
+        return selected;
+    }
+
+    /**
+     * @return number of threads to compress the archive with
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Select the compression for an archive
+     *
+     * @param sample data from the beginning of the archive
+     * @param length number of bytes in the sample
+     * @return compression to use, never {@link ArchiveCompression#auto}
+     */
+    public ArchiveCompression select(byte[] sample, int length) {
+        selected = doSelect(sample, length);
+        return selected;
+    }
+
+    private ArchiveCompression doSelect(byte[] sample, int length) {
+        if (transport != null && transport.isLocal()) {
+            report(ArchiveCompression.none, "local daemon");
+            return ArchiveCompression.none;
+        }
+        if (length == 0) {
+            return ArchiveCompression.none;
+        }
+
+        long start = System.nanoTime();
+        long compressed = compressedLength(sample, length);
+        long nanos = Math.max(1, System.nanoTime() - start);
+
+        double ratio = (double) compressed / length;
+        double compressSpeed = (double) length * TimeUnit.SECONDS.toNanos(1) / nanos * threads;
+        long uploadThroughput = transport != null ? transport.getUploadThroughput() : -1;
+        ArchiveCompression choice = select(ratio, compressSpeed, uploadThroughput);
+        report(choice, String.format("%s, sample compressed to %d%% at %.1f MB/s",
+                                       transport != null ? transport : "no upload",
+                                       Math.round(ratio * 100), compressSpeed / (1024 * 1024)));
+        return choice;
+    }
+
+    /**
+     * Decide on the compression
+     *
+     * @param ratio compressed size divided by the uncompressed size
+     * @param compressSpeed bytes per second which can be compressed
+     * @param uploadThroughput bytes per second which can be uploaded, -1 if not known
+     * @return compression to use
+     */
+    static ArchiveCompression select(double ratio, double compressSpeed, long uploadThroughput) {
+        if (ratio > MAX_RATIO) {
+            return ArchiveCompression.none;
+        }
+        if (uploadThroughput <= 0) {
+            // Not measured yet, the link to a remote daemon is most likely slower than compressing
+            return ArchiveCompression.pgzip;
+        }
+        // Compressing and sending run concurrently, so the slower one determines the time per byte
+        double plainTime = 1.0 / uploadThroughput;
+        double compressedTime = Math.max(1.0 / compressSpeed, ratio / uploadThroughput);
+        return compressedTime < plainTime ? ArchiveCompression.pgzip : ArchiveCompression.none;
+    }
+
+    private long compressedLength(byte[] sample, int length) {
+        Deflater deflater = new Deflater(SAMPLE_LEVEL, true);
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[64 * 1024];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void report(ArchiveCompression selected, String reason) {
+        if (log != null) {
+            log.info("Selected compression '%s' for build archive (%s)", selected, reason);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.fabric8.maven.docker.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Answers of credential helpers, shared by all mojo executions of a Maven session so that a helper
+ * is not called again for each module. The cache is stored in the session data and ends with the session.
+ * Each lookup decides itself how old an answer may be, so that every execution applies its own time to live.
+ */
+public class CredentialHelperCache {
+
+    private static final String SESSION_KEY = CredentialHelperCache.class.getName();
+
+    private final Map<String, Answer> answers = new ConcurrentHashMap<>();
+
+    /**
+     * Get the cache of the given session, which is created on first use
+     *
+     * @param session current session
+     * @return the cache of the session or a new cache used only by the caller if the session can not hold one
+     */
+    public static CredentialHelperCache fromSession(MavenSession session) {
+        RepositorySystemSession repoSession = session != null ? session.getRepositorySession() : null;
+        SessionData data = repoSession != null ? repoSession.getData() : null;
+        if (data == null) {
+            return new CredentialHelperCache();
+        }
+        data.set(SESSION_KEY, null, new CredentialHelperCache());
+        Object existing = data.get(SESSION_KEY);
+        // Could be a cache from another version of this plugin living in a different class realm
+        return existing instanceof CredentialHelperCache ? (CredentialHelperCache) existing : new CredentialHelperCache();
+    }
+
+    /**
+     * Get a cached answer
+     *
+     * @param key key of the answer
+     * @param maxAgeMillis maximum age of the answer in milliseconds
+     * @return the answer or <code>null</code> if there is none which is recent enough
+     */
+    Object get(String key, long maxAgeMillis) {
+        Answer answer = answers.get(key);
+        return answer != null && answer.created + maxAgeMillis > System.currentTimeMillis() ? answer.value : null;
+    }
+
+    /**
+     * Store an answer
+     *
+     * @param key key of the answer
+     * @param value answer to store, must not be <code>null</code>
+     */
+    void put(String key, Object value) {
+        answers.put(key, new Answer(value));
+    }
+
+    private static final class Answer {
+        private final Object value;
+        private final long created;
+
+        Answer(Object value) {
+            this.value = value;
+            this.created = System.currentTimeMillis();
+        }
+    }
+}
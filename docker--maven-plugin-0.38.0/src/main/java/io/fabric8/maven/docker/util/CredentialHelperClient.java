@@ -8,6 +8,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import io.fabric8.maven.docker.access.AuthConfig;
 import io.fabric8.maven.docker.access.util.ExternalCommand;
@@ -21,9 +22,27 @@ public class CredentialHelperClient {
     private final String credentialHelperName;
     private final Logger log;
 
+    // Answers of earlier calls, null if answers are not cached
+    private final CredentialHelperCache cache;
+    private final long cacheTtlMillis;
+
     public CredentialHelperClient(Logger log, String credentialsStore) {
+        this(log, credentialsStore, null, 0);
+    }
+
+    /**
+     * Create a client which reuses the answers of the helper
+     *
+     * @param log logger
+     * @param credentialsStore name of the credentials store
+     * @param cache cache for the answers of the helper, can be <code>null</code>
+     * @param cacheTtlSeconds time in seconds for which answers are reused, answers are not cached if not positive
+     */
+    public CredentialHelperClient(Logger log, String credentialsStore, CredentialHelperCache cache, long cacheTtlSeconds) {
         this.log = log;
         credentialHelperName = "docker-credential-" + credentialsStore;
+        this.cache = cacheTtlSeconds > 0 ? cache : null;
+        this.cacheTtlMillis = TimeUnit.SECONDS.toMillis(Math.max(cacheTtlSeconds, 0));
     }
 
     public String getName() {
@@ -31,25 +50,50 @@ public class CredentialHelperClient {
     }
 
     public String getVersion() {
+        String version = (String) getCached("version");
+        if (version != null) {
+            return version;
+        }
         try {
-            return new VersionCommand().getVersion();
+            version = new VersionCommand().getVersion();
+            putCached("version", version);
+            return version;
         } catch (IOException e) {
             return null;
         }
     }
 
     public AuthConfig getAuthConfig(String registryToLookup) throws MojoExecutionException {
+        String key = "get:" + registryToLookup;
+        AuthConfig cached = (AuthConfig) getCached(key);
+        if (cached != null) {
+            log.debug("AuthConfig: reusing credentials for %s from %s", registryToLookup, credentialHelperName);
+            return cached;
+        }
         try {
             JsonObject creds = new GetCommand().getCredentialNode(registryToLookup);
             if (creds == null) {
                 creds = new GetCommand().getCredentialNode(EnvUtil.ensureRegistryHttpUrl(registryToLookup));
             }
-            return toAuthConfig(creds);
+            AuthConfig authConfig = toAuthConfig(creds);
+            putCached(key, authConfig);
+            return authConfig;
         } catch (IOException e) {
             throw new MojoExecutionException("Error getting the credentials for " + registryToLookup + " from the configured credential helper",e);
         }
     }
 
+    private Object getCached(String key) {
+        return cache != null ? cache.get(credentialHelperName + " " + key, cacheTtlMillis) : null;
+    }
+
+    // Missing answers are not cached, the credentials might be stored by a login while the build is running
+    private void putCached(String key, Object answer) {
+        if (cache != null && answer != null) {
+            cache.put(credentialHelperName + " " + key, answer);
+        }
+    }
+
     AuthConfig toAuthConfig(JsonObject credential){
         if (credential == null) {
             return null;
@@ -0,0 +1,228 @@
+package io.fabric8.maven.docker.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+
+/**
+ * Model of a Dockerfile which has been read and interpolated once. Continuation lines are joined into
+ * a single instruction and comments are skipped. Models are cached per file and interpolator, so that
+ * all consumers during a build can share the same model. A cached model is only used as long as the
+ * content of the file is unchanged.
+ */
+public class DockerFileModel {
+
+    private static final int MAX_CACHED_MODELS = 64;
+
+    private static final Pattern ESCAPE_DIRECTIVE = Pattern.compile("^#\\s*escape\\s*=\\s*(\\S)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<CacheKey, DockerFileModel> CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<CacheKey, DockerFileModel>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, DockerFileModel> eldest) {
+                return size() > MAX_CACHED_MODELS;
+            }
+        });
+
+    // Lines of the Dockerfile as read, before interpolation
+    private final List<String> source;
+
+    // Interpolated lines of the Dockerfile
+    private final List<String> lines;
+
+    // Instructions split into words, the first word being the keyword
+    private final List<String[]> instructions = new ArrayList<>();
+
+    // Names of the build stages as declared with "FROM ... AS name"
+    private final List<String> stageNames = new ArrayList<>();
+
+    DockerFileModel(List<String> lines) {
+        this(lines, lines);
+    }
+
+    private DockerFileModel(List<String> source, List<String> lines) {
+        this.source = source;
+        this.lines = lines;
+        parse();
+    }
+
+    /**
+     * Get the model for a Dockerfile, which is interpolated and parsed only if it is not cached yet
+     * or its content has changed since. The file is read on every call, so that a Dockerfile which
+     * is regenerated within the resolution of the modification time is never served stale.
+     *
+     * @param dockerFile Dockerfile to read
+     * @param interpolator interpolator for replacing properties
+     * @return model of the interpolated Dockerfile
+     * @throws IOException if the Dockerfile cannot be read
+     */
+    public static DockerFileModel of(File dockerFile, FixedStringSearchInterpolator interpolator) throws IOException {
+        List<String> source = readLines(dockerFile);
+        CacheKey key = new CacheKey(dockerFile, interpolator);
+        DockerFileModel model = CACHE.get(key);
+        if (model == null || !model.source.equals(source)) {
+            model = new DockerFileModel(source, interpolate(source, interpolator));
+            CACHE.put(key, model);
+        }
+        return model;
+    }
+
+    /**
+     * Get the interpolated content of the Dockerfile.
+     *
+     * @return content with the same lines as the original Dockerfile
+     */
+    public String getContent() {
+        StringBuilder ret = new StringBuilder();
+        for (String line : lines) {
+            ret.append(line).append(System.lineSeparator());
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Get all instructions for the given keyword, split into words.
+     *
+     * @param keyword keyword like <code>FROM</code>, case insensitive
+     * @return list of instructions, each starting with the keyword itself
+     */
+    public List<String[]> getInstructions(String keyword) {
+        List<String[]> ret = new ArrayList<>();
+        for (String[] instruction : instructions) {
+            if (instruction[0].equalsIgnoreCase(keyword)) {
+                ret.add(instruction);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get the names of all named build stages, in the order of their declaration.
+     *
+     * @return list of stage names
+     */
+    public List<String> getStageNames() {
+        return stageNames;
+    }
+
+    /**
+     * Get the arguments of an instruction without the keyword and any options like <code>--platform</code>.
+     *
+     * @param instruction instruction as returned by {@link #getInstructions(String)}
+     * @return the remaining arguments
+     */
+    public static List<String> getArguments(String[] instruction) {
+        List<String> ret = new ArrayList<>();
+        for (String word : Arrays.asList(instruction).subList(1, instruction.length)) {
+            if (ret.isEmpty() && word.startsWith("--")) {
+                continue;
+            }
+            ret.add(word);
+        }
+        return ret;
+    }
+
+    private void parse() {
+        char escape = '\\';
+        boolean directives = true;
+        StringBuilder current = null;
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("#")) {
+                // Parser directives are only allowed before any instruction
+                Matcher matcher = ESCAPE_DIRECTIVE.matcher(trimmed);
+                if (directives && matcher.matches()) {
+                    escape = matcher.group(1).charAt(0);
+                }
+                continue;
+            }
+            directives = false;
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (current == null) {
+                current = new StringBuilder();
+            }
+            if (trimmed.charAt(trimmed.length() - 1) == escape) {
+                current.append(trimmed, 0, trimmed.length() - 1).append(' ');
+            } else {
+                current.append(trimmed);
+                addInstruction(current.toString());
+                current = null;
+            }
+        }
+        if (current != null) {
+            addInstruction(current.toString());
+        }
+    }
+
+    private void addInstruction(String instruction) {
+        String[] words = instruction.trim().split("\\s+");
+        instructions.add(words);
+        if (words[0].equalsIgnoreCase("FROM")) {
+            List<String> args = getArguments(words);
+            if (args.size() == 3 && args.get(1).equalsIgnoreCase("AS")) {
+                stageNames.add(args.get(2));
+            }
+        }
+    }
+
+    private static List<String> readLines(File dockerFile) throws IOException {
+        List<String> ret = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(dockerFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ret.add(line);
+            }
+        }
+        return ret;
+    }
+
+    private static List<String> interpolate(List<String> source, FixedStringSearchInterpolator interpolator) {
+        List<String> ret = new ArrayList<>(source.size());
+        for (String line : source) {
+            ret.add(interpolator.interpolate(line));
+        }
+        return ret;
+    }
+
+    // Key for the cache, which compares the interpolator by identity
+    private static final class CacheKey {
+        private final String path;
+        private final FixedStringSearchInterpolator interpolator;
+
+        CacheKey(File file, FixedStringSearchInterpolator interpolator) {
+            this.path = file.getAbsolutePath();
+            this.interpolator = interpolator;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return path.equals(other.path) && interpolator == other.interpolator;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, System.identityHashCode(interpolator));
+        }
+    }
+}
@@ -16,13 +16,19 @@ package io.fabric8.maven.docker.util;/*
  */
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,6 +53,14 @@ public class DockerFileUtil {
 
     private static final String ARG_PATTERN_REGEX = "\\$([\\w|\\-|\\.]+)|\\$\\{([\\w|\\-|\\.]+)\\}";
 
+    // Interpolators by filter, for the parameters of a single Mojo execution. The parameters are created
+    // per execution, so that no interpolator (and no Dockerfile model using it) is shared across executions
+    private static final Map<MojoParameters, Map<String, FixedStringSearchInterpolator>> INTERPOLATORS =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Parsed Docker configurations by path, reread only when the file changes
+    private static final Map<String, CachedDockerConfig> DOCKER_CONFIGS = new ConcurrentHashMap<>();
+
     private DockerFileUtil() {}
 
     /**
@@ -58,19 +72,20 @@ public class DockerFileUtil {
      * @return LinkedList of base images name or empty collection if none is found.
      */
     public static List<String> extractBaseImages(File dockerFile, FixedStringSearchInterpolator interpolator, Map<String, String> argsFromBuildConfig) throws IOException {
-        List<String[]> fromLines = extractLines(dockerFile, "FROM", interpolator);
-        Map<String, String> args = extractArgs(dockerFile, argsFromBuildConfig, interpolator);
+        DockerFileModel model = DockerFileModel.of(dockerFile, interpolator);
+        Map<String, String> args = extractArgsFromLines(model.getInstructions("ARG"), argsFromBuildConfig);
         Set<String> result = new LinkedHashSet<>();
         Set<String> fromAlias = new HashSet<>();
-        for (String[] fromLine :  fromLines) {
-            if (fromLine.length > 1) {
-                if (!fromAlias.contains(fromLine[1])) {
+        for (String[] fromLine : model.getInstructions("FROM")) {
+            List<String> fromArgs = DockerFileModel.getArguments(fromLine);
+            if (!fromArgs.isEmpty()) {
+                if (!fromAlias.contains(fromArgs.get(0))) {
                     // Image is NOT referring to an already declared alias
-                    result.add(resolveImageTagFromArgs(fromLine[1], args));
+                    result.add(resolveImageTagFromArgs(fromArgs.get(0), args));
                 }
-                if (fromLine.length == 4) { // FROM image:tag AS alias use case
+                if (fromArgs.size() == 3 && fromArgs.get(1).equalsIgnoreCase("AS")) { // FROM image:tag AS alias use case
                     // Image alias is declared - track it
-                    fromAlias.add(resolveImageTagFromArgs(fromLine[3], args));
+                    fromAlias.add(resolveImageTagFromArgs(fromArgs.get(2), args));
                 }
             }
         }
@@ -85,11 +100,11 @@ public class DockerFileUtil {
      * @return HashMap of arguments or empty collection if none is found
      */
     public static Map<String, String> extractArgs(File dockerfile, Map<String, String> argsFromBuildConfig, FixedStringSearchInterpolator interpolator) throws IOException {
-        return extractArgsFromLines(extractLines(dockerfile, "ARG", interpolator), argsFromBuildConfig);
+        return extractArgsFromLines(DockerFileModel.of(dockerfile, interpolator).getInstructions("ARG"), argsFromBuildConfig);
     }
 
     /**
-     * Extract all lines containing the given keyword
+     * Extract all instructions for the given keyword. Continuation lines are joined and comments are skipped.
      *
      * @param dockerFile dockerfile to examine
      * @param keyword keyword to extract the lines for
@@ -97,18 +112,7 @@ public class DockerFileUtil {
      * @return list of matched lines or an empty list
      */
     public static List<String[]> extractLines(File dockerFile, String keyword, FixedStringSearchInterpolator interpolator) throws IOException {
-        List<String[]> ret = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(dockerFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String lineInterpolated = interpolator.interpolate(line);
-                String[] lineParts = lineInterpolated.split("\\s+");
-                if (lineParts.length > 0 && lineParts[0].equalsIgnoreCase(keyword)) {
-                    ret.add(lineParts);
-                }
-            }
-        }
-        return ret;
+        return DockerFileModel.of(dockerFile, interpolator).getInstructions(keyword);
     }
 
     /**
@@ -120,24 +124,24 @@ public class DockerFileUtil {
      * @throws IOException
      */
     public static String interpolate(File dockerFile, FixedStringSearchInterpolator interpolator) throws IOException {
-        StringBuilder ret = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(dockerFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                ret.append(interpolator.interpolate(line)).append(System.lineSeparator());
-            }
-        }
-        return ret.toString();
+        return DockerFileModel.of(dockerFile, interpolator).getContent();
     }
 
     /**
-     * Create an interpolator for the given maven parameters and filter configuration.
+     * Create an interpolator for the given maven parameters and filter configuration. The interpolator
+     * is reused for the same parameters and filter, so that Dockerfile models can be shared.
      *
      * @param params The maven parameters.
      * @param filter The filter configuration.
      * @return An interpolator for replacing maven properties.
      */
     public static FixedStringSearchInterpolator createInterpolator(MojoParameters params, String filter) {
+        Map<String, FixedStringSearchInterpolator> interpolators =
+            INTERPOLATORS.computeIfAbsent(params, p -> new ConcurrentHashMap<>());
+        return interpolators.computeIfAbsent(String.valueOf(filter), f -> doCreateInterpolator(params, filter));
+    }
+
+    private static FixedStringSearchInterpolator doCreateInterpolator(MojoParameters params, String filter) {
         String[] delimiters = extractDelimiters(filter);
         if (delimiters == null) {
             // Don't interpolate anything
@@ -207,13 +211,45 @@ public class DockerFileUtil {
         }
     }
 
+    /**
+     * Read the Docker configuration from <code>$DOCKER_CONFIG/config.json</code> or <code>~/.docker/config.json</code>.
+     * The parsed configuration is cached until the file is modified.
+     *
+     * @return a copy of the configuration or <code>null</code> if there is none
+     */
     public static JsonObject readDockerConfig() {
         String dockerConfig = System.getenv("DOCKER_CONFIG");
 
-        Reader reader = dockerConfig == null
-                ? getFileReaderFromDir(new File(getHomeDir(),".docker/config.json"))
-                : getFileReaderFromDir(new File(dockerConfig,"config.json"));
-        return reader != null ? new Gson().fromJson(reader, JsonObject.class) : null;
+        File file = dockerConfig == null
+                ? new File(getHomeDir(),".docker/config.json")
+                : new File(dockerConfig,"config.json");
+        JsonObject config = readCachedDockerConfig(file);
+        return config != null ? config.deepCopy() : null;
+    }
+
+    private static JsonObject readCachedDockerConfig(File file) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            // No configuration
+            return null;
+        }
+        if (attributes.size() == 0) {
+            return null;
+        }
+        String key = file.getAbsolutePath();
+        CachedDockerConfig cached = DOCKER_CONFIGS.get(key);
+        if (cached != null && cached.isValid(attributes)) {
+            return cached.config;
+        }
+        try (Reader reader = new FileReader(file)) {
+            JsonObject config = new Gson().fromJson(reader, JsonObject.class);
+            DOCKER_CONFIGS.put(key, new CachedDockerConfig(attributes, config));
+            return config;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + file, e);
+        }
     }
 
     public static String[] extractDelimiters(String filter) {
@@ -288,4 +324,21 @@ public class DockerFileUtil {
             throw new IllegalArgumentException("Dockerfile parse error: ARG requires exactly one argument. Provided : " + argStringParam);
         }
     }
+
+    // Parsed configuration along with the file attributes at the time of reading
+    private static final class CachedDockerConfig {
+        private final FileTime lastModified;
+        private final long size;
+        private final JsonObject config;
+
+        CachedDockerConfig(BasicFileAttributes attributes, JsonObject config) {
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.config = config;
+        }
+
+        boolean isValid(BasicFileAttributes attributes) {
+            return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+    }
 }
@@ -481,7 +481,8 @@ public class EnvUtil {
             }
             File dir = tsFile.getParentFile();
             if (!dir.exists()) {
-                if (!dir.mkdirs()) {
+                // The directory might have been created concurrently by another build
+                if (!dir.mkdirs() && !dir.isDirectory()) {
                     throw new MojoExecutionException("Cannot create directory " + dir);
                 }
             }
@@ -0,0 +1,227 @@
+package io.fabric8.maven.docker.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream which compresses to the gzip format by using multiple threads, similar to
+ * <a href="https://zlib.net/pigz/">pigz</a>.
+ *
+ * The input is split into blocks which are deflated independently, each one primed with the
+ * last 32 KB of the previous block as dictionary so that the compression ratio stays close to a single
+ * deflate stream. Every block but the last ends with a sync flush, so that the compressed blocks can be
+ * concatenated in order into a single deflate stream. The result is a standard gzip file which
+ * can be read by any gzip decompressor.
+ */
+public class ParallelGzipOutputStream extends FilterOutputStream {
+
+    static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    // Maximum distance of a back reference in deflate
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final int level;
+    private final int blockSize;
+    private final int maxPending;
+    private final ExecutorService executor;
+
+    // Compressed blocks in the order they have to be written
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+    private int blockLength;
+    private byte[] previousBlock;
+    private long totalLength;
+    private boolean finished;
+
+    /**
+     * Create a parallel gzip stream
+     *
+     * @param out stream to write the compressed data to
+     * @param threads number of threads to use for compression
+     * @param level deflate compression level
+     * @throws IOException if the gzip header cannot be written
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads, int level) throws IOException {
+        this(out, threads, level, DEFAULT_BLOCK_SIZE);
+    }
+
+    ParallelGzipOutputStream(OutputStream out, int threads, int level, int blockSize) throws IOException {
+        super(out);
+        this.level = level;
+        this.blockSize = blockSize;
+        int poolThreads = Math.max(1, threads);
+        // Bound the memory held by compressed blocks waiting to be written
+        this.maxPending = poolThreads * 2;
+        this.executor = createExecutor(poolThreads);
+        this.block = new byte[blockSize];
+        writeHeader();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        crc.update(b, off, len);
+        totalLength += len;
+        while (len > 0) {
+            int chunk = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, chunk);
+            blockLength += chunk;
+            off += chunk;
+            len -= chunk;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Compress all remaining data and write the gzip trailer without closing the underlying stream.
+     *
+     * @throws IOException if compressing or writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            submitBlock(true);
+            while (!pending.isEmpty()) {
+                writeNextBlock();
+            }
+            writeTrailer();
+        } finally {
+            finished = true;
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Only pass through what has been compressed already, blocks are not cut short
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    // =======================================================================================
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] input = block;
+        final int length = blockLength;
+        final byte[] dictionary = previousBlock;
+        pending.add(executor.submit(() -> deflate(input, length, dictionary, last)));
+        previousBlock = length >= DICTIONARY_SIZE ? input : null;
+        block = new byte[blockSize];
+        blockLength = 0;
+        while (pending.size() > maxPending) {
+            writeNextBlock();
+        }
+    }
+
+    private byte[] deflate(byte[] input, int length, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(input, 0, length);
+            ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    result.write(buffer, 0, count);
+                }
+            } else {
+                // A sync flush ends the block on a byte boundary without marking it as the last one
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    result.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        Future<byte[]> next = pending.poll();
+        try {
+            out.write(next.get());
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException exp) {
+            throw new IOException("Cannot compress block: " + exp.getCause(), exp.getCause());
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(new byte[] {
+            (byte) 0x1f, (byte) 0x8b, // Magic
+            Deflater.DEFLATED,        // Compression method
+            0,                        // Flags
+            0, 0, 0, 0,               // Modification time
+            0,                        // Extra flags
+            (byte) 0xff               // Unknown OS
+        });
+    }
+
+    private void writeTrailer() throws IOException {
+        writeInt((int) crc.getValue());
+        writeInt((int) totalLength);
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(new byte[] {
+            (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)
+        });
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream already finished");
+        }
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        String prefix = "docker-gzip-" + POOL_COUNTER.incrementAndGet() + "-";
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
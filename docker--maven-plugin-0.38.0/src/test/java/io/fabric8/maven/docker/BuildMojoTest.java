@@ -48,9 +48,26 @@ public class BuildMojoTest extends BaseMojoTest {
         thenBuildRun();
     }
 
+    @Test
+    public void buildConcurrently() throws IOException, MojoExecutionException {
+        Deencapsulation.setField(serviceHub, "buildService", buildService);
+        givenMavenProject(buildMojo);
+        givenResolvedImages(buildMojo, twoImagesWithBuild());
+        givenPackaging("jar");
+        Deencapsulation.setField(buildMojo, "buildThreads", 2);
+
+        whenMojoExecutes();
+
+        thenBuildRun(2);
+    }
+
     private void thenBuildRun() throws DockerAccessException, MojoExecutionException {
+        thenBuildRun(1);
+    }
+
+    private void thenBuildRun(int builds) throws DockerAccessException, MojoExecutionException {
         new Verifications() {{
-            buildService.buildImage((ImageConfiguration)any, (ImagePullManager) any, (BuildService.BuildContext)any, (File)any); times = 1;
+            buildService.buildImage((ImageConfiguration)any, (ImagePullManager) any, (BuildService.BuildContext)any, (File)any); times = builds;
         }};
     }
 
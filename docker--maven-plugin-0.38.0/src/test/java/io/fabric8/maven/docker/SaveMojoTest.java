@@ -242,14 +242,14 @@ public class SaveMojoTest extends BaseMojoTest {
 
     private void thenNoImageIsSaved() throws DockerAccessException {
         new Verifications() {{
-            dockerAccess.saveImage(anyString, anyString, (ArchiveCompression)any); times = 0;
+            dockerAccess.saveImage(anyString, anyString, (ArchiveCompression)any, anyInt); times = 0;
         }};
     }
 
     private void thenImageIsSaved(String name, String fileName, ArchiveCompression compression) throws DockerAccessException {
         new Verifications() {{
             final String image;
-            dockerAccess.saveImage(name, image = withCapture(), compression);
+            dockerAccess.saveImage(name, image = withCapture(), compression, anyInt);
             assertAbsolutePathEquals(resolveMavenProjectPath(fileName), resolveMavenProjectPath(image));
         }};
     }
@@ -10,6 +10,7 @@ import javax.print.Doc;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.Test;
 
+import io.fabric8.maven.docker.access.ContainerFilter;
 import io.fabric8.maven.docker.access.DockerAccessException;
 import io.fabric8.maven.docker.access.ExecException;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
@@ -21,6 +22,8 @@ import mockit.Mocked;
 import mockit.Tested;
 import mockit.Verifications;
 
+import static org.junit.Assert.assertEquals;
+
 public class StopMojoTest extends BaseMojoTest {
     @Tested(fullyInitialized = false)
     private StopMojo stopMojo;
@@ -60,7 +63,7 @@ public class StopMojoTest extends BaseMojoTest {
         whenMojoExecutes();
 
         thenNoContainerLookupByImageOccurs();
-        thenListContainersIsCalled();
+        thenLabelledListContainersIsCalled();
         thenNoContainerIsStopped();
     }
 
@@ -103,7 +106,7 @@ public class StopMojoTest extends BaseMojoTest {
         whenMojoExecutes();
 
         thenNoContainerLookupByImageOccurs();
-        thenListContainersIsCalled();
+        thenLabelledListContainersIsCalled();
         thenContainerIsStopped("container-id", false, false);
     }
 
@@ -122,7 +125,8 @@ public class StopMojoTest extends BaseMojoTest {
 
         whenMojoExecutes();
 
-        thenContainerLookupByImageOccurs("example:latest");
+        thenNoContainerLookupByImageOccurs();
+        thenLabelledListContainersIsCalled();
         thenListContainersIsNotCalled();
         thenNoContainerIsStopped();
     }
@@ -143,7 +147,8 @@ public class StopMojoTest extends BaseMojoTest {
 
         whenMojoExecutes();
 
-        thenContainerLookupByImageOccurs("example:latest");
+        thenNoContainerLookupByImageOccurs();
+        thenLabelledListContainersIsCalled();
         thenListContainersIsNotCalled();
         thenContainerIsStopped("container-id", false, false);
     }
@@ -167,7 +172,8 @@ public class StopMojoTest extends BaseMojoTest {
 
         whenMojoExecutes();
 
-        thenContainerLookupByImageOccurs("example:latest");
+        thenNoContainerLookupByImageOccurs();
+        thenLabelledListContainersIsCalled();
         thenListContainersIsNotCalled();
         thenContainerIsStopped("container-id", false, true);
     }
@@ -191,11 +197,45 @@ public class StopMojoTest extends BaseMojoTest {
 
         whenMojoExecutes();
 
-        thenContainerLookupByImageOccurs("example:latest");
+        thenNoContainerLookupByImageOccurs();
+        thenLabelledListContainersIsCalled();
         thenListContainersIsNotCalled();
         thenContainerIsStopped("container-id", true, false);
     }
 
+    /**
+     * Mock project with two images, the labelled containers of both images are looked up with a single
+     * query and assigned to their images.
+     *
+     * @throws IOException
+     * @throws MojoExecutionException
+     * @throws ExecException
+     */
+    @Test
+    public void stopWithMultipleImagesSingleLabelledQuery(@Mocked Container running1, @Mocked Container running2, @Mocked Container running3) throws IOException, MojoExecutionException, ExecException {
+        givenProjectWithResolvedImages(Arrays.asList(singleImageWithBuild(), imageWithBuild("other:latest")));
+
+        givenRunningContainer(running1, "container-id-1", "example-1", "example:latest");
+        givenRunningContainer(running2, "container-id-2", "other-1", "other:latest");
+        givenRunningContainer(running3, "container-id-3", "unrelated-1", "unrelated:latest");
+        givenContainerHasGavLabels(running1);
+        givenContainerHasGavLabels(running2);
+        givenContainerHasGavLabels(running3);
+        givenContainersAreRunningForImage("example:latest", running1, running2, running3);
+
+        whenMojoExecutes();
+
+        thenNoContainerLookupByImageOccurs();
+        thenListContainersIsNotCalled();
+        new Verifications() {{
+            queryService.listContainers(anyBoolean, (ContainerFilter) any);
+            times = 1;
+        }};
+        thenContainerIsStopped("container-id-1", false, false);
+        thenContainerIsStopped("container-id-2", false, false);
+        thenContainerIsNotStopped("container-id-3");
+    }
+
     /**
      * Mock project with one image, query service indicates running image, which is not labelled,
      * but allContainers is true.
@@ -371,7 +411,7 @@ public class StopMojoTest extends BaseMojoTest {
         whenMojoExecutes();
 
         thenNoContainerLookupByImageOccurs();
-        thenListContainersIsCalled();
+        thenLabelledListContainersIsCalled();
         thenNoContainerIsStopped();
     }
 
@@ -452,7 +492,7 @@ public class StopMojoTest extends BaseMojoTest {
         whenMojoExecutes();
 
         thenNoContainerLookupByImageOccurs();
-        thenListContainersIsCalled();
+        thenLabelledListContainersIsCalled();
         thenNoContainerIsStopped();
     }
 
@@ -475,7 +515,7 @@ public class StopMojoTest extends BaseMojoTest {
         whenMojoExecutes();
 
         thenNoContainerLookupByImageOccurs();
-        thenListContainersIsCalled();
+        thenLabelledListContainersIsCalled();
         thenNoContainerIsStopped();
     }
 
@@ -628,6 +668,15 @@ public class StopMojoTest extends BaseMojoTest {
                 .build();
     }
 
+    private ImageConfiguration imageWithBuild(String name) {
+        return new ImageConfiguration.Builder()
+                .name(name)
+                .buildConfig(new BuildImageConfiguration.Builder()
+                        .from("scratch")
+                        .build())
+                .build();
+    }
+
     private void givenStopNamePattern(String stopNamePattern) {
         Deencapsulation.setField(stopMojo, "stopNamePattern", stopNamePattern);
     }
@@ -657,6 +706,9 @@ public class StopMojoTest extends BaseMojoTest {
             queryService.listContainers(anyBoolean);
             result = (instances.length == 0 ? Collections.singletonList(runningInstance) : Arrays.asList(instances));
             minTimes = 0;
+            queryService.listContainers(anyBoolean, (ContainerFilter) any);
+            result = (instances.length == 0 ? Collections.singletonList(runningInstance) : Arrays.asList(instances));
+            minTimes = 0;
         }};
     }
 
@@ -670,6 +722,9 @@ public class StopMojoTest extends BaseMojoTest {
             queryService.getContainersForImage(imageName, anyBoolean);
             result = Arrays.asList(containers);
             minTimes = 0;
+            queryService.listContainers(anyBoolean, (ContainerFilter) any);
+            result = Arrays.asList(containers);
+            minTimes = 0;
         }};
     }
 
@@ -730,6 +785,15 @@ public class StopMojoTest extends BaseMojoTest {
         }};
     }
 
+    private void thenLabelledListContainersIsCalled() throws DockerAccessException {
+        new Verifications() {{
+            ContainerFilter filter;
+            queryService.listContainers(anyBoolean, filter = withCapture());
+            minTimes = 1;
+            assertEquals(new ContainerFilter().label(projectGavLabel).toJson(), filter.toJson());
+        }};
+    }
+
     private void thenListContainersIsNotCalled() throws DockerAccessException {
         new Verifications() {{
             queryService.listContainers(anyBoolean);
@@ -21,7 +21,10 @@ import java.net.*;
 import java.util.HashMap;
 
 import io.fabric8.maven.docker.access.BuildOptions;
+import io.fabric8.maven.docker.access.ContainerFilter;
+import io.fabric8.maven.docker.access.EventFilter;
 import io.fabric8.maven.docker.access.UrlBuilder;
+import io.fabric8.maven.docker.util.GavLabel;
 import io.fabric8.maven.docker.util.ImageName;
 import org.junit.Test;
 
@@ -104,6 +107,15 @@ public class UrlBuilderTest {
         assertEquals(new URI("/1.0/containers/json?all=1&filters=" + URLEncoder.encode("{\"ancestor\":[\"nginx\"]}","UTF8")),
                      new URI(builder.listContainers(true, "ancestor", "nginx")));
 
+        assertEquals(new URI("/1.0/containers/json?all=0"), new URI(builder.listContainers(false, new ContainerFilter())));
+        assertEquals(new URI("/1.0/containers/json?all=1&filters=" +
+                             URLEncoder.encode("{\"label\":[\"dmp.coordinates=g:a:1.0\",\"env\"],\"status\":[\"running\",\"exited\"]}","UTF8")),
+                     new URI(builder.listContainers(true, new ContainerFilter()
+                         .label(new GavLabel("g", "a", "1.0"))
+                         .status("running")
+                         .label("env", null)
+                         .status("exited"))));
+
         try {
             builder.listContainers(false,"ancestor");
             fail();
@@ -112,6 +124,22 @@ public class UrlBuilderTest {
         }
     }
 
+    @Test
+    public void events() throws URISyntaxException, UnsupportedEncodingException {
+        UrlBuilder builder = new UrlBuilder("", "1.0");
+
+        assertEquals(new URI("/1.0/events"), new URI(builder.events(null)));
+        assertEquals(new URI("/1.0/events"), new URI(builder.events(new EventFilter())));
+        assertEquals(new URI("/1.0/events?filters=" +
+                             URLEncoder.encode("{\"type\":[\"container\"],\"event\":[\"start\",\"die\"]}", "UTF8") +
+                             "&since=1500000000"),
+                     new URI(builder.events(new EventFilter()
+                         .type("container")
+                         .event("start")
+                         .event("die")
+                         .since(1500000000L))));
+    }
+
     @Test
     public void loadImage() throws URISyntaxException {
         UrlBuilder builder = new UrlBuilder("", "1.0");
@@ -24,6 +24,8 @@ import java.util.Map;
 import io.fabric8.maven.docker.util.JsonFactory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author roland
@@ -65,6 +67,18 @@ public class BuildConfigTest {
         assertEquals(1, opts.getOptions().size());
     }
 
+    @Test
+    public void buildKit() {
+        BuildOptions opts = new BuildOptions().buildKit(false);
+        assertFalse(opts.isBuildKit());
+        assertEquals(0, opts.getOptions().size());
+        opts.buildKit(true);
+        assertTrue(opts.isBuildKit());
+        assertEquals("2", opts.getOptions().get("version"));
+        // An explicit build option is kept
+        assertTrue(new BuildOptions(Collections.singletonMap("version", "2")).buildKit(false).isBuildKit());
+    }
+
     @Test
     public void dockerfile() {
         BuildOptions opts = new BuildOptions().dockerfile("blub");
@@ -117,4 +131,18 @@ public class BuildConfigTest {
         opts.network("host");
         assertEquals("host", opts.getOptions().get("networkmode"));
     }
+
+    @Test
+    public void labels() {
+        BuildOptions opts = new BuildOptions().labels(null);
+        assertEquals(null, opts.getOptions().get("labels"));
+
+        opts.labels(Collections.singletonMap("dmp.build.digest", "abc"));
+        assertEquals("{\"dmp.build.digest\":\"abc\"}", opts.getOptions().get("labels"));
+
+        // Labels given as raw build option are kept
+        opts = new BuildOptions(Collections.singletonMap("labels", "{\"app\":\"demo\"}"))
+            .labels(Collections.singletonMap("dmp.build.digest", "abc"));
+        assertEquals("{\"app\":\"demo\",\"dmp.build.digest\":\"abc\"}", opts.getOptions().get("labels"));
+    }
 }
@@ -0,0 +1,59 @@
+package io.fabric8.maven.docker.access;
+
+import io.fabric8.maven.docker.util.JsonFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DockerCapabilitiesTest {
+
+    @Test
+    public void fromVersion() {
+        DockerCapabilities caps = DockerCapabilities.fromVersion(JsonFactory.newJsonObject(
+            "{\"Version\":\"20.10.7\",\"ApiVersion\":\"1.41\",\"MinAPIVersion\":\"1.12\"," +
+            "\"Os\":\"linux\",\"Arch\":\"amd64\",\"Experimental\":true}"), "1.18");
+
+        assertEquals("1.41", caps.getApiVersion());
+        assertEquals("20.10.7", caps.getServerVersion());
+        assertEquals("linux", caps.getOs());
+        assertEquals("amd64", caps.getArch());
+        assertTrue(caps.isExperimental());
+        assertTrue(caps.supportsAncestorFilter());
+        assertTrue(caps.supportsHealthCheck());
+        assertTrue(caps.supportsSquash());
+        assertTrue(caps.supportsBuildKit());
+    }
+
+    @Test
+    public void oldDaemon() {
+        DockerCapabilities caps = DockerCapabilities.fromVersion(JsonFactory.newJsonObject(
+            "{\"Version\":\"1.10.3\",\"ApiVersion\":\"1.22\",\"Os\":\"linux\",\"Experimental\":null}"), "1.18");
+
+        assertFalse(caps.isExperimental());
+        assertTrue(caps.supportsApiVersion("1.22"));
+        assertFalse(caps.supportsAncestorFilter());
+        assertFalse(caps.supportsHealthCheck());
+        assertFalse(caps.supportsSquash());
+        assertFalse(caps.supportsBuildKit());
+    }
+
+    @Test
+    public void windowsHasNoBuildKit() {
+        DockerCapabilities caps = DockerCapabilities.fromVersion(JsonFactory.newJsonObject(
+            "{\"ApiVersion\":\"1.41\",\"Os\":\"windows\"}"), "1.18");
+        assertFalse(caps.supportsBuildKit());
+        assertTrue(caps.supportsAncestorFilter());
+    }
+
+    @Test
+    public void defaultApiVersion() {
+        DockerCapabilities caps = DockerCapabilities.fromVersion(null, "1.25");
+        assertEquals("1.25", caps.getApiVersion());
+        assertNull(caps.getServerVersion());
+        assertTrue(caps.supportsHealthCheck());
+        assertFalse(caps.supportsSquash());
+    }
+}
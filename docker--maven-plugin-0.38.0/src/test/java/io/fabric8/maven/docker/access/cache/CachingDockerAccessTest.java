@@ -0,0 +1,194 @@
+package io.fabric8.maven.docker.access.cache;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.model.ContainerDetails;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Verifications;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CachingDockerAccessTest {
+
+    @Injectable
+    private DockerAccess docker;
+
+    @Injectable
+    private ContainerDetails stopped;
+
+    @Injectable
+    private ContainerDetails running;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CachingDockerAccess createAccess() {
+        return new CachingDockerAccess(docker, 1000, clock::get);
+    }
+
+    @Test
+    public void lifecycleIsNotPassedToDelegate() throws Exception {
+        CachingDockerAccess access = createAccess();
+        access.start();
+        access.shutdown();
+
+        new Verifications() {{
+            docker.start(); times = 0;
+            docker.shutdown(); times = 0;
+        }};
+    }
+
+    @Test
+    public void imageLookupsAreCached() throws Exception {
+        new Expectations() {{
+            docker.getImageId("busybox"); result = "1234";
+            docker.getImageId("unknown"); result = null;
+        }};
+
+        CachingDockerAccess access = createAccess();
+        assertEquals("1234", access.getImageId("busybox"));
+        assertTrue(access.hasImage("busybox"));
+        assertEquals("1234", access.getImageId("busybox"));
+        assertFalse(access.hasImage("unknown"));
+        assertNull(access.getImageId("unknown"));
+
+        new Verifications() {{
+            docker.getImageId("busybox"); times = 1;
+            docker.getImageId("unknown"); times = 1;
+            docker.hasImage(anyString); times = 0;
+        }};
+        assertEquals(3, access.getHits());
+        assertEquals(2, access.getMisses());
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        new Expectations() {{
+            docker.getImageId("busybox"); returns("1234", "5678");
+        }};
+
+        CachingDockerAccess access = createAccess();
+        assertEquals("1234", access.getImageId("busybox"));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals("1234", access.getImageId("busybox"));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals("5678", access.getImageId("busybox"));
+    }
+
+    @Test
+    public void imageMutationsInvalidate() throws Exception {
+        new Expectations() {{
+            docker.getImageId("app"); returns("1", "2", "3", "4");
+        }};
+
+        CachingDockerAccess access = createAccess();
+        assertEquals("1", access.getImageId("app"));
+        access.buildImage("app", (File) null, null);
+        assertEquals("2", access.getImageId("app"));
+        access.tag("app", "app:1.0", false);
+        assertEquals("3", access.getImageId("app"));
+        access.removeImage("app:1.0");
+        assertEquals("4", access.getImageId("app"));
+        // Container changes don't affect images
+        access.removeContainer("1234", false);
+        assertEquals("4", access.getImageId("app"));
+    }
+
+    @Test
+    public void failedMutationInvalidates() throws Exception {
+        new Expectations() {{
+            docker.getImageId("app"); returns("1", "2");
+            docker.pullImage("app", null, null); result = new DockerAccessException("Pull failed");
+        }};
+
+        CachingDockerAccess access = createAccess();
+        assertEquals("1", access.getImageId("app"));
+        try {
+            access.pullImage("app", null, null);
+            fail();
+        } catch (DockerAccessException exp) {
+            // expected
+        }
+        assertEquals("2", access.getImageId("app"));
+    }
+
+    @Test
+    public void lookupDuringMutationIsNotCached() throws Exception {
+        CachingDockerAccess access = createAccess();
+        new Expectations() {{
+            docker.getImageId("app");
+            result = new Delegate<String>() {
+                int calls;
+                String getImageId(String name) throws DockerAccessException {
+                    if (calls++ == 0) {
+                        // A mutation running concurrently with the first lookup
+                        access.pullImage("app", null, null);
+                        return "old";
+                    }
+                    return "new";
+                }
+            };
+        }};
+
+        assertEquals("old", access.getImageId("app"));
+        assertEquals("new", access.getImageId("app"));
+    }
+
+    @Test
+    public void onlyContainersNotRunningAreCached() throws Exception {
+        new Expectations() {{
+            stopped.isRunning(); result = false;
+            running.isRunning(); result = true;
+            docker.getContainer("db"); result = stopped;
+            docker.getContainer("web"); result = running;
+            docker.getContainer("none"); result = null;
+        }};
+
+        CachingDockerAccess access = createAccess();
+        for (int i = 0; i < 2; i++) {
+            assertSame(stopped, access.getContainer("db"));
+            assertSame(running, access.getContainer("web"));
+            assertNull(access.getContainer("none"));
+        }
+
+        new Verifications() {{
+            docker.getContainer("db"); times = 1;
+            docker.getContainer("web"); times = 2;
+            docker.getContainer("none"); times = 1;
+        }};
+    }
+
+    @Test
+    public void containerMutationsInvalidate() throws Exception {
+        new Expectations() {{
+            stopped.isRunning(); result = false;
+            docker.getContainer("db"); result = stopped;
+        }};
+
+        CachingDockerAccess access = createAccess();
+        access.getContainer("db");
+        access.startContainer("db");
+        access.getContainer("db");
+        access.stopContainer("db", 0);
+        access.getContainer("db");
+        access.getContainer("db");
+        // Image changes don't affect containers
+        access.tag("app", "app:1.0", false);
+        access.getContainer("db");
+
+        new Verifications() {{
+            docker.getContainer("db"); times = 3;
+        }};
+    }
+}
@@ -0,0 +1,73 @@
+package io.fabric8.maven.docker.access.chunked;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BuildKitTraceTest {
+
+    @Test
+    public void decodeVerticesAndLogs() {
+        ByteArrayOutputStream vertex = new ByteArrayOutputStream();
+        write(vertex, 0x0a, 0x01, 'd');                  // digest
+        write(vertex, 0x1a, 0x05);                       // name
+        write(vertex, "RUN x");
+        write(vertex, 0x20, 0x01);                       // cached
+        write(vertex, 0x2a, 0x02, 0x08, 0x0a);           // started, 10s
+        write(vertex, 0x32, 0x08, 0x08, 0x0c, 0x10, 0x80, 0x88, 0xde, 0xbe, 0x01); // completed, 12.4s
+        write(vertex, 0x49, 1, 2, 3, 4, 5, 6, 7, 8);     // unknown fixed64 field
+
+        ByteArrayOutputStream status = new ByteArrayOutputStream();
+        write(status, 0x0a, vertex.size());
+        write(status, vertex.toByteArray());
+        write(status, 0x12, 0x02, 0x0a, 0x00);           // vertex status, ignored
+        write(status, 0x1a, 0x08, 0x0a, 0x01, 'd', 0x22, 0x03);
+        write(status, "ok\n");
+
+        BuildKitTrace trace = BuildKitTrace.decode(Base64.getEncoder().encodeToString(status.toByteArray()));
+
+        assertEquals(1, trace.getVertices().size());
+        BuildKitTrace.Vertex decoded = trace.getVertices().get(0);
+        assertEquals("RUN x", decoded.getName());
+        assertTrue(decoded.isCached());
+        assertTrue(decoded.isCompleted());
+        assertEquals("d", decoded.getDigest());
+        assertEquals(Long.valueOf(2400), decoded.getDuration());
+        assertNull(decoded.getError());
+        assertEquals(Collections.singletonList("ok\n"), trace.getLogs());
+
+        BuildSteps steps = new BuildSteps();
+        steps.processVertex(decoded);
+        // Completed vertices can be sent again
+        steps.processVertex(decoded);
+        assertEquals(1, steps.getSteps().size());
+        assertEquals(2400, steps.getSteps().get(0).getDurationMillis());
+        assertTrue(steps.getSteps().get(0).getCached());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncated() {
+        BuildKitTrace.decode(Base64.getEncoder().encodeToString(new byte[] { 0x0a, 0x05, 0x1a }));
+    }
+
+    private void write(ByteArrayOutputStream out, int... bytes) {
+        for (int b : bytes) {
+            out.write(b);
+        }
+    }
+
+    private void write(ByteArrayOutputStream out, String text) {
+        write(out, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(ByteArrayOutputStream out, byte[] bytes) {
+        out.write(bytes, 0, bytes.length);
+    }
+}
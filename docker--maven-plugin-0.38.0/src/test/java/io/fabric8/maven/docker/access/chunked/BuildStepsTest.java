@@ -0,0 +1,103 @@
+package io.fabric8.maven.docker.access.chunked;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.util.JsonFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BuildStepsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    public void classicBuilder() {
+        BuildSteps steps = new BuildSteps(now::get);
+        steps.processStream("Step 1/4 : FROM busybox\n");
+        steps.processStream(" ---> 6d5fcfe5ff17\n");
+        now.addAndGet(100);
+        steps.processStream("Step 2/4 : COPY pom.xml /app/\n ---> Using cache\n ---> 1f2e3d4c5b6a\n");
+        now.addAndGet(200);
+        // Lines can be split over multiple messages
+        steps.processStream("Step 3/4 : RUN mvn ");
+        steps.processStream("package\n");
+        steps.processStream(" ---> Running in 4a5b6c7d8e9f\n");
+        steps.processStream("[INFO] BUILD SUCCESS\n");
+        now.addAndGet(60000);
+        steps.processStream("Removing intermediate container 4a5b6c7d8e9f\n ---> abcdef012345\n");
+        steps.processStream("Step 4/4 : CMD [\"java\"]\n ---> Running in 0123456789ab\n ---> 0a1b2c3d4e5f\n");
+        now.addAndGet(50);
+        steps.processStream("Successfully built 0a1b2c3d4e5f\n");
+        now.addAndGet(5000);
+        steps.finish();
+
+        List<BuildSteps.Step> recorded = steps.getSteps();
+        assertEquals(4, recorded.size());
+        assertStep(recorded.get(0), 1, "FROM busybox", 100, null, "6d5fcfe5ff17");
+        assertStep(recorded.get(1), 2, "COPY pom.xml /app/", 200, true, "1f2e3d4c5b6a");
+        assertStep(recorded.get(2), 3, "RUN mvn package", 60000, false, "abcdef012345");
+        assertStep(recorded.get(3), 4, "CMD [\"java\"]", 50, false, "0a1b2c3d4e5f");
+        assertEquals(3, steps.getFirstCacheMiss().getNumber());
+
+        JsonObject json = steps.toJson();
+        assertEquals(60350, json.get("durationMillis").getAsLong());
+        assertEquals(1, json.get("cacheHits").getAsInt());
+        assertEquals(2, json.get("cacheMisses").getAsInt());
+        assertEquals(3, json.get("firstCacheMiss").getAsInt());
+        assertFalse(json.getAsJsonArray("steps").get(0).getAsJsonObject().has("cached"));
+
+        List<String> table = steps.formatTable();
+        assertEquals(5, table.size());
+        assertEquals("  3/4     60.0s  miss   abcdef012345  RUN mvn package", table.get(3));
+    }
+
+    @Test
+    public void failedBuild() {
+        BuildSteps steps = new BuildSteps(now::get);
+        steps.processStream("Step 1/2 : FROM busybox\n ---> 6d5fcfe5ff17\nStep 2/2 : RUN false\n ---> Running in 4a5b6c7d8e9f\n");
+        now.addAndGet(1500);
+        steps.finish();
+
+        BuildSteps.Step failed = steps.getSteps().get(1);
+        assertEquals(1500, failed.getDurationMillis());
+        assertNull(failed.getLayerId());
+        assertNull(steps.getSteps().get(0).getCached());
+    }
+
+    @Test
+    public void writeReport() throws IOException {
+        BuildSteps steps = new BuildSteps(now::get);
+        steps.processStream("Step 1/1 : FROM busybox\n ---> 6d5fcfe5ff17\nSuccessfully built 6d5fcfe5ff17\n");
+        File report = new File(tmp.getRoot(), "demo/latest/build-report.json");
+        steps.writeReport(report, Collections.singletonMap("image", "demo:latest"));
+
+        JsonObject json = JsonFactory.newJsonObject(new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8));
+        assertEquals("demo:latest", json.get("image").getAsString());
+        assertEquals("FROM busybox", json.getAsJsonArray("steps").get(0).getAsJsonObject().get("instruction").getAsString());
+        assertTrue(new BuildSteps().formatTable().isEmpty());
+    }
+
+    private void assertStep(BuildSteps.Step step, int number, String instruction, long duration, Boolean cached, String layerId) {
+        assertEquals(number, step.getNumber());
+        assertEquals(instruction, step.getInstruction());
+        assertEquals(duration, step.getDurationMillis());
+        assertEquals(cached, step.getCached());
+        assertEquals(layerId, step.getLayerId());
+    }
+}
@@ -0,0 +1,166 @@
+package io.fabric8.maven.docker.access.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.model.DockerEvent;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class EventDispatcherTest {
+
+    @Injectable
+    private DockerAccess docker;
+
+    @Mocked
+    private EventSubscription subscription;
+
+    @Mocked
+    private Logger log;
+
+    private final EventFilter filter = new EventFilter().type("container");
+
+    @Test
+    public void fanOutToSelectedListeners() {
+        List<EventCallback> subscribed = expectSubscriptions();
+
+        EventDispatcher dispatcher = new EventDispatcher(docker, filter, log);
+        List<String> all = new ArrayList<>();
+        List<String> dies = new ArrayList<>();
+        dispatcher.addListener(new Recorder(all));
+        dispatcher.addListener(e -> "die".equals(e.getAction()), new Recorder(dies));
+
+        assertEquals(1, subscribed.size());
+        subscribed.get(0).event(event("start", "a"));
+        subscribed.get(0).event(event("die", "a"));
+
+        assertEquals(2, all.size());
+        assertEquals(1, dies.size());
+        assertEquals("die:a", dies.get(0));
+    }
+
+    @Test
+    public void failingListenerDoesNotAffectOthers() {
+        List<EventCallback> subscribed = expectSubscriptions();
+
+        EventDispatcher dispatcher = new EventDispatcher(docker, filter, log);
+        List<String> received = new ArrayList<>();
+        dispatcher.addListener(new Recorder(null));
+        dispatcher.addListener(new Recorder(received));
+
+        subscribed.get(0).event(event("start", "a"));
+
+        assertEquals(1, received.size());
+        new Verifications() {{
+            log.warn(anyString, (Object[]) any); times = 1;
+        }};
+    }
+
+    @Test
+    public void subscriptionFollowsListeners() {
+        List<EventCallback> subscribed = expectSubscriptions();
+
+        EventDispatcher dispatcher = new EventDispatcher(docker, filter, log);
+        List<String> received = new ArrayList<>();
+        EventDispatcher.Registration first = dispatcher.addListener(new Recorder(received));
+        EventDispatcher.Registration second = dispatcher.addListener(new Recorder(received));
+        first.close();
+        new Verifications() {{
+            subscription.finish(); times = 0;
+        }};
+        second.close();
+        new Verifications() {{
+            subscription.finish(); times = 1;
+        }};
+
+        // Events still arriving on the finished subscription are dropped
+        dispatcher.addListener(new Recorder(received));
+        assertEquals(2, subscribed.size());
+        subscribed.get(0).event(event("start", "a"));
+        assertTrue(received.isEmpty());
+        subscribed.get(1).event(event("start", "b"));
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void resubscribeAfterStreamClosed() {
+        List<EventCallback> subscribed = expectSubscriptions();
+
+        EventDispatcher dispatcher = new EventDispatcher(docker, filter, log);
+        List<String> received = new ArrayList<>();
+        dispatcher.addListener(new Recorder(received));
+        subscribed.get(0).error("connection lost");
+        subscribed.get(0).close();
+        assertEquals(1, received.size());
+
+        dispatcher.addListener(new Recorder(received));
+        assertEquals(2, subscribed.size());
+        assertNotSame(subscribed.get(0), subscribed.get(1));
+
+        dispatcher.shutdown();
+        new Verifications() {{
+            subscription.finish(); times = 1;
+        }};
+    }
+
+    private List<EventCallback> expectSubscriptions() {
+        List<EventCallback> subscribed = new ArrayList<>();
+        new Expectations() {{
+            docker.subscribeEvents(filter, (EventCallback) any);
+            result = new Delegate<EventSubscription>() {
+                EventSubscription subscribeEvents(EventFilter filter, EventCallback callback) {
+                    subscribed.add(callback);
+                    return subscription;
+                }
+            };
+            minTimes = 0;
+        }};
+        return subscribed;
+    }
+
+    private DockerEvent event(String action, String id) {
+        JsonObject json = new JsonObject();
+        json.addProperty("Type", "container");
+        json.addProperty("Action", action);
+        JsonObject actor = new JsonObject();
+        actor.addProperty("ID", id);
+        json.add("Actor", actor);
+        return new DockerEvent(json);
+    }
+
+    // Records events as "action:id" and errors as "error:message", fails if no list is given
+    private static class Recorder implements EventCallback {
+        private final List<String> received;
+
+        private Recorder(List<String> received) {
+            this.received = received;
+        }
+
+        @Override
+        public void event(DockerEvent event) {
+            if (received == null) {
+                throw new IllegalStateException("Failing listener");
+            }
+            received.add(event.getAction() + ":" + event.getActorId());
+        }
+
+        @Override
+        public void error(String error) {
+            if (received != null) {
+                received.add("error:" + error);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package io.fabric8.maven.docker.access.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.access.UrlBuilder;
+import io.fabric8.maven.docker.model.DockerEvent;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventRequestorTest {
+
+    @Mocked
+    CloseableHttpClient client;
+
+    @Mocked
+    CloseableHttpResponse httpResponse;
+
+    @Mocked
+    StatusLine statusLine;
+
+    @Mocked
+    HttpEntity httpEntity;
+
+    private final UrlBuilder urlBuilder = new UrlBuilder("http://localhost:2375", "v1.40");
+
+    private final RecordingCallback callback = new RecordingCallback();
+
+    @Test
+    public void streamedEvents() throws Exception {
+        setupMocks(200,
+                   "{\"Type\":\"container\",\"Action\":\"start\",\"Actor\":{\"ID\":\"abc\",\"Attributes\":{\"name\":\"db\",\"image\":\"postgres\"}}," +
+                   "\"time\":1600000000,\"timeNano\":1600000000123456789}\n" +
+                   "{\"Type\":\"container\",\"Action\":\"health_status: healthy\",\"Actor\":{\"ID\":\"abc\"},\"time\":1600000001}\n" +
+                   "{\"status\":\"die\",\"id\":\"def\",\"from\":\"busybox\",\"time\":1600000002}\n");
+
+        EventRequestor requestor = new EventRequestor(client, urlBuilder, new EventFilter().type("container"), callback);
+        requestor.run();
+
+        assertEquals(3, callback.events.size());
+        DockerEvent start = callback.events.get(0);
+        assertEquals("container", start.getType());
+        assertEquals("start", start.getAction());
+        assertEquals("abc", start.getActorId());
+        assertEquals("db", start.getAttribute("name"));
+        assertEquals(1600000000123456789L, start.getTimeNano());
+        assertNull(start.getHealthStatus());
+
+        assertEquals("healthy", callback.events.get(1).getHealthStatus());
+
+        // Format before API 1.22
+        DockerEvent die = callback.events.get(2);
+        assertEquals("container", die.getType());
+        assertEquals("die", die.getAction());
+        assertEquals("def", die.getActorId());
+        assertEquals(1600000002000000000L, die.getTimeNano());
+        assertTrue(die.getAttributes().isEmpty());
+
+        assertFalse(requestor.isError());
+        assertTrue(callback.closed);
+        new Verifications() {{
+            HttpUriRequest request;
+            client.execute(request = withCapture());
+            assertTrue(request.getURI().toString().startsWith("http://localhost:2375/v1.40/events?filters="));
+            client.close();
+        }};
+    }
+
+    @Test
+    public void errorStatus() throws Exception {
+        setupMocks(500, "");
+
+        EventRequestor requestor = new EventRequestor(client, urlBuilder, null, callback);
+        requestor.run();
+
+        assertTrue(requestor.isError());
+        assertEquals(1, callback.errors.size());
+        assertTrue(callback.events.isEmpty());
+        assertTrue(callback.closed);
+    }
+
+    @Test
+    public void brokenStream() throws Exception {
+        setupMocks(200, "{\"Type\":\"container\",\"Action\":\"start\"}\n{\"Type\":");
+
+        EventRequestor requestor = new EventRequestor(client, urlBuilder, null, callback);
+        requestor.run();
+
+        assertEquals(1, callback.events.size());
+        assertTrue(requestor.isError());
+        assertEquals(1, callback.errors.size());
+    }
+
+    @Test
+    public void finishedBeforeStart() throws Exception {
+        EventRequestor requestor = new EventRequestor(client, urlBuilder, null, callback);
+        requestor.finish();
+        requestor.run();
+
+        assertFalse(requestor.isError());
+        assertTrue(callback.closed);
+        new Verifications() {{
+            client.execute((HttpUriRequest) any); times = 0;
+        }};
+    }
+
+    private void setupMocks(int status, String body) throws IOException {
+        InputStream content = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        new Expectations() {{
+            client.execute((HttpUriRequest) any); result = httpResponse;
+            httpResponse.getStatusLine(); result = statusLine;
+            statusLine.getStatusCode(); result = status;
+            httpResponse.getEntity(); result = httpEntity; minTimes = 0;
+            httpEntity.getContent(); result = content; minTimes = 0;
+        }};
+    }
+
+    private static class RecordingCallback implements EventCallback {
+        private final List<DockerEvent> events = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public void event(DockerEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void error(String error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package io.fabric8.maven.docker.access.fake;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+/**
+ * In-process stand-in for a Docker daemon, listening either on a TCP port of the loopback interface or on a
+ * unix socket. It implements the endpoints produced by {@link io.fabric8.maven.docker.access.UrlBuilder}
+ * well enough for driving {@link io.fabric8.maven.docker.access.hc.DockerAccessWithHcClient} end-to-end,
+ * so that the HTTP, logging and orchestration code can be tested (and load tested) without Docker.
+ *
+ * Latency, throughput and failures can be configured at any time, also while requests are running:
+ *
+ * <pre>
+ *   try (FakeDockerDaemon daemon = FakeDockerDaemon.onTcp().latency(5).image("busybox:latest")) {
+ *       daemon.failNext("POST", "containers/create", 503, 2);
+ *       DockerAccess docker = new DockerAccessWithHcClient(daemon.getUrl(), null, 10, log);
+ *       ...
+ *   }
+ * </pre>
+ */
+public class FakeDockerDaemon implements AutoCloseable {
+
+    static final String API_VERSION = "1.40";
+
+    private static final AtomicInteger DAEMON_COUNTER = new AtomicInteger();
+
+    private final FakeDockerEngine engine = new FakeDockerEngine();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Failure> failures = new CopyOnWriteArrayList<>();
+    private final Set<Closeable> connections = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+    private final String url;
+    private final Closeable server;
+    private final File socketFile;
+
+    private volatile long latencyMillis;
+    private volatile long throughput;
+    private volatile boolean closed;
+
+    private FakeDockerDaemon(String url, Closeable server, File socketFile) {
+        this.url = url;
+        this.server = server;
+        this.socketFile = socketFile;
+        int daemon = DAEMON_COUNTER.incrementAndGet();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-docker-" + daemon + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start a daemon listening on a free port of the loopback interface
+     */
+    public static FakeDockerDaemon onTcp() throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        FakeDockerDaemon daemon = new FakeDockerDaemon("http://127.0.0.1:" + server.getLocalPort(), server, null);
+        daemon.executor.execute(() -> daemon.acceptTcp(server));
+        return daemon;
+    }
+
+    /**
+     * Start a daemon listening on a unix socket
+     *
+     * @param socketFile path of the socket, must not exist yet
+     */
+    public static FakeDockerDaemon onUnixSocket(File socketFile) throws IOException {
+        UnixServerSocketChannel server = UnixServerSocketChannel.open();
+        server.socket().bind(new UnixSocketAddress(socketFile));
+        FakeDockerDaemon daemon = new FakeDockerDaemon("unix://" + socketFile.getAbsolutePath(), server, socketFile);
+        daemon.executor.execute(() -> daemon.acceptUnix(server));
+        return daemon;
+    }
+
+    /**
+     * @return URL to be used as docker host for connecting to this daemon
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    // =======================================================================================
+    // Configuration
+
+    /**
+     * Delay before each request is answered
+     */
+    public FakeDockerDaemon latency(long millis) {
+        this.latencyMillis = Math.max(0, millis);
+        return this;
+    }
+
+    /**
+     * Limit the bandwidth of each connection in both directions
+     *
+     * @param bytesPerSecond maximum throughput, 0 for no limit
+     */
+    public FakeDockerDaemon throughput(long bytesPerSecond) {
+        this.throughput = Math.max(0, bytesPerSecond);
+        return this;
+    }
+
+    /**
+     * Answer the next matching requests with an error status
+     *
+     * @param method HTTP method to match
+     * @param pathRegex regular expression which must match the path without the API version prefix,
+     *                  e.g. <code>containers/.*&#47;start</code>
+     * @param status status code of the error response
+     * @param times number of requests to fail
+     */
+    public FakeDockerDaemon failNext(String method, String pathRegex, int status, int times) {
+        failures.add(new Failure(method, pathRegex, status, times));
+        return this;
+    }
+
+    /**
+     * Close the connection without any response for the next matching requests
+     *
+     * @see #failNext(String, String, int, int)
+     */
+    public FakeDockerDaemon dropNext(String method, String pathRegex, int times) {
+        return failNext(method, pathRegex, Failure.DROP, times);
+    }
+
+    /**
+     * Add an image which exists from the start
+     */
+    public FakeDockerDaemon image(String name) {
+        engine.addImage(name);
+        return this;
+    }
+
+    /**
+     * Lines logged by every container when it is started
+     */
+    public FakeDockerDaemon logLines(String... lines) {
+        engine.setLogLines(Arrays.asList(lines));
+        return this;
+    }
+
+    // =======================================================================================
+    // Interaction and inspection
+
+    /**
+     * Add a log line to a (running) container, which is pushed out to clients following the log
+     */
+    public void log(String containerIdOrName, String line) {
+        engine.appendLog(containerIdOrName, line);
+    }
+
+    /**
+     * Let a running container terminate with the given exit code
+     */
+    public void exit(String containerIdOrName, int exitCode) {
+        engine.exit(containerIdOrName, exitCode);
+    }
+
+    public boolean hasImage(String name) {
+        return engine.hasImage(name);
+    }
+
+    public boolean hasContainer(String idOrName) {
+        return engine.getContainer(idOrName) != null;
+    }
+
+    public boolean isRunning(String containerIdOrName) {
+        FakeDockerEngine.FakeContainer container = engine.getContainer(containerIdOrName);
+        synchronized (engine) {
+            return container != null && container.isRunning();
+        }
+    }
+
+    /**
+     * @return the build context (tar archive, possibly compressed) received with the last build request
+     */
+    public byte[] getLastBuildContext() {
+        return engine.getLastBuildContext();
+    }
+
+    /**
+     * @return whether the last build request asked for BuildKit
+     */
+    public boolean isLastBuildWithBuildKit() {
+        return engine.isLastBuildWithBuildKit();
+    }
+
+    /**
+     * @return all requests received so far in the form "METHOD path" with the path stripped from the API version
+     * and the query
+     */
+    public List<String> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    public int countRequests(String method, String pathRegex) {
+        Pattern pattern = Pattern.compile(pathRegex);
+        int count = 0;
+        for (String request : requests) {
+            int space = request.indexOf(' ');
+            if (request.substring(0, space).equals(method) && pattern.matcher(request.substring(space + 1)).matches()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        engine.shutdown();
+        if (socketFile != null) {
+            wakeUpUnixAcceptor();
+        }
+        closeQuietly(server);
+        for (Closeable connection : connections) {
+            closeQuietly(connection);
+        }
+        executor.shutdownNow();
+    }
+
+    // =======================================================================================
+
+    private void acceptTcp(ServerSocket server) {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                executor.execute(() -> serve(in, out, socket));
+            } catch (IOException exp) {
+                if (!closed) {
+                    exp.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void acceptUnix(UnixServerSocketChannel server) {
+        try {
+            while (!closed) {
+                try {
+                    UnixSocketChannel channel = server.accept();
+                    if (channel == null) {
+                        continue;
+                    }
+                    executor.execute(() -> serve(Channels.newInputStream(channel), Channels.newOutputStream(channel), channel));
+                } catch (IOException exp) {
+                    if (!closed) {
+                        exp.printStackTrace();
+                    }
+                    return;
+                }
+            }
+        } finally {
+            socketFile.delete();
+        }
+    }
+
+    private void serve(InputStream rawIn, OutputStream rawOut, Closeable connection) {
+        connections.add(connection);
+        Throttle readThrottle = new Throttle();
+        Throttle writeThrottle = new Throttle();
+        try (InputStream in = new BufferedInputStream(new ThrottledInputStream(rawIn, readThrottle));
+             OutputStream out = new BufferedOutputStream(new ThrottledOutputStream(rawOut, writeThrottle))) {
+            while (!closed) {
+                FakeHttpExchange exchange = FakeHttpExchange.read(in, out);
+                if (exchange == null) {
+                    return;
+                }
+                handle(exchange);
+                if (exchange.isCloseConnection()) {
+                    return;
+                }
+            }
+        } catch (IOException exp) {
+            // Connection closed by the client or the daemon
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    private void handle(FakeHttpExchange exchange) throws IOException {
+        String[] path = FakeDockerEngine.splitPath(exchange.getPath());
+        String request = exchange.getMethod() + " " + String.join("/", path);
+        requests.add(request);
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            Failure failure = findFailure(exchange.getMethod(), String.join("/", path));
+            if (failure != null) {
+                if (failure.status == Failure.DROP) {
+                    exchange.abort();
+                } else {
+                    exchange.sendError(failure.status, "Injected failure for " + request);
+                }
+                return;
+            }
+            engine.handle(exchange, path);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handling " + request);
+        } catch (RuntimeException exp) {
+            if (exchange.isResponded()) {
+                throw new IOException("Error while handling " + request, exp);
+            }
+            exchange.sendError(500, exp.toString());
+        }
+    }
+
+    private Failure findFailure(String method, String path) {
+        for (Failure failure : failures) {
+            if (failure.matches(method, path) && failure.consume()) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    // A blocking accept on a unix socket doesn't return when the channel is closed
+    private void wakeUpUnixAcceptor() {
+        try (UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(socketFile))) {
+            channel.finishConnect();
+        } catch (IOException exp) {
+            // Acceptor has already finished
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException exp) {
+            // Ignore
+        }
+    }
+
+    // =======================================================================================
+
+    private static class Failure {
+
+        static final int DROP = -1;
+
+        private final String method;
+        private final Pattern path;
+        private final int status;
+        private final AtomicInteger remaining;
+
+        Failure(String method, String pathRegex, int status, int times) {
+            this.method = method;
+            this.path = Pattern.compile(pathRegex);
+            this.status = status;
+            this.remaining = new AtomicInteger(times);
+        }
+
+        boolean matches(String method, String path) {
+            return this.method.equalsIgnoreCase(method) && this.path.matcher(path).matches();
+        }
+
+        boolean consume() {
+            return remaining.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+        }
+    }
+
+    // Delays transfers so that they don't exceed the configured throughput, re-measured whenever the limit changes
+    private class Throttle {
+
+        private long limit;
+        private long startNanos;
+        private long bytes;
+
+        // Maximum number of bytes to transfer at once, so that throttled transfers don't stall
+        int chunkSize(int len) {
+            long current = throughput;
+            return current > 0 ? (int) Math.max(1, Math.min(len, current / 20)) : len;
+        }
+
+        void transferred(int count) throws InterruptedIOException {
+            long current = throughput;
+            if (current != limit || current == 0) {
+                limit = current;
+                startNanos = System.nanoTime();
+                bytes = 0;
+            }
+            if (current == 0 || count <= 0) {
+                return;
+            }
+            bytes += count;
+            long expectedNanos = bytes * TimeUnit.SECONDS.toNanos(1) / current;
+            long waitNanos = expectedNanos - (System.nanoTime() - startNanos);
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException exp) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while throttling");
+                }
+            }
+        }
+    }
+
+    private static class ThrottledInputStream extends FilterInputStream {
+
+        private final Throttle throttle;
+
+        ThrottledInputStream(InputStream in, Throttle throttle) {
+            super(in);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            throttle.transferred(b >= 0 ? 1 : 0);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, throttle.chunkSize(len));
+            throttle.transferred(read);
+            return read;
+        }
+    }
+
+    private static class ThrottledOutputStream extends FilterOutputStream {
+
+        private final Throttle throttle;
+
+        ThrottledOutputStream(OutputStream out, Throttle throttle) {
+            super(out);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            throttle.transferred(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = throttle.chunkSize(len);
+                out.write(b, off, chunk);
+                throttle.transferred(chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+    }
+}
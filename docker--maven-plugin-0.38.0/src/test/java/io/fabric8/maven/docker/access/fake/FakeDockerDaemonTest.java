@@ -0,0 +1,345 @@
+package io.fabric8.maven.docker.access.fake;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.access.BuildOptions;
+import io.fabric8.maven.docker.access.ContainerCreateConfig;
+import io.fabric8.maven.docker.access.ContainerFilter;
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.EventFilter;
+import io.fabric8.maven.docker.access.NetworkCreateConfig;
+import io.fabric8.maven.docker.access.VolumeCreateConfig;
+import io.fabric8.maven.docker.access.chunked.BuildSteps;
+import io.fabric8.maven.docker.access.event.EventCallback;
+import io.fabric8.maven.docker.access.event.EventSubscription;
+import io.fabric8.maven.docker.access.hc.DockerAccessWithHcClient;
+import io.fabric8.maven.docker.access.log.LogCallback;
+import io.fabric8.maven.docker.access.log.LogGetHandle;
+import io.fabric8.maven.docker.access.retry.RetrySettings;
+import io.fabric8.maven.docker.access.retry.RetryingDockerAccess;
+import io.fabric8.maven.docker.config.Arguments;
+import io.fabric8.maven.docker.log.LogOutputSpec;
+import io.fabric8.maven.docker.model.Container;
+import io.fabric8.maven.docker.model.ContainerDetails;
+import io.fabric8.maven.docker.model.DockerEvent;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FakeDockerDaemonTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Mocked
+    private Logger log;
+
+    private FakeDockerDaemon daemon;
+    private DockerAccess docker;
+
+    @After
+    public void tearDown() {
+        if (docker != null) {
+            docker.shutdown();
+        }
+        if (daemon != null) {
+            daemon.close();
+        }
+    }
+
+    @Test
+    public void capabilities() throws Exception {
+        connect(FakeDockerDaemon.onTcp());
+
+        assertEquals(FakeDockerDaemon.API_VERSION, docker.getServerApiVersion());
+        assertEquals("linux", docker.getCapabilities().getOs());
+        assertTrue(docker.getTransport().isLocal());
+    }
+
+    @Test
+    public void imagesOverUnixSocket() throws Exception {
+        connect(FakeDockerDaemon.onUnixSocket(new File(tmp.getRoot(), "docker.sock")));
+
+        assertFalse(docker.hasImage("fabric8/demo:1.0"));
+        docker.pullImage("fabric8/demo:1.0", null, null);
+        assertTrue(docker.hasImage("fabric8/demo:1.0"));
+        assertNotNull(docker.getImageId("fabric8/demo:1.0"));
+
+        docker.tag("fabric8/demo:1.0", "fabric8/demo:latest", false);
+        assertEquals(docker.getImageId("fabric8/demo:1.0"), docker.getImageId("fabric8/demo"));
+        docker.pushImage("fabric8/demo:1.0", null, "registry.example.com", 0);
+        // The temporary tag for pushing has been removed again
+        assertFalse(daemon.hasImage("registry.example.com/fabric8/demo:1.0"));
+
+        assertTrue(docker.removeImage("fabric8/demo:1.0"));
+        assertFalse(docker.removeImage("fabric8/demo:1.0"));
+        assertTrue(daemon.getRequests().contains("POST images/create"));
+    }
+
+    @Test
+    public void buildFromFileAndWriter() throws Exception {
+        connect(FakeDockerDaemon.onTcp());
+
+        File archive = tmp.newFile("docker.tar");
+        byte[] content = "Dockerfile content".getBytes(StandardCharsets.UTF_8);
+        Files.write(archive.toPath(), content);
+        docker.buildImage("demo:file", archive, null);
+        assertArrayEquals(content, daemon.getLastBuildContext());
+        assertTrue(docker.hasImage("demo:file"));
+
+        byte[] streamed = new byte[3 * 1024 * 1024 + 17];
+        Arrays.fill(streamed, (byte) 'x');
+        docker.buildImage("demo:stream", out -> out.write(streamed), null);
+        assertArrayEquals(streamed, daemon.getLastBuildContext());
+        assertTrue(daemon.hasImage("demo:stream"));
+    }
+
+    @Test
+    public void buildWithBuildKit() throws Exception {
+        connect(FakeDockerDaemon.onTcp());
+
+        File archive = tmp.newFile("docker.tar");
+        Files.write(archive.toPath(), "Dockerfile content".getBytes(StandardCharsets.UTF_8));
+        BuildSteps steps = new BuildSteps();
+        docker.buildImage("demo:buildkit", archive, new BuildOptions().buildKit(true).buildSteps(steps));
+        assertTrue(daemon.isLastBuildWithBuildKit());
+        assertTrue(docker.hasImage("demo:buildkit"));
+        assertEquals(2, steps.getSteps().size());
+        assertEquals("[1/1] FROM scratch", steps.getSteps().get(1).getInstruction());
+        assertTrue(steps.getSteps().get(1).getCached());
+
+        new Verifications() {{
+            log.verbose(Logger.LogVerboseCategory.BUILD, "%s%s", "[1/1] FROM scratch", " CACHED");
+            log.verbose(Logger.LogVerboseCategory.BUILD, "%s", "transferring context: 18 bytes");
+        }};
+    }
+
+    @Test
+    public void unsupportedOptionsAreDroppedForTheRequestOnly() throws Exception {
+        connect(FakeDockerDaemon.onTcp());
+
+        File archive = tmp.newFile("docker.tar");
+        Files.write(archive.toPath(), "Dockerfile content".getBytes(StandardCharsets.UTF_8));
+        // The fake daemon is not experimental, so squashing is not supported
+        BuildOptions options = new BuildOptions().squash(true);
+        docker.buildImage("demo:squash", archive, options);
+        assertTrue(docker.hasImage("demo:squash"));
+        assertEquals("1", options.getOptions().get("squash"));
+    }
+
+    @Test
+    public void containerLifecycle() throws Exception {
+        connect(FakeDockerDaemon.onTcp().image("busybox").logLines("first", "second"));
+
+        String id = docker.createContainer(new ContainerCreateConfig("busybox")
+                                               .labels(Collections.singletonMap("app", "demo")), "demo");
+        ContainerDetails details = docker.getContainer("demo");
+        assertEquals(id, details.getId());
+        assertEquals("demo", details.getName());
+        assertFalse(details.isRunning());
+
+        docker.startContainer(id);
+        assertTrue(docker.getContainer(id).isRunning());
+        List<Container> running = docker.listContainers(false, new ContainerFilter().label("app", "demo"));
+        assertEquals(1, running.size());
+        assertEquals(id, running.get(0).getId());
+        assertTrue(docker.listContainers(false, new ContainerFilter().label("app", "other")).isEmpty());
+
+        LogCollector logs = new LogCollector();
+        docker.getLogSync(id, logs);
+        assertEquals(Arrays.asList("first", "second"), logs.lines);
+
+        docker.stopContainer(id, 0);
+        assertFalse(daemon.isRunning(id));
+        // Stopping a stopped container is no error
+        docker.stopContainer(id, 0);
+
+        docker.removeContainer(id, true);
+        assertNull(docker.getContainer(id));
+        assertTrue(docker.listContainers(true).isEmpty());
+    }
+
+    @Test
+    public void followLogs() throws Exception {
+        connect(FakeDockerDaemon.onTcp().image("busybox").logLines("started"));
+        String id = docker.createContainer(new ContainerCreateConfig("busybox"), "follow");
+        docker.startContainer(id);
+
+        LogCollector logs = new LogCollector();
+        LogGetHandle handle = docker.getLogAsync(id, logs);
+        try {
+            assertEquals("started", logs.queue.poll(10, TimeUnit.SECONDS));
+            daemon.log(id, "later");
+            assertEquals("later", logs.queue.poll(10, TimeUnit.SECONDS));
+            daemon.exit(id, 3);
+            assertEquals(3, (int) docker.getContainer(id).getExitCode());
+        } finally {
+            handle.finish();
+        }
+        assertFalse(handle.isError());
+    }
+
+    @Test
+    public void execAndArchives() throws Exception {
+        connect(FakeDockerDaemon.onTcp().image("busybox"));
+        String id = docker.createContainer(new ContainerCreateConfig("busybox"), "exec");
+        docker.startContainer(id);
+
+        String execId = docker.createExecContainer(id, new Arguments(Arrays.asList("echo", "hello")));
+        File output = new File(tmp.getRoot(), "exec.log");
+        docker.startExecContainer(execId, new LogOutputSpec.Builder().file(output.getAbsolutePath()).build());
+        assertTrue(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8).contains("hello"));
+        assertEquals("echo", docker.getExecContainer(execId).getEntryPoint());
+
+        File archive = tmp.newFile("copy.tar");
+        Files.write(archive.toPath(), "tar content".getBytes(StandardCharsets.UTF_8));
+        docker.copyArchiveToContainer(id, archive, "/opt");
+        File copied = new File(tmp.getRoot(), "copied.tar");
+        docker.copyArchiveFromContainer(id, "/opt", copied);
+        assertEquals("tar content", new String(Files.readAllBytes(copied.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void networksAndVolumes() throws Exception {
+        connect(FakeDockerDaemon.onTcp());
+
+        String networkId = docker.createNetwork(new NetworkCreateConfig("custom"));
+        assertEquals(2, docker.listNetworks().size());
+        assertTrue(docker.removeNetwork(networkId));
+        assertFalse(docker.removeNetwork(networkId));
+
+        assertEquals("data", docker.createVolume(new VolumeCreateConfig("data")));
+        docker.removeVolume("data");
+        assertEquals(1, daemon.countRequests("DELETE", "volumes/data"));
+    }
+
+    @Test
+    public void events() throws Exception {
+        connect(FakeDockerDaemon.onTcp().image("busybox"));
+
+        BlockingQueue<DockerEvent> events = new LinkedBlockingQueue<>();
+        EventSubscription subscription = docker.subscribeEvents(new EventFilter().type("container"), new EventCallback() {
+            @Override
+            public void event(DockerEvent event) {
+                events.add(event);
+            }
+
+            @Override
+            public void error(String error) {
+                fail(error);
+            }
+        });
+        try {
+            // Wait until the subscription is active before triggering events
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (daemon.countRequests("GET", "events") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+
+            String id = docker.createContainer(new ContainerCreateConfig("busybox"), "events");
+            docker.startContainer(id);
+            assertEquals("create", events.poll(10, TimeUnit.SECONDS).getAction());
+            DockerEvent start = events.poll(10, TimeUnit.SECONDS);
+            assertEquals("start", start.getAction());
+            assertTrue(start.getActorId().startsWith(id));
+            assertEquals("events", start.getAttribute("name"));
+        } finally {
+            subscription.finish();
+        }
+    }
+
+    @Test
+    public void injectedFailuresAreRetried() throws Exception {
+        connect(FakeDockerDaemon.onTcp().image("busybox"));
+        daemon.failNext("POST", "containers/create", 503, 2)
+              .dropNext("GET", "containers/.*/json", 1)
+              .failNext("POST", "containers/.*/start", 404, 1);
+        DockerAccess retrying = new RetryingDockerAccess(docker, new RetrySettings().initialDelay(1).maxDelay(1), log);
+
+        String id = retrying.createContainer(new ContainerCreateConfig("busybox"), "retried");
+        assertEquals(3, daemon.countRequests("POST", "containers/create"));
+        assertNotNull(retrying.getContainer(id));
+        assertEquals(2, daemon.countRequests("GET", "containers/.*/json"));
+
+        // Permanent errors are not retried
+        try {
+            retrying.startContainer(id);
+            fail("Start should have failed");
+        } catch (DockerAccessException exp) {
+            assertEquals(1, daemon.countRequests("POST", "containers/.*/start"));
+        }
+    }
+
+    @Test
+    public void throughputAndLatency() throws Exception {
+        connect(FakeDockerDaemon.onTcp());
+        byte[] context = new byte[256 * 1024];
+
+        daemon.throughput(1024 * 1024);
+        long start = System.nanoTime();
+        docker.buildImage("slow", out -> out.write(context), null);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Upload took only " + millis + " ms", millis >= 200);
+
+        daemon.throughput(0).latency(100);
+        start = System.nanoTime();
+        docker.hasImage("slow");
+        millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Request took only " + millis + " ms", millis >= 100);
+    }
+
+    private void connect(FakeDockerDaemon fakeDaemon) throws IOException {
+        daemon = fakeDaemon;
+        docker = new DockerAccessWithHcClient(daemon.getUrl(), null, 10, log);
+    }
+
+    private static class LogCollector implements LogCallback {
+
+        private final List<String> lines = new CopyOnWriteArrayList<>();
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+        @Override
+        public void log(int type, ZonedDateTime timestamp, String txt) {
+            lines.add(txt);
+            queue.add(txt);
+        }
+
+        @Override
+        public void error(String error) {
+            queue.add("ERROR: " + error);
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
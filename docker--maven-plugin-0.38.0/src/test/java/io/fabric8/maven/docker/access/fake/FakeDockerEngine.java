@@ -0,0 +1,1071 @@
+package io.fabric8.maven.docker.access.fake;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.util.JsonFactory;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+/**
+ * State and endpoint implementations of the {@link FakeDockerDaemon}. Images, containers, exec instances,
+ * networks and volumes are kept in memory only. Containers don't run anything, they just change their
+ * state and produce the configured log lines when started.
+ */
+class FakeDockerEngine {
+
+    static final String DEFAULT_NETWORK = "bridge";
+
+    private static final String RAW_STREAM = "application/vnd.docker.raw-stream";
+    private static final int STOP_EXIT_CODE = 0;
+    private static final int KILL_EXIT_CODE = 137;
+
+    private final AtomicLong idCounter = new AtomicLong();
+
+    // Guarded by this
+    private final Map<String, String> images = new LinkedHashMap<>();
+    private final Map<String, FakeContainer> containers = new LinkedHashMap<>();
+    private final Map<String, JsonObject> execs = new HashMap<>();
+    private final Map<String, String> networks = new LinkedHashMap<>();
+    private final List<String> volumes = new ArrayList<>();
+
+    private final List<EventListener> eventListeners = new CopyOnWriteArrayList<>();
+
+    private volatile List<String> logLines = Collections.emptyList();
+    private volatile byte[] lastBuildContext;
+    private volatile boolean lastBuildWithBuildKit;
+    private volatile boolean shutdown;
+
+    FakeDockerEngine() {
+        networks.put(createId(), DEFAULT_NETWORK);
+    }
+
+    // =======================================================================================
+    // Test setup and inspection
+
+    synchronized String addImage(String name) {
+        String id = images.get(withTag(name));
+        if (id == null) {
+            id = createId();
+            images.put(withTag(name), id);
+        }
+        return id;
+    }
+
+    synchronized boolean hasImage(String name) {
+        return findImageId(name) != null;
+    }
+
+    synchronized FakeContainer getContainer(String idOrName) {
+        return findContainer(idOrName);
+    }
+
+    void setLogLines(List<String> lines) {
+        logLines = new ArrayList<>(lines);
+    }
+
+    byte[] getLastBuildContext() {
+        return lastBuildContext;
+    }
+
+    boolean isLastBuildWithBuildKit() {
+        return lastBuildWithBuildKit;
+    }
+
+    void appendLog(String idOrName, String line) {
+        FakeContainer container = requireContainer(idOrName);
+        synchronized (this) {
+            container.logs.add(timestamped(line));
+            notifyAll();
+        }
+    }
+
+    void exit(String idOrName, int exitCode) {
+        FakeContainer container = requireContainer(idOrName);
+        boolean stopped;
+        synchronized (this) {
+            stopped = container.stop(exitCode);
+            notifyAll();
+        }
+        if (stopped) {
+            containerEvent(container, "die");
+        }
+    }
+
+    void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        for (EventListener listener : eventListeners) {
+            listener.finished.countDown();
+        }
+    }
+
+    // =======================================================================================
+    // Dispatching
+
+    void handle(FakeHttpExchange exchange, String[] path) throws IOException, InterruptedException {
+        String method = exchange.getMethod();
+        switch (path[0]) {
+            case "_ping":
+                exchange.send(200, "text/plain", "OK".getBytes(StandardCharsets.US_ASCII));
+                return;
+            case "version":
+                version(exchange);
+                return;
+            case "build":
+                build(exchange);
+                return;
+            case "events":
+                events(exchange);
+                return;
+            case "images":
+                images(exchange, method, path);
+                return;
+            case "containers":
+                containers(exchange, method, path);
+                return;
+            case "exec":
+                exec(exchange, method, path);
+                return;
+            case "networks":
+                networks(exchange, method, path);
+                return;
+            case "volumes":
+                volumes(exchange, method, path);
+                return;
+            default:
+                exchange.sendError(404, "page not found");
+        }
+    }
+
+    private void images(FakeHttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length == 2 && path[1].equals("create") && method.equals("POST")) {
+            pull(exchange);
+        } else if (path.length == 2 && path[1].equals("json") && method.equals("GET")) {
+            listImages(exchange);
+        } else if (path.length == 2 && path[1].equals("load") && method.equals("POST")) {
+            loadImage(exchange);
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            removeImage(exchange, path[1]);
+        } else if (path.length == 3 && path[2].equals("json") && method.equals("GET")) {
+            inspectImage(exchange, path[1]);
+        } else if (path.length == 3 && path[2].equals("get") && method.equals("GET")) {
+            saveImage(exchange, path[1]);
+        } else if (path.length == 3 && path[2].equals("push") && method.equals("POST")) {
+            push(exchange, path[1]);
+        } else if (path.length == 3 && path[2].equals("tag") && method.equals("POST")) {
+            tag(exchange, path[1]);
+        } else {
+            exchange.sendError(404, "page not found");
+        }
+    }
+
+    private void containers(FakeHttpExchange exchange, String method, String[] path) throws IOException, InterruptedException {
+        if (path.length == 2 && path[1].equals("create") && method.equals("POST")) {
+            createContainer(exchange);
+        } else if (path.length == 2 && path[1].equals("json") && method.equals("GET")) {
+            listContainers(exchange);
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            removeContainer(exchange, path[1]);
+        } else if (path.length == 3) {
+            FakeContainer container = findContainerSynchronized(path[1]);
+            if (container == null) {
+                exchange.sendError(404, "No such container: " + path[1]);
+                return;
+            }
+            String action = method + " " + path[2];
+            switch (action) {
+                case "GET json":
+                    exchange.sendJson(200, container.toDetailsJson().toString());
+                    break;
+                case "POST start":
+                    startContainer(exchange, container);
+                    break;
+                case "POST stop":
+                    stopContainer(exchange, container, STOP_EXIT_CODE, "stop");
+                    break;
+                case "POST kill":
+                    stopContainer(exchange, container, KILL_EXIT_CODE, "kill");
+                    break;
+                case "GET logs":
+                    logs(exchange, container);
+                    break;
+                case "PUT archive":
+                    putArchive(exchange, container);
+                    break;
+                case "GET archive":
+                    getArchive(exchange, container);
+                    break;
+                case "POST exec":
+                    createExec(exchange, container);
+                    break;
+                default:
+                    exchange.sendError(404, "page not found");
+            }
+        } else {
+            exchange.sendError(404, "page not found");
+        }
+    }
+
+    private void exec(FakeHttpExchange exchange, String method, String[] path) throws IOException {
+        JsonObject exec;
+        synchronized (this) {
+            exec = path.length == 3 ? execs.get(path[1]) : null;
+        }
+        if (exec == null) {
+            exchange.sendError(404, "No such exec instance");
+        } else if (path[2].equals("start") && method.equals("POST")) {
+            StringBuilder output = new StringBuilder();
+            for (JsonElement arg : exec.getAsJsonObject("ProcessConfig").getAsJsonArray("arguments")) {
+                output.append(arg.getAsString()).append('\n');
+            }
+            exchange.send(200, RAW_STREAM, output.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (path[2].equals("json") && method.equals("GET")) {
+            exchange.sendJson(200, exec.toString());
+        } else {
+            exchange.sendError(404, "page not found");
+        }
+    }
+
+    private void networks(FakeHttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length == 1 && method.equals("GET")) {
+            JsonArray list = new JsonArray();
+            synchronized (this) {
+                for (Map.Entry<String, String> network : networks.entrySet()) {
+                    JsonObject json = new JsonObject();
+                    json.addProperty("Id", network.getKey());
+                    json.addProperty("Name", network.getValue());
+                    json.addProperty("Driver", "bridge");
+                    json.addProperty("Scope", "local");
+                    list.add(json);
+                }
+            }
+            exchange.sendJson(200, list.toString());
+        } else if (path.length == 2 && path[1].equals("create") && method.equals("POST")) {
+            String name = JsonFactory.newJsonObject(exchange.readBodyAsString()).get("Name").getAsString();
+            String id;
+            synchronized (this) {
+                if (networks.containsValue(name)) {
+                    exchange.sendError(409, "network with name " + name + " already exists");
+                    return;
+                }
+                id = createId();
+                networks.put(id, name);
+            }
+            exchange.sendJson(201, "{\"Id\":\"" + id + "\",\"Warnings\":null}");
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            boolean removed;
+            synchronized (this) {
+                removed = networks.entrySet().removeIf(
+                    network -> network.getKey().startsWith(path[1]) || network.getValue().equals(path[1]));
+            }
+            if (removed) {
+                exchange.sendEmpty(204);
+            } else {
+                exchange.sendError(404, "network " + path[1] + " not found");
+            }
+        } else {
+            exchange.sendError(404, "page not found");
+        }
+    }
+
+    private void volumes(FakeHttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length == 2 && path[1].equals("create") && method.equals("POST")) {
+            JsonObject request = JsonFactory.newJsonObject(exchange.readBodyAsString());
+            String name = request.has("Name") && !request.get("Name").isJsonNull() ?
+                request.get("Name").getAsString() : createId();
+            synchronized (this) {
+                if (!volumes.contains(name)) {
+                    volumes.add(name);
+                }
+            }
+            exchange.sendJson(201, "{\"Name\":\"" + name + "\",\"Driver\":\"local\"}");
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            boolean removed;
+            synchronized (this) {
+                removed = volumes.remove(path[1]);
+            }
+            if (removed) {
+                exchange.sendEmpty(204);
+            } else {
+                exchange.sendError(404, "get " + path[1] + ": no such volume");
+            }
+        } else {
+            exchange.sendError(404, "page not found");
+        }
+    }
+
+    // =======================================================================================
+    // Endpoints
+
+    private void version(FakeHttpExchange exchange) throws IOException {
+        JsonObject version = new JsonObject();
+        version.addProperty("Version", "20.10.0-fake");
+        version.addProperty("ApiVersion", FakeDockerDaemon.API_VERSION);
+        version.addProperty("MinAPIVersion", "1.12");
+        version.addProperty("Os", "linux");
+        version.addProperty("Arch", "amd64");
+        version.addProperty("Experimental", false);
+        exchange.sendJson(200, version.toString());
+    }
+
+    private void build(FakeHttpExchange exchange) throws IOException {
+        byte[] context = exchange.readBody();
+        lastBuildContext = context;
+        String name = exchange.getQueryParameter("t");
+        String id = name != null ? replaceImage(name) : createId();
+        lastBuildWithBuildKit = "2".equals(exchange.getQueryParameter("version"));
+        try (OutputStream out = exchange.sendChunked(200, "application/json")) {
+            if (lastBuildWithBuildKit) {
+                writeBuildKitTrace(out, "[internal] load build context", false,
+                                   String.format("transferring context: %d bytes", context.length));
+                writeBuildKitTrace(out, "[1/1] FROM scratch", true, null);
+                JsonObject imageId = new JsonObject();
+                imageId.addProperty("id", "moby.image.id");
+                imageId.add("aux", JsonFactory.newJsonObject("{\"ID\":\"sha256:" + id + "\"}"));
+                write(out, imageId);
+            } else {
+                writeJson(out, "stream", "Step 1/1 : FROM scratch\n");
+                writeJson(out, "stream", String.format(" ---> Received build context of %d bytes\n", context.length));
+                writeJson(out, "stream", "Successfully built " + id.substring(0, 12) + "\n");
+                if (name != null) {
+                    writeJson(out, "stream", "Successfully tagged " + withTag(name) + "\n");
+                }
+            }
+        }
+        if (name != null) {
+            imageEvent(withTag(name), "build");
+        }
+    }
+
+    private void pull(FakeHttpExchange exchange) throws IOException {
+        String image = exchange.getQueryParameter("fromImage");
+        String tag = exchange.getQueryParameter("tag");
+        String name = image + (tag != null && !tag.isEmpty() ? (tag.startsWith("sha256:") ? "@" : ":") + tag : "");
+        String id = addImage(name);
+        String layer = id.substring(0, 12);
+        try (OutputStream out = exchange.sendChunked(200, "application/json")) {
+            writeJson(out, "status", "Pulling from " + image, "id", tag);
+            writeJson(out, "status", "Pulling fs layer", "id", layer);
+            for (int current = 0; current <= 1000; current += 250) {
+                JsonObject progress = new JsonObject();
+                progress.addProperty("status", "Downloading");
+                JsonObject detail = new JsonObject();
+                detail.addProperty("current", current);
+                detail.addProperty("total", 1000);
+                progress.add("progressDetail", detail);
+                progress.addProperty("id", layer);
+                write(out, progress);
+            }
+            writeJson(out, "status", "Pull complete", "id", layer);
+            writeJson(out, "status", "Digest: sha256:" + id);
+            writeJson(out, "status", "Status: Downloaded newer image for " + withTag(name));
+        }
+        imageEvent(withTag(name), "pull");
+    }
+
+    private void push(FakeHttpExchange exchange, String name) throws IOException {
+        String tag = exchange.getQueryParameter("tag");
+        String fullName = name + (tag != null && !tag.isEmpty() ? ":" + tag : "");
+        String id;
+        synchronized (this) {
+            id = findImageId(fullName);
+        }
+        if (id == null) {
+            exchange.sendError(404, "An image does not exist locally with the tag: " + fullName);
+            return;
+        }
+        String layer = id.substring(0, 12);
+        try (OutputStream out = exchange.sendChunked(200, "application/json")) {
+            writeJson(out, "status", "The push refers to repository [" + name + "]");
+            writeJson(out, "status", "Preparing", "id", layer);
+            for (int current = 0; current <= 1000; current += 500) {
+                JsonObject progress = new JsonObject();
+                progress.addProperty("status", "Pushing");
+                JsonObject detail = new JsonObject();
+                detail.addProperty("current", current);
+                detail.addProperty("total", 1000);
+                progress.add("progressDetail", detail);
+                progress.addProperty("id", layer);
+                write(out, progress);
+            }
+            writeJson(out, "status", "Pushed", "id", layer);
+            writeJson(out, "status", (tag != null ? tag : "latest") + ": digest: sha256:" + id + " size: 1000");
+        }
+        imageEvent(fullName, "push");
+    }
+
+    private void listImages(FakeHttpExchange exchange) throws IOException {
+        Map<String, List<String>> tagsById = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, String> image : images.entrySet()) {
+                tagsById.computeIfAbsent(image.getValue(), k -> new ArrayList<>()).add(image.getKey());
+            }
+        }
+        JsonArray list = new JsonArray();
+        for (Map.Entry<String, List<String>> image : tagsById.entrySet()) {
+            JsonObject json = new JsonObject();
+            json.addProperty("Id", "sha256:" + image.getKey());
+            json.addProperty("ParentId", "");
+            json.add("RepoTags", JsonFactory.newJsonArray(image.getValue()));
+            json.add("RepoDigests", new JsonArray());
+            json.addProperty("Created", Instant.now().getEpochSecond());
+            json.addProperty("Size", 1000);
+            json.addProperty("VirtualSize", 1000);
+            list.add(json);
+        }
+        exchange.sendJson(200, list.toString());
+    }
+
+    private void inspectImage(FakeHttpExchange exchange, String name) throws IOException {
+        List<String> tags = new ArrayList<>();
+        String id;
+        synchronized (this) {
+            id = findImageId(name);
+            for (Map.Entry<String, String> image : images.entrySet()) {
+                if (image.getValue().equals(id)) {
+                    tags.add(image.getKey());
+                }
+            }
+        }
+        if (id == null) {
+            exchange.sendError(404, "No such image: " + name);
+            return;
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("Id", "sha256:" + id);
+        json.add("RepoTags", JsonFactory.newJsonArray(tags));
+        json.addProperty("Created", Instant.now().toString());
+        json.addProperty("Size", 1000);
+        exchange.sendJson(200, json.toString());
+    }
+
+    private void tag(FakeHttpExchange exchange, String name) throws IOException {
+        String target = exchange.getQueryParameter("repo") + ":" + exchange.getQueryParameter("tag");
+        synchronized (this) {
+            String id = findImageId(name);
+            if (id == null) {
+                exchange.sendError(404, "No such image: " + name);
+                return;
+            }
+            images.put(withTag(target), id);
+        }
+        exchange.sendEmpty(201);
+        imageEvent(withTag(target), "tag");
+    }
+
+    private void removeImage(FakeHttpExchange exchange, String name) throws IOException {
+        String removed;
+        synchronized (this) {
+            String key = withTag(name);
+            if (images.remove(key) == null) {
+                String id = findImageId(name);
+                removed = id != null && images.values().removeIf(id::equals) ? name : null;
+            } else {
+                removed = key;
+            }
+        }
+        if (removed == null) {
+            exchange.sendError(404, "No such image: " + name);
+            return;
+        }
+        exchange.sendJson(200, "[{\"Untagged\":\"" + removed + "\"}]");
+        imageEvent(removed, "delete");
+    }
+
+    private void saveImage(FakeHttpExchange exchange, String name) throws IOException {
+        String id;
+        synchronized (this) {
+            id = findImageId(name);
+        }
+        if (id == null) {
+            exchange.sendError(404, "No such image: " + name);
+            return;
+        }
+        String manifest = "[{\"Config\":\"" + id + ".json\",\"RepoTags\":[\"" + withTag(name) + "\"],\"Layers\":[]}]";
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(tar)) {
+            addTarEntry(out, "manifest.json", manifest.getBytes(StandardCharsets.UTF_8));
+            addTarEntry(out, id + ".json", "{}".getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.send(200, "application/x-tar", tar.toByteArray());
+    }
+
+    private void loadImage(FakeHttpExchange exchange) throws IOException {
+        long size = exchange.drainBody();
+        String id = createId();
+        exchange.sendJson(200, "{\"stream\":\"Loaded image ID: sha256:" + id + " (" + size + " bytes)\\n\"}");
+    }
+
+    private void createContainer(FakeHttpExchange exchange) throws IOException {
+        JsonObject config = JsonFactory.newJsonObject(exchange.readBodyAsString());
+        String image = config.get("Image").getAsString();
+        String name = exchange.getQueryParameter("name");
+        FakeContainer container;
+        synchronized (this) {
+            if (findImageId(image) == null) {
+                exchange.sendError(404, "No such image: " + image);
+                return;
+            }
+            String id = createId();
+            if (name == null) {
+                name = "fake_" + id.substring(0, 8);
+            }
+            if (findContainer(name) != null) {
+                exchange.sendError(409, "Conflict. The container name \"/" + name + "\" is already in use");
+                return;
+            }
+            container = new FakeContainer(id, name, image, config);
+            containers.put(id, container);
+        }
+        exchange.sendJson(201, "{\"Id\":\"" + container.id + "\",\"Warnings\":null}");
+        containerEvent(container, "create");
+    }
+
+    private void startContainer(FakeHttpExchange exchange, FakeContainer container) throws IOException {
+        synchronized (this) {
+            if (container.running) {
+                exchange.sendEmpty(304);
+                return;
+            }
+            container.running = true;
+            container.exitCode = 0;
+            for (String line : logLines) {
+                container.logs.add(timestamped(line));
+            }
+            notifyAll();
+        }
+        exchange.sendEmpty(204);
+        containerEvent(container, "start");
+    }
+
+    private void stopContainer(FakeHttpExchange exchange, FakeContainer container, int exitCode, String action)
+        throws IOException {
+        boolean stopped;
+        synchronized (this) {
+            stopped = container.stop(exitCode);
+            notifyAll();
+        }
+        if (!stopped) {
+            exchange.sendEmpty(304);
+            return;
+        }
+        exchange.sendEmpty(204);
+        containerEvent(container, action);
+        containerEvent(container, "die");
+    }
+
+    private void removeContainer(FakeHttpExchange exchange, String idOrName) throws IOException {
+        FakeContainer container;
+        synchronized (this) {
+            container = findContainer(idOrName);
+            if (container == null) {
+                exchange.sendError(404, "No such container: " + idOrName);
+                return;
+            }
+            if (container.running) {
+                exchange.sendError(409, "You cannot remove a running container " + container.id);
+                return;
+            }
+            containers.remove(container.id);
+        }
+        exchange.sendEmpty(204);
+        containerEvent(container, "destroy");
+    }
+
+    private void listContainers(FakeHttpExchange exchange) throws IOException {
+        boolean all = "1".equals(exchange.getQueryParameter("all"));
+        String filterParam = exchange.getQueryParameter("filters");
+        JsonObject filters = filterParam != null ? JsonFactory.newJsonObject(filterParam) : new JsonObject();
+        JsonArray list = new JsonArray();
+        synchronized (this) {
+            for (FakeContainer container : containers.values()) {
+                if ((all || container.running) && container.matches(filters)) {
+                    list.add(container.toListJson());
+                }
+            }
+        }
+        exchange.sendJson(200, list.toString());
+    }
+
+    // Multiplexed stream, each line is a frame with an eight byte header (stream type, 0, 0, 0, size)
+    private void logs(FakeHttpExchange exchange, FakeContainer container) throws IOException, InterruptedException {
+        boolean follow = "1".equals(exchange.getQueryParameter("follow"));
+        try (OutputStream out = exchange.sendChunked(200, RAW_STREAM)) {
+            int sent = 0;
+            while (true) {
+                List<String> pending;
+                boolean done;
+                synchronized (this) {
+                    while (follow && container.running && !shutdown && container.logs.size() == sent) {
+                        wait(100);
+                    }
+                    pending = new ArrayList<>(container.logs.subList(sent, container.logs.size()));
+                    done = !follow || !container.running || shutdown;
+                }
+                for (String line : pending) {
+                    out.write(logFrame(line));
+                }
+                sent += pending.size();
+                if (done && pending.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void putArchive(FakeHttpExchange exchange, FakeContainer container) throws IOException {
+        byte[] archive = exchange.readBody();
+        synchronized (this) {
+            container.archives.put(exchange.getQueryParameter("path"), archive);
+        }
+        exchange.sendEmpty(200);
+    }
+
+    private void getArchive(FakeHttpExchange exchange, FakeContainer container) throws IOException {
+        String path = exchange.getQueryParameter("path");
+        byte[] archive;
+        synchronized (this) {
+            archive = container.archives.get(path);
+        }
+        if (archive == null) {
+            exchange.sendError(404, "Could not find the file " + path + " in container " + container.name);
+        } else {
+            exchange.send(200, "application/x-tar", archive);
+        }
+    }
+
+    private void createExec(FakeHttpExchange exchange, FakeContainer container) throws IOException {
+        JsonObject request = JsonFactory.newJsonObject(exchange.readBodyAsString());
+        JsonArray cmd = request.getAsJsonArray("Cmd");
+        JsonArray arguments = new JsonArray();
+        for (int i = 1; i < cmd.size(); i++) {
+            arguments.add(cmd.get(i));
+        }
+        JsonObject processConfig = new JsonObject();
+        processConfig.addProperty("entrypoint", cmd.get(0).getAsString());
+        processConfig.add("arguments", arguments);
+        JsonObject exec = new JsonObject();
+        String id = createId();
+        exec.addProperty("ID", id);
+        exec.addProperty("ContainerID", container.id);
+        exec.addProperty("Running", false);
+        exec.addProperty("ExitCode", 0);
+        exec.add("ProcessConfig", processConfig);
+        synchronized (this) {
+            execs.put(id, exec);
+        }
+        exchange.sendJson(201, "{\"Id\":\"" + id + "\"}");
+    }
+
+    // Stream events until the daemon is closed or the client disconnects
+    private void events(FakeHttpExchange exchange) throws IOException, InterruptedException {
+        String filterParam = exchange.getQueryParameter("filters");
+        JsonObject filters = filterParam != null ? JsonFactory.newJsonObject(filterParam) : new JsonObject();
+        try (OutputStream out = exchange.sendChunked(200, "application/json")) {
+            EventListener listener = new EventListener(out, filters);
+            eventListeners.add(listener);
+            try {
+                while (!shutdown && !listener.finished.await(100, TimeUnit.MILLISECONDS)) {
+                    // Wait until the client disconnects, which is noticed on the next write
+                }
+            } finally {
+                eventListeners.remove(listener);
+            }
+        }
+    }
+
+    // =======================================================================================
+
+    private void containerEvent(FakeContainer container, String action) {
+        JsonObject attributes = new JsonObject();
+        attributes.addProperty("name", container.name);
+        attributes.addProperty("image", container.image);
+        for (Map.Entry<String, JsonElement> label : container.labels().entrySet()) {
+            attributes.add(label.getKey(), label.getValue());
+        }
+        if (action.equals("die")) {
+            attributes.addProperty("exitCode", Integer.toString(container.exitCode));
+        }
+        fireEvent("container", action, container.id, attributes);
+    }
+
+    private void imageEvent(String name, String action) {
+        JsonObject attributes = new JsonObject();
+        attributes.addProperty("name", name);
+        fireEvent("image", action, name, attributes);
+    }
+
+    private void fireEvent(String type, String action, String actorId, JsonObject attributes) {
+        if (eventListeners.isEmpty()) {
+            return;
+        }
+        JsonObject actor = new JsonObject();
+        actor.addProperty("ID", actorId);
+        actor.add("Attributes", attributes);
+        JsonObject event = new JsonObject();
+        event.addProperty("Type", type);
+        event.addProperty("Action", action);
+        event.add("Actor", actor);
+        Instant now = Instant.now();
+        event.addProperty("time", now.getEpochSecond());
+        event.addProperty("timeNano", now.getEpochSecond() * 1_000_000_000L + now.getNano());
+        for (EventListener listener : eventListeners) {
+            listener.send(event);
+        }
+    }
+
+    private String replaceImage(String name) {
+        String id = createId();
+        synchronized (this) {
+            images.put(withTag(name), id);
+        }
+        return id;
+    }
+
+    // Must be called with the lock held
+    private String findImageId(String name) {
+        String id = images.get(withTag(name));
+        if (id != null) {
+            return id;
+        }
+        String idPrefix = name.startsWith("sha256:") ? name.substring(7) : name;
+        if (idPrefix.length() >= 12) {
+            for (String candidate : images.values()) {
+                if (candidate.startsWith(idPrefix)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private synchronized FakeContainer findContainerSynchronized(String idOrName) {
+        return findContainer(idOrName);
+    }
+
+    // Must be called with the lock held
+    private FakeContainer findContainer(String idOrName) {
+        String name = idOrName.startsWith("/") ? idOrName.substring(1) : idOrName;
+        for (FakeContainer container : containers.values()) {
+            if (container.name.equals(name)) {
+                return container;
+            }
+        }
+        for (FakeContainer container : containers.values()) {
+            if (container.id.startsWith(idOrName)) {
+                return container;
+            }
+        }
+        return null;
+    }
+
+    private FakeContainer requireContainer(String idOrName) {
+        FakeContainer container = getContainer(idOrName);
+        if (container == null) {
+            throw new IllegalArgumentException("No container " + idOrName);
+        }
+        return container;
+    }
+
+    private String createId() {
+        return DigestUtils.sha256Hex("fake-" + idCounter.incrementAndGet() + "-" + System.nanoTime());
+    }
+
+    static String withTag(String name) {
+        int slash = name.lastIndexOf('/');
+        String last = name.substring(slash + 1);
+        return last.contains(":") || last.contains("@") ? name : name + ":latest";
+    }
+
+    static String[] splitPath(String path) {
+        String[] segments = path.replaceAll("^/+", "").split("/");
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = URLDecoder.decode(segments[i], "UTF-8");
+            }
+        } catch (UnsupportedEncodingException exp) {
+            throw new IllegalStateException(exp);
+        }
+        // Strip the API version prefix like "v1.40"
+        return segments.length > 1 && segments[0].matches("v\\d+\\.\\d+") ?
+            Arrays.copyOfRange(segments, 1, segments.length) : segments;
+    }
+
+    private static String timestamped(String line) {
+        return Instant.now().toString() + " " + line + "\n";
+    }
+
+    private static byte[] logFrame(String line) {
+        byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length).order(ByteOrder.BIG_ENDIAN);
+        frame.put((byte) 1).put((byte) 0).put((byte) 0).put((byte) 0).putInt(payload.length).put(payload);
+        return frame.array();
+    }
+
+    private static void addTarEntry(TarArchiveOutputStream out, String name, byte[] content) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        out.putArchiveEntry(entry);
+        out.write(content);
+        out.closeArchiveEntry();
+    }
+
+    private static void writeJson(OutputStream out, String... keyValues) throws IOException {
+        JsonObject json = new JsonObject();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (keyValues[i + 1] != null) {
+                json.addProperty(keyValues[i], keyValues[i + 1]);
+            }
+        }
+        write(out, json);
+    }
+
+    // Progress of a completed BuildKit step as StatusResponse protobuf message
+    private static void writeBuildKitTrace(OutputStream out, String name, boolean cached, String log) throws IOException {
+        ByteArrayOutputStream vertex = new ByteArrayOutputStream();
+        protobufField(vertex, 1, ("sha256:" + DigestUtils.sha256Hex(name)).getBytes(StandardCharsets.UTF_8));
+        protobufField(vertex, 3, name.getBytes(StandardCharsets.UTF_8));
+        if (cached) {
+            vertex.write(4 << 3);
+            vertex.write(1);
+        }
+        protobufField(vertex, 6, new byte[0]);
+        ByteArrayOutputStream status = new ByteArrayOutputStream();
+        protobufField(status, 1, vertex.toByteArray());
+        if (log != null) {
+            ByteArrayOutputStream vertexLog = new ByteArrayOutputStream();
+            protobufField(vertexLog, 1, name.getBytes(StandardCharsets.UTF_8));
+            protobufField(vertexLog, 4, log.getBytes(StandardCharsets.UTF_8));
+            protobufField(status, 3, vertexLog.toByteArray());
+        }
+        writeJson(out, "id", "moby.buildkit.trace", "aux", Base64.getEncoder().encodeToString(status.toByteArray()));
+    }
+
+    private static void protobufField(ByteArrayOutputStream out, int field, byte[] value) {
+        protobufVarint(out, field << 3 | 2);
+        protobufVarint(out, value.length);
+        out.write(value, 0, value.length);
+    }
+
+    private static void protobufVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void write(OutputStream out, JsonObject json) throws IOException {
+        out.write((json.toString() + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // =======================================================================================
+
+    /**
+     * A container known to the fake daemon. Fields are guarded by the engine's lock.
+     */
+    static class FakeContainer {
+
+        final String id;
+        final String name;
+        final String image;
+        final JsonObject config;
+        final Instant created = Instant.now();
+        final List<String> logs = new ArrayList<>();
+        final Map<String, byte[]> archives = new HashMap<>();
+
+        boolean running;
+        int exitCode;
+
+        FakeContainer(String id, String name, String image, JsonObject config) {
+            this.id = id;
+            this.name = name;
+            this.image = image;
+            this.config = config;
+        }
+
+        boolean isRunning() {
+            return running;
+        }
+
+        boolean stop(int code) {
+            if (!running) {
+                return false;
+            }
+            running = false;
+            exitCode = code;
+            return true;
+        }
+
+        JsonObject labels() {
+            JsonElement labels = config.get("Labels");
+            return labels != null && labels.isJsonObject() ? labels.getAsJsonObject() : new JsonObject();
+        }
+
+        JsonObject toDetailsJson() {
+            JsonObject state = new JsonObject();
+            state.addProperty("Status", running ? "running" : "exited");
+            state.addProperty("Running", running);
+            state.addProperty("ExitCode", exitCode);
+
+            JsonObject containerConfig = new JsonObject();
+            containerConfig.addProperty("Image", image);
+            containerConfig.add("Labels", labels());
+
+            JsonObject hostConfig = new JsonObject();
+            JsonObject requestedHostConfig = config.getAsJsonObject("HostConfig");
+            hostConfig.addProperty("NetworkMode",
+                requestedHostConfig != null && requestedHostConfig.has("NetworkMode") ?
+                    requestedHostConfig.get("NetworkMode").getAsString() : "default");
+
+            JsonObject networkSettings = new JsonObject();
+            networkSettings.addProperty("IPAddress", running ? "172.17.0." + (2 + Math.abs(id.hashCode() % 250)) : "");
+            networkSettings.add("Ports", new JsonObject());
+
+            JsonObject json = new JsonObject();
+            json.addProperty("Id", id);
+            json.addProperty("Name", "/" + name);
+            json.addProperty("Created", created.toString());
+            json.add("Config", containerConfig);
+            json.add("State", state);
+            json.add("HostConfig", hostConfig);
+            json.add("NetworkSettings", networkSettings);
+            return json;
+        }
+
+        JsonObject toListJson() {
+            JsonArray names = new JsonArray();
+            names.add("/" + name);
+            JsonObject json = new JsonObject();
+            json.addProperty("Id", id);
+            json.addProperty("Image", image);
+            json.add("Names", names);
+            json.addProperty("Created", created.getEpochSecond());
+            json.addProperty("Status", running ? "Up 1 second" : "Exited (" + exitCode + ") 1 second ago");
+            json.add("Labels", labels());
+            json.add("Ports", new JsonArray());
+            return json;
+        }
+
+        // Filters as used by the docker daemon, each filter type must match one of its values
+        boolean matches(JsonObject filters) {
+            for (Map.Entry<String, JsonElement> filter : filters.entrySet()) {
+                boolean matched = false;
+                for (JsonElement value : filter.getValue().getAsJsonArray()) {
+                    matched |= matches(filter.getKey(), value.getAsString());
+                }
+                if (!matched) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(String type, String value) {
+            switch (type) {
+                case "ancestor":
+                    return withTag(image).equals(withTag(value));
+                case "name":
+                    return name.contains(value);
+                case "status":
+                    return value.equals(running ? "running" : "exited");
+                case "label":
+                    int eq = value.indexOf('=');
+                    JsonObject labels = labels();
+                    return eq < 0 ?
+                        labels.has(value) :
+                        labels.has(value.substring(0, eq)) &&
+                        labels.get(value.substring(0, eq)).getAsString().equals(value.substring(eq + 1));
+                default:
+                    return true;
+            }
+        }
+    }
+
+    private static class EventListener {
+
+        private final OutputStream out;
+        private final JsonObject filters;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        EventListener(OutputStream out, JsonObject filters) {
+            this.out = out;
+            this.filters = filters;
+        }
+
+        synchronized void send(JsonObject event) {
+            if (finished.getCount() == 0 || !matches(event)) {
+                return;
+            }
+            try {
+                write(out, event);
+            } catch (IOException exp) {
+                // Client has gone
+                finished.countDown();
+            }
+        }
+
+        private boolean matches(JsonObject event) {
+            JsonObject actor = event.getAsJsonObject("Actor");
+            JsonObject attributes = actor.getAsJsonObject("Attributes");
+            for (Map.Entry<String, JsonElement> filter : filters.entrySet()) {
+                boolean matched = false;
+                for (JsonElement element : filter.getValue().getAsJsonArray()) {
+                    String value = element.getAsString();
+                    switch (filter.getKey()) {
+                        case "type":
+                            matched |= event.get("Type").getAsString().equals(value);
+                            break;
+                        case "event":
+                            matched |= event.get("Action").getAsString().equals(value);
+                            break;
+                        case "container":
+                        case "image":
+                            matched |= actor.get("ID").getAsString().startsWith(value) ||
+                                       (attributes.has("name") && attributes.get("name").getAsString().equals(value));
+                            break;
+                        case "label":
+                            int eq = value.indexOf('=');
+                            matched |= eq < 0 ?
+                                attributes.has(value) :
+                                attributes.has(value.substring(0, eq)) &&
+                                attributes.get(value.substring(0, eq)).getAsString().equals(value.substring(eq + 1));
+                            break;
+                        default:
+                            matched = true;
+                    }
+                }
+                if (!matched) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
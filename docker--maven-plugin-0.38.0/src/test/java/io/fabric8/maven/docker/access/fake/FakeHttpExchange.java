@@ -0,0 +1,316 @@
+package io.fabric8.maven.docker.access.fake;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * A single HTTP/1.1 request on a connection of the {@link FakeDockerDaemon} together with the
+ * means to answer it. Supports request bodies with a content length or chunked transfer encoding,
+ * and responses with a fixed length or chunked transfer encoding. Connections are kept alive.
+ */
+class FakeHttpExchange {
+
+    private final String method;
+    private final String path;
+    private final String rawQuery;
+    private final Map<String, String> query;
+    private final Map<String, String> headers;
+    private final InputStream body;
+    private final OutputStream out;
+
+    private boolean responded;
+    private boolean closeConnection;
+
+    private FakeHttpExchange(String method, String target, Map<String, String> headers, InputStream in, OutputStream out) {
+        this.method = method;
+        int queryStart = target.indexOf('?');
+        this.path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+        this.rawQuery = queryStart >= 0 ? target.substring(queryStart + 1) : "";
+        this.query = parseQuery(rawQuery);
+        this.headers = headers;
+        this.body = createBodyStream(in);
+        this.out = out;
+    }
+
+    /**
+     * Read the next request from a connection
+     *
+     * @return the request or <code>null</code> if the connection has been closed by the client
+     */
+    static FakeHttpExchange read(InputStream in, OutputStream out) throws IOException {
+        String requestLine = readLine(in);
+        while (requestLine != null && requestLine.isEmpty()) {
+            requestLine = readLine(in);
+        }
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3) {
+            throw new IOException("Invalid request line: " + requestLine);
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH), line.substring(colon + 1).trim());
+            }
+        }
+        return new FakeHttpExchange(parts[0], parts[1], headers, in, out);
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getRequestLine() {
+        return method + " " + path + (rawQuery.isEmpty() ? "" : "?" + rawQuery);
+    }
+
+    String getQueryParameter(String name) {
+        return query.get(name);
+    }
+
+    String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    byte[] readBody() throws IOException {
+        return IOUtils.toByteArray(body);
+    }
+
+    String readBodyAsString() throws IOException {
+        return new String(readBody(), StandardCharsets.UTF_8);
+    }
+
+    long drainBody() throws IOException {
+        return IOUtils.skip(body, Long.MAX_VALUE);
+    }
+
+    boolean isResponded() {
+        return responded;
+    }
+
+    boolean isCloseConnection() {
+        return closeConnection;
+    }
+
+    // =======================================================================================
+
+    void sendJson(int status, String json) throws IOException {
+        send(status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void sendError(int status, String message) throws IOException {
+        sendJson(status, "{\"message\":\"" + message.replace("\"", "'") + "\"}");
+    }
+
+    void sendEmpty(int status) throws IOException {
+        send(status, null, new byte[0]);
+    }
+
+    void send(int status, String contentType, byte[] content) throws IOException {
+        drainBody();
+        StringBuilder head = statusLine(status);
+        if (contentType != null) {
+            head.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        head.append("Content-Length: ").append(content.length).append("\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+        out.flush();
+        responded = true;
+    }
+
+    /**
+     * Start a response with chunked transfer encoding
+     *
+     * @return stream for writing the chunks, each write becomes a chunk. Closing the stream ends the response.
+     */
+    OutputStream sendChunked(int status, String contentType) throws IOException {
+        drainBody();
+        StringBuilder head = statusLine(status);
+        head.append("Content-Type: ").append(contentType).append("\r\n")
+            .append("Transfer-Encoding: chunked\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        responded = true;
+        return new ChunkedOutputStream(out);
+    }
+
+    /**
+     * Close the connection without answering, like a crashing daemon would do
+     */
+    void abort() {
+        responded = true;
+        closeConnection = true;
+    }
+
+    private StringBuilder statusLine(int status) {
+        return new StringBuilder("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+            .append("Api-Version: ").append(FakeDockerDaemon.API_VERSION).append("\r\n")
+            .append("Server: fake-docker\r\n");
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 409: return "Conflict";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            default: return "Status " + status;
+        }
+    }
+
+    private InputStream createBodyStream(InputStream in) {
+        if ("chunked".equalsIgnoreCase(getHeader("Transfer-Encoding"))) {
+            return new ChunkedInputStream(in);
+        }
+        String length = getHeader("Content-Length");
+        BoundedInputStream bounded = new BoundedInputStream(in, length != null ? Long.parseLong(length) : 0);
+        // Never close the connection when the body is done
+        bounded.setPropagateClose(false);
+        return bounded;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> ret = new LinkedHashMap<>();
+        if (rawQuery.isEmpty()) {
+            return ret;
+        }
+        for (String param : rawQuery.split("&")) {
+            int eq = param.indexOf('=');
+            ret.put(decode(eq >= 0 ? param.substring(0, eq) : param), eq >= 0 ? decode(param.substring(eq + 1)) : "");
+        }
+        return ret;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException exp) {
+            throw new IllegalStateException(exp);
+        }
+    }
+
+    // Line terminated by CRLF, null at the end of the stream
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                String ret = line.toString("US-ASCII");
+                return ret.endsWith("\r") ? ret.substring(0, ret.length() - 1) : ret;
+            }
+            line.write(b);
+        }
+        return line.size() > 0 ? line.toString("US-ASCII") : null;
+    }
+
+    private static class ChunkedInputStream extends InputStream {
+
+        private final InputStream in;
+        private long remaining;
+        private boolean eof;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+            if (remaining == 0) {
+                String sizeLine = readLine(in);
+                if (sizeLine == null) {
+                    throw new EOFException("Unexpected end of chunked body");
+                }
+                int extension = sizeLine.indexOf(';');
+                remaining = Long.parseLong((extension >= 0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+                if (remaining == 0) {
+                    // Skip trailers up to the final empty line
+                    String trailer;
+                    while ((trailer = readLine(in)) != null && !trailer.isEmpty()) {
+                        // ignore
+                    }
+                    eof = true;
+                    return -1;
+                }
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new EOFException("Unexpected end of chunk");
+            }
+            remaining -= read;
+            if (remaining == 0) {
+                readLine(in);
+            }
+            return read;
+        }
+    }
+
+    private static class ChunkedOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private boolean closed;
+
+        ChunkedOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            out.write((Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(b, off, len);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.fabric8.maven.docker.access.hc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import io.fabric8.maven.docker.access.DockerTransport;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArchiveWriterEntityTest {
+
+    @Test
+    public void streamsContentLargerThanPipe() throws IOException {
+        final byte[] data = new byte[ArchiveWriterEntity.PIPE_BUFFER_SIZE * 3 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ArchiveWriterEntity entity = new ArchiveWriterEntity(out -> {
+            // Write in odd sized chunks to exercise partial pipe reads
+            for (int i = 0; i < data.length; i += 4097) {
+                out.write(data, i, Math.min(4097, data.length - i));
+            }
+        });
+
+        assertTrue(entity.isChunked());
+        assertFalse(entity.isRepeatable());
+        assertEquals(-1, entity.getContentLength());
+        assertEquals("application/x-tar", entity.getContentType().getValue());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        assertArrayEquals(data, out.toByteArray());
+        assertFalse(entity.isStreaming());
+    }
+
+    @Test
+    public void contentCanBeRead() throws IOException {
+        final byte[] data = new byte[ArchiveWriterEntity.PIPE_BUFFER_SIZE + 5];
+        Arrays.fill(data, (byte) 7);
+        ArchiveWriterEntity entity = new ArchiveWriterEntity(out -> out.write(data));
+
+        assertTrue(entity.isStreaming());
+        try (InputStream in = entity.getContent()) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+        assertFalse(entity.isStreaming());
+
+        ArchiveWriterEntity failing = new ArchiveWriterEntity(out -> {
+            throw new IOException("cannot read file");
+        });
+        try (InputStream in = failing.getContent()) {
+            IOUtils.toByteArray(in);
+            fail("Exception expected");
+        } catch (IOException exp) {
+            assertEquals("cannot read file", exp.getMessage());
+        }
+    }
+
+    @Test
+    public void uploadIsReportedToTransport() throws IOException {
+        DockerTransport transport = new DockerTransport(false);
+        ArchiveWriterEntity entity = new ArchiveWriterEntity(out -> out.write(new byte[2 * 1024 * 1024]), transport);
+        entity.writeTo(new ByteArrayOutputStream());
+        assertTrue(transport.getUploadThroughput() > 0);
+    }
+
+    @Test
+    public void producerErrorIsPropagated() {
+        ArchiveWriterEntity entity = new ArchiveWriterEntity(out -> {
+            out.write(new byte[1024]);
+            throw new IOException("cannot read file");
+        });
+
+        try {
+            entity.writeTo(new ByteArrayOutputStream());
+            fail("Exception expected");
+        } catch (IOException exp) {
+            assertEquals("cannot read file", exp.getMessage());
+        }
+    }
+
+    @Test
+    public void consumerErrorDoesNotBlockProducer() {
+        ArchiveWriterEntity entity = new ArchiveWriterEntity(out -> {
+            byte[] chunk = new byte[8192];
+            Arrays.fill(chunk, (byte) 1);
+            for (int i = 0; i < 1024; i++) {
+                out.write(chunk);
+            }
+        });
+
+        try {
+            entity.writeTo(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("connection reset");
+                }
+            });
+            fail("Exception expected");
+        } catch (IOException exp) {
+            assertEquals("connection reset", exp.getMessage());
+        }
+    }
+}
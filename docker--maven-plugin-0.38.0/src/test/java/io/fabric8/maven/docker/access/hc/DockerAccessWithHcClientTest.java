@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.UUID;
 
 import io.fabric8.maven.docker.access.AuthConfig;
+import io.fabric8.maven.docker.access.hc.http.HttpRequestException;
 import io.fabric8.maven.docker.access.hc.util.ClientBuilder;
 import io.fabric8.maven.docker.config.ArchiveCompression;
 import io.fabric8.maven.docker.model.Container;
@@ -15,13 +16,19 @@ import io.fabric8.maven.docker.model.ContainersListElement;
 import io.fabric8.maven.docker.model.Image;
 import io.fabric8.maven.docker.model.ImageDetails;
 import io.fabric8.maven.docker.util.Logger;
+import mockit.Delegate;
 import mockit.Expectations;
 import mockit.Mocked;
 
 import mockit.Verifications;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -122,6 +129,19 @@ public class DockerAccessWithHcClientTest {
         thenImageWasPushed();
     }
 
+    @Test
+    public void testRetryPushOnErrorResponse() throws Exception {
+        givenAnImageName("test");
+        givenANumberOfRetries(1);
+        new Expectations() {{
+            mockDelegate.post(anyString, null, (Map<String, String>) any, (ResponseHandler) any, 200);
+            result = new HttpRequestException("error", HTTP_INTERNAL_ERROR);
+            result = null;
+        }};
+        whenPushImage();
+        thenImageWasPushed();
+    }
+
     @Test
     public void testRetriesExceeded() throws Exception {
         givenAnImageName("test");
@@ -144,7 +164,7 @@ public class DockerAccessWithHcClientTest {
 
     @Test
     public void testListContainersFail() throws IOException {
-        givenTheGetWithoutResponseHandlerWillFail();
+        givenTheGetWillFail();
         whenListContainers();
         thenContainerListNotReturned();
     }
@@ -162,7 +182,7 @@ public class DockerAccessWithHcClientTest {
 
     @Test
     public void testListImagesFail() throws IOException {
-        givenTheGetWithoutResponseHandlerWillFail();
+        givenTheGetWillFail();
         whenListImages();
         thenImageListNotReturned();
     }
@@ -235,10 +255,7 @@ public class DockerAccessWithHcClientTest {
             array.add(idNameObject);
         }
 
-        new Expectations() {{
-            mockDelegate.get(anyString, 200);
-            result = array.toString();
-        }};
+        givenTheGetWillReturn(array.toString());
     }
 
     private void givenImageIdRepoTagPairs(Pair<String, String>... idRepoTagPairs) throws IOException {
@@ -252,9 +269,20 @@ public class DockerAccessWithHcClientTest {
             array.add(imageObject);
         }
 
+        givenTheGetWillReturn(array.toString());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void givenTheGetWillReturn(final String body) throws IOException {
         new Expectations() {{
-            mockDelegate.get(anyString, 200);
-            result = array.toString();
+            mockDelegate.get(anyString, (ResponseHandler) any, 200);
+            result = new Delegate<Object>() {
+                Object get(String url, ResponseHandler handler, int... statusCodes) throws IOException {
+                    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HTTP_OK, "OK");
+                    response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+                    return handler.handleResponse(response);
+                }
+            };
         }};
     }
 
@@ -309,13 +337,6 @@ public class DockerAccessWithHcClientTest {
         }};
     }
 
-    private void givenTheGetWithoutResponseHandlerWillFail() throws IOException {
-        new Expectations() {{
-            mockDelegate.get(anyString, 200);
-            result = new HttpResponseException(HTTP_INTERNAL_ERROR, "error");
-        }};
-    }
-
     @SuppressWarnings("unchecked")
     private void givenThatDeleteWillSucceed() throws IOException {
         new Expectations() {{
@@ -0,0 +1,76 @@
+package io.fabric8.maven.docker.access.hc;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.model.Container;
+import io.fabric8.maven.docker.model.ContainersListElement;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonListResponseHandlerTest {
+
+    private static final String CONTAINERS =
+        "[{\"Id\":\"1234567890abcdef\",\"Image\":\"busybox\",\"Names\":[\"/one\"],\"Status\":\"Up 2 minutes\"," +
+        "  \"HostConfig\":{\"NetworkMode\":\"default\"},\"Mounts\":[{\"Type\":\"volume\",\"Name\":\"data\"}]," +
+        "  \"Labels\":{\"app\":\"one\"},\"Ports\":[]}," +
+        " {\"Id\":\"fedcba0987654321\",\"Image\":\"alpine\",\"Names\":[\"/two\"],\"Status\":\"Exited (0)\"}," +
+        " {\"Id\":\"abcdefabcdefabcd\",\"Image\":\"busybox\",\"Names\":[\"/three\"],\"Status\":\"Created\"}]";
+
+    @Test
+    public void onlyRequestedFieldsAreDecoded() throws IOException {
+        List<JsonObject> result = new JsonListResponseHandler<>(ContainersListElement.FIELDS, json -> json)
+            .handleResponse(response(CONTAINERS));
+
+        assertEquals(3, result.size());
+        JsonObject first = result.get(0);
+        assertEquals("busybox", first.get("Image").getAsString());
+        assertEquals("one", first.getAsJsonObject("Labels").get("app").getAsString());
+        assertFalse(first.has("HostConfig"));
+        assertFalse(first.has("Mounts"));
+    }
+
+    @Test
+    public void elementsAreFilteredWhileDecoding() throws IOException {
+        List<Container> result = new JsonListResponseHandler<Container>(
+            ContainersListElement.FIELDS, ContainersListElement::new,
+            json -> "busybox".equals(json.get("Image").getAsString()))
+            .handleResponse(response(CONTAINERS));
+
+        assertEquals(2, result.size());
+        assertEquals("one", result.get(0).getName());
+        assertTrue(result.get(0).isRunning());
+        assertEquals("three", result.get(1).getName());
+        assertFalse(result.get(1).isRunning());
+    }
+
+    @Test
+    public void emptyAndNullResponses() throws IOException {
+        JsonListResponseHandler<JsonObject> handler =
+            new JsonListResponseHandler<>(ContainersListElement.FIELDS, json -> json);
+        assertTrue(handler.handleResponse(response("[]")).isEmpty());
+        assertTrue(handler.handleResponse(response("null")).isEmpty());
+        assertTrue(handler.handleResponse(new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK")).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidResponse() throws IOException {
+        new JsonListResponseHandler<>(ContainersListElement.FIELDS, json -> json)
+            .handleResponse(response("{\"message\":\"not a list\"}"));
+    }
+
+    private HttpResponse response(String body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+}
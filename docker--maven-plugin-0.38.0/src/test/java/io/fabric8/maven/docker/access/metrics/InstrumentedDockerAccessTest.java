@@ -0,0 +1,130 @@
+package io.fabric8.maven.docker.access.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.hc.ApacheHttpClientDelegate;
+import io.fabric8.maven.docker.access.hc.util.ClientBuilder;
+import io.fabric8.maven.docker.util.JsonFactory;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Mocked;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.pool.PoolStats;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class InstrumentedDockerAccessTest {
+
+    @Injectable
+    private DockerAccess docker;
+
+    @Mocked
+    private ClientBuilder clientBuilder;
+
+    @Mocked
+    private CloseableHttpClient httpClient;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AccessMetrics metrics = new AccessMetrics(() -> new PoolStats(1, 0, 3, 10));
+
+    @Test
+    public void countsAndErrors() throws Exception {
+        new Expectations() {{
+            docker.getImageId("busybox"); result = "1234";
+            docker.getImageId("unknown"); result = new DockerAccessException("No such image");
+        }};
+
+        InstrumentedDockerAccess access = new InstrumentedDockerAccess(docker, metrics);
+        assertEquals("1234", access.getImageId("busybox"));
+        assertEquals("1234", access.getImageId("busybox"));
+        try {
+            access.getImageId("unknown");
+            fail();
+        } catch (DockerAccessException exp) {
+            // expected
+        }
+
+        EndpointMetrics endpoint = metrics.forMethod("getImageId");
+        assertEquals(3, endpoint.getCount());
+        assertEquals(1, endpoint.getErrors());
+        assertEquals(1.0 / 3, endpoint.getErrorRate(), 0.001);
+        assertNull(AccessMetrics.current());
+    }
+
+    @Test
+    public void bytesOfHttpCallsAreAssignedToMethod() throws Exception {
+        ApacheHttpClientDelegate delegate = new ApacheHttpClientDelegate(clientBuilder, false);
+        new Expectations() {{
+            httpClient.execute((HttpUriRequest) any, (ResponseHandler) any);
+            result = new Delegate<Object>() {
+                Object execute(HttpUriRequest request, ResponseHandler handler) throws IOException {
+                    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                    response.setEntity(new StringEntity("{\"Id\":\"1234\"}", StandardCharsets.UTF_8));
+                    return handler.handleResponse(response);
+                }
+            };
+            docker.createVolume(null);
+            result = new Delegate<String>() {
+                String createVolume(Object config) throws IOException {
+                    return delegate.post("http://localhost/volumes/create", "{\"Name\":\"data\"}",
+                                         new ApacheHttpClientDelegate.BodyResponseHandler(), 200);
+                }
+            };
+        }};
+
+        InstrumentedDockerAccess access = new InstrumentedDockerAccess(docker, metrics);
+        access.createVolume(null);
+        // Not instrumented
+        delegate.get("http://localhost/version", 200);
+
+        EndpointMetrics endpoint = metrics.forMethod("createVolume");
+        assertEquals(1, endpoint.getCount());
+        assertEquals(15, endpoint.getBytesSent());
+        assertEquals(13, endpoint.getBytesReceived());
+    }
+
+    @Test
+    public void report() throws Exception {
+        new Expectations() {{
+            docker.listNetworks(); result = Collections.emptyList();
+        }};
+        new InstrumentedDockerAccess(docker, metrics).listNetworks();
+
+        File report = new File(folder.getRoot(), "docker/access-metrics.json");
+        metrics.writeReport(report, Collections.singletonMap("goal", "start"));
+
+        JsonObject json = JsonFactory.newJsonObject(new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8));
+        assertEquals("start", json.get("goal").getAsString());
+        JsonObject endpoint = json.getAsJsonObject("endpoints").getAsJsonObject("listNetworks");
+        assertEquals(1, endpoint.get("count").getAsLong());
+        assertEquals(0, endpoint.get("errors").getAsLong());
+        assertFalse(endpoint.getAsJsonObject("latencyMicros").get("p99").isJsonNull());
+        JsonObject pool = json.getAsJsonObject("connectionPool");
+        assertEquals(1, pool.get("leased").getAsInt());
+        assertEquals(3, pool.get("available").getAsInt());
+        assertEquals(10, pool.get("max").getAsInt());
+        assertEquals(1, pool.get("maxLeased").getAsInt());
+    }
+}
@@ -0,0 +1,54 @@
+package io.fabric8.maven.docker.access.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 0.1);
+        assertWithinError(500000, histogram.getValueAtPercentile(50));
+        assertWithinError(900000, histogram.getValueAtPercentile(90));
+        assertWithinError(990000, histogram.getValueAtPercentile(99));
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverAllValues() {
+        int lastIndex = -1;
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == lastIndex || index == lastIndex + 1);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            lastIndex = index;
+        }
+        int index = LatencyHistogram.bucketIndex(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(index));
+    }
+
+    private void assertWithinError(long expected, long actual) {
+        assertTrue("Expected ~" + expected + " but got " + actual,
+                   actual >= expected && actual <= expected * 1.04);
+    }
+}
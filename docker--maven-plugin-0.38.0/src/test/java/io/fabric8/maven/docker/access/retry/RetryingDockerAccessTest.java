@@ -0,0 +1,277 @@
+package io.fabric8.maven.docker.access.retry;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.util.Collections;
+
+import io.fabric8.maven.docker.access.ContainerCreateConfig;
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.hc.http.HttpRequestException;
+import io.fabric8.maven.docker.access.metrics.AccessMetrics;
+import io.fabric8.maven.docker.access.metrics.InstrumentedDockerAccess;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryingDockerAccessTest {
+
+    @Injectable
+    private DockerAccess docker;
+
+    @Mocked
+    private Logger log;
+
+    private final RetrySettings settings = new RetrySettings()
+        .initialDelay(1)
+        .maxDelay(4)
+        .circuitBreakerThreshold(0);
+
+    @Test
+    public void idempotentCallIsRetriedOnErrorResponse() throws Exception {
+        new Expectations() {{
+            docker.pullImage("busybox", null, null);
+            result = errorResponse(502);
+            result = errorResponse(503);
+            result = null;
+        }};
+
+        RetryingDockerAccess access = new RetryingDockerAccess(docker, settings, log);
+        access.pullImage("busybox", null, null);
+
+        new Verifications() {{
+            docker.pullImage("busybox", null, null); times = 3;
+        }};
+        assertEquals(Collections.singletonMap("pullImage", 2L), access.getRetryCounts());
+    }
+
+    @Test
+    public void internalServerErrorIsNotRetried() throws Exception {
+        new Expectations() {{
+            docker.pullImage("busybox", null, null); result = errorResponse(500);
+        }};
+
+        RetryingDockerAccess access = new RetryingDockerAccess(docker, settings, log);
+        try {
+            access.pullImage("busybox", null, null);
+            fail();
+        } catch (DockerAccessException exp) {
+            assertEquals(500, TransientFailures.getStatusCode(exp));
+        }
+        new Verifications() {{
+            docker.pullImage("busybox", null, null); times = 1;
+        }};
+        assertTrue(access.getRetryCounts().isEmpty());
+    }
+
+    @Test
+    public void permanentFailureIsNotRetried() throws Exception {
+        new Expectations() {{
+            docker.getImageId("unknown"); result = errorResponse(400);
+        }};
+
+        RetryingDockerAccess access = new RetryingDockerAccess(docker, settings, log);
+        try {
+            access.getImageId("unknown");
+            fail();
+        } catch (DockerAccessException exp) {
+            assertEquals(400, TransientFailures.getStatusCode(exp));
+        }
+        new Verifications() {{
+            docker.getImageId("unknown"); times = 1;
+        }};
+        assertTrue(access.getRetryCounts().isEmpty());
+    }
+
+    @Test
+    public void budgetIsExhausted() throws Exception {
+        new Expectations() {{
+            docker.listNetworks(); result = connectionFailure(new SocketException("Connection reset"));
+        }};
+
+        RetryingDockerAccess access = new RetryingDockerAccess(docker, settings.budget("listNetworks", 2), log);
+        try {
+            access.listNetworks();
+            fail();
+        } catch (DockerAccessException exp) {
+            assertTrue(exp.getMessage().contains("Connection reset"));
+        }
+        new Verifications() {{
+            docker.listNetworks(); times = 3;
+        }};
+    }
+
+    @Test
+    public void nonIdempotentCallIsOnlyRetriedWhenNotSent() throws Exception {
+        ContainerCreateConfig config = new ContainerCreateConfig("busybox");
+        new Expectations() {{
+            docker.createContainer(config, "first");
+            result = connectionFailure(new ConnectException("Connection refused"));
+            result = "1234";
+            docker.createContainer(config, "second");
+            result = connectionFailure(new SocketException("Connection reset"));
+        }};
+
+        RetryingDockerAccess access = new RetryingDockerAccess(docker, settings, log);
+        assertEquals("1234", access.createContainer(config, "first"));
+        try {
+            access.createContainer(config, "second");
+            fail();
+        } catch (DockerAccessException exp) {
+            // A reset connection might have created the container already
+        }
+        new Verifications() {{
+            docker.createContainer(config, "first"); times = 2;
+            docker.createContainer(config, "second"); times = 1;
+        }};
+    }
+
+    @Test
+    public void removeContainerAlreadyDoneByPreviousAttempt() throws Exception {
+        new Expectations() {{
+            docker.removeContainer("1234", true);
+            result = errorResponse(409);
+            result = errorResponse(404);
+        }};
+
+        new RetryingDockerAccess(docker, settings, log).removeContainer("1234", true);
+
+        new Verifications() {{
+            docker.removeContainer("1234", true); times = 2;
+        }};
+    }
+
+    @Test
+    public void conflictIsOnlyRetriedForRemoveContainer() throws Exception {
+        new Expectations() {{
+            docker.removeImage("busybox", true); result = errorResponse(409);
+        }};
+
+        try {
+            new RetryingDockerAccess(docker, settings, log).removeImage("busybox", true);
+            fail();
+        } catch (DockerAccessException exp) {
+            // Image is still in use
+        }
+        new Verifications() {{
+            docker.removeImage("busybox", true); times = 1;
+        }};
+    }
+
+    @Test
+    public void pushIsRetriedOnlyByDelegate() throws Exception {
+        new Expectations() {{
+            docker.pushImage("busybox", null, null, 2); result = errorResponse(503);
+        }};
+
+        try {
+            new RetryingDockerAccess(docker, settings, log).pushImage("busybox", null, null, 2);
+            fail();
+        } catch (DockerAccessException exp) {
+            // Retries of the push are done by the delegate
+        }
+        new Verifications() {{
+            docker.pushImage("busybox", null, null, 2); times = 1;
+        }};
+    }
+
+    @Test
+    public void removeContainerNotFoundOnFirstAttempt() throws Exception {
+        new Expectations() {{
+            docker.removeContainer("1234", false); result = errorResponse(404);
+        }};
+
+        try {
+            new RetryingDockerAccess(docker, settings, log).removeContainer("1234", false);
+            fail();
+        } catch (DockerAccessException exp) {
+            assertEquals(404, TransientFailures.getStatusCode(exp));
+        }
+    }
+
+    @Test
+    public void circuitBreakerFailsFast() throws Exception {
+        new Expectations() {{
+            docker.getImageId(anyString); result = connectionFailure(new ConnectException("Connection refused"));
+        }};
+
+        RetryingDockerAccess access =
+            new RetryingDockerAccess(docker, settings.maxRetries(0).circuitBreakerThreshold(2), log);
+        for (int i = 0; i < 4; i++) {
+            try {
+                access.getImageId("busybox");
+                fail();
+            } catch (DockerAccessException exp) {
+                assertEquals(i >= 2, exp.getMessage().contains("not reachable"));
+            }
+        }
+        new Verifications() {{
+            docker.getImageId(anyString); times = 2;
+        }};
+    }
+
+    @Test
+    public void errorResponsesDontOpenCircuitBreaker() throws Exception {
+        new Expectations() {{
+            docker.getImageId(anyString); result = errorResponse(404);
+        }};
+
+        RetryingDockerAccess access =
+            new RetryingDockerAccess(docker, settings.circuitBreakerThreshold(1), log);
+        for (int i = 0; i < 3; i++) {
+            try {
+                access.getImageId("busybox");
+                fail();
+            } catch (DockerAccessException exp) {
+                assertEquals(404, TransientFailures.getStatusCode(exp));
+            }
+        }
+        new Verifications() {{
+            docker.getImageId(anyString); times = 3;
+        }};
+    }
+
+    @Test
+    public void retriesAreAddedToMetrics() throws Exception {
+        new Expectations() {{
+            docker.startContainer("1234");
+            result = connectionFailure(new SocketException("Broken pipe"));
+            result = errorResponse(304);
+        }};
+
+        AccessMetrics metrics = new AccessMetrics(() -> null);
+        new InstrumentedDockerAccess(new RetryingDockerAccess(docker, settings, log), metrics).startContainer("1234");
+
+        assertEquals(1, metrics.forMethod("startContainer").getCount());
+        assertEquals(0, metrics.forMethod("startContainer").getErrors());
+        assertEquals(1, metrics.forMethod("startContainer").getRetries());
+    }
+
+    @Test
+    public void defaultSettings() throws Exception {
+        new Expectations() {{
+            docker.listImages(false); result = Collections.emptyList();
+        }};
+        assertTrue(new RetryingDockerAccess(docker, new RetrySettings(), log).listImages(false).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBudget() {
+        new RetrySettings().budgets(Collections.singletonMap("pullImage", "many"));
+    }
+
+    private DockerAccessException errorResponse(int status) {
+        return new DockerAccessException(new HttpRequestException("error", status), "Request failed");
+    }
+
+    private DockerAccessException connectionFailure(Exception cause) {
+        return new DockerAccessException(cause, "Request failed");
+    }
+}
@@ -0,0 +1,81 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class BuildContextDigesterTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File dir;
+    private File dockerFile;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = tmp.newFolder("build");
+        write(new File(dir, "maven/hello.txt"), "hello");
+        write(new File(dir, "maven/world.txt"), "world");
+        dockerFile = tmp.newFile("Dockerfile");
+        write(dockerFile, "FROM busybox\n");
+    }
+
+    @Test
+    public void sameContentSameDigest() throws IOException {
+        String digest = digest();
+        assertEquals(64, digest.length());
+
+        // Timestamps are not taken into account
+        new File(dir, "maven/hello.txt").setLastModified(System.currentTimeMillis() - 60_000);
+        assertEquals(digest, digest());
+    }
+
+    @Test
+    public void changedContent() throws IOException {
+        String digest = digest();
+        write(new File(dir, "maven/hello.txt"), "hello!");
+        assertNotEquals(digest, digest());
+    }
+
+    @Test
+    public void changedStructure() throws IOException {
+        String digest = digest();
+        Files.move(new File(dir, "maven/world.txt").toPath(), new File(dir, "maven/moved.txt").toPath());
+        String moved = digest();
+        assertNotEquals(digest, moved);
+
+        write(new File(dir, "maven/extra.txt"), "");
+        assertNotEquals(moved, digest());
+    }
+
+    @Test
+    public void changedDockerfile() throws IOException {
+        String digest = digest();
+        write(dockerFile, "FROM alpine\n");
+        assertNotEquals(digest, digest());
+    }
+
+    private String digest() throws IOException {
+        TarArchiver archiver = new TarArchiver();
+        archiver.addFileSet(DefaultFileSet.fileSet(dir));
+        archiver.addFile(dockerFile, "Dockerfile");
+        return new BuildContextDigester().digest(archiver);
+    }
+
+    private void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
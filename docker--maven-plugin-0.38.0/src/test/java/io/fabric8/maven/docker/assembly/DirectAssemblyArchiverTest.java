@@ -0,0 +1,116 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DirectAssemblyArchiverTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File jar;
+    private File confDir;
+    private File destFile;
+
+    @Before
+    public void setUp() throws IOException {
+        jar = tmp.newFile("lib.jar");
+        write(jar, "jar");
+        confDir = tmp.newFolder("conf");
+        write(new File(confDir, "app.properties"), "name=${name}");
+        destFile = new File(tmp.getRoot(), "maven.direct");
+    }
+
+    @Test
+    public void collectEntries() throws IOException {
+        DirectAssembly assembly = createAssembly(false);
+
+        Map<String, ArchiveEntry> entries = getEntries(assembly);
+        assertEquals(0644, entries.get("lib/lib.jar").getMode() & 07777);
+        assertTrue(entries.containsKey("conf/app.properties"));
+
+        // Nothing is written, and the collected entries are only available once
+        assertFalse(destFile.exists());
+        assertNull(DirectAssemblyArchiver.getAssembly(destFile));
+    }
+
+    @Test
+    public void addTo() throws IOException {
+        TarArchiver archiver = new TarArchiver();
+        createAssembly(false).addTo(archiver, "maven/");
+
+        Map<String, ArchiveEntry> entries = new HashMap<>();
+        ResourceIterator resources = archiver.getResources();
+        while (resources.hasNext()) {
+            ArchiveEntry entry = resources.next();
+            entries.put(entry.getName(), entry);
+        }
+        assertEquals(0644, entries.get("maven/lib/lib.jar").getMode() & 07777);
+        assertTrue(entries.containsKey("maven/conf/app.properties"));
+    }
+
+    @Test
+    public void stage() throws IOException {
+        File dir = tmp.newFolder("build", "maven");
+        write(new File(dir, "stale.txt"), "stale");
+
+        createAssembly(true).stage(dir);
+
+        assertFalse(new File(dir, "stale.txt").exists());
+        File linked = new File(dir, "lib/lib.jar");
+        assertEquals("jar", read(linked));
+        assertEquals(2, Files.getAttribute(linked.toPath(), "unix:nlink"));
+        // Filtered content is copied
+        assertEquals("name=test", read(new File(dir, "conf/app.properties")));
+    }
+
+    private DirectAssembly createAssembly(boolean filter) throws IOException {
+        DirectAssemblyArchiver archiver = new DirectAssemblyArchiver();
+        archiver.setDestFile(destFile);
+        archiver.addFile(jar, "lib/lib.jar", 0644);
+        DefaultFileSet fileSet = DefaultFileSet.fileSet(confDir).prefixed("conf/");
+        if (filter) {
+            fileSet.setStreamTransformer((resource, in) ->
+                IOUtils.toInputStream(IOUtils.toString(in, StandardCharsets.UTF_8).replace("${name}", "test"), StandardCharsets.UTF_8));
+        }
+        archiver.addFileSet(fileSet);
+        archiver.createArchive();
+        return DirectAssemblyArchiver.getAssembly(destFile);
+    }
+
+    private Map<String, ArchiveEntry> getEntries(DirectAssembly assembly) {
+        Map<String, ArchiveEntry> entries = new HashMap<>();
+        for (ArchiveEntry entry : assembly.getEntries()) {
+            entries.put(entry.getName(), entry);
+        }
+        return entries;
+    }
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
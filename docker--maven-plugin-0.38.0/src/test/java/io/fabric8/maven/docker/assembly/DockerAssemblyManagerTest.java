@@ -2,6 +2,8 @@ package io.fabric8.maven.docker.assembly;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -16,6 +18,7 @@ import io.fabric8.maven.docker.util.AnsiLogger;
 import io.fabric8.maven.docker.util.DockerFileUtil;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.MojoParameters;
+import mockit.Delegate;
 import mockit.Expectations;
 import mockit.Injectable;
 import mockit.Mock;
@@ -46,9 +49,12 @@ import org.codehaus.plexus.archiver.manager.ArchiverManager;
 import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
 import org.codehaus.plexus.archiver.tar.TarArchiver;
 import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.PlexusIoResourceCollection;
 import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
 import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -71,6 +77,9 @@ public class DockerAssemblyManagerTest {
     @Injectable
     private TrackArchiverCollection trackArchivers;
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void testNoAssembly() {
         BuildImageConfiguration buildConfig = new BuildImageConfiguration();
@@ -270,12 +279,14 @@ public class DockerAssemblyManagerTest {
             List<FileSet> fileSets = new ArrayList<>();
             tarArchiver.addFileSet(withCapture(fileSets));
 
-            assertEquals(2, fileSets.size());
+            assertEquals(1, fileSets.size());
             assertEquals("build", fileSets.get(0).getDirectory().getName());
             assertNull(fileSets.get(0).getIncludes());
             assertNull(fileSets.get(0).getExcludes());
-            assertArrayEquals(new String[]{"target/**", "Dockerfile.test"}, fileSets.get(1).getExcludes());
-            assertNull(fileSets.get(1).getIncludes());
+
+            List<PlexusIoResourceCollection> collections = new ArrayList<>();
+            tarArchiver.addResources(withCapture(collections));
+            assertContextExcludes(collections);
         }};
     }
 
@@ -304,15 +315,54 @@ public class DockerAssemblyManagerTest {
             List<FileSet> fileSets = new ArrayList<>();
             tarArchiver.addFileSet(withCapture(fileSets));
 
-            assertEquals(2, fileSets.size());
+            assertEquals(1, fileSets.size());
             assertEquals("build", fileSets.get(0).getDirectory().getName());
             assertNull(fileSets.get(0).getIncludes());
             assertNull(fileSets.get(0).getExcludes());
-            assertArrayEquals(new String[]{"target/**", "Dockerfile.test"}, fileSets.get(1).getExcludes());
-            assertNull(fileSets.get(1).getIncludes());
+
+            List<PlexusIoResourceCollection> collections = new ArrayList<>();
+            tarArchiver.addResources(withCapture(collections));
+            assertContextExcludes(collections);
         }};
     }
 
+    @Test
+    public void testArchiveCreationDockerfileWithDockerIgnore(@Injectable final TarArchiver tarArchiver,
+                                                              @Injectable final Logger logger) throws Exception {
+        File contextDir = tmp.newFolder("context");
+        File dockerFile = new File(contextDir, "Dockerfile");
+        Files.write(dockerFile.toPath(), "FROM busybox\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(contextDir, ".dockerignore").toPath(), "node_modules\n".getBytes(StandardCharsets.UTF_8));
+
+        // Only used when enabled
+        assertFalse(createContextMatcher(tarArchiver, dockerFile, null, logger).isExcluded("node_modules/index.js"));
+        DockerIgnoreMatcher matcher = createContextMatcher(tarArchiver, dockerFile, true, logger);
+        assertTrue(matcher.isExcluded("node_modules/index.js"));
+        assertFalse(matcher.isExcluded("src/index.js"));
+
+        new Verifications() {{
+            logger.info(withSubstring("Excluding files"), (Object[]) any);
+            times = 1;
+        }};
+    }
+
+    private DockerIgnoreMatcher createContextMatcher(final TarArchiver tarArchiver, File dockerFile, Boolean useDockerIgnore, Logger logger)
+            throws MojoExecutionException {
+        BuildImageConfiguration buildImageConfiguration = new BuildImageConfiguration.Builder()
+                .dockerFile(dockerFile.getPath())
+                .useDockerIgnore(useDockerIgnore)
+                .build();
+        buildImageConfiguration.initAndValidate(logger);
+
+        assemblyManager.createDockerTarArchive("test_image", mockMojoParams(mockMavenProject()), buildImageConfiguration, logger, null);
+
+        final List<PlexusIoResourceCollection> collections = new ArrayList<>();
+        new Verifications() {{
+            tarArchiver.addResources(withCapture(collections));
+        }};
+        return ((ContextDirResourceCollection) collections.get(collections.size() - 1)).getMatcher();
+    }
+
     @Test
     public void testArchiveCreationDockerfileWithArchiveAssembly(@Injectable final TarArchiver tarArchiver,
                                                              @Injectable final Logger logger) throws MojoExecutionException, NoSuchArchiverException {
@@ -336,12 +386,12 @@ public class DockerAssemblyManagerTest {
             archiverManager.getArchiver("tar");
             times = 1;
 
-            List<FileSet> fileSets = new ArrayList<>();
-            tarArchiver.addFileSet(withCapture(fileSets));
+            tarArchiver.addFileSet((FileSet) any);
+            times = 0;
 
-            assertEquals(1, fileSets.size());
-            assertArrayEquals(new String[]{"target/**", "Dockerfile.test"}, fileSets.get(0).getExcludes());
-            assertNull(fileSets.get(0).getIncludes());
+            List<PlexusIoResourceCollection> collections = new ArrayList<>();
+            tarArchiver.addResources(withCapture(collections));
+            assertContextExcludes(collections);
 
             tarArchiver.addFile(new File("target/test_image/build/Dockerfile.test"), "Dockerfile.test");
 
@@ -354,6 +404,136 @@ public class DockerAssemblyManagerTest {
         }};
     }
 
+    @Test
+    public void testArchiveCreationDockerfileWithDirectAssembly(@Injectable final TarArchiver tarArchiver,
+                                                                @Injectable final Logger logger) throws Exception {
+        MojoParameters mojoParams = mockMojoParams(mockMavenProject());
+        final File jar = new File(DockerAssemblyManagerTest.class.getResource("/docker/Dockerfile.test").getPath());
+
+        BuildImageConfiguration buildImageConfiguration = new BuildImageConfiguration.Builder()
+                .dockerFile(DockerAssemblyManagerTest.class.getResource("/docker/Dockerfile.test").getPath())
+                .assembly(new AssemblyConfiguration.Builder()
+                        .mode(AssemblyMode.direct.name())
+                        .assemblyDef(new Assembly())
+                        .build()
+                )
+                .build();
+        buildImageConfiguration.initAndValidate(logger);
+
+        new Expectations() {{
+            assemblyArchiver.createArchive((Assembly) any, "maven", "direct", (AssemblerConfigurationSource) any, false, null);
+            result = new Delegate<File>() {
+                File createArchive(Assembly assembly, String name, String format, AssemblerConfigurationSource source,
+                                   boolean recompress, String mergeManifestMode) throws IOException {
+                    DirectAssemblyArchiver archiver = new DirectAssemblyArchiver();
+                    archiver.setDestFile(new File(source.getOutputDirectory(), name + "." + format));
+                    archiver.addFile(jar, "lib/app.jar", 0640);
+                    archiver.createArchive();
+                    return archiver.getDestFile();
+                }
+            };
+        }};
+
+        File tarArchive = assemblyManager.createDockerTarArchive("test_image", mojoParams, buildImageConfiguration, logger, null);
+
+        assertNotNull(tarArchive);
+        assertFalse(new File("target/test_image/build/maven").exists());
+
+        new Verifications() {{
+            List<FileSet> fileSets = new ArrayList<>();
+            tarArchiver.addFileSet(withCapture(fileSets));
+
+            assertEquals(1, fileSets.size());
+            assertEquals("build", fileSets.get(0).getDirectory().getName());
+            assertArrayEquals(new String[]{"maven/**"}, fileSets.get(0).getExcludes());
+            List<PlexusIoResourceCollection> collections = new ArrayList<>();
+            tarArchiver.addResources(withCapture(collections));
+            assertContextExcludes(collections);
+
+            List<PlexusIoResource> resources = new ArrayList<>();
+            tarArchiver.addResource(withCapture(resources), "maven/lib/app.jar", 0640);
+            assertEquals(1, resources.size());
+            assertEquals(jar.length(), resources.get(0).getSize());
+        }};
+    }
+
+    @Test
+    public void testArchiveCreationReusesAssembliesOfDigest(@Injectable final TarArchiver tarArchiver,
+                                                            @Injectable final Logger logger) throws Exception {
+        MojoParameters mojoParams = mockMojoParams(mockMavenProject());
+        final File jar = new File(DockerAssemblyManagerTest.class.getResource("/docker/Dockerfile.test").getPath());
+
+        BuildImageConfiguration buildImageConfiguration = new BuildImageConfiguration.Builder()
+                .dockerFile(DockerAssemblyManagerTest.class.getResource("/docker/Dockerfile.test").getPath())
+                .assembly(new AssemblyConfiguration.Builder()
+                        .mode(AssemblyMode.direct.name())
+                        .assemblyDef(new Assembly())
+                        .build()
+                )
+                .build();
+        buildImageConfiguration.initAndValidate(logger);
+
+        new Expectations() {{
+            assemblyArchiver.createArchive((Assembly) any, "maven", "direct", (AssemblerConfigurationSource) any, false, null);
+            result = new Delegate<File>() {
+                File createArchive(Assembly assembly, String name, String format, AssemblerConfigurationSource source,
+                                   boolean recompress, String mergeManifestMode) throws IOException {
+                    DirectAssemblyArchiver archiver = new DirectAssemblyArchiver();
+                    archiver.setDestFile(new File(source.getOutputDirectory(), name + "." + format));
+                    archiver.addFile(jar, "lib/app.jar", 0640);
+                    archiver.createArchive();
+                    return archiver.getDestFile();
+                }
+            };
+            times = 1;
+        }};
+
+        String digest = assemblyManager.createDockerTarArchiveDigest("test_image", mojoParams, buildImageConfiguration, logger);
+        File tarArchive = assemblyManager.createDockerTarArchive("test_image", mojoParams, buildImageConfiguration, logger, null);
+
+        assertNotNull(digest);
+        assertNotNull(tarArchive);
+    }
+
+    @Test
+    public void testArchiveCreationAfterDiscardedDigestPreparesAssembliesAgain(@Injectable final TarArchiver tarArchiver,
+                                                                       @Injectable final Logger logger) throws Exception {
+        MojoParameters mojoParams = mockMojoParams(mockMavenProject());
+        final File jar = new File(DockerAssemblyManagerTest.class.getResource("/docker/Dockerfile.test").getPath());
+
+        BuildImageConfiguration buildImageConfiguration = new BuildImageConfiguration.Builder()
+                .dockerFile(DockerAssemblyManagerTest.class.getResource("/docker/Dockerfile.test").getPath())
+                .assembly(new AssemblyConfiguration.Builder()
+                        .mode(AssemblyMode.direct.name())
+                        .assemblyDef(new Assembly())
+                        .build()
+                )
+                .build();
+        buildImageConfiguration.initAndValidate(logger);
+
+        new Expectations() {{
+            assemblyArchiver.createArchive((Assembly) any, "maven", "direct", (AssemblerConfigurationSource) any, false, null);
+            result = new Delegate<File>() {
+                File createArchive(Assembly assembly, String name, String format, AssemblerConfigurationSource source,
+                                   boolean recompress, String mergeManifestMode) throws IOException {
+                    DirectAssemblyArchiver archiver = new DirectAssemblyArchiver();
+                    archiver.setDestFile(new File(source.getOutputDirectory(), name + "." + format));
+                    archiver.addFile(jar, "lib/app.jar", 0640);
+                    archiver.createArchive();
+                    return archiver.getDestFile();
+                }
+            };
+            times = 2;
+        }};
+
+        String digest = assemblyManager.createDockerTarArchiveDigest("test_image", mojoParams, buildImageConfiguration, logger);
+        assemblyManager.discardPreparedArchive("test_image");
+        File tarArchive = assemblyManager.createDockerTarArchive("test_image", mojoParams, buildImageConfiguration, logger, null);
+
+        assertNotNull(digest);
+        assertNotNull(tarArchive);
+    }
+
     @Test
     public void testArchiveCreationDockerfileWithMultipleArchiveAssemblies(@Injectable final TarArchiver tarArchiver,
                                                                  @Injectable final Logger logger) throws MojoExecutionException, NoSuchArchiverException {
@@ -384,12 +564,12 @@ public class DockerAssemblyManagerTest {
             archiverManager.getArchiver("tar");
             times = 1;
 
-            List<FileSet> fileSets = new ArrayList<>();
-            tarArchiver.addFileSet(withCapture(fileSets));
+            tarArchiver.addFileSet((FileSet) any);
+            times = 0;
 
-            assertEquals(1, fileSets.size());
-            assertArrayEquals(new String[]{"target/**", "Dockerfile.test"}, fileSets.get(0).getExcludes());
-            assertNull(fileSets.get(0).getIncludes());
+            List<PlexusIoResourceCollection> collections = new ArrayList<>();
+            tarArchiver.addResources(withCapture(collections));
+            assertContextExcludes(collections);
 
             tarArchiver.addFile(new File("target/test_image/build/Dockerfile.test"), "Dockerfile.test");
 
@@ -557,6 +737,16 @@ public class DockerAssemblyManagerTest {
         return project;
     }
 
+    // The context directory is added with the Dockerfile and the output directory excluded
+    private void assertContextExcludes(List<PlexusIoResourceCollection> collections) {
+        assertEquals(1, collections.size());
+        DockerIgnoreMatcher matcher = ((ContextDirResourceCollection) collections.get(0)).getMatcher();
+        assertTrue(matcher.isExcluded("target/classes/App.class"));
+        assertTrue(matcher.isExcluded("Dockerfile.test"));
+        assertTrue(matcher.isExcluded(".git/HEAD"));
+        assertFalse(matcher.isExcluded("src/main/java/App.java"));
+    }
+
     private MojoParameters mockMojoParams(MavenProject project) {
         Settings settings = new Settings();
         ArtifactRepository localRepository = new MavenArtifactRepository() {
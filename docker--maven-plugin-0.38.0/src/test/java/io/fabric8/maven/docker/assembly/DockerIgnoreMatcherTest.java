@@ -0,0 +1,154 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.codehaus.plexus.util.AbstractScanner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DockerIgnoreMatcherTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void dockerIgnoreSemantics() {
+        DockerIgnoreMatcher matcher = new DockerIgnoreMatcher().addDockerIgnore(Arrays.asList(
+            "# comment",
+            "",
+            "node_modules",
+            "/target/",
+            "**/*.log",
+            "!important.log",
+            "docs/*",
+            "!docs/README.md",
+            "temp?",
+            "[a-c].txt"));
+
+        // A pattern matching a directory excludes everything below
+        assertTrue(matcher.isExcluded("node_modules"));
+        assertTrue(matcher.isExcluded("node_modules/lodash/index.js"));
+        assertFalse(matcher.isExcluded("src/node_modules"));
+        assertTrue(matcher.isExcluded("target/classes/App.class"));
+
+        assertTrue(matcher.isExcluded("debug.log"));
+        assertTrue(matcher.isExcluded("logs/deep/debug.log"));
+        assertFalse(matcher.isExcluded("important.log"));
+
+        assertTrue(matcher.isExcluded("docs/guide.md"));
+        assertFalse(matcher.isExcluded("docs/README.md"));
+
+        assertTrue(matcher.isExcluded("temp1"));
+        assertFalse(matcher.isExcluded("temp12"));
+        assertTrue(matcher.isExcluded("b.txt"));
+        assertFalse(matcher.isExcluded("d.txt"));
+        assertFalse(matcher.isExcluded("src/Main.java"));
+    }
+
+    @Test
+    public void antSemantics() {
+        DockerIgnoreMatcher matcher = new DockerIgnoreMatcher()
+            .addExcludes(Arrays.asList("target/classes/**", "*.iml", "out/", "Dockerfile"));
+
+        assertTrue(matcher.isExcluded("target/classes"));
+        assertTrue(matcher.isExcluded("target/classes/App.class"));
+        assertFalse(matcher.isExcluded("target/app.jar"));
+        assertTrue(matcher.isExcluded("demo.iml"));
+        assertFalse(matcher.isExcluded("module/demo.iml"));
+        assertTrue(matcher.isExcluded("out/file"));
+        // Ant patterns don't match below a matching directory
+        assertTrue(matcher.isExcluded("Dockerfile"));
+        assertFalse(matcher.isExcluded("Dockerfile/nested"));
+
+        DockerIgnoreMatcher includes = new DockerIgnoreMatcher().addIncludes(Collections.singletonList("target/*.jar"));
+        assertTrue(includes.isIncluded("target/app.jar"));
+        assertFalse(includes.isIncluded("target/classes/App.class"));
+        assertFalse(includes.isIncluded("pom.xml"));
+    }
+
+    @Test
+    public void antExcludesWinOverReinclusion() {
+        DockerIgnoreMatcher matcher = new DockerIgnoreMatcher()
+            .addExcludes(Collections.singletonList("target/docker/**"))
+            .addDockerIgnore(Arrays.asList("target", "!target/docker", "!target/app.jar"));
+
+        assertTrue(matcher.isExcluded("target/docker/build/Dockerfile"));
+        assertFalse(matcher.isExcluded("target/app.jar"));
+        assertTrue(matcher.isExcluded("target/classes"));
+    }
+
+    @Test
+    public void canSkipContents() {
+        DockerIgnoreMatcher matcher = new DockerIgnoreMatcher()
+            .addDockerIgnore(Arrays.asList("node_modules", "target", "!target/*.jar", "**/.cache", "build/**"))
+            .addExcludes(Collections.singletonList("**/.git/**"));
+
+        assertTrue(matcher.canSkipContents("node_modules"));
+        assertTrue(matcher.canSkipContents("node_modules/lodash"));
+        assertTrue(matcher.canSkipContents("web/.cache"));
+        assertTrue(matcher.canSkipContents(".git"));
+        assertTrue(matcher.canSkipContents("module/.git/objects"));
+        assertTrue(matcher.canSkipContents("build"));
+        assertFalse(matcher.isExcluded("build"));
+        assertTrue(matcher.isExcluded("build/out.txt"));
+        // A re-inclusion might match below
+        assertFalse(matcher.canSkipContents("target"));
+        assertFalse(matcher.canSkipContents("src"));
+
+        DockerIgnoreMatcher includes = new DockerIgnoreMatcher().addIncludes(Collections.singletonList("target/*.jar"));
+        assertTrue(includes.canSkipContents("src"));
+        assertFalse(includes.canSkipContents("target"));
+        assertTrue(includes.canSkipContents("target/classes"));
+    }
+
+    @Test
+    public void sameSelectionAsFileSet() throws IOException {
+        File dir = tmp.newFolder("context");
+        for (String path : new String[] {
+            "Dockerfile", "pom.xml", "demo.iml", "src/main/App.java", "src/main/.git/config",
+            "target/app.jar", "target/classes/App.class", "target/docker/build/Dockerfile",
+            ".git/HEAD", "module/demo.iml", "module/out/file.txt", "logs/app.log" }) {
+            File file = new File(dir, path);
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), path.getBytes());
+        }
+        new File(dir, "empty").mkdirs();
+        String[] excludes = { "target/docker/**", "target/classes/**", "*.iml", "**/out/", "Dockerfile" };
+
+        DefaultFileSet fileSet = DefaultFileSet.fileSet(dir);
+        fileSet.setExcludes(excludes);
+        TarArchiver expected = new TarArchiver();
+        expected.addFileSet(fileSet);
+
+        DockerIgnoreMatcher matcher = new DockerIgnoreMatcher()
+            .addExcludes(Arrays.asList(excludes))
+            .addExcludes(Arrays.asList(AbstractScanner.DEFAULTEXCLUDES));
+        TarArchiver actual = new TarArchiver();
+        actual.addResources(new ContextDirResourceCollection(dir, matcher));
+
+        assertEquals(getNames(expected), getNames(actual));
+    }
+
+    private Set<String> getNames(TarArchiver archiver) {
+        Set<String> names = new TreeSet<>();
+        ResourceIterator resources = archiver.getResources();
+        while (resources.hasNext()) {
+            names.add(resources.next().getName());
+        }
+        return names;
+    }
+}
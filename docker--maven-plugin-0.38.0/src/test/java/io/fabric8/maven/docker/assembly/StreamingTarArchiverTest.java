@@ -0,0 +1,138 @@
+package io.fabric8.maven.docker.assembly;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.tar.TarLongFileMode;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingTarArchiverTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void streamsAllResources() throws IOException {
+        Map<String, String> entries = streamAndRead(ArchiveCompression.none);
+        assertEquals("FROM busybox\n", entries.get("Dockerfile"));
+        assertEquals("hello", entries.get("maven/hello.txt"));
+        assertTrue(entries.containsKey(longName()));
+    }
+
+    @Test
+    public void streamsCompressed() throws IOException {
+        Map<String, String> entries = streamAndRead(ArchiveCompression.gzip);
+        assertEquals("FROM busybox\n", entries.get("Dockerfile"));
+        assertEquals("hello", entries.get("maven/hello.txt"));
+    }
+
+    @Test
+    public void deduplicatesFiles() throws IOException {
+        File dir = tmp.newFolder("build");
+        write(new File(dir, "app1/lib/commons.jar"), "jar content");
+        write(new File(dir, "app2/lib/commons.jar"), "jar content");
+        write(new File(dir, "app3/lib/commons.jar"), "jar content");
+        // Same size, but different content
+        write(new File(dir, "app2/lib/other.jar"), "jar-content");
+        File script = new File(dir, "app3/run.sh");
+        write(script, "jar content");
+        assertTrue(script.setExecutable(true));
+
+        TarArchiver source = new TarArchiver();
+        source.addFileSet(DefaultFileSet.fileSet(dir));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingTarArchiver archiver = new StreamingTarArchiver(true);
+        archiver.stream(source, ArchiveCompression.none, out);
+
+        assertEquals(2, archiver.getLinkedFiles());
+        assertEquals(22, archiver.getSavedBytes());
+
+        Map<String, String> links = new HashMap<>();
+        Map<String, String> files = new HashMap<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextTarEntry()) != null) {
+                if (entry.isLink()) {
+                    links.put(entry.getName(), entry.getLinkName());
+                } else if (!entry.isDirectory()) {
+                    files.put(entry.getName(), IOUtils.toString(tar, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        // The first of the copies is added as file, which depends on the order of the file system
+        assertEquals(2, links.size());
+        String target = links.values().iterator().next();
+        assertEquals(Collections.singleton(target), new HashSet<>(links.values()));
+        assertFalse(links.containsKey(target));
+        assertTrue(target.endsWith("/lib/commons.jar"));
+        assertEquals("jar content", files.get(target));
+        assertEquals("jar-content", files.get("app2/lib/other.jar"));
+        // Different mode
+        assertEquals("jar content", files.get("app3/run.sh"));
+    }
+
+    private Map<String, String> streamAndRead(ArchiveCompression compression) throws IOException {
+        File dir = tmp.newFolder("build");
+        write(new File(dir, "maven/hello.txt"), "hello");
+        write(new File(dir, longName()), "long");
+        File dockerFile = tmp.newFile("Dockerfile");
+        write(dockerFile, "FROM busybox\n");
+
+        TarArchiver source = new TarArchiver();
+        source.setLongfile(TarLongFileMode.posix);
+        source.addFileSet(DefaultFileSet.fileSet(dir));
+        source.addFile(dockerFile, "Dockerfile");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamingTarArchiver().stream(source, compression, out);
+
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        if (compression == ArchiveCompression.gzip) {
+            in = new GZIPInputStream(in);
+        }
+        Map<String, String> ret = new HashMap<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(in)) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextTarEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    ret.put(entry.getName(), IOUtils.toString(tar, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private String longName() {
+        return "maven/" + String.join("/", new String[] {
+            "a-rather-long-directory-name-0123456789",
+            "another-rather-long-directory-name-0123456789",
+            "and-a-third-rather-long-directory-name-0123456789" }) + "/file.txt";
+    }
+
+    private void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
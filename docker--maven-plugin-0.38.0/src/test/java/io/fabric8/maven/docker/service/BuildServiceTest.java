@@ -1,32 +1,51 @@
 package io.fabric8.maven.docker.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-
+import java.util.List;
 import java.util.Properties;
 
 
+import com.google.gson.JsonObject;
+import io.fabric8.maven.docker.access.ArchiveWriter;
 import io.fabric8.maven.docker.access.BuildOptions;
 import io.fabric8.maven.docker.access.DockerAccess;
 import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.access.DockerTransport;
 import io.fabric8.maven.docker.assembly.DockerAssemblyManagerInterface;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.util.AnsiLogger;
+import io.fabric8.maven.docker.util.CompressionSelector;
 import io.fabric8.maven.docker.util.DockerFileUtilTest;
 import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.docker.model.ImageDetails;
+import io.fabric8.maven.docker.util.JsonFactory;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.MojoParameters;
+import mockit.Delegate;
 import mockit.Expectations;
 import mockit.FullVerifications;
 import mockit.Injectable;
 import mockit.Mocked;
 import mockit.Tested;
 import mockit.Verifications;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.monitor.logging.DefaultLog;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 
 public class BuildServiceTest {
@@ -74,8 +93,8 @@ public class BuildServiceTest {
     @Before
     public void setup() throws Exception {
         new Expectations() {{
-            archiveService.createArchive(anyString, (BuildImageConfiguration) any, (MojoParameters) any, log);
-            result = new File("docker-build.tar");
+            archiveService.createArchive(anyString, (BuildImageConfiguration) any, (MojoParameters) any, log, (CompressionSelector) any);
+            result = new File("docker-build.tar"); minTimes = 0;
         }};
     }
 
@@ -192,6 +211,63 @@ public class BuildServiceTest {
         }};
     }
 
+    @Test
+    public void testPrefetchImages() throws Exception {
+        ImageConfiguration baseImage = new ImageConfiguration.Builder()
+                .name("base-image")
+                .buildConfig(new BuildImageConfiguration.Builder().from("busybox:1.36").cacheFrom("fabric8/s1i-java").build())
+                .build();
+        ImageConfiguration derivedImage = new ImageConfiguration.Builder()
+                .name("derived-image")
+                .buildConfig(new BuildImageConfiguration.Builder().from("base-image:latest").build())
+                .build();
+        final ImagePullManager pullManager = new ImagePullManager(null, null, null);
+        final BuildService.BuildContext buildContext = new BuildService.BuildContext.Builder()
+                .mojoParameters(mojoParameters)
+                .build();
+
+        List<String> pulls = Collections.synchronizedList(new ArrayList<>());
+        new Expectations(mojoParameters) {{
+            mojoParameters.getProject(); result = mavenProject;
+            mavenProject.getProperties(); result = new Properties();
+            registryService.pullImageWithPolicy(anyString, (ImagePullManager) any, (RegistryService.RegistryConfig) any, anyBoolean);
+            result = new Delegate<Void>() {
+                void pullImageWithPolicy(String image, ImagePullManager manager, RegistryService.RegistryConfig registryConfig, boolean hasImage) {
+                    pulls.add(image + "@" + Thread.currentThread().getName());
+                }
+            };
+        }};
+
+        try {
+            buildService.prefetchImages(Arrays.asList(baseImage, derivedImage), image -> pullManager, buildContext, 2);
+            File buildArchive = buildService.buildArchive(baseImage, buildContext, "");
+            buildService.buildImage(baseImage, pullManager, buildContext, buildArchive);
+        } finally {
+            buildService.cancelPrefetch();
+        }
+
+        // Both images used by the base image are pulled in the background before the build checks them again,
+        // the base image built in the same run isn't pulled at all
+        String buildThread = Thread.currentThread().getName();
+        List<String> prefetched = new ArrayList<>();
+        for (String pull : pulls) {
+            if (pull.contains("@docker-pull-")) {
+                prefetched.add(pull.substring(0, pull.indexOf('@')));
+            }
+        }
+        Collections.sort(prefetched);
+        assertEquals(Arrays.asList("busybox:1.36", "fabric8/s1i-java"), prefetched);
+        for (String image : prefetched) {
+            int prefetchIdx = -1;
+            for (int i = 0; i < pulls.size(); i++) {
+                if (pulls.get(i).startsWith(image + "@docker-pull-")) {
+                    prefetchIdx = i;
+                }
+            }
+            assertTrue(prefetchIdx < pulls.indexOf(image + "@" + buildThread));
+        }
+    }
+
     @Test
     public void testDockerBuildArchiveOnly() throws Exception {
         givenAnImageConfiguration(true);
@@ -202,6 +278,41 @@ public class BuildServiceTest {
         assertNotNull(dockerArchive);
     }
 
+    @Test
+    public void testStreamedArchiveCopyIsNamedAfterSelectedCompression() throws Exception {
+        imageConfig = new ImageConfiguration.Builder()
+                .name("build-image")
+                .buildConfig(new BuildImageConfiguration.Builder().compression("auto").build())
+                .build();
+        final BuildService.BuildContext buildContext = new BuildService.BuildContext.Builder()
+                .mojoParameters(mojoParameters)
+                .build();
+        new Expectations() {{
+            docker.getTransport(); result = new DockerTransport(false);
+            archiveService.createArchiveWriter(anyString, (BuildImageConfiguration) any, (MojoParameters) any, log, (CompressionSelector) any);
+            result = new Delegate<ArchiveWriter>() {
+                ArchiveWriter createArchiveWriter(String imageName, BuildImageConfiguration buildConfig, MojoParameters params,
+                                                  Logger log, CompressionSelector selector) {
+                    return out -> {
+                        byte[] sample = new byte[10000];
+                        out.write(sample);
+                        selector.select(sample, sample.length);
+                    };
+                }
+            };
+        }};
+
+        File archiveDir = Files.createTempDirectory("docker-build").toFile();
+        try {
+            buildService.buildArchiveWriter(imageConfig, buildContext, archiveDir.getAbsolutePath())
+                        .write(new ByteArrayOutputStream());
+            assertTrue(new File(archiveDir, "docker-build.tar.gz").exists());
+            assertFalse(new File(archiveDir, "docker-build.tar").exists());
+        } finally {
+            FileUtils.deleteDirectory(archiveDir);
+        }
+    }
+
     @Test (expected = MojoExecutionException.class)
     public void testDockerBuildArchiveOnlyWithInvalidPath() throws MojoExecutionException{
         givenAnImageConfiguration(true);
@@ -231,6 +342,125 @@ public class BuildServiceTest {
         }};
     }
 
+    @Test
+    public void testPrefetchImagesWithoutProgress() throws Exception {
+        ImageConfiguration image = new ImageConfiguration.Builder()
+                .name("build-image")
+                .buildConfig(new BuildImageConfiguration.Builder().from("busybox:1.36").build())
+                .build();
+        final ImagePullManager pullManager = new ImagePullManager(null, null, null);
+        final BuildService.BuildContext buildContext = new BuildService.BuildContext.Builder()
+                .mojoParameters(mojoParameters)
+                .build();
+        final AnsiLogger ansiLogger = new AnsiLogger(new DefaultLog(new ConsoleLogger()), false, null, false, "T>");
+
+        new Expectations(mojoParameters) {{
+            mojoParameters.getProject(); result = mavenProject;
+            mavenProject.getProperties(); result = new Properties();
+            registryService.pullImageWithPolicy(anyString, (ImagePullManager) any, (RegistryService.RegistryConfig) any, anyBoolean);
+            result = new Delegate<Void>() {
+                void pullImageWithPolicy(String image, ImagePullManager manager, RegistryService.RegistryConfig registryConfig, boolean hasImage) {
+                    if (Thread.currentThread().getName().startsWith("docker-pull-")) {
+                        ansiLogger.progressStart();
+                        ansiLogger.progressUpdate("prefetched", "Downloading", "[=>  ]");
+                        ansiLogger.progressFinished();
+                    }
+                }
+            };
+        }};
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            buildService.prefetchImages(Collections.singletonList(image), config -> pullManager, buildContext, 1);
+            File buildArchive = buildService.buildArchive(image, buildContext, "");
+            buildService.buildImage(image, pullManager, buildContext, buildArchive);
+
+            // Progress of the current thread is still shown
+            ansiLogger.progressStart();
+            ansiLogger.progressUpdate("current", "Downloading", "[=>  ]");
+            ansiLogger.progressFinished();
+        } finally {
+            buildService.cancelPrefetch();
+            System.setOut(out);
+        }
+
+        // Only the current thread has written a progress indicator
+        String output = captured.toString();
+        assertEquals(output.indexOf('#'), output.lastIndexOf('#'));
+        assertTrue(output.contains("#"));
+    }
+
+    @Test
+    public void testBuildImageFromCache() throws Exception {
+        givenAnImageConfiguration(false);
+        final BuildService.BuildContext buildContext = new BuildService.BuildContext.Builder()
+                .mojoParameters(mojoParameters)
+                .build();
+        new Expectations(mojoParameters) {{
+            mojoParameters.getProject(); result = mavenProject;
+            mavenProject.getProperties(); result = new Properties();
+            archiveService.createArchiveDigest(anyString, (BuildImageConfiguration) any, (MojoParameters) any, log);
+            result = "context"; result = "context"; result = "changed";
+            queryService.listImages(false); result = Collections.emptyList();
+        }};
+
+        // No image yet, so the image is built and gets the digest as label
+        assertFalse(buildService.buildImageFromCache(imageConfig, null, buildContext));
+        File buildArchive = buildService.buildArchive(imageConfig, buildContext, "");
+        buildService.buildImage(imageConfig, null, buildContext, buildArchive);
+        final List<BuildOptions> buildOptions = new ArrayList<>();
+        new Verifications() {{
+            docker.buildImage(imageConfig.getName(), (File) any, withCapture(buildOptions));
+        }};
+        String digest = JsonFactory.newJsonObject(buildOptions.get(0).getOptions().get("labels"))
+                                   .get(BuildService.BUILD_DIGEST_LABEL).getAsString();
+
+        JsonObject cachedImage = new JsonObject();
+        cachedImage.addProperty(ImageDetails.ID, "sha256:" + NEW_IMAGE_ID);
+        cachedImage.add(ImageDetails.LABELS, JsonFactory.newJsonObject(Collections.singletonMap(BuildService.BUILD_DIGEST_LABEL, digest)));
+        new Expectations() {{
+            queryService.listImages(false); result = Collections.singletonList(new ImageDetails(cachedImage));
+        }};
+
+        // Unchanged inputs, the existing image is tagged
+        assertTrue(buildService.buildImageFromCache(imageConfig, null, buildContext));
+        new Verifications() {{
+            docker.tag("sha256:" + NEW_IMAGE_ID, imageConfig.getName(), true); times = 1;
+            archiveService.discardPreparedArchive(imageConfig.getName()); times = 1;
+        }};
+
+        // Changed build context, so a build is required
+        assertFalse(buildService.buildImageFromCache(imageConfig, null, buildContext));
+    }
+
+    @Test
+    public void testBuildKitEnabledBySystemProperty() throws Exception {
+        givenAnImageConfiguration(false);
+        final BuildService.BuildContext buildContext = new BuildService.BuildContext.Builder()
+                .mojoParameters(mojoParameters)
+                .build();
+        new Expectations(mojoParameters) {{
+            mojoParameters.getProject(); result = mavenProject;
+            mavenProject.getProperties(); result = new Properties();
+        }};
+
+        System.setProperty("docker.buildKit", "");
+        try {
+            File buildArchive = buildService.buildArchive(imageConfig, buildContext, "");
+            buildService.buildImage(imageConfig, null, buildContext, buildArchive);
+        } finally {
+            System.clearProperty("docker.buildKit");
+        }
+
+        final List<BuildOptions> buildOptions = new ArrayList<>();
+        new Verifications() {{
+            docker.buildImage(imageConfig.getName(), (File) any, withCapture(buildOptions));
+        }};
+        assertTrue(buildOptions.get(0).isBuildKit());
+    }
+
     private void givenAnImageConfiguration(Boolean cleanup) {
         BuildImageConfiguration buildConfig = new BuildImageConfiguration.Builder()
                 .cleanup(cleanup.toString())
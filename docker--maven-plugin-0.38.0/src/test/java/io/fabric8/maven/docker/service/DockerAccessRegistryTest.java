@@ -0,0 +1,124 @@
+package io.fabric8.maven.docker.service;
+
+import io.fabric8.maven.docker.access.DockerAccess;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DockerAccessRegistryTest {
+
+    @Mocked
+    private MavenSession session;
+
+    @Injectable
+    private Logger log;
+
+    private int created;
+    private Logger accessLog;
+
+    @Before
+    public void setUp() {
+        created = 0;
+        final DefaultRepositorySystemSession repoSession = new DefaultRepositorySystemSession();
+        new Expectations() {{
+            session.getRepositorySession(); result = repoSession; minTimes = 0;
+        }};
+    }
+
+    @Test
+    public void registryIsInstalledBySessionParticipant() {
+        assertNull(DockerAccessRegistry.fromSession(session));
+        new DockerAccessLifecycleParticipant().afterProjectsRead(session);
+        DockerAccessRegistry registry = DockerAccessRegistry.fromSession(session);
+        assertSame(registry, DockerAccessRegistry.fromSession(session));
+        assertSame(registry, DockerAccessRegistry.install(session));
+        assertNull(DockerAccessRegistry.fromSession(null));
+    }
+
+    @Test
+    public void accessIsSharedPerKey(@Injectable final DockerAccess access1,
+                                     @Injectable final DockerAccess access2) throws MojoExecutionException, MojoFailureException {
+        DockerAccessRegistry registry = DockerAccessRegistry.install(session);
+
+        DockerAccessRegistry.SharedAccess first = registry.acquire("unix:///var/run/docker.sock", log, l -> create(access1, l));
+        DockerAccessRegistry.SharedAccess second = registry.acquire("unix:///var/run/docker.sock", log, l -> create(access2, l));
+        DockerAccessRegistry.SharedAccess other = registry.acquire("tcp://remote:2376", log, l -> create(access2, l));
+
+        assertSame(first.getAccess(), second.getAccess());
+        assertNotSame(first.getAccess(), other.getAccess());
+        assertEquals(2, created);
+    }
+
+    @Test
+    public void shutdownAtSessionEnd(@Injectable final DockerAccess access) throws MojoExecutionException, MojoFailureException {
+        DockerAccessLifecycleParticipant participant = new DockerAccessLifecycleParticipant();
+        participant.afterProjectsRead(session);
+        DockerAccessRegistry registry = DockerAccessRegistry.fromSession(session);
+
+        registry.acquire("key", log, l -> create(access, l));
+        assertTrue(registry.release(access));
+        registry.acquire("key", log, l -> create(access, l));
+        assertTrue(registry.release(access));
+        new Verifications() {{
+            access.shutdown(); times = 0;
+        }};
+
+        participant.afterSessionEnd(session);
+        assertEquals(1, created);
+        new Verifications() {{
+            access.shutdown(); times = 1;
+        }};
+    }
+
+    @Test
+    public void accessLogsToCurrentExecution(@Injectable final DockerAccess access,
+                                             @Injectable final Logger otherLog) throws Exception {
+        DockerAccessRegistry registry = DockerAccessRegistry.install(session);
+        registry.acquire("key", log, l -> create(access, l));
+        registry.release(access);
+
+        Thread execution = new Thread(() -> {
+            try {
+                registry.acquire("key", otherLog, l -> create(access, l));
+                accessLog.info("from other execution");
+                registry.release(access);
+            } catch (MojoExecutionException | MojoFailureException exp) {
+                throw new IllegalStateException(exp);
+            }
+        });
+        execution.start();
+        execution.join();
+
+        new Verifications() {{
+            otherLog.info("from other execution"); times = 1;
+            log.info(anyString); times = 0;
+        }};
+    }
+
+    @Test
+    public void releaseOfUnknownAccess(@Injectable final DockerAccess access) {
+        DockerAccessRegistry registry = DockerAccessRegistry.install(session);
+        assertFalse(registry.release(access));
+    }
+
+    private DockerAccessRegistry.SharedAccess create(DockerAccess access, Logger log) {
+        created++;
+        accessLog = log;
+        return new DockerAccessRegistry.SharedAccess(access, "unix:///var/run/docker.sock");
+    }
+}
@@ -194,7 +194,7 @@ public class JibBuildServiceTest {
 
     private void setupDockerAssemblyExpectations(File projectBaseDir) throws MojoExecutionException {
         new Expectations() {{
-            dockerAssemblyManager.createDockerTarArchive(anyString, params, (BuildImageConfiguration) any, logger, null);
+            dockerAssemblyManager.createDockerTarArchiveWithBuildDirectory(anyString, params, (BuildImageConfiguration) any, logger);
             result = new File(projectBaseDir, "target/test/testimage/0.0.1/tmp/docker-build.tar");
 
             serviceHub.getDockerAssemblyManager();
@@ -416,9 +416,12 @@ public class RunServiceTest {
     }
 
     private void addToTracker(String varName, String key, String value) throws NoSuchFieldException, IllegalAccessException {
-        Field field = tracker.getClass().getDeclaredField(varName);
+        Field dataField = tracker.getClass().getDeclaredField("data");
+        dataField.setAccessible(true);
+        Object data = dataField.get(tracker);
+        Field field = data.getClass().getDeclaredField(varName);
         field.setAccessible(true);
-        Map<String, String> map = (Map<String, String>) field.get(tracker);
+        Map<String, String> map = (Map<String, String>) field.get(data);
         map.put(key, value);
     }
 
@@ -222,6 +222,27 @@ public class AnsiLoggerTest {
     }
 
 
+    @Test
+    public void threadPrefix() throws InterruptedException {
+        TestLog testLog = new TestLog();
+        AnsiLogger logger = new AnsiLogger(testLog, false, null, false, "T>");
+        AnsiLogger.setThreadPrefix("[app] ");
+        try {
+            logger.info("Built %s", "image");
+            assertEquals("T>[app] Built image", testLog.getMessage());
+
+            // Other threads are not affected
+            Thread other = new Thread(() -> logger.warn("Pulled"));
+            other.start();
+            other.join();
+            assertEquals("T>Pulled", testLog.getMessage());
+        } finally {
+            AnsiLogger.setThreadPrefix(null);
+        }
+        logger.info("Done");
+        assertEquals("T>Done", testLog.getMessage());
+    }
+
     private class TestLog extends DefaultLog {
         private String message;
 
@@ -0,0 +1,91 @@
+package io.fabric8.maven.docker.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.config.ImageConfiguration;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BuildOrderResolverTest {
+
+    private Map<ImageConfiguration, List<String>> baseImages;
+
+    @Before
+    public void setUp() {
+        baseImages = new HashMap<>();
+    }
+
+    @Test
+    public void independentImages() throws MojoExecutionException {
+        ImageConfiguration app = image("fabric8/app", "openjdk:11");
+        ImageConfiguration db = image("fabric8/db", "postgres:13");
+
+        Map<ImageConfiguration, Set<ImageConfiguration>> dependencies = resolve(app, db);
+        assertEquals(Arrays.asList(app, db), Arrays.asList(dependencies.keySet().toArray()));
+        assertTrue(dependencies.get(app).isEmpty());
+        assertTrue(dependencies.get(db).isEmpty());
+    }
+
+    @Test
+    public void dependentImages() throws MojoExecutionException {
+        ImageConfiguration app = image("fabric8/app:1.0", "fabric8/base", "fabric8/tools:latest");
+        ImageConfiguration base = image("fabric8/base:latest", "alpine");
+        ImageConfiguration tools = image("fabric8/tools", "alpine");
+
+        Map<ImageConfiguration, Set<ImageConfiguration>> dependencies = resolve(app, base, tools);
+        assertEquals(2, dependencies.get(app).size());
+        assertTrue(dependencies.get(app).contains(base));
+        assertTrue(dependencies.get(app).contains(tools));
+        assertTrue(dependencies.get(base).isEmpty());
+    }
+
+    @Test
+    public void dependencyOnAdditionalTag() throws MojoExecutionException {
+        ImageConfiguration base = image("fabric8/base", Collections.singletonList("1.0"), "alpine");
+        ImageConfiguration app = image("fabric8/app", "fabric8/base:1.0");
+
+        Map<ImageConfiguration, Set<ImageConfiguration>> dependencies = resolve(app, base);
+        assertEquals(Collections.singleton(base), dependencies.get(app));
+    }
+
+    @Test
+    public void cyclicDependencies() {
+        ImageConfiguration first = image("fabric8/first", "fabric8/second");
+        ImageConfiguration second = image("fabric8/second", "fabric8/first");
+        try {
+            resolve(first, second);
+            fail("Cyclic dependencies should be detected");
+        } catch (MojoExecutionException exp) {
+            assertTrue(exp.getMessage().contains("fabric8/first"));
+            assertTrue(exp.getMessage().contains("fabric8/second"));
+        }
+    }
+
+    private Map<ImageConfiguration, Set<ImageConfiguration>> resolve(ImageConfiguration ... images) throws MojoExecutionException {
+        return BuildOrderResolver.resolve(Arrays.asList(images), baseImages::get);
+    }
+
+    private ImageConfiguration image(String name, String ... from) {
+        return image(name, Collections.emptyList(), from);
+    }
+
+    private ImageConfiguration image(String name, List<String> tags, String ... from) {
+        ImageConfiguration image = new ImageConfiguration.Builder()
+                .name(name)
+                .buildConfig(new BuildImageConfiguration.Builder().tags(tags).build())
+                .build();
+        baseImages.put(image, Arrays.asList(from));
+        return image;
+    }
+}
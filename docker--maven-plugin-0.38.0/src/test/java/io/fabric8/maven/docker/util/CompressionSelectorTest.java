@@ -0,0 +1,121 @@
+package io.fabric8.maven.docker.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import io.fabric8.maven.docker.access.DockerTransport;
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CompressionSelectorTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void localDaemon() {
+        byte[] sample = compressibleData(100_000);
+        assertEquals(ArchiveCompression.none,
+                     new CompressionSelector(new DockerTransport(true), null).select(sample, sample.length));
+    }
+
+    @Test
+    public void remoteDaemon() {
+        CompressionSelector selector = new CompressionSelector(new DockerTransport(false), null);
+        byte[] compressible = compressibleData(100_000);
+        assertEquals(ArchiveCompression.pgzip, selector.select(compressible, compressible.length));
+
+        // Already compressed content, like jars
+        byte[] random = new byte[100_000];
+        new Random(0).nextBytes(random);
+        assertEquals(ArchiveCompression.none, selector.select(random, random.length));
+
+        assertEquals(ArchiveCompression.none, selector.select(new byte[0], 0));
+    }
+
+    @Test
+    public void threads() {
+        assertEquals(3, new CompressionSelector(null, null, 3).getThreads());
+        assertEquals(Runtime.getRuntime().availableProcessors(), new CompressionSelector(null, null, 0).getThreads());
+        assertEquals(Runtime.getRuntime().availableProcessors(), new CompressionSelector(null, null).getThreads());
+    }
+
+    @Test
+    public void measuredThroughput() {
+        // Fast link, compressing would take longer than sending
+        assertEquals(ArchiveCompression.none, CompressionSelector.select(0.3, 50 * MB, 1000 * MB));
+        // Slow link
+        assertEquals(ArchiveCompression.pgzip, CompressionSelector.select(0.3, 50 * MB, 10 * MB));
+        // Link nearly as fast as compressing, which still pays off
+        assertEquals(ArchiveCompression.pgzip, CompressionSelector.select(0.3, 80 * MB, 50 * MB));
+        // Not enough saved
+        assertEquals(ArchiveCompression.none, CompressionSelector.select(0.95, 500 * MB, MB));
+        // Not measured yet
+        assertEquals(ArchiveCompression.pgzip, CompressionSelector.select(0.3, 50 * MB, -1));
+    }
+
+    @Test
+    public void transportThroughput() {
+        DockerTransport transport = new DockerTransport(false);
+        assertEquals(-1, transport.getUploadThroughput());
+        transport.recordUpload(10 * MB, 2_000_000_000L);
+        assertEquals(5 * MB, transport.getUploadThroughput());
+    }
+
+    @Test
+    public void adaptiveStreamCompressesLargeData() throws IOException {
+        byte[] data = compressibleData(CompressionSelector.SAMPLE_SIZE * 2 + 123);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AdaptiveCompressionOutputStream adaptive =
+            new AdaptiveCompressionOutputStream(out, new CompressionSelector(new DockerTransport(false), null));
+        for (int i = 0; i < data.length; i += 5000) {
+            adaptive.write(data, i, Math.min(5000, data.length - i));
+        }
+        assertEquals(ArchiveCompression.pgzip, adaptive.getSelectedCompression());
+        adaptive.close();
+        assertArrayEquals(data, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    public void adaptiveStreamSelectsOnClose() throws IOException {
+        byte[] data = compressibleData(1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream adaptive = new AdaptiveCompressionOutputStream(out, new CompressionSelector(new DockerTransport(true), null))) {
+            adaptive.write(data);
+            assertEquals(0, out.size());
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void autoCompressionWithoutTransport() throws IOException {
+        byte[] data = compressibleData(10_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressed = ArchiveCompression.auto.wrapOutputStream(out)) {
+            compressed.write(data);
+        }
+        assertArrayEquals(data, gunzip(out.toByteArray()));
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private byte[] compressibleData(int size) {
+        Random random = new Random(size);
+        StringBuilder text = new StringBuilder(size + 16);
+        while (text.length() < size) {
+            text.append("entry-").append(random.nextInt(100)).append(' ');
+        }
+        return text.substring(0, size).getBytes();
+    }
+}
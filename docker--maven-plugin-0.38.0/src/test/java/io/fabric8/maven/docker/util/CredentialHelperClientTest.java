@@ -1,10 +1,18 @@
 package io.fabric8.maven.docker.util;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import io.fabric8.maven.docker.access.AuthConfig;
+import io.fabric8.maven.docker.access.util.ExternalCommand;
+import mockit.Invocation;
+import mockit.Mock;
+import mockit.MockUp;
 import mockit.Mocked;
 import mockit.Tested;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -50,6 +58,60 @@ public class CredentialHelperClientTest {
         assertEquals("identity token should match", "gigantic-mess-of-jwt", this.authConfig.getIdentityToken());
     }
 
+    @Test
+    public void testAnswersAreCachedPerRegistry() throws MojoExecutionException {
+        AtomicInteger calls = givenCredentialHelperReply("{\"Username\":\"jane_doe\",\"Secret\":\"not-really\"}");
+
+        CredentialHelperCache cache = new CredentialHelperCache();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("jane_doe", new CredentialHelperClient(logger, "desktop", cache, 300).getAuthConfig("registry1").getUsername());
+        }
+        assertEquals(1, calls.get());
+
+        new CredentialHelperClient(logger, "desktop", cache, 300).getAuthConfig("registry2");
+        new CredentialHelperClient(logger, "other", cache, 300).getAuthConfig("registry1");
+        assertEquals(3, calls.get());
+
+        // Another session
+        new CredentialHelperClient(logger, "desktop", new CredentialHelperCache(), 300).getAuthConfig("registry1");
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testCachingDisabled() throws MojoExecutionException {
+        AtomicInteger calls = givenCredentialHelperReply("{\"Username\":\"jane_doe\",\"Secret\":\"not-really\"}");
+        CredentialHelperClient client = new CredentialHelperClient(logger, "desktop", new CredentialHelperCache(), 0);
+
+        client.getAuthConfig("registry1");
+        client.getAuthConfig("registry1");
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testMissingCredentialsAreNotCached() throws MojoExecutionException {
+        AtomicInteger calls = givenCredentialHelperReply("{}");
+        CredentialHelperClient client = new CredentialHelperClient(logger, "desktop", new CredentialHelperCache(), 300);
+
+        assertNull(client.getAuthConfig("registry1"));
+        assertNull(client.getAuthConfig("registry1"));
+        // Each lookup tries the registry name and its URL
+        assertEquals(4, calls.get());
+    }
+
+    private AtomicInteger givenCredentialHelperReply(String reply) {
+        AtomicInteger calls = new AtomicInteger();
+        new MockUp<ExternalCommand>() {
+            @Mock
+            void execute(Invocation invocation, String input) throws Exception {
+                calls.incrementAndGet();
+                Method processLine = ExternalCommand.class.getDeclaredMethod("processLine", String.class);
+                processLine.setAccessible(true);
+                processLine.invoke(invocation.getInvokedInstance(), reply);
+            }
+        };
+        return calls;
+    }
+
     private void givenJson(String json) {
         this.jsonObject = this.gson.fromJson(json, JsonObject.class);
     }
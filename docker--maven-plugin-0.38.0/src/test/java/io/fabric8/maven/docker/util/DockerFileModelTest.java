@@ -0,0 +1,116 @@
+package io.fabric8.maven.docker.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.interpolation.fixed.PropertiesBasedValueSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class DockerFileModelTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void continuationLinesAndComments() {
+        DockerFileModel model = new DockerFileModel(Arrays.asList(
+            "FROM busybox",
+            "# COPY commented /out",
+            "RUN echo hello \\",
+            "  # comment within a continuation",
+            "    && echo world",
+            "",
+            "  copy --chown=1000 maven /maven"));
+
+        List<String[]> runs = model.getInstructions("RUN");
+        assertEquals(1, runs.size());
+        assertArrayEquals(new String[] { "RUN", "echo", "hello", "&&", "echo", "world" }, runs.get(0));
+
+        List<String[]> copies = model.getInstructions("COPY");
+        assertEquals(1, copies.size());
+        assertEquals(Arrays.asList("maven", "/maven"), DockerFileModel.getArguments(copies.get(0)));
+    }
+
+    @Test
+    public void escapeDirective() {
+        DockerFileModel model = new DockerFileModel(Arrays.asList(
+            "# escape=`",
+            "FROM microsoft/nanoserver",
+            "COPY testfile.txt c:\\",
+            "RUN dir `",
+            "    c:\\"));
+
+        assertArrayEquals(new String[] { "COPY", "testfile.txt", "c:\\" }, model.getInstructions("COPY").get(0));
+        assertArrayEquals(new String[] { "RUN", "dir", "c:\\" }, model.getInstructions("RUN").get(0));
+    }
+
+    @Test
+    public void stageNames() {
+        DockerFileModel model = new DockerFileModel(Arrays.asList(
+            "FROM --platform=$BUILDPLATFORM golang:1.15 AS build",
+            "FROM build as test",
+            "FROM alpine"));
+
+        assertEquals(Arrays.asList("build", "test"), model.getStageNames());
+        assertEquals(Arrays.asList("golang:1.15", "AS", "build"), DockerFileModel.getArguments(model.getInstructions("FROM").get(0)));
+    }
+
+    @Test
+    public void content() {
+        DockerFileModel model = new DockerFileModel(Arrays.asList("FROM busybox", "", "# comment"));
+        String sep = System.lineSeparator();
+        assertEquals("FROM busybox" + sep + sep + "# comment" + sep, model.getContent());
+    }
+
+    @Test
+    public void cachedPerFileContentAndInterpolator() throws IOException {
+        File dockerFile = tmp.newFile("Dockerfile");
+        write(dockerFile, "FROM ${base}");
+        FixedStringSearchInterpolator interpolator =
+            FixedStringSearchInterpolator.create(new PropertiesBasedValueSource(properties("base", "busybox")));
+
+        DockerFileModel model = DockerFileModel.of(dockerFile, interpolator);
+        assertArrayEquals(new String[] { "FROM", "busybox" }, model.getInstructions("FROM").get(0));
+        assertSame(model, DockerFileModel.of(dockerFile, interpolator));
+
+        FixedStringSearchInterpolator other =
+            FixedStringSearchInterpolator.create(new PropertiesBasedValueSource(properties("base", "alpine")));
+        assertArrayEquals(new String[] { "FROM", "alpine" }, DockerFileModel.of(dockerFile, other).getInstructions("FROM").get(0));
+
+        write(dockerFile, "FROM ${base}:3");
+        dockerFile.setLastModified(dockerFile.lastModified() + 2000);
+        DockerFileModel changed = DockerFileModel.of(dockerFile, interpolator);
+        assertNotSame(model, changed);
+        assertArrayEquals(new String[] { "FROM", "busybox:3" }, changed.getInstructions("FROM").get(0));
+
+        // Regenerated with the same length and modification time
+        long lastModified = dockerFile.lastModified();
+        write(dockerFile, "FROM ${base}:4");
+        dockerFile.setLastModified(lastModified);
+        assertArrayEquals(new String[] { "FROM", "busybox:4" },
+                          DockerFileModel.of(dockerFile, interpolator).getInstructions("FROM").get(0));
+    }
+
+    private Properties properties(String key, String value) {
+        Properties ret = new Properties();
+        ret.setProperty(key, value);
+        return ret;
+    }
+
+    private void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
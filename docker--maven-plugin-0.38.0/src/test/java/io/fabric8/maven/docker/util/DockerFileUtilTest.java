@@ -20,6 +20,7 @@ import java.nio.file.Files;
 import java.util.*;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonObject;
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.repository.MavenArtifactRepository;
@@ -28,11 +29,17 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
 import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
 import org.codehaus.plexus.util.IOUtil;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.EnvironmentVariables;
+import org.junit.rules.TemporaryFolder;
 
 import static io.fabric8.maven.docker.util.PathTestUtil.createTmpFile;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author roland
@@ -40,6 +47,12 @@ import static org.junit.Assert.assertFalse;
  */
 public class DockerFileUtilTest {
 
+    @Rule
+    public final EnvironmentVariables environmentVariables = new EnvironmentVariables();
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void testSimple() throws Exception {
         File toTest = copyToTempDir("Dockerfile_from_simple");
@@ -180,6 +193,23 @@ public class DockerFileUtilTest {
         }
     }
 
+    @Test
+    public void interpolatorReused() {
+        MojoParameters params = mockMojoParams();
+        FixedStringSearchInterpolator interpolator = DockerFileUtil.createInterpolator(params, "${*}");
+        assertSame(interpolator, DockerFileUtil.createInterpolator(params, "${*}"));
+        assertNotSame(interpolator, DockerFileUtil.createInterpolator(params, "@"));
+        assertNotSame(interpolator, DockerFileUtil.createInterpolator(mockMojoParams(), "${*}"));
+    }
+
+    @Test
+    public void testMultiStageWithPlatform() throws Exception {
+        File toTest = Files.createTempFile("Dockerfile", "").toFile();
+        FileUtils.write(toTest, "FROM --platform=linux/amd64 golang AS build\nFROM --platform=linux/amd64 build\n", "UTF-8");
+        assertEquals(Collections.singletonList("golang"), DockerFileUtil.extractBaseImages(
+            toTest, FixedStringSearchInterpolator.create(), Collections.emptyMap()));
+    }
+
     private File getDockerfilePath(int i, String dir) {
         ClassLoader classLoader = getClass().getClassLoader();
         return new File(classLoader.getResource(
@@ -208,4 +238,24 @@ public class DockerFileUtilTest {
         session.getSystemProperties().put("user.name", "somebody"); // Java system property: -Duser.name=somebody
         return new MojoParameters(session, project, null, null, null, settings, "src", "target", Collections.singletonList(project));
     }
+    @Test
+    public void readDockerConfigCachedUntilModified() throws IOException {
+        File configDir = tmp.newFolder(".docker");
+        File configFile = new File(configDir, "config.json");
+        environmentVariables.set("DOCKER_CONFIG", configDir.getAbsolutePath());
+        FileUtils.write(configFile, "{\"credsStore\":\"desktop\"}", "UTF-8");
+
+        JsonObject config = DockerFileUtil.readDockerConfig();
+        assertEquals("desktop", config.get("credsStore").getAsString());
+        // Callers get their own copy
+        config.addProperty("credsStore", "changed");
+        assertEquals("desktop", DockerFileUtil.readDockerConfig().get("credsStore").getAsString());
+
+        FileUtils.write(configFile, "{\"credsStore\":\"osxkeychain\"}", "UTF-8");
+        configFile.setLastModified(configFile.lastModified() + 2000);
+        assertEquals("osxkeychain", DockerFileUtil.readDockerConfig().get("credsStore").getAsString());
+
+        FileUtils.write(configFile, "", "UTF-8");
+        assertNull(DockerFileUtil.readDockerConfig());
+    }
 }
@@ -0,0 +1,108 @@
+package io.fabric8.maven.docker.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelGzipOutputStreamTest {
+
+    @Test
+    public void multipleBlocks() throws IOException {
+        byte[] data = createData(1000 * 1000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGzipOutputStream(compressed, 4, 3, 64 * 1024)) {
+            // Uneven writes, crossing block borders
+            int pos = 0;
+            int chunk = 1;
+            while (pos < data.length) {
+                int len = Math.min(chunk, data.length - pos);
+                out.write(data, pos, len);
+                pos += len;
+                chunk = chunk * 3 % 100_003 + 1;
+            }
+        }
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    public void repeatedDataAcrossBlocks() throws IOException {
+        // Back references from the start of a block point into the previous block
+        byte[] pattern = createData(20 * 1024);
+        byte[] data = new byte[1024 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = pattern[i % pattern.length];
+        }
+        byte[] compressed = compress(data, 4);
+        assertArrayEquals(data, gunzip(compressed));
+
+        ByteArrayOutputStream singleStream = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(singleStream) {{ def.setLevel(3); }}) {
+            out.write(data);
+        }
+        assertTrue("Compressed size " + compressed.length + " vs. " + singleStream.size(),
+                   compressed.length < singleStream.size() * 1.05);
+    }
+
+    @Test
+    public void emptyAndSingleByte() throws IOException {
+        assertArrayEquals(new byte[0], gunzip(compress(new byte[0], 2)));
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGzipOutputStream(compressed, 1, 3)) {
+            out.write(42);
+        }
+        assertArrayEquals(new byte[] { 42 }, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    public void exactBlockSize() throws IOException {
+        byte[] data = createData(ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE * 2);
+        assertArrayEquals(data, gunzip(compress(data, 3)));
+    }
+
+    @Test
+    public void archiveCompression() throws IOException {
+        byte[] data = createData(300 * 1000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = ArchiveCompression.pgzip.wrapOutputStream(compressed)) {
+            out.write(data);
+        }
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    private byte[] compress(byte[] data, int threads) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGzipOutputStream(compressed, threads, 3)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    // Random words, so that the data is compressible but not trivially
+    private byte[] createData(int size) {
+        Random random = new Random(size);
+        String[] words = { "docker", "maven", "plugin", "image", "container", "layer", "tar", "gzip" };
+        StringBuilder text = new StringBuilder(size + 16);
+        while (text.length() < size) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(1000)).append(' ');
+        }
+        return text.substring(0, size).getBytes();
+    }
+}